@@ -0,0 +1,73 @@
+package com.enterprise.gestaoestoque.configuration.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mede quanto tempo cada conexão fica fora do pool, do getConnection ao close, e soma na requisição HTTP da thread.
+ * Fora de uma requisição (jobs agendados, filas de movimentação) a conexão é devolvida sem embrulho.
+ */
+public class ConnectionHoldTimeDataSource extends DelegatingDataSource {
+
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+
+    public ConnectionHoldTimeDataSource(DataSource target) {
+        super(target);
+    }
+
+    static Usage begin() {
+        var usage = new Usage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(super.getConnection(username, password));
+    }
+
+    private static Connection track(Connection connection) {
+        var usage = CURRENT.get();
+        if (usage == null) {
+            return connection;
+        }
+        usage.checkouts.incrementAndGet();
+        long start = System.nanoTime();
+        var closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        usage.nanos.addAndGet(System.nanoTime() - start);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    // Tempo somado das conexões e quantas foram retiradas do pool durante a requisição
+    static final class Usage {
+
+        final AtomicLong nanos = new AtomicLong();
+        final AtomicInteger checkouts = new AtomicInteger();
+    }
+}
@@ -0,0 +1,54 @@
+package com.enterprise.gestaoestoque.configuration.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publica, por rota, o tempo total em que a requisição segurou conexões do pool (http.server.requests.connection.hold)
+ * e quantas conexões ela retirou (http.server.requests.connection.checkouts). Roda antes da segurança para contar
+ * também a carga do usuário na autenticação. Com open-in-view desligado a serialização da resposta fica fora da conta.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ConnectionHoldTimeFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        var usage = ConnectionHoldTimeDataSource.begin();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ConnectionHoldTimeDataSource.end();
+            var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            var uri = pattern == null ? "UNKNOWN" : pattern.toString();
+            Timer.builder("http.server.requests.connection.hold")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(usage.nanos.get(), TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("http.server.requests.connection.checkouts")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(usage.checkouts.get());
+        }
+    }
+}
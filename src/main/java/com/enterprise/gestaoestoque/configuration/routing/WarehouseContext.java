@@ -0,0 +1,35 @@
+package com.enterprise.gestaoestoque.configuration.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Depósito das consultas em andamento na thread, usado pelo {@link WarehouseRoutingDataSource} para escolher a
+ * conexão. A conexão é obtida quando a transação começa, então o depósito precisa ser definido antes dela: dentro
+ * de uma transação já aberta a consulta continua na conexão dessa transação (o datasource principal).
+ */
+public final class WarehouseContext {
+
+    private static final ThreadLocal<Long> CURRENT = new ThreadLocal<>();
+
+    private WarehouseContext() {
+    }
+
+    public static Long currentWarehouseId() {
+        return CURRENT.get();
+    }
+
+    // Só para leituras: gravações sempre vão ao datasource principal
+    public static <T> T read(Long warehouseId, Supplier<T> query) {
+        var previous = CURRENT.get();
+        CURRENT.set(warehouseId);
+        try {
+            return query.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
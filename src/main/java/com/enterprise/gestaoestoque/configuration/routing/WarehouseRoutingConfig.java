@@ -0,0 +1,41 @@
+package com.enterprise.gestaoestoque.configuration.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+
+/**
+ * Ligado por inventory.warehouses.routing.enabled: o datasource da aplicação passa a ser o principal
+ * (spring.datasource) mais uma partição por entrada de inventory.warehouses.routing.partitions, cada uma com as
+ * linhas dos depósitos atribuídos a ela em inventory.warehouses.routing.assignments.
+ */
+@Configuration
+@ConditionalOnProperty(name = "inventory.warehouses.routing.enabled", havingValue = "true")
+@EnableConfigurationProperties(WarehouseRoutingProperties.class)
+public class WarehouseRoutingConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, WarehouseRoutingProperties routingProperties) {
+        var primary = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        var partitions = new HashMap<String, DataSource>();
+        routingProperties.partitions().forEach((name, partition) -> {
+            var dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                    .url(partition.url())
+                    .username(partition.username())
+                    .password(partition.password())
+                    .build();
+            dataSource.setPoolName("warehouse-" + name);
+            partitions.put(name, dataSource);
+        });
+        return new WarehouseRoutingDataSource(primary, partitions, routingProperties.assignments());
+    }
+}
@@ -0,0 +1,34 @@
+package com.enterprise.gestaoestoque.configuration.routing;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encaminha as leituras de um depósito para a partição atribuída a ele. Sem depósito na thread, ou para
+ * depósitos sem atribuição, usa o datasource principal.
+ */
+public class WarehouseRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<Long, String> assignments;
+
+    public WarehouseRoutingDataSource(DataSource primary, Map<String, DataSource> partitions, Map<Long, String> assignments) {
+        assignments.forEach((warehouseId, partition) -> {
+            if (!partitions.containsKey(partition)) {
+                throw new IllegalStateException("Depósito " + warehouseId + " atribuído a uma partição inexistente: " + partition);
+            }
+        });
+        this.assignments = Map.copyOf(assignments);
+        setDefaultTargetDataSource(primary);
+        setTargetDataSources(new HashMap<>(partitions));
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        var warehouseId = WarehouseContext.currentWarehouseId();
+        return warehouseId == null ? null : assignments.get(warehouseId);
+    }
+}
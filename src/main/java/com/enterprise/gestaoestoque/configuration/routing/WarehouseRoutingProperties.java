@@ -0,0 +1,23 @@
+package com.enterprise.gestaoestoque.configuration.routing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "inventory.warehouses.routing")
+public record WarehouseRoutingProperties(
+        boolean enabled,
+        Map<String, Partition> partitions,
+        Map<Long, String> assignments
+) {
+    public WarehouseRoutingProperties {
+        partitions = partitions == null ? Map.of() : partitions;
+        assignments = assignments == null ? Map.of() : assignments;
+    }
+
+    public record Partition(
+            String url,
+            String username,
+            String password
+    ) {}
+}
@@ -21,7 +21,7 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        var user = userRepository.findByEmail(username).orElseThrow(
+        var user = userRepository.findWithAuthoritiesByEmail(username).orElseThrow(
                 () -> new ResourceAccessException("Usuário não encontrado:  " + username));
         if (!user.getIsActive()) {
             throw new BusinessException("Usuário desativado, contate o administrador");
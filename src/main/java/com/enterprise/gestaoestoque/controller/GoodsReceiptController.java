@@ -0,0 +1,45 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.model.dto.receipt.GoodsReceiptRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.receipt.GoodsReceiptResponseDTO;
+import com.enterprise.gestaoestoque.service.GoodsReceiptService;
+import com.enterprise.gestaoestoque.service.IdempotencyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/goods-receipts")
+public class GoodsReceiptController {
+
+    private final GoodsReceiptService goodsReceiptService;
+    private final IdempotencyService idempotencyService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Operation(
+            summary = "Registra o recebimento de uma nota: cria todos os lotes em uma única transação, cada um com" +
+                    " a sua movimentação de ENTRADA. Com o header 'Idempotency-Key', repetições da mesma requisição" +
+                    " devolvem o recebimento original em vez de criar lotes duplicados.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas"),
+                    @ApiResponse(responseCode = "404", description = "Fornecedor ou produto não encontrado")
+            }
+    )
+    @PostMapping
+    public ResponseEntity<GoodsReceiptResponseDTO> createGoodsReceipt(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody GoodsReceiptRequestDTO receiptDTO) {
+        var result = idempotencyService.execute("goods-receipts", idempotencyKey, receiptDTO,
+                GoodsReceiptResponseDTO.class, () -> goodsReceiptService.createGoodsReceipt(receiptDTO));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+}
@@ -1,42 +1,81 @@
 package com.enterprise.gestaoestoque.controller;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
+import com.enterprise.gestaoestoque.model.dto.inventory.FefoMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementHistoryDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.service.IdempotencyService;
 import com.enterprise.gestaoestoque.service.InventoryMovementService;
+import com.enterprise.gestaoestoque.service.MovementMailboxService;
 import com.enterprise.gestaoestoque.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("inventory-movements")
 public class InventoryMovementController {
 
     private final InventoryMovementService inventoryMovementService;
+    private final IdempotencyService idempotencyService;
+    private final MovementMailboxService movementMailboxService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
 
     @Operation(
-            summary = "Retorna todos as movimentações de inventário, em páginas com 10 objetos ordenados por id.",
+            summary = "Retorna todos as movimentações de inventário, em páginas com 10 objetos ordenados por id." +
+                    " Com 'warehouseId', só as movimentações do depósito informado." +
+                    " Com 'total' = APPROXIMATE, o total de registros é uma estimativa atualizada periodicamente; com" +
+                    " 'total' = NONE, não há total, só a indicação de última página ('last').",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
                     @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
             })
     @GetMapping
-    public ResponseEntity<Page<InventoryMovementResponseDTO>> getAllInventoryMovements(@PageableDefault(page = 1, size = 10, sort = "id")
-                                                                                       Pageable pageable) {
+    public ResponseEntity<Slice<InventoryMovementResponseDTO>> getAllInventoryMovements(@RequestParam(required = false) Long warehouseId,
+                                                                                        @RequestParam(defaultValue = "EXACT") PageTotal total,
+                                                                                        @PageableDefault(page = 1, size = 10, sort = "id")
+                                                                                        Pageable pageable) {
 
-        var movements = inventoryMovementService.getAllInventoryMovements(pageable);
+        var movements = inventoryMovementService.getAllInventoryMovements(warehouseId, pageable, total);
         return movements.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(movements);
     }
 
+    @Operation(
+            summary = "Retorna o histórico de movimentações de inventário, da mais recente para a mais antiga, em" +
+                    " páginas de 'size' objetos (máximo 100). Para a próxima página, repasse em 'cursor' o" +
+                    " 'nextCursor' da resposta; ele é nulo na última. Não calcula o total de registros, e o tempo" +
+                    " de resposta não depende da profundidade da página. Com 'warehouseId', só as movimentações do" +
+                    " depósito informado.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir"),
+                    @ApiResponse(responseCode = "400", description = "Cursor ou tamanho de página inválido")
+            })
+    @GetMapping("/history")
+    public ResponseEntity<InventoryMovementHistoryDTO> getInventoryMovementHistory(@RequestParam(required = false) Long warehouseId,
+                                                                                   @RequestParam(required = false) String cursor,
+                                                                                   @RequestParam(defaultValue = "10") int size) {
+
+        var history = inventoryMovementService.getInventoryMovementHistory(warehouseId, cursor, size);
+        return history.content().isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(history);
+    }
+
     @Operation(
             summary = "Retorna uma movimentação de inventário com o id informado.",
             responses = {
@@ -50,24 +89,60 @@ public class InventoryMovementController {
     }
 
     @Operation(
-            summary = "Cria uma nova movimentação de inventário.",
+            summary = "Cria uma nova movimentação de inventário. Com o header 'Idempotency-Key', repetições da mesma" +
+                    " requisição devolvem a movimentação original sem baixar o estoque novamente.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Sucesso"),
                     @ApiResponse(responseCode = "400", description = "Informações inválidas")
             }
     )
     @PostMapping
-    public ResponseEntity<InventoryMovementResponseDTO> createInventoryMovement(@Valid @RequestBody InventoryMovementRequestDTO movementDTO) {
-        var movement = inventoryMovementService.createInventoryMovement(movementDTO);
+    public ResponseEntity<InventoryMovementResponseDTO> createInventoryMovement(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody InventoryMovementRequestDTO movementDTO) {
+
+        var result = idempotencyService.execute("inventory-movements", idempotencyKey, movementDTO,
+                InventoryMovementResponseDTO.class, () -> movementMailboxService.createInventoryMovement(movementDTO));
+        var movement = result.body();
         var uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(movement.id()).toUri();
-        return ResponseEntity.created(uri).body(movement);
+        return ResponseEntity.created(uri).header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed())).body(movement);
+    }
+
+    @Operation(
+            summary = "Cria movimentações de saída para um produto, distribuindo a quantidade entre os lotes ATIVO" +
+                    " do que vence primeiro para o último (FEFO). Retorna uma movimentação por lote utilizado.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas ou estoque insuficiente"),
+                    @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+            }
+    )
+    @PostMapping("/fefo")
+    public ResponseEntity<List<InventoryMovementResponseDTO>> createFefoMovement(@Valid @RequestBody FefoMovementRequestDTO fefoDTO) {
+        var movements = inventoryMovementService.createFefoMovement(fefoDTO);
+        return ResponseEntity.status(HttpStatus.CREATED).body(movements);
+    }
+
+    @Operation(
+            summary = "Cria várias movimentações de inventário em um único envio. Itens inválidos não interrompem" +
+                    " o envio: o resultado de cada item é retornado na mesma ordem recebida.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Envio processado, ver o resultado de cada item"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas")
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<InventoryMovementBatchResponseDTO> createInventoryMovementBatch(@Valid @RequestBody InventoryMovementBatchRequestDTO batchDTO) {
+        return ResponseEntity.ok(inventoryMovementService.createInventoryMovementBatch(batchDTO));
     }
 
     @Operation(
-            summary = "Exclui a movimentação de inventário com o id informado. Para chamar este endpoint" +
+            summary = "Estorna a baixa (USO_PRODUCAO ou PERDA) com o id informado: registra um ESTORNO que devolve a" +
+                    " quantidade ao lote, sem apagar a movimentação original. Para chamar este endpoint" +
                     " é necessário possuir a permissão 'SUPERVISOR'",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Movimentação que não é baixa ou já estornada"),
                     @ApiResponse(responseCode = "403", description = "Usuário sem permissão"),
                     @ApiResponse(responseCode = "404", description = "Movimentação não encontrada")
             }
@@ -76,6 +151,6 @@ public class InventoryMovementController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<String> deleteInventoryTransaction(@PathVariable Long id) {
         inventoryMovementService.deleteMovement(id);
-        return ResponseEntity.ok("Movimentação excluída com sucesso: " + id);
+        return ResponseEntity.ok("Movimentação estornada com sucesso: " + id);
     }
 }
@@ -1,14 +1,16 @@
 package com.enterprise.gestaoestoque.controller;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.model.dto.lot.LotRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.lot.LotResponseDTO;
+import com.enterprise.gestaoestoque.service.IdempotencyService;
 import com.enterprise.gestaoestoque.service.LotService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -21,17 +23,25 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 public class LotController {
 
     private final LotService lotService;
+    private final IdempotencyService idempotencyService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
 
     @Operation(
-            summary = "Retorna todos os lotes, em páginas com 10 objetos ordenados por id.",
+            summary = "Retorna todos os lotes, em páginas com 10 objetos ordenados por id. Com 'warehouseId'," +
+                    " só os lotes do depósito informado." +
+                    " Com 'total' = APPROXIMATE, o total de registros é uma estimativa atualizada periodicamente; com" +
+                    " 'total' = NONE, não há total, só a indicação de última página ('last').",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
                     @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
             }
     )
     @GetMapping
-    public ResponseEntity<Page<LotResponseDTO>> getAllLots(@PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
-        var lots = lotService.getAllLots(pageable);
+    public ResponseEntity<Slice<LotResponseDTO>> getAllLots(@RequestParam(required = false) Long warehouseId,
+                                                            @RequestParam(defaultValue = "EXACT") PageTotal total,
+                                                            @PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var lots = lotService.getAllLots(warehouseId, pageable, total);
         return lots.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(lots);
     }
 
@@ -48,17 +58,23 @@ public class LotController {
     }
 
     @Operation(
-            summary = "Cria um novo lote.",
+            summary = "Cria um novo lote. Com o header 'Idempotency-Key', repetições da mesma requisição devolvem" +
+                    " o lote original em vez de criar um duplicado.",
             responses = {
                     @ApiResponse(responseCode = "201", description = "Sucesso"),
                     @ApiResponse(responseCode = "400", description = "Informações inválidas")
             }
     )
     @PostMapping
-    public ResponseEntity<LotResponseDTO> createLot(@Valid @RequestBody LotRequestDTO lotDTO) {
-        var lot = lotService.createLot(lotDTO);
+    public ResponseEntity<LotResponseDTO> createLot(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody LotRequestDTO lotDTO) {
+
+        var result = idempotencyService.execute("lots", idempotencyKey, lotDTO,
+                LotResponseDTO.class, () -> lotService.createLot(lotDTO));
+        var lot = result.body();
         var uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(lot.id()).toUri();
-        return ResponseEntity.created(uri).body(lot);
+        return ResponseEntity.created(uri).header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed())).body(lot);
     }
 
     @Operation(
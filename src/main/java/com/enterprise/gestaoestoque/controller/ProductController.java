@@ -1,38 +1,50 @@
 package com.enterprise.gestaoestoque.controller;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
 import com.enterprise.gestaoestoque.model.dto.product.ProductRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductResponseDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductUpdateDTO;
+import com.enterprise.gestaoestoque.model.dto.product.StockAsOfDTO;
 import com.enterprise.gestaoestoque.service.ProductService;
+import com.enterprise.gestaoestoque.service.StockHistoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/products")
 public class ProductController {
 
-    private ProductService productService;
+    private final ProductService productService;
+    private final StockHistoryService stockHistoryService;
 
     @Operation(
-            summary = "Retorna todos os produtos, em páginas com 10 objetos ordenados por id.",
+            summary = "Retorna todos os produtos, em páginas com 10 objetos ordenados por id." +
+                    " Com 'total' = APPROXIMATE, o total de registros é uma estimativa atualizada periodicamente; com" +
+                    " 'total' = NONE, não há total, só a indicação de última página ('last').",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
                     @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
             }
     )
     @GetMapping
-    public ResponseEntity<Page<ProductResponseDTO>> getAllProducts(@PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
-        var products = productService.getAllProducts(pageable);
+    public ResponseEntity<Slice<ProductResponseDTO>> getAllProducts(@RequestParam(defaultValue = "EXACT") PageTotal total,
+                                                                    @PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var products = productService.getAllProducts(pageable, total);
         return products.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(products);
     }
 
@@ -48,6 +60,38 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    @Operation(
+            summary = "Retorna o estoque físico do produto (saldo de todos os seus lotes) na data e hora informada," +
+                    " lido do saldo registrado em cada movimentação.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Data futura"),
+                    @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+            }
+    )
+    @GetMapping("/{id}/stock-as-of")
+    public ResponseEntity<StockAsOfDTO> getProductStockAsOf(@PathVariable Long id,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(stockHistoryService.getProductStockAsOf(id, at));
+    }
+
+    @Operation(
+            summary = "Retorna o estoque físico de cada produto da categoria na data e hora informada, em páginas com" +
+                    " 10 objetos ordenados por id.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir"),
+                    @ApiResponse(responseCode = "400", description = "Data futura")
+            }
+    )
+    @GetMapping("/stock-as-of")
+    public ResponseEntity<Page<StockAsOfDTO>> getCategoryStockAsOf(@RequestParam ProductCategory category,
+                                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at,
+                                                                   @PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var stock = stockHistoryService.getCategoryStockAsOf(category, at, pageable);
+        return stock.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(stock);
+    }
+
     @Operation(
             summary = "Cria um novo produto.",
             responses = {
@@ -75,6 +119,36 @@ public class ProductController {
         return ResponseEntity.ok(productService.updateProduct(id, productDTO));
     }
 
+    @Operation(
+            summary = "Recalcula o estoque total do produto a partir dos lotes ativos. Operação de reparo, " +
+                    "para chamar este endpoint é necessário possuir a permissão 'SUPERVISOR' ou 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão"),
+                    @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+            }
+    )
+    @PostMapping("/{id}/recalculate-stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<ProductResponseDTO> recalculateTotalStock(@PathVariable Long id) {
+        return ResponseEntity.ok(productService.recalculateTotalStock(id));
+    }
+
+    @Operation(
+            summary = "Recalcula o estoque total de todos os produtos a partir dos lotes ativos. Operação de reparo, " +
+                    "para chamar este endpoint é necessário possuir a permissão 'SUPERVISOR' ou 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão")
+            }
+    )
+    @PostMapping("/recalculate-stock")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<String> recalculateAllTotalStock() {
+        var updated = productService.recalculateAllTotalStock();
+        return ResponseEntity.ok("Estoque total recalculado para " + updated + " produto(s)");
+    }
+
     @Operation(
             summary = "Exclui o produto com o id informado. Para chamar este endpoint" +
                     " é necessário possuir a permissão 'SUPERVISOR' ou 'ADMIN'.",
@@ -0,0 +1,79 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.model.dto.product.UnitRuleDTO;
+import com.enterprise.gestaoestoque.model.dto.product.UnitRuleRequestDTO;
+import com.enterprise.gestaoestoque.service.ProductUnitRuleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/products/unit-rules")
+public class ProductUnitRuleController {
+
+    private final ProductUnitRuleService productUnitRuleService;
+
+    @Operation(
+            summary = "Retorna as unidades de medida permitidas em cada categoria de produto, as mesmas usadas na" +
+                    " validação do cadastro, para que o cliente possa validar antes de enviar.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso")
+            }
+    )
+    @GetMapping
+    public ResponseEntity<List<UnitRuleDTO>> getAllRules() {
+        return ResponseEntity.ok(productUnitRuleService.getAllRules());
+    }
+
+    @Operation(
+            summary = "Retorna as unidades de medida permitidas na categoria informada.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Categoria inválida")
+            }
+    )
+    @GetMapping("/{category}")
+    public ResponseEntity<UnitRuleDTO> getRule(@PathVariable ProductCategory category) {
+        return ResponseEntity.ok(productUnitRuleService.getRule(category));
+    }
+
+    @Operation(
+            summary = "Substitui as unidades de medida permitidas na categoria, sem reiniciar a aplicação. Para chamar" +
+                    " este endpoint é necessário possuir a permissão 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Dados inválidos ou produtos da categoria com" +
+                            " unidade fora da nova regra"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão")
+            }
+    )
+    @PutMapping("/{category}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UnitRuleDTO> updateRule(@PathVariable ProductCategory category,
+                                                  @Valid @RequestBody UnitRuleRequestDTO ruleDTO) {
+        return ResponseEntity.ok(productUnitRuleService.updateRule(category, ruleDTO));
+    }
+
+    @Operation(
+            summary = "Recarrega as regras gravadas na tabela neste nó, sem esperar o intervalo de atualização. Para" +
+                    " chamar este endpoint é necessário possuir a permissão 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão")
+            }
+    )
+    @PostMapping("/reload")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<UnitRuleDTO>> reload() {
+        productUnitRuleService.reload();
+        return ResponseEntity.ok(productUnitRuleService.getAllRules());
+    }
+}
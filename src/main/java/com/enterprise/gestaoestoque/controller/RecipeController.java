@@ -0,0 +1,99 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.model.dto.recipe.ProductionRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.ProductionResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeResponseDTO;
+import com.enterprise.gestaoestoque.service.IdempotencyService;
+import com.enterprise.gestaoestoque.service.RecipeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/recipes")
+public class RecipeController {
+
+    private final RecipeService recipeService;
+    private final IdempotencyService idempotencyService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Operation(
+            summary = "Retorna todas as receitas, em páginas com 10 objetos ordenados por id.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
+            }
+    )
+    @GetMapping
+    public ResponseEntity<Page<RecipeResponseDTO>> getAllRecipes(@PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var recipes = recipeService.getAllRecipes(pageable);
+        return recipes.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(recipes);
+    }
+
+    @Operation(
+            summary = "Retorna a receita com o id informado e seus componentes.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "404", description = "Receita não encontrada")
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<RecipeResponseDTO> getRecipeById(@PathVariable Long id) {
+        return ResponseEntity.ok(recipeService.getRecipeById(id));
+    }
+
+    @Operation(
+            summary = "Cria uma receita com os produtos consumidos por unidade produzida, na unidade de medida de cada" +
+                    " produto. Para chamar este endpoint é necessário possuir a permissão 'SUPERVISOR' ou 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão"),
+                    @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+            }
+    )
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<RecipeResponseDTO> createRecipe(@Valid @RequestBody RecipeRequestDTO recipeDTO) {
+        var recipe = recipeService.createRecipe(recipeDTO);
+        var uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(recipe.id()).toUri();
+        return ResponseEntity.created(uri).body(recipe);
+    }
+
+    @Operation(
+            summary = "Registra a produção de N unidades da receita: baixa por FEFO todos os componentes como" +
+                    " USO_PRODUCAO numa única transação; se qualquer componente não tiver saldo, nada é baixado." +
+                    " Com o header 'Idempotency-Key', repetições da mesma requisição devolvem a produção original.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas ou saldo insuficiente"),
+                    @ApiResponse(responseCode = "404", description = "Receita não encontrada")
+            }
+    )
+    @PostMapping("/{id}/productions")
+    public ResponseEntity<ProductionResponseDTO> produce(
+            @PathVariable Long id,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody ProductionRequestDTO productionDTO) {
+        // A receita entra no hash da requisição: a mesma chave para outra receita não devolve esta produção
+        var result = idempotencyService.execute("productions", idempotencyKey, List.of(id, productionDTO),
+                ProductionResponseDTO.class, () -> recipeService.produce(id, productionDTO));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+}
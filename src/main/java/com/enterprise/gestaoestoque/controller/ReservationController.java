@@ -0,0 +1,92 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.model.dto.reservation.FefoReservationRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationResponseDTO;
+import com.enterprise.gestaoestoque.service.StockReservationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("reservations")
+public class ReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    @Operation(
+            summary = "Retorna a reserva de estoque com o id informado.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "404", description = "Reserva não encontrada")
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<ReservationResponseDTO> getReservationById(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.getReservationById(id));
+    }
+
+    @Operation(
+            summary = "Reserva uma quantidade de um lote ATIVO até a confirmação, a liberação ou o fim do prazo" +
+                    " (ttlMinutes, padrão de 30 minutos). A quantidade reservada deixa de estar disponível no lote.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas ou saldo insuficiente"),
+                    @ApiResponse(responseCode = "404", description = "Lote não encontrado")
+            }
+    )
+    @PostMapping
+    public ResponseEntity<ReservationResponseDTO> reserveLot(@Valid @RequestBody ReservationRequestDTO reservationDTO) {
+        var reservation = stockReservationService.reserveLot(reservationDTO);
+        var uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(reservation.id()).toUri();
+        return ResponseEntity.created(uri).body(reservation);
+    }
+
+    @Operation(
+            summary = "Reserva uma quantidade de um produto, distribuindo-a entre os lotes ATIVO do que vence" +
+                    " primeiro para o último (FEFO). Retorna uma reserva por lote utilizado.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas ou estoque insuficiente"),
+                    @ApiResponse(responseCode = "404", description = "Produto não encontrado")
+            }
+    )
+    @PostMapping("/fefo")
+    public ResponseEntity<List<ReservationResponseDTO>> reserveFefo(@Valid @RequestBody FefoReservationRequestDTO reservationDTO) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(stockReservationService.reserveFefo(reservationDTO));
+    }
+
+    @Operation(
+            summary = "Confirma a reserva, gerando a movimentação de inventário com a quantidade reservada.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Reserva não está ativa ou expirou"),
+                    @ApiResponse(responseCode = "404", description = "Reserva não encontrada")
+            }
+    )
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<ReservationResponseDTO> commitReservation(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.commitReservation(id));
+    }
+
+    @Operation(
+            summary = "Libera a reserva, devolvendo a quantidade ao saldo disponível do lote.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Reserva não está ativa"),
+                    @ApiResponse(responseCode = "404", description = "Reserva não encontrada")
+            }
+    )
+    @PostMapping("/{id}/release")
+    public ResponseEntity<ReservationResponseDTO> releaseReservation(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.releaseReservation(id));
+    }
+}
@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.controller;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.model.dto.supplier.SupplierRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.supplier.SupplierResponseDTO;
 import com.enterprise.gestaoestoque.model.dto.supplier.SupplierUpdateDTO;
@@ -8,8 +9,8 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -24,15 +25,18 @@ public class SupplierController {
     private SupplierService supplierService;
 
     @Operation(
-            summary = "Retorna todos os fornecedores, em páginas com 10 objetos ordenados por id.",
+            summary = "Retorna todos os fornecedores, em páginas com 10 objetos ordenados por id." +
+                    " Com 'total' = APPROXIMATE, o total de registros é uma estimativa atualizada periodicamente; com" +
+                    " 'total' = NONE, não há total, só a indicação de última página ('last').",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
                     @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
             }
     )
     @GetMapping
-    public ResponseEntity<Page<SupplierResponseDTO>> getAllSupplier(@PageableDefault(page = 1, size = 10, sort = "id" ) Pageable pageable) {
-        var suppliers = supplierService.getAllSuppliers(pageable);
+    public ResponseEntity<Slice<SupplierResponseDTO>> getAllSupplier(@RequestParam(defaultValue = "EXACT") PageTotal total,
+                                                                     @PageableDefault(page = 1, size = 10, sort = "id" ) Pageable pageable) {
+        var suppliers = supplierService.getAllSuppliers(pageable, total);
         return suppliers.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(suppliers);
     }
 
@@ -0,0 +1,46 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferResponseDTO;
+import com.enterprise.gestaoestoque.service.IdempotencyService;
+import com.enterprise.gestaoestoque.service.TransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/transfers")
+public class TransferController {
+
+    private final TransferService transferService;
+    private final IdempotencyService idempotencyService;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Operation(
+            summary = "Transfere uma quantidade de um lote ATIVO para outro depósito: baixa o lote de origem e credita" +
+                    " o lote de mesmo produto, fornecedor e validade no destino, criando-o se necessário, numa única" +
+                    " transação. Com o header 'Idempotency-Key', repetições da mesma requisição devolvem a" +
+                    " transferência original em vez de movimentar o saldo de novo.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas ou saldo insuficiente"),
+                    @ApiResponse(responseCode = "404", description = "Lote ou depósito não encontrado")
+            }
+    )
+    @PostMapping
+    public ResponseEntity<TransferResponseDTO> createTransfer(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody TransferRequestDTO transferDTO) {
+        var result = idempotencyService.execute("transfers", idempotencyKey, transferDTO,
+                TransferResponseDTO.class, () -> transferService.createTransfer(transferDTO));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(IDEMPOTENT_REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.body());
+    }
+}
@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.controller;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.model.dto.user.UserRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.user.UserResponseDTO;
 import com.enterprise.gestaoestoque.model.dto.user.UserUpdateDTO;
@@ -8,8 +9,8 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,6 +26,8 @@ public class UserController {
 
     @Operation(
             summary = "Retorna todos os usuários, em páginas com 10 objetos ordenados por id." +
+                    " Com 'total' = APPROXIMATE, o total de registros é uma estimativa atualizada periodicamente; com" +
+                    " 'total' = NONE, não há total, só a indicação de última página ('last'). " +
                     "Para chamar este endpoint é necessário possuir permissão de 'ADMIN' ou 'SUPERVISOR'.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Sucesso"),
@@ -34,8 +37,9 @@ public class UserController {
     )
     @GetMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
-    public ResponseEntity<Page<UserResponseDTO>> getAllUsers(@PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
-        var users = userService.getAllUsers(pageable);
+    public ResponseEntity<Slice<UserResponseDTO>> getAllUsers(@RequestParam(defaultValue = "EXACT") PageTotal total,
+                                                              @PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var users = userService.getAllUsers(pageable, total);
         return users.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(users);
     }
 
@@ -0,0 +1,83 @@
+package com.enterprise.gestaoestoque.controller;
+
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseStockDTO;
+import com.enterprise.gestaoestoque.service.WarehouseService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/warehouses")
+public class WarehouseController {
+
+    private final WarehouseService warehouseService;
+
+    @Operation(
+            summary = "Retorna todos os depósitos, em páginas com 10 objetos ordenados por id.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir")
+            }
+    )
+    @GetMapping
+    public ResponseEntity<Page<WarehouseResponseDTO>> getAllWarehouses(@PageableDefault(page = 1, size = 10, sort = "id") Pageable pageable) {
+        var warehouses = warehouseService.getAllWarehouses(pageable);
+        return warehouses.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(warehouses);
+    }
+
+    @Operation(
+            summary = "Retorna o depósito com o id informado.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "404", description = "Depósito não encontrado")
+            }
+    )
+    @GetMapping("/{id}")
+    public ResponseEntity<WarehouseResponseDTO> getWarehouseById(@PathVariable Long id) {
+        return ResponseEntity.ok(warehouseService.getWarehouseById(id));
+    }
+
+    @Operation(
+            summary = "Retorna o estoque do depósito por produto (soma dos lotes ATIVO), em páginas com 10 objetos" +
+                    " ordenados pelo id do produto.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Sucesso"),
+                    @ApiResponse(responseCode = "204", description = "Nenhum registro a exibir"),
+                    @ApiResponse(responseCode = "404", description = "Depósito não encontrado")
+            }
+    )
+    @GetMapping("/{id}/stock")
+    public ResponseEntity<Page<WarehouseStockDTO>> getWarehouseStock(@PathVariable Long id,
+                                                                     @PageableDefault(page = 1, size = 10) Pageable pageable) {
+        var stock = warehouseService.getWarehouseStock(id, pageable);
+        return stock.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(stock);
+    }
+
+    @Operation(
+            summary = "Cria um novo depósito. Para chamar este endpoint é necessário possuir a permissão" +
+                    " 'SUPERVISOR' ou 'ADMIN'.",
+            responses = {
+                    @ApiResponse(responseCode = "201", description = "Sucesso"),
+                    @ApiResponse(responseCode = "400", description = "Informações inválidas"),
+                    @ApiResponse(responseCode = "403", description = "Usuário sem permissão")
+            }
+    )
+    @PostMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<WarehouseResponseDTO> createWarehouse(@Valid @RequestBody WarehouseRequestDTO warehouseDTO) {
+        var warehouse = warehouseService.createWarehouse(warehouseDTO);
+        var uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(warehouse.id()).toUri();
+        return ResponseEntity.created(uri).body(warehouse);
+    }
+}
@@ -2,5 +2,20 @@ package com.enterprise.gestaoestoque.enums;
 
 public enum MovementType {
     USO_PRODUCAO,
-    PERDA
+    PERDA,
+    ENTRADA,
+    TRANSFERENCIA_SAIDA,
+    TRANSFERENCIA_ENTRADA,
+    ESTORNO;
+
+    // ENTRADA só é registrada pelo recebimento de mercadorias, as de transferência pelo endpoint de transferências
+    // e o ESTORNO pela exclusão de uma baixa
+    public boolean isWithdrawal() {
+        return this == USO_PRODUCAO || this == PERDA;
+    }
+
+    // Sentido da movimentação no saldo do lote
+    public boolean isInbound() {
+        return this == ENTRADA || this == TRANSFERENCIA_ENTRADA || this == ESTORNO;
+    }
 }
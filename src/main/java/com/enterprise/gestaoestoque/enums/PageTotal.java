@@ -0,0 +1,11 @@
+package com.enterprise.gestaoestoque.enums;
+
+// Como as listagens paginadas informam o total de registros
+public enum PageTotal {
+    // COUNT a cada página (exceto quando a própria página já mostra que é a última)
+    EXACT,
+    // Estimativa mantida em memória, atualizada periodicamente; nenhum COUNT na requisição
+    APPROXIMATE,
+    // Sem total: só indica se existe uma próxima página
+    NONE
+}
@@ -1,12 +1,20 @@
 package com.enterprise.gestaoestoque.enums;
 
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
 public enum ProductCategory {
-    HORTIFRUTI,
-    PADARIA,
-    FRIOS_E_LATICINIOS,
-    CARNES_E_AVES,
-    BEBIDAS,
-    NAO_PERECIVEIS,
-    CONGELADOS
+    HORTIFRUTI("HORTIFRUTI"),
+    PADARIA("PADARIA"),
+    FRIOS_E_LATICINIOS("FRIOS E LATICÍNIOS"),
+    CARNES_E_AVES("CARNES E AVES"),
+    BEBIDAS("BEBIDAS"),
+    NAO_PERECIVEIS("NÃO PERECÍVEIS"),
+    CONGELADOS("CONGELADOS");
+
+    // Nome exibido nas mensagens de validação
+    private final String label;
 
 }
@@ -0,0 +1,8 @@
+package com.enterprise.gestaoestoque.enums;
+
+public enum ReservationStatus {
+    ATIVA,
+    CONFIRMADA,
+    LIBERADA,
+    EXPIRADA
+}
@@ -2,6 +2,7 @@ package com.enterprise.gestaoestoque.mapper;
 
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO;
 import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
 import com.enterprise.gestaoestoque.model.entity.Lot;
 import com.enterprise.gestaoestoque.model.entity.User;
@@ -10,12 +11,14 @@ import org.springframework.stereotype.Component;
 @Component
 public class InventoryMapper {
 
-    public InventoryMovement toInventoryMovement(InventoryMovementRequestDTO inventoryDTO, User user, Lot lot) {
+    // A quantidade chega já convertida para a unidade do lote, que passa a ser a unidade da movimentação
+    public InventoryMovement toInventoryMovement(InventoryMovementRequestDTO inventoryDTO, long quantity, User user, Lot lot) {
         return InventoryMovement.builder()
                 .movementType(inventoryDTO.movementType())
-                .quantity(inventoryDTO.quantity())
-                .measurementUnit(inventoryDTO.measurementUnit())
+                .quantity(quantity)
+                .measurementUnit(lot.getMeasurementUnit())
                 .lot(lot)
+                .warehouse(lot.getWarehouse())
                 .user(user)
                 .build();
     }
@@ -27,6 +30,10 @@ public class InventoryMapper {
                 .quantity(inventoryMovement.getQuantity())
                 .measurementUnit(inventoryMovement.getMeasurementUnit())
                 .dateAndTime(inventoryMovement.getDateAndTime())
+                .reference(inventoryMovement.getReference())
+                .balanceAfter(inventoryMovement.getBalanceAfter())
+                .reversalOfId(inventoryMovement.getReversalOf() == null ? null : inventoryMovement.getReversalOf().getId())
+                .warehouseId(inventoryMovement.getWarehouse() == null ? null : inventoryMovement.getWarehouse().getId())
                 .lot(InventoryMovementResponseDTO.LotDTO.builder()
                         .lotCode(inventoryMovement.getLot().getLotCode())
                         .status(inventoryMovement.getLot().getStatus())
@@ -38,4 +45,27 @@ public class InventoryMapper {
                         .build())
                 .build();
     }
+
+    public InventoryMovementResponseDTO toInventoryMovementResponseDTO(InventoryMovementRowDTO row) {
+        return InventoryMovementResponseDTO.builder()
+                .id(row.id())
+                .movementType(row.movementType())
+                .quantity(row.quantity())
+                .measurementUnit(row.measurementUnit())
+                .dateAndTime(row.dateAndTime())
+                .reference(row.reference())
+                .balanceAfter(row.balanceAfter())
+                .reversalOfId(row.reversalOfId())
+                .warehouseId(row.warehouseId())
+                .lot(InventoryMovementResponseDTO.LotDTO.builder()
+                        .lotCode(row.lotCode())
+                        .status(row.lotStatus())
+                        .build())
+                .user(InventoryMovementResponseDTO.UserDTO.builder()
+                        .id(row.userId())
+                        .name(row.userName())
+                        .profile(row.userProfile())
+                        .build())
+                .build();
+    }
 }
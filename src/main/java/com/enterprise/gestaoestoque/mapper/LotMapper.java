@@ -2,6 +2,7 @@ package com.enterprise.gestaoestoque.mapper;
 
 import com.enterprise.gestaoestoque.model.dto.lot.LotRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.lot.LotResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.lot.LotRowDTO;
 import com.enterprise.gestaoestoque.model.entity.Lot;
 import com.enterprise.gestaoestoque.model.entity.Product;
 import com.enterprise.gestaoestoque.model.entity.Supplier;
@@ -12,6 +13,7 @@ public class LotMapper {
 
     public Lot toLot(LotRequestDTO lotDTO, Product product, Supplier supplier) {
         return Lot.builder()
+                .initialQtd(lotDTO.initialQtd())
                 .currentQtd(lotDTO.initialQtd())
                 .expirationDate(lotDTO.expirationDate())
                 .measurementUnit(lotDTO.measurementUnit())
@@ -26,6 +28,8 @@ public class LotMapper {
                 .lotCode(lot.getLotCode())
                 .initialQtd(lot.getInitialQtd())
                 .currentQtd(lot.getCurrentQtd())
+                .reservedQtd(lot.getReservedQtd())
+                .availableQtd(lot.getCurrentQtd() - lot.getReservedQtd())
                 .measurementUnit(lot.getMeasurementUnit())
                 .entryDate(lot.getEntryDate())
                 .expirationDate(lot.getExpirationDate())
@@ -39,6 +43,38 @@ public class LotMapper {
                         .id(lot.getProduct().getId())
                         .name(lot.getProduct().getName())
                         .build())
+                .warehouse(lot.getWarehouse() == null ? null : LotResponseDTO.WarehouseDTO.builder()
+                        .id(lot.getWarehouse().getId())
+                        .name(lot.getWarehouse().getName())
+                        .build())
+                .build();
+    }
+
+    public LotResponseDTO toLotResponseDTO(LotRowDTO row) {
+        return LotResponseDTO.builder()
+                .id(row.id())
+                .lotCode(row.lotCode())
+                .initialQtd(row.initialQtd())
+                .currentQtd(row.currentQtd())
+                .reservedQtd(row.reservedQtd())
+                .availableQtd(row.currentQtd() - row.reservedQtd())
+                .measurementUnit(row.measurementUnit())
+                .entryDate(row.entryDate())
+                .expirationDate(row.expirationDate())
+                .status(row.status())
+                .supplier(LotResponseDTO.SupplierDTO.builder()
+                        .id(row.supplierId())
+                        .name(row.supplierName())
+                        .cnpj(row.supplierCnpj())
+                        .build())
+                .product(LotResponseDTO.ProductDTO.builder()
+                        .id(row.productId())
+                        .name(row.productName())
+                        .build())
+                .warehouse(row.warehouseId() == null ? null : LotResponseDTO.WarehouseDTO.builder()
+                        .id(row.warehouseId())
+                        .name(row.warehouseName())
+                        .build())
                 .build();
     }
 }
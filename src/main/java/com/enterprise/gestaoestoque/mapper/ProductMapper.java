@@ -1,11 +1,14 @@
 package com.enterprise.gestaoestoque.mapper;
 
+import com.enterprise.gestaoestoque.model.dto.product.ProductLotRowDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.product.ProductRowDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductUpdateDTO;
 import com.enterprise.gestaoestoque.model.entity.Product;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Optional;
 
 @Component
@@ -27,6 +30,8 @@ public class ProductMapper {
                 .category(product.getCategory())
                 .measurementUnit(product.getMeasurementUnit())
                 .totalStock(product.getTotalStock())
+                .reservedStock(product.getReservedStock())
+                .availableStock(availableStock(product.getTotalStock(), product.getReservedStock()))
                 .isActive(product.getIsActive())
                 .lots(product.getLots().stream().map(lot -> ProductResponseDTO.LotDTO.builder()
                         .lotCode(lot.getLotCode())
@@ -36,6 +41,28 @@ public class ProductMapper {
                 .build();
     }
 
+    public ProductResponseDTO toProductResponseDTO(ProductRowDTO row, List<ProductLotRowDTO> lots) {
+        return ProductResponseDTO.builder()
+                .id(row.id())
+                .name(row.name())
+                .category(row.category())
+                .measurementUnit(row.measurementUnit())
+                .totalStock(row.totalStock())
+                .reservedStock(row.reservedStock())
+                .availableStock(availableStock(row.totalStock(), row.reservedStock()))
+                .isActive(row.isActive())
+                .lots(lots.stream().map(lot -> ProductResponseDTO.LotDTO.builder()
+                        .lotCode(lot.lotCode())
+                        .status(lot.status())
+                        .expirationDate(lot.expirationDate())
+                        .build()).toList())
+                .build();
+    }
+
+    public static Long availableStock(Long totalStock, Long reservedStock) {
+        return (totalStock == null ? 0 : totalStock) - (reservedStock == null ? 0 : reservedStock);
+    }
+
     public void updateFromDTO(ProductUpdateDTO updateDTO, Product existingProduct) {
         Optional.ofNullable(updateDTO.minQuantity()).ifPresent(existingProduct::setMinQuantity);
         Optional.ofNullable(updateDTO.category()).ifPresent(existingProduct::setCategory);
@@ -0,0 +1,24 @@
+package com.enterprise.gestaoestoque.mapper;
+
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.Recipe;
+import org.springframework.stereotype.Component;
+
+@Component
+public class RecipeMapper {
+
+    public RecipeResponseDTO toRecipeResponseDTO(Recipe recipe) {
+        return RecipeResponseDTO.builder()
+                .id(recipe.getId())
+                .name(recipe.getName())
+                .items(recipe.getItems().stream()
+                        .map(item -> RecipeResponseDTO.ItemDTO.builder()
+                                .productId(item.getProduct().getId())
+                                .productName(item.getProduct().getName())
+                                .quantity(item.getQuantity())
+                                .measurementUnit(item.getMeasurementUnit())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
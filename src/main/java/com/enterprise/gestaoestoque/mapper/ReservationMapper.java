@@ -0,0 +1,28 @@
+package com.enterprise.gestaoestoque.mapper;
+
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.StockReservation;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ReservationMapper {
+
+    public ReservationResponseDTO toReservationResponseDTO(StockReservation reservation) {
+        return ReservationResponseDTO.builder()
+                .id(reservation.getId())
+                .quantity(reservation.getQuantity())
+                .measurementUnit(reservation.getLot().getMeasurementUnit())
+                .movementType(reservation.getMovementType())
+                .status(reservation.getStatus())
+                .reference(reservation.getReference())
+                .createdAt(reservation.getCreatedAt())
+                .expiresAt(reservation.getExpiresAt())
+                .lot(ReservationResponseDTO.LotDTO.builder()
+                        .id(reservation.getLot().getId())
+                        .lotCode(reservation.getLot().getLotCode())
+                        .productId(reservation.getLot().getProduct().getId())
+                        .build())
+                .movementId(reservation.getMovement() == null ? null : reservation.getMovement().getId())
+                .build();
+    }
+}
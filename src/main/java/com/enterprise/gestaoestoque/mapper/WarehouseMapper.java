@@ -0,0 +1,24 @@
+package com.enterprise.gestaoestoque.mapper;
+
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import org.springframework.stereotype.Component;
+
+@Component
+public class WarehouseMapper {
+
+    public Warehouse toWarehouse(WarehouseRequestDTO warehouseDTO) {
+        return Warehouse.builder()
+                .name(warehouseDTO.name())
+                .build();
+    }
+
+    public WarehouseResponseDTO toWarehouseResponseDTO(Warehouse warehouse) {
+        return WarehouseResponseDTO.builder()
+                .id(warehouse.getId())
+                .name(warehouse.getName())
+                .isActive(warehouse.getIsActive())
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.enterprise.gestaoestoque.model;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+
+import java.math.BigDecimal;
+
+/**
+ * Quantidade em ponto fixo: {@code milli} guarda milésimos da unidade em um long, então 0.5 KG é 500 e não passa
+ * por arredondamento de double; as requisições chegam como BigDecimal, lido do texto do JSON. A conversão entre
+ * unidades da mesma grandeza (G/KG e ML/L) usa uma tabela calculada uma vez, indexada pelo ordinal das unidades, e
+ * só aceita resultados exatos: o que não couber na unidade de destino é recusado em vez de truncado.
+ */
+public record Quantity(long milli, MeasurementUnit unit) {
+
+    private static final int SCALE = 3;
+    private static final long ONE = 1_000;
+
+    // NUMERATORS[de][para] / DENOMINATORS[de][para]; zero quando as unidades não são conversíveis
+    private static final long[][] NUMERATORS;
+    private static final long[][] DENOMINATORS;
+
+    static {
+        var units = MeasurementUnit.values();
+        NUMERATORS = new long[units.length][units.length];
+        DENOMINATORS = new long[units.length][units.length];
+        for (var from : units) {
+            for (var to : units) {
+                if (from == to) {
+                    NUMERATORS[from.ordinal()][to.ordinal()] = 1;
+                    DENOMINATORS[from.ordinal()][to.ordinal()] = 1;
+                } else if (Dimension.of(from) != Dimension.NONE && Dimension.of(from) == Dimension.of(to)) {
+                    long fromFactor = baseFactor(from);
+                    long toFactor = baseFactor(to);
+                    NUMERATORS[from.ordinal()][to.ordinal()] = fromFactor >= toFactor ? fromFactor / toFactor : 1;
+                    DENOMINATORS[from.ordinal()][to.ordinal()] = fromFactor >= toFactor ? 1 : toFactor / fromFactor;
+                }
+            }
+        }
+    }
+
+    public static Quantity of(BigDecimal value, MeasurementUnit unit) {
+        if (value == null || value.signum() <= 0) {
+            throw new BusinessException("Quantidade inválida");
+        }
+        if (value.stripTrailingZeros().scale() > SCALE) {
+            throw new BusinessException("A quantidade aceita no máximo " + SCALE + " casas decimais");
+        }
+        try {
+            return new Quantity(value.movePointRight(SCALE).longValueExact(), unit);
+        } catch (ArithmeticException e) {
+            throw new BusinessException("Quantidade acima do máximo permitido");
+        }
+    }
+
+    /**
+     * Quantidade informada em uma requisição, convertida para unidades inteiras da unidade em que o lote ou produto
+     * é estocado. Sem unidade na requisição vale a do estoque.
+     */
+    public static long toStockUnits(BigDecimal value, MeasurementUnit requestUnit, MeasurementUnit stockUnit) {
+        return of(value, requestUnit == null ? stockUnit : requestUnit).to(stockUnit).wholeUnits();
+    }
+
+    public Quantity to(MeasurementUnit target) {
+        long numerator = NUMERATORS[unit.ordinal()][target.ordinal()];
+        if (numerator == 0) {
+            throw new BusinessException("Não é possível converter " + unit + " para " + target);
+        }
+        long denominator = DENOMINATORS[unit.ordinal()][target.ordinal()];
+        long scaled;
+        try {
+            scaled = Math.multiplyExact(milli, numerator);
+        } catch (ArithmeticException e) {
+            throw new BusinessException("Quantidade inválida");
+        }
+        if (scaled % denominator != 0) {
+            throw new BusinessException("A quantidade não pode ser representada em " + target + " com "
+                    + SCALE + " casas decimais");
+        }
+        return new Quantity(scaled / denominator, target);
+    }
+
+    // O saldo dos lotes é inteiro na unidade do lote: frações são recusadas, nunca descartadas
+    public long wholeUnits() {
+        if (milli % ONE != 0) {
+            throw new BusinessException("A quantidade deve ser um número inteiro de " + unit
+                    + "; informe-a em uma unidade menor ou cadastre o produto nela");
+        }
+        return milli / ONE;
+    }
+
+    private enum Dimension {
+        MASSA,
+        VOLUME,
+        // Unidades de contagem: só convertem para si mesmas
+        NONE;
+
+        private static Dimension of(MeasurementUnit unit) {
+            return switch (unit) {
+                case G, KG -> MASSA;
+                case ML, L -> VOLUME;
+                default -> NONE;
+            };
+        }
+    }
+
+    private static long baseFactor(MeasurementUnit unit) {
+        return switch (unit) {
+            case KG, L -> 1_000;
+            default -> 1;
+        };
+    }
+}
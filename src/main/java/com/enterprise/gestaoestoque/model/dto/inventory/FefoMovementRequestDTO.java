@@ -0,0 +1,28 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+@Builder
+public record FefoMovementRequestDTO(
+
+        @NotNull
+        Long productId,
+
+        @NotNull
+        MovementType movementType,
+
+        @NotNull
+        @Positive(message = "A quantidade mínima deve ser um valor positivo")
+        BigDecimal quantity,
+
+        @NotNull
+        MeasurementUnit measurementUnit
+
+) {
+}
@@ -0,0 +1,17 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record InventoryMovementBatchRequestDTO(
+
+        @NotEmpty(message = "Informe ao menos uma movimentação")
+        @Size(max = 5000, message = "Máximo de 5000 movimentações por lote de envio")
+        List<InventoryMovementRequestDTO> movements
+
+) {
+}
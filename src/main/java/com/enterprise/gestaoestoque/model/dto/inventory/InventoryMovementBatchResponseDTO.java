@@ -0,0 +1,22 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record InventoryMovementBatchResponseDTO(
+        int processed,
+        int succeeded,
+        int failed,
+        List<ItemResultDTO> results
+) {
+    @Builder
+    public record ItemResultDTO(
+            int index,
+            Long lotId,
+            boolean success,
+            Long movementId,
+            String message
+    ) {}
+}
@@ -0,0 +1,10 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import java.util.List;
+
+// Página do histórico de movimentações; nextCursor é nulo na última página
+public record InventoryMovementHistoryDTO(
+        List<InventoryMovementResponseDTO> content,
+        String nextCursor
+) {
+}
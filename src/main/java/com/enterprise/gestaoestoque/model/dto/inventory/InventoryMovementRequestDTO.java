@@ -2,26 +2,27 @@ package com.enterprise.gestaoestoque.model.dto.inventory;
 
 import com.enterprise.gestaoestoque.enums.MeasurementUnit;
 import com.enterprise.gestaoestoque.enums.MovementType;
-import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Builder;
 
+import java.math.BigDecimal;
+
 @Builder
 public record InventoryMovementRequestDTO (
 
-        @NotBlank
+        @NotNull
         Long lotId,
 
-        @NotBlank
+        @NotNull
         MovementType movementType,
 
-        @NotBlank
-        @Pattern(regexp = "^[0-9]+$", message = "Apenas números são permitidos neste campo")
+        // Até 3 casas decimais, na unidade informada; é convertida para a unidade do lote sem passar por double
+        @NotNull
         @Positive(message = "A quantidade mínima deve ser um valor positivo")
-        Double quantity,
+        BigDecimal quantity,
 
-        @NotBlank
+        @NotNull
         MeasurementUnit measurementUnit
 
 ){
@@ -12,9 +12,13 @@ import java.time.LocalDateTime;
 public record InventoryMovementResponseDTO(
         Long id,
         MovementType movementType,
-        Double quantity,
+        Long quantity,
         MeasurementUnit measurementUnit,
         LocalDateTime dateAndTime,
+        String reference,
+        Long balanceAfter,
+        Long reversalOfId,
+        Long warehouseId,
         LotDTO lot,
         UserDTO user
 ) {
@@ -0,0 +1,28 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+
+import java.time.LocalDateTime;
+
+// Linha da listagem de movimentações com lote e usuário vindos do mesmo SELECT (sem as autoridades do usuário)
+public record InventoryMovementRowDTO(
+        Long id,
+        MovementType movementType,
+        Long quantity,
+        MeasurementUnit measurementUnit,
+        LocalDateTime dateAndTime,
+        String reference,
+        Long balanceAfter,
+        Long reversalOfId,
+        Long warehouseId,
+        Long lotId,
+        String lotCode,
+        LotStatus lotStatus,
+        Long userId,
+        String userName,
+        UserProfile userProfile
+) {
+}
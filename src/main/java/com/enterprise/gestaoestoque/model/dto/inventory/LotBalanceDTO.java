@@ -0,0 +1,13 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import com.enterprise.gestaoestoque.enums.MovementType;
+
+// Uma linha do razão de um lote: a movimentação e o saldo do lote logo depois dela
+public record LotBalanceDTO(
+        Long lotId,
+        Long movementId,
+        MovementType movementType,
+        Long quantity,
+        Long balanceAfter
+) {
+}
@@ -0,0 +1,8 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+// Quantidade somada por lote
+public record LotQuantityDTO(
+        Long lotId,
+        Long quantity
+) {
+}
@@ -0,0 +1,11 @@
+package com.enterprise.gestaoestoque.model.dto.inventory;
+
+import java.time.LocalDate;
+
+public record LotSnapshotDTO(
+        Long lotId,
+        Long productId,
+        Long currentQtd,
+        LocalDate entryDate
+) {
+}
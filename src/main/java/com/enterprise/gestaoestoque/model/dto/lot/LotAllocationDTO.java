@@ -0,0 +1,10 @@
+package com.enterprise.gestaoestoque.model.dto.lot;
+
+import java.time.LocalDate;
+
+public record LotAllocationDTO(
+        Long id,
+        Long productId,
+        LocalDate expirationDate,
+        Long availableQtd
+) {}
@@ -0,0 +1,8 @@
+package com.enterprise.gestaoestoque.model.dto.lot;
+
+import java.time.LocalDate;
+
+public record LotExpirationDTO(
+        Long id,
+        LocalDate expirationDate
+) {}
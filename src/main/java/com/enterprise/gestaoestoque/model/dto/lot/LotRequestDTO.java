@@ -28,7 +28,9 @@ public record LotRequestDTO(
         LocalDate expirationDate,
 
         @NotBlank
-        Long supplierId
+        Long supplierId,
+
+        Long warehouseId
 
 ) {
 }
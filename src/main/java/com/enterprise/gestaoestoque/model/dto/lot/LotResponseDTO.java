@@ -13,6 +13,8 @@ public record LotResponseDTO(
         String lotCode,
         Long initialQtd,
         Long currentQtd,
+        Long reservedQtd,
+        Long availableQtd,
         MeasurementUnit measurementUnit,
 
         @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
@@ -23,7 +25,8 @@ public record LotResponseDTO(
 
         LotStatus status,
         SupplierDTO supplier,
-        ProductDTO product
+        ProductDTO product,
+        WarehouseDTO warehouse
 
 ) {
     @Builder
@@ -39,4 +42,10 @@ public record LotResponseDTO(
             String name
     ) {}
 
+    @Builder
+    public record WarehouseDTO(
+            Long id,
+            String name
+    ) {}
+
 }
@@ -0,0 +1,27 @@
+package com.enterprise.gestaoestoque.model.dto.lot;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+
+import java.time.LocalDate;
+
+// Linha da listagem de lotes com fornecedor, produto e depósito vindos do mesmo SELECT
+public record LotRowDTO(
+        Long id,
+        String lotCode,
+        Long initialQtd,
+        Long currentQtd,
+        Long reservedQtd,
+        MeasurementUnit measurementUnit,
+        LocalDate entryDate,
+        LocalDate expirationDate,
+        LotStatus status,
+        Long supplierId,
+        String supplierName,
+        String supplierCnpj,
+        Long productId,
+        String productName,
+        Long warehouseId,
+        String warehouseName
+) {
+}
@@ -0,0 +1,13 @@
+package com.enterprise.gestaoestoque.model.dto.lot;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+
+import java.time.LocalDate;
+
+public record LotStockDTO(
+        Long id,
+        Long productId,
+        Long currentQtd,
+        LotStatus status,
+        LocalDate expirationDate
+) {}
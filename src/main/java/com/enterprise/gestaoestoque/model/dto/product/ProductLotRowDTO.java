@@ -0,0 +1,13 @@
+package com.enterprise.gestaoestoque.model.dto.product;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+
+import java.time.LocalDate;
+
+public record ProductLotRowDTO(
+        Long productId,
+        String lotCode,
+        LotStatus status,
+        LocalDate expirationDate
+) {
+}
@@ -16,6 +16,8 @@ public record ProductResponseDTO(
         MeasurementUnit measurementUnit,
         Boolean isActive,
         Long totalStock,
+        Long reservedStock,
+        Long availableStock,
         List<LotDTO> lots
 ) {
     @Builder
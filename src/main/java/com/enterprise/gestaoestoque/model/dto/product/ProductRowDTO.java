@@ -0,0 +1,16 @@
+package com.enterprise.gestaoestoque.model.dto.product;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+
+// Colunas do produto lidas pela listagem, sem carregar a entidade nem os lotes
+public record ProductRowDTO(
+        Long id,
+        String name,
+        ProductCategory category,
+        MeasurementUnit measurementUnit,
+        Boolean isActive,
+        Long totalStock,
+        Long reservedStock
+) {
+}
@@ -0,0 +1,18 @@
+package com.enterprise.gestaoestoque.model.dto.product;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record StockAsOfDTO(
+        Long productId,
+        String productName,
+        ProductCategory category,
+        MeasurementUnit measurementUnit,
+        LocalDateTime at,
+        Long quantity
+) {
+}
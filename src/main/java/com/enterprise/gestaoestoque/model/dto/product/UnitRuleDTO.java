@@ -0,0 +1,14 @@
+package com.enterprise.gestaoestoque.model.dto.product;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import lombok.Builder;
+
+import java.util.Set;
+
+@Builder
+public record UnitRuleDTO(
+        ProductCategory category,
+        Set<MeasurementUnit> measurementUnits
+) {
+}
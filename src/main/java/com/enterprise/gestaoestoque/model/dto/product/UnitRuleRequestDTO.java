@@ -0,0 +1,16 @@
+package com.enterprise.gestaoestoque.model.dto.product;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Builder;
+
+import java.util.Set;
+
+@Builder
+public record UnitRuleRequestDTO(
+
+        @NotEmpty(message = "Informe ao menos uma unidade de medida")
+        Set<MeasurementUnit> measurementUnits
+
+) {
+}
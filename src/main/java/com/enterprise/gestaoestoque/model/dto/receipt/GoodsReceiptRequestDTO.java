@@ -0,0 +1,48 @@
+package com.enterprise.gestaoestoque.model.dto.receipt;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Builder
+public record GoodsReceiptRequestDTO(
+
+        @NotNull
+        Long supplierId,
+
+        @NotBlank
+        @Size(max = 100)
+        String deliveryNote,
+
+        // Depósito que recebe todos os lotes da nota; opcional
+        Long warehouseId,
+
+        @NotEmpty
+        @Size(max = 1000, message = "Um recebimento aceita no máximo 1000 lotes")
+        List<@Valid @NotNull ItemDTO> items
+
+) {
+    @Builder
+    public record ItemDTO(
+
+            @NotNull
+            Long productId,
+
+            @NotNull
+            @Positive(message = "A quantidade recebida deve ser um valor positivo")
+            Long quantity,
+
+            @NotNull
+            @Future(message = "A data de validade deve ser futura")
+            LocalDate expirationDate
+
+    ) {}
+}
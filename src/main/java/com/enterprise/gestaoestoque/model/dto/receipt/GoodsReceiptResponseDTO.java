@@ -0,0 +1,31 @@
+package com.enterprise.gestaoestoque.model.dto.receipt;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Builder
+public record GoodsReceiptResponseDTO(
+        Long supplierId,
+        String deliveryNote,
+        LocalDateTime receivedAt,
+        List<LotDTO> lots
+) {
+    @Builder
+    public record LotDTO(
+            Long id,
+            String lotCode,
+            Long productId,
+            Long quantity,
+            MeasurementUnit measurementUnit,
+
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+            LocalDate expirationDate,
+
+            Long movementId
+    ) {}
+}
@@ -0,0 +1,19 @@
+package com.enterprise.gestaoestoque.model.dto.recipe;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+@Builder
+public record ProductionRequestDTO(
+
+        @NotNull
+        @Positive(message = "A quantidade produzida deve ser um valor positivo")
+        Long quantity,
+
+        @Size(max = 100)
+        String reference
+
+) {
+}
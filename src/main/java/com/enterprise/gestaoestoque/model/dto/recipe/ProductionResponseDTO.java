@@ -0,0 +1,15 @@
+package com.enterprise.gestaoestoque.model.dto.recipe;
+
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record ProductionResponseDTO(
+        Long recipeId,
+        Long quantity,
+        String reference,
+        List<InventoryMovementResponseDTO> movements
+) {
+}
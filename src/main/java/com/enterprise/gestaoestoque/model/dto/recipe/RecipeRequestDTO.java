@@ -0,0 +1,40 @@
+package com.enterprise.gestaoestoque.model.dto.recipe;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record RecipeRequestDTO(
+
+        @NotBlank
+        @Size(min = 3, max = 80, message = "O nome da receita deve possuir entre 3 e 80 caracteres")
+        String name,
+
+        @NotEmpty
+        @Size(max = 100, message = "Uma receita aceita no máximo 100 componentes")
+        List<@Valid @NotNull ItemDTO> items
+
+) {
+    @Builder
+    public record ItemDTO(
+
+            @NotNull
+            Long productId,
+
+            @NotNull
+            @Positive(message = "A quantidade do componente deve ser um valor positivo")
+            Long quantity,
+
+            @NotNull
+            MeasurementUnit measurementUnit
+
+    ) {}
+}
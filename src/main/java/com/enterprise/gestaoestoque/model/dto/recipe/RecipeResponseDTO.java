@@ -0,0 +1,21 @@
+package com.enterprise.gestaoestoque.model.dto.recipe;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import lombok.Builder;
+
+import java.util.List;
+
+@Builder
+public record RecipeResponseDTO(
+        Long id,
+        String name,
+        List<ItemDTO> items
+) {
+    @Builder
+    public record ItemDTO(
+            Long productId,
+            String productName,
+            Long quantity,
+            MeasurementUnit measurementUnit
+    ) {}
+}
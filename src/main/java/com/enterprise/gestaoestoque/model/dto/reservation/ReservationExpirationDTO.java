@@ -0,0 +1,8 @@
+package com.enterprise.gestaoestoque.model.dto.reservation;
+
+import java.time.LocalDateTime;
+
+public record ReservationExpirationDTO(
+        Long id,
+        LocalDateTime expiresAt
+) {}
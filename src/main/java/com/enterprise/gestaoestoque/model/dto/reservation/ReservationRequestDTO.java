@@ -0,0 +1,35 @@
+package com.enterprise.gestaoestoque.model.dto.reservation;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+import java.math.BigDecimal;
+
+@Builder
+public record ReservationRequestDTO(
+
+        @NotNull
+        Long lotId,
+
+        @NotNull
+        MovementType movementType,
+
+        @NotNull
+        @Positive(message = "A quantidade mínima deve ser um valor positivo")
+        BigDecimal quantity,
+
+        @NotNull
+        MeasurementUnit measurementUnit,
+
+        @Positive(message = "O prazo da reserva deve ser um valor positivo")
+        Long ttlMinutes,
+
+        @Size(max = 100)
+        String reference
+
+) {
+}
@@ -0,0 +1,29 @@
+package com.enterprise.gestaoestoque.model.dto.reservation;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ReservationStatus;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record ReservationResponseDTO(
+        Long id,
+        Long quantity,
+        MeasurementUnit measurementUnit,
+        MovementType movementType,
+        ReservationStatus status,
+        String reference,
+        LocalDateTime createdAt,
+        LocalDateTime expiresAt,
+        LotDTO lot,
+        Long movementId
+) {
+    @Builder
+    public record LotDTO(
+            Long id,
+            String lotCode,
+            Long productId
+    ) {}
+}
@@ -0,0 +1,25 @@
+package com.enterprise.gestaoestoque.model.dto.transfer;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+@Builder
+public record TransferRequestDTO(
+
+        @NotNull
+        Long sourceLotId,
+
+        @NotNull
+        Long destinationWarehouseId,
+
+        @NotNull
+        @Positive(message = "A quantidade deve ser um valor positivo")
+        Long quantity,
+
+        @Size(max = 100)
+        String reference
+
+) {
+}
@@ -0,0 +1,27 @@
+package com.enterprise.gestaoestoque.model.dto.transfer;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+@Builder
+public record TransferResponseDTO(
+        Long quantity,
+        MeasurementUnit measurementUnit,
+        LocalDateTime dateAndTime,
+        String reference,
+        LotDTO source,
+        LotDTO destination
+) {
+    @Builder
+    public record LotDTO(
+            Long id,
+            String lotCode,
+            Long warehouseId,
+            Long currentQtd,
+            LotStatus status,
+            Long movementId
+    ) {}
+}
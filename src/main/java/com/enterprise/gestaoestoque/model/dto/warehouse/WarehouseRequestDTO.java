@@ -0,0 +1,15 @@
+package com.enterprise.gestaoestoque.model.dto.warehouse;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Builder;
+
+@Builder
+public record WarehouseRequestDTO(
+
+        @NotBlank
+        @Size(min = 3, max = 80, message = "O nome do depósito deve possuir entre 3 e 80 caracteres")
+        String name
+
+) {
+}
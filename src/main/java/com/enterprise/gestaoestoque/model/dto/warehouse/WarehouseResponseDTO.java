@@ -0,0 +1,11 @@
+package com.enterprise.gestaoestoque.model.dto.warehouse;
+
+import lombok.Builder;
+
+@Builder
+public record WarehouseResponseDTO(
+        Long id,
+        String name,
+        Boolean isActive
+) {
+}
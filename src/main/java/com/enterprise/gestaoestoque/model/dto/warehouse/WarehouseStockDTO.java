@@ -0,0 +1,9 @@
+package com.enterprise.gestaoestoque.model.dto.warehouse;
+
+public record WarehouseStockDTO(
+        Long productId,
+        String productName,
+        Long totalStock,
+        Long availableStock
+) {
+}
@@ -14,19 +14,33 @@ import java.time.LocalDateTime;
 @Data
 @AllArgsConstructor @NoArgsConstructor
 @Entity
-@Table(name = "inventory_movements")
+// Associações LAZY; a consulta de detalhe da movimentação traz o lote e o usuário (sem as autoridades dele)
+@NamedEntityGraph(name = "InventoryMovement.detail", attributeNodes = {
+        @NamedAttributeNode("lot"), @NamedAttributeNode("user")})
+// Listagens por depósito: filtro pelo depósito e ordem por id no mesmo índice.
+// Saldo de um lote numa data: a última movimentação do lote até a data, achada pelo índice (lot_id, date_and_time).
+// Histórico por keyset: (date_and_time, id), geral e por depósito, na ordem em que as páginas são percorridas
+@Table(name = "inventory_movements", indexes = {
+        @Index(name = "idx_inventory_movements_warehouse", columnList = "warehouse_id, id"),
+        @Index(name = "idx_inventory_movements_lot_date", columnList = "lot_id, date_and_time"),
+        @Index(name = "idx_inventory_movements_date_id", columnList = "date_and_time, id"),
+        @Index(name = "idx_inventory_movements_warehouse_date_id", columnList = "warehouse_id, date_and_time, id")
+})
 public class InventoryMovement {
 
+    // Sequence com otimizador pooled: permite ao Hibernate agrupar os INSERTs em batch (IDENTITY impede)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_movements_seq")
+    @SequenceGenerator(name = "inventory_movements_seq", sequenceName = "inventory_movements_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private MovementType movementType;
 
+    // Em unidades inteiras da unidade do lote, já convertida a partir da unidade da requisição
     @Column(nullable = false)
-    private Double quantity;
+    private long quantity;
 
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
@@ -35,11 +49,29 @@ public class InventoryMovement {
     @Column(nullable = false)
     private LocalDateTime dateAndTime;
 
-    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    // Saldo do lote logo depois desta movimentação. Fica nulo nas baixas atendidas pela cota de escrow (o saldo
+    // do lote só muda no acerto da cota), nos estornos com o engine ligado e nas movimentações anteriores à coluna
+    private Long balanceAfter;
+
+    // Documento de origem (nota fiscal do recebimento, por exemplo)
+    @Column(length = 100)
+    private String reference;
+
+    @ManyToOne(fetch = FetchType.LAZY, cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    @ManyToOne(fetch = FetchType.LAZY, cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinColumn(name = "lot_id")
     private Lot lot;
+
+    // Baixa desfeita por este ESTORNO; a restrição de unicidade impede estornar a mesma baixa duas vezes
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reversal_of_id", unique = true)
+    private InventoryMovement reversalOf;
+
+    // Depósito do lote no momento da movimentação (a transferência muda o saldo de lugar, não o lote)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id")
+    private Warehouse warehouse;
 }
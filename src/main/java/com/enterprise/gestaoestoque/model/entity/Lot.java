@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 
@@ -14,11 +15,22 @@ import java.time.LocalDate;
 @Data
 @AllArgsConstructor @NoArgsConstructor
 @Entity
-@Table(name = "lots")
+// Associações LAZY; a consulta de detalhe do lote traz fornecedor, produto e depósito no mesmo SELECT
+@NamedEntityGraph(name = "Lot.detail", attributeNodes = {
+        @NamedAttributeNode("supplier"), @NamedAttributeNode("product"), @NamedAttributeNode("warehouse")})
+// Listagens e agregados por depósito: o depósito encabeça os índices, seguido da ordem por id ou do produto e status
+@Table(name = "lots", indexes = {
+        @Index(name = "idx_lots_warehouse", columnList = "warehouse_id, id"),
+        @Index(name = "idx_lots_warehouse_product_status", columnList = "warehouse_id, product_id, status")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_lots_transfer_target",
+                columnNames = {"product_id", "warehouse_id", "supplier_id", "expiration_date", "transfer_target"})
+})
 public class Lot {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lots_seq")
+    @SequenceGenerator(name = "lots_seq", sequenceName = "lots_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -27,6 +39,12 @@ public class Lot {
     @Column(nullable = false)
     private Long currentQtd;
 
+    // Parte do saldo separada (cotas de escrow ainda não acertadas e reservas ATIVA); baixas diretas só usam o restante
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long reservedQtd = 0L;
+
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private MeasurementUnit measurementUnit;
@@ -43,11 +61,20 @@ public class Lot {
     @Column(nullable = false)
     private LotStatus status;
 
-    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    // Marca o lote criado por transferência para o produto, fornecedor e validade no depósito; nulo nos demais lotes,
+    // que assim ficam fora da restrição única e podem se repetir nos recebimentos
+    private Boolean transferTarget;
+
+    @ManyToOne(fetch = FetchType.LAZY, cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinColumn(name = "supplier_id", nullable = false)
     private Supplier supplier;
 
-    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    @ManyToOne(fetch = FetchType.LAZY, cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
+
+    // Lotes criados antes do cadastro de depósitos ficam sem depósito
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "warehouse_id")
+    private Warehouse warehouse;
 }
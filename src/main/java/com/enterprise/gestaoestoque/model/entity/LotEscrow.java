@@ -0,0 +1,40 @@
+package com.enterprise.gestaoestoque.model.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cota de um lote cedida a um nó. O nó baixa da própria linha (sem disputar a linha do lote com os
+ * demais nós) e o consumo é acertado no lote periodicamente. A id é "lote@nó".
+ */
+@Builder
+@Data
+@AllArgsConstructor @NoArgsConstructor
+@Entity
+@Table(name = "lot_escrows", indexes = @Index(name = "idx_lot_escrows_node", columnList = "nodeId"))
+public class LotEscrow {
+
+    @Id
+    @Column(length = 150)
+    private String id;
+
+    @Column(nullable = false)
+    private Long lotId;
+
+    @Column(nullable = false, length = 100)
+    private String nodeId;
+
+    @Column(nullable = false)
+    private Long grantedQtd;
+
+    @Column(nullable = false)
+    private Long consumedQtd;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
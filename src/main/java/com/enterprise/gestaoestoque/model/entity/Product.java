@@ -7,6 +7,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +16,7 @@ import java.util.List;
 @Data
 @AllArgsConstructor @NoArgsConstructor
 @Entity
+@NamedEntityGraph(name = "Product.detail", attributeNodes = @NamedAttributeNode("lots"))
 @Table(name = "products")
 public class Product {
 
@@ -38,6 +40,12 @@ public class Product {
 
     private Long totalStock;
 
+    // Reservas ATIVA dos lotes ATIVO, mantido a cada reserva; o disponível é totalStock - reservedStock
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long reservedStock = 0L;
+
     @Column(nullable = false)
     private Boolean isActive;
 
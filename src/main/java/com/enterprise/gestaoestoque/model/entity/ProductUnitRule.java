@@ -0,0 +1,29 @@
+package com.enterprise.gestaoestoque.model.entity;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@Data
+@AllArgsConstructor @NoArgsConstructor
+@Entity
+@Table(name = "product_unit_rules", uniqueConstraints = @UniqueConstraint(columnNames = {"category", "measurement_unit"}))
+public class ProductUnitRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProductCategory category;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "measurement_unit", nullable = false)
+    private MeasurementUnit measurementUnit;
+}
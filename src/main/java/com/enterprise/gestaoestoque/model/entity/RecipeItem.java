@@ -0,0 +1,35 @@
+package com.enterprise.gestaoestoque.model.entity;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import jakarta.persistence.*;
+import lombok.*;
+
+@Builder
+@Data
+@AllArgsConstructor @NoArgsConstructor
+@Entity
+@Table(name = "recipe_items", uniqueConstraints = @UniqueConstraint(columnNames = {"recipe_id", "product_id"}))
+public class RecipeItem {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @ManyToOne
+    @JoinColumn(name = "recipe_id", nullable = false)
+    private Recipe recipe;
+
+    @ManyToOne
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    // Quantidade consumida por unidade produzida, na unidade de medida do produto
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private MeasurementUnit measurementUnit;
+}
@@ -0,0 +1,61 @@
+package com.enterprise.gestaoestoque.model.entity;
+
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Quantidade de um lote segura para um pedido até virar movimentação (confirmação), ser liberada ou expirar.
+ * Enquanto ATIVA, a quantidade compõe o reservedQtd do lote e o reservedStock do produto.
+ */
+@Builder
+@Data
+@AllArgsConstructor @NoArgsConstructor
+@Entity
+@Table(name = "stock_reservations", indexes = @Index(name = "idx_stock_reservations_status", columnList = "status"))
+public class StockReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long quantity;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private MovementType movementType;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    @JoinColumn(name = "lot_id", nullable = false)
+    private Lot lot;
+
+    @ManyToOne(cascade = {CascadeType.MERGE, CascadeType.PERSIST, CascadeType.REFRESH})
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // Movimentação gerada na confirmação
+    @OneToOne
+    @JoinColumn(name = "movement_id")
+    private InventoryMovement movement;
+}
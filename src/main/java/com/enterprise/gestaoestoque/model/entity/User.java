@@ -14,6 +14,8 @@ import java.util.List;
 @Data
 @AllArgsConstructor @NoArgsConstructor
 @Entity
+// Autoridades LAZY: só a autenticação precisa delas, e carrega pelo grafo junto com o usuário
+@NamedEntityGraph(name = "User.authorities", attributeNodes = @NamedAttributeNode("authorities"))
 @Table(name = "users")
 public class User {
 
@@ -37,7 +39,7 @@ public class User {
     @Column(nullable = false)
     private Boolean isActive;
 
-    @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @ManyToMany(cascade = CascadeType.ALL)
     @JoinTable(
             name = "user_authorities",
             joinColumns = @JoinColumn(name = "user_id", referencedColumnName = "id"),
@@ -0,0 +1,38 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.model.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    Optional<IdempotencyRecord> findByIdempotencyKeyAndExpiresAtAfter(String idempotencyKey, LocalDateTime now);
+
+    // INSERT explícito: uma segunda transação com a mesma chave espera no índice da PK até a primeira terminar
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at, expires_at)
+            VALUES (:idempotencyKey, :requestHash, :createdAt, :expiresAt)
+            """, nativeQuery = true)
+    int insertPending(String idempotencyKey, String requestHash, LocalDateTime createdAt, LocalDateTime expiresAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.responseBody = :responseBody WHERE r.idempotencyKey = :idempotencyKey")
+    int complete(String idempotencyKey, String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :idempotencyKey AND r.expiresAt <= :now")
+    int deleteExpiredKey(String idempotencyKey, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt <= :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -1,17 +1,154 @@
 package com.enterprise.gestaoestoque.repository;
 
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotBalanceDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotQuantityDTO;
 import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
 import com.enterprise.gestaoestoque.model.entity.Lot;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface InventoryMovementRepository extends JpaRepository<InventoryMovement, Long> {
 
     @Override
     Page<InventoryMovement> findAll(Pageable pageable);
 
+    Page<InventoryMovement> findByWarehouseId(Long warehouseId, Pageable pageable);
+
+    @EntityGraph("InventoryMovement.detail")
+    Optional<InventoryMovement> findDetailById(Long id);
+
+    // Listagem de movimentações em um SELECT com lote e usuário; as autoridades do usuário não são lidas
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r LEFT JOIN m.warehouse w
+            """)
+    Slice<InventoryMovementRowDTO> findAllRows(Pageable pageable);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r JOIN m.warehouse w
+            WHERE w.id = :warehouseId
+            """)
+    Slice<InventoryMovementRowDTO> findRowsByWarehouseId(Long warehouseId, Pageable pageable);
+
+    long countByWarehouseId(Long warehouseId);
+
+    // Histórico por keyset, do mais recente para o mais antigo: a página seguinte parte da (dateAndTime, id) da última
+    // linha entregue e desce pelo índice (date_and_time, id), sem OFFSET nem COUNT. A primeira página não tem posição
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r LEFT JOIN m.warehouse w
+            ORDER BY m.dateAndTime DESC, m.id DESC
+            """)
+    List<InventoryMovementRowDTO> findLatestRows(Limit limit);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r LEFT JOIN m.warehouse w
+            WHERE (m.dateAndTime, m.id) < (:dateAndTime, :id)
+            ORDER BY m.dateAndTime DESC, m.id DESC
+            """)
+    List<InventoryMovementRowDTO> findRowsBefore(LocalDateTime dateAndTime, Long id, Limit limit);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r JOIN m.warehouse w
+            WHERE w.id = :warehouseId
+            ORDER BY m.dateAndTime DESC, m.id DESC
+            """)
+    List<InventoryMovementRowDTO> findLatestRowsByWarehouseId(Long warehouseId, Limit limit);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO(
+                m.id, m.movementType, m.quantity, m.measurementUnit, m.dateAndTime, m.reference, m.balanceAfter,
+                r.id, w.id, l.id, l.lotCode, l.status, u.id, u.name, u.profile)
+            FROM InventoryMovement m JOIN m.lot l JOIN m.user u LEFT JOIN m.reversalOf r JOIN m.warehouse w
+            WHERE w.id = :warehouseId AND (m.dateAndTime, m.id) < (:dateAndTime, :id)
+            ORDER BY m.dateAndTime DESC, m.id DESC
+            """)
+    List<InventoryMovementRowDTO> findRowsByWarehouseIdBefore(Long warehouseId, LocalDateTime dateAndTime, Long id,
+                                                              Limit limit);
+
     List<InventoryMovement> findByLot(Lot lot);
+
+    boolean existsByReversalOfId(Long movementId);
+
+    // Saldo de cada lote dos produtos em :at: para cada lote, o MAX sai do índice (lot_id, date_and_time) e a
+    // movimentação é achada no mesmo índice. Empates de data e hora voltam todos; quem chama fica com o maior id
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.LotBalanceDTO(l.id, m.id, m.movementType, m.quantity, m.balanceAfter)
+            FROM Lot l JOIN InventoryMovement m ON m.lot = l
+            WHERE l.product.id IN :productIds
+                AND m.balanceAfter IS NOT NULL
+                AND m.dateAndTime = (
+                    SELECT MAX(p.dateAndTime) FROM InventoryMovement p
+                    WHERE p.lot = l AND p.balanceAfter IS NOT NULL AND p.dateAndTime <= :at)
+            """)
+    List<LotBalanceDTO> findLastBalancesUpTo(Collection<Long> productIds, LocalDateTime at);
+
+    // Primeira movimentação com saldo de cada lote depois de :at, para os lotes sem nenhuma até lá. Empates: menor id
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.LotBalanceDTO(l.id, m.id, m.movementType, m.quantity, m.balanceAfter)
+            FROM Lot l JOIN InventoryMovement m ON m.lot = l
+            WHERE l.id IN :lotIds
+                AND m.balanceAfter IS NOT NULL
+                AND m.dateAndTime = (
+                    SELECT MIN(p.dateAndTime) FROM InventoryMovement p
+                    WHERE p.lot = l AND p.balanceAfter IS NOT NULL AND p.dateAndTime > :at)
+            """)
+    List<LotBalanceDTO> findFirstBalancesAfter(Collection<Long> lotIds, LocalDateTime at);
+
+    // Baixas sem saldo (feitas pelas cotas de escrow) de cada lote entre a última movimentação com saldo e :at
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.LotQuantityDTO(l.id, SUM(m.quantity))
+            FROM Lot l JOIN InventoryMovement m ON m.lot = l
+            WHERE l.product.id IN :productIds
+                AND m.balanceAfter IS NULL
+                AND m.movementType IN :movementTypes
+                AND m.dateAndTime <= :at
+                AND m.dateAndTime > (
+                    SELECT MAX(p.dateAndTime) FROM InventoryMovement p
+                    WHERE p.lot = l AND p.balanceAfter IS NOT NULL AND p.dateAndTime <= :at)
+            GROUP BY l.id
+            """)
+    List<LotQuantityDTO> sumUnbalancedSinceLastBalance(Collection<Long> productIds, Collection<MovementType> movementTypes,
+                                                       LocalDateTime at);
+
+    // Baixas sem saldo de cada lote depois de :at e antes da primeira movimentação com saldo depois de :at (ou até agora)
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.LotQuantityDTO(l.id, SUM(m.quantity))
+            FROM Lot l JOIN InventoryMovement m ON m.lot = l
+            WHERE l.id IN :lotIds
+                AND m.balanceAfter IS NULL
+                AND m.movementType IN :movementTypes
+                AND m.dateAndTime > :at
+                AND NOT EXISTS (
+                    SELECT p.id FROM InventoryMovement p
+                    WHERE p.lot = l AND p.balanceAfter IS NOT NULL AND p.dateAndTime > :at AND p.dateAndTime <= m.dateAndTime)
+            GROUP BY l.id
+            """)
+    List<LotQuantityDTO> sumUnbalancedAfter(Collection<Long> lotIds, Collection<MovementType> movementTypes,
+                                            LocalDateTime at);
 }
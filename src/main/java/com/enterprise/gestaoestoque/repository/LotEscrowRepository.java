@@ -0,0 +1,61 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.model.entity.LotEscrow;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface LotEscrowRepository extends JpaRepository<LotEscrow, String> {
+
+    @Query("SELECT e FROM LotEscrow e WHERE e.nodeId = :nodeId AND e.consumedQtd > 0")
+    List<LotEscrow> findToSettle(String nodeId);
+
+    @Query("SELECT e FROM LotEscrow e WHERE e.updatedAt < :idleSince OR (e.nodeId = :nodeId AND e.updatedAt < :startedAt)")
+    List<LotEscrow> findToRelease(String nodeId, LocalDateTime idleSince, LocalDateTime startedAt);
+
+    // Consumo das cotas do lote (de todos os nós) que ainda não foi acertado no lote
+    @Query("SELECT COALESCE(SUM(e.consumedQtd), 0) FROM LotEscrow e WHERE e.lotId = :lotId")
+    long sumConsumedQtd(Long lotId);
+
+    // Saldo físico do lote numa única leitura: o acerto move o consumo da cota para o lote de uma vez, então a
+    // diferença não muda com um acerto concorrente
+    @Query("""
+            SELECT l.currentQtd - COALESCE((SELECT SUM(e.consumedQtd) FROM LotEscrow e WHERE e.lotId = l.id), 0)
+            FROM Lot l
+            WHERE l.id = :lotId
+            """)
+    Long findPhysicalQtd(Long lotId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM LotEscrow e WHERE e.id = :id")
+    Optional<LotEscrow> findByIdForUpdate(String id);
+
+    // Baixa na cota do nó: só passa se a cota ainda tiver saldo (e ainda existir, se outro nó a devolveu)
+    @Modifying
+    @Query("""
+            UPDATE LotEscrow e
+            SET e.consumedQtd = e.consumedQtd + :quantity, e.updatedAt = :now
+            WHERE e.id = :id AND e.grantedQtd - e.consumedQtd >= :quantity
+            """)
+    int consume(String id, long quantity, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE LotEscrow e SET e.grantedQtd = e.grantedQtd + :quantity, e.updatedAt = :now WHERE e.id = :id")
+    int grant(String id, long quantity, LocalDateTime now);
+
+    // INSERT explícito: save() faria merge e poderia sobrescrever a cota criada em paralelo por outra thread do nó
+    @Modifying
+    @Query(value = """
+            INSERT INTO lot_escrows (id, lot_id, node_id, granted_qtd, consumed_qtd, updated_at)
+            VALUES (:id, :lotId, :nodeId, :quantity, 0, :now)
+            """, nativeQuery = true)
+    int insert(String id, Long lotId, String nodeId, long quantity, LocalDateTime now);
+}
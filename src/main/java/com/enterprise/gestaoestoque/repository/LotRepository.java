@@ -1,12 +1,32 @@
 package com.enterprise.gestaoestoque.repository;
 
 import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.model.dto.lot.LotAllocationDTO;
+import com.enterprise.gestaoestoque.model.dto.lot.LotExpirationDTO;
+import com.enterprise.gestaoestoque.model.dto.lot.LotRowDTO;
+import com.enterprise.gestaoestoque.model.dto.lot.LotStockDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseStockDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotSnapshotDTO;
+import com.enterprise.gestaoestoque.model.dto.product.ProductLotRowDTO;
 import com.enterprise.gestaoestoque.model.entity.Lot;
 import com.enterprise.gestaoestoque.model.entity.Product;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LotRepository extends JpaRepository<Lot, Long> {
@@ -14,4 +34,252 @@ public interface LotRepository extends JpaRepository<Lot, Long> {
     List<Lot> findByProductAndStatus(Product product, LotStatus status);
 
     List<Lot> findByStatus(LotStatus status);
+
+    Page<Lot> findByWarehouseId(Long warehouseId, Pageable pageable);
+
+    @EntityGraph("Lot.detail")
+    Optional<Lot> findDetailById(Long id);
+
+    // Listagem de lotes em um SELECT com fornecedor, produto e depósito, sem carregar as entidades
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotRowDTO(
+                l.id, l.lotCode, l.initialQtd, l.currentQtd, l.reservedQtd, l.measurementUnit, l.entryDate,
+                l.expirationDate, l.status, s.id, s.name, s.cnpj, p.id, p.name, w.id, w.name)
+            FROM Lot l JOIN l.supplier s JOIN l.product p LEFT JOIN l.warehouse w
+            """)
+    Slice<LotRowDTO> findAllRows(Pageable pageable);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotRowDTO(
+                l.id, l.lotCode, l.initialQtd, l.currentQtd, l.reservedQtd, l.measurementUnit, l.entryDate,
+                l.expirationDate, l.status, s.id, s.name, s.cnpj, p.id, p.name, w.id, w.name)
+            FROM Lot l JOIN l.supplier s JOIN l.product p JOIN l.warehouse w
+            WHERE w.id = :warehouseId
+            """)
+    Slice<LotRowDTO> findRowsByWarehouseId(Long warehouseId, Pageable pageable);
+
+    long countByWarehouseId(Long warehouseId);
+
+    // Lotes dos produtos de uma página da listagem de produtos, em um único SELECT
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.product.ProductLotRowDTO(l.product.id, l.lotCode, l.status, l.expirationDate)
+            FROM Lot l
+            WHERE l.product.id IN :productIds
+            ORDER BY l.id
+            """)
+    List<ProductLotRowDTO> findProductLotRows(Collection<Long> productIds);
+
+    // Estoque do depósito por produto, somado dos lotes ATIVO pelo índice (warehouse_id, product_id, status)
+    @Query(value = """
+            SELECT new com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseStockDTO(
+                l.product.id, l.product.name, SUM(l.currentQtd), SUM(l.currentQtd - l.reservedQtd))
+            FROM Lot l
+            WHERE l.warehouse.id = :warehouseId AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            GROUP BY l.product.id, l.product.name
+            ORDER BY l.product.id
+            """,
+            countQuery = """
+            SELECT COUNT(DISTINCT l.product.id) FROM Lot l
+            WHERE l.warehouse.id = :warehouseId AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            """)
+    Page<WarehouseStockDTO> findWarehouseStock(Long warehouseId, Pageable pageable);
+
+    @Query("SELECT l.product.id FROM Lot l WHERE l.id = :lotId")
+    Optional<Long> findProductIdById(Long lotId);
+
+    @Query("SELECT l.measurementUnit FROM Lot l WHERE l.id = :lotId")
+    Optional<MeasurementUnit> findMeasurementUnitById(Long lotId);
+
+    // Saldo lido direto do banco, sem passar pela entidade que já estiver no contexto de persistência
+    @Query("SELECT l.currentQtd FROM Lot l WHERE l.id = :lotId")
+    Long findCurrentQtdById(Long lotId);
+
+    // Saldo físico: o currentQtd menos o que as cotas de escrow já baixaram sem acertar no lote
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.inventory.LotSnapshotDTO(l.id, l.product.id,
+                l.currentQtd - COALESCE((SELECT SUM(e.consumedQtd) FROM LotEscrow e WHERE e.lotId = l.id), 0), l.entryDate)
+            FROM Lot l
+            WHERE l.product.id IN :productIds
+            """)
+    List<LotSnapshotDTO> findSnapshotsByProductIds(Collection<Long> productIds);
+
+    // Bloqueia os lotes sempre em ordem crescente de id, evitando deadlock entre lotes de envio concorrentes
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM Lot l JOIN FETCH l.product WHERE l.id IN :lotIds ORDER BY l.id")
+    List<Lot> findAllByIdForUpdate(Collection<Long> lotIds);
+
+    // Lotes do depósito de destino que podem receber uma transferência: mesmo produto, fornecedor e validade da origem.
+    // Consulta só ids para que a origem não entre no contexto de persistência antes do bloqueio
+    @Query("""
+            SELECT t.id FROM Lot t, Lot s
+            WHERE s.id = :sourceLotId
+                AND t.id <> s.id
+                AND t.product = s.product
+                AND t.supplier = s.supplier
+                AND t.expirationDate = s.expirationDate
+                AND t.warehouse.id = :warehouseId
+                AND t.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            ORDER BY t.id
+            """)
+    List<Long> findTransferTargetIds(Long sourceLotId, Long warehouseId);
+
+    // Tira a marca de destino de transferência do lote que deixou de ser ATIVO, para que um novo lote possa recebê-la
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.transferTarget = NULL
+            WHERE l.transferTarget = TRUE
+                AND l.product.id = :productId
+                AND l.warehouse.id = :warehouseId
+                AND l.supplier.id = :supplierId
+                AND l.expirationDate = :expirationDate
+                AND l.status <> com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            """)
+    int releaseTransferTarget(Long productId, Long warehouseId, Long supplierId, LocalDate expirationDate);
+
+    @Query("""
+            SELECT DISTINCT l.product.id FROM Lot l
+            WHERE l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO AND l.expirationDate < :today
+            """)
+    List<Long> findProductIdsWithExpiredActiveLots(LocalDate today);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.status = com.enterprise.gestaoestoque.enums.LotStatus.VENCIDO
+            WHERE l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                AND l.expirationDate < :today
+                AND l.product.id IN :productIds
+            """)
+    int markExpiredLots(LocalDate today, Collection<Long> productIds);
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotExpirationDTO(l.id, l.expirationDate) FROM Lot l
+            WHERE l.status IN (com.enterprise.gestaoestoque.enums.LotStatus.ATIVO, com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO)
+            """)
+    List<LotExpirationDTO> findPendingExpirations();
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotAllocationDTO(
+                l.id, l.product.id, l.expirationDate, l.currentQtd - l.reservedQtd)
+            FROM Lot l
+            WHERE l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO AND l.currentQtd - l.reservedQtd > 0
+            """)
+    List<LotAllocationDTO> findActiveAllocations();
+
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotStockDTO(l.id, l.product.id, l.currentQtd, l.status, l.expirationDate)
+            FROM Lot l
+            """)
+    List<LotStockDTO> findStockState();
+
+    // Estado do lote lido direto do banco, sem passar pela entidade que já estiver no contexto de persistência
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.lot.LotStockDTO(l.id, l.product.id, l.currentQtd, l.status, l.expirationDate)
+            FROM Lot l
+            WHERE l.id = :lotId
+            """)
+    Optional<LotStockDTO> findStockStateById(Long lotId);
+
+    @Query("""
+            SELECT DISTINCT l.product.id FROM Lot l
+            WHERE l.id IN :lotIds
+                AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                AND l.expirationDate < :today
+            """)
+    List<Long> findProductIdsOfExpiredActiveLots(LocalDate today, Collection<Long> lotIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.status = com.enterprise.gestaoestoque.enums.LotStatus.VENCIDO
+            WHERE l.id IN :lotIds
+                AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                AND l.expirationDate < :today
+            """)
+    int markExpiredLotsById(LocalDate today, Collection<Long> lotIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.status = com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO
+            WHERE l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO AND l.currentQtd = 0
+            """)
+    int markDepletedLots();
+
+    // Baixa condicional: só decrementa se houver saldo suficiente, sem leitura prévia do lote
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.currentQtd = l.currentQtd - :quantity,
+                l.status = CASE
+                    WHEN l.currentQtd - :quantity = 0 AND l.status <> com.enterprise.gestaoestoque.enums.LotStatus.VENCIDO
+                        THEN com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO
+                    ELSE l.status
+                END
+            WHERE l.id = :lotId AND l.currentQtd - l.reservedQtd >= :quantity
+            """)
+    int withdrawQuantity(Long lotId, long quantity);
+
+    // Baixa FEFO: além do saldo, exige que o lote ainda esteja ATIVO e dentro da validade
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.currentQtd = l.currentQtd - :quantity,
+                l.status = CASE
+                    WHEN l.currentQtd - :quantity = 0 THEN com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO
+                    ELSE l.status
+                END
+            WHERE l.id = :lotId
+                AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                AND l.expirationDate >= :today
+                AND l.currentQtd - l.reservedQtd >= :quantity
+            """)
+    int withdrawActiveQuantity(Long lotId, long quantity, LocalDate today);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Lot l
+            SET l.currentQtd = l.currentQtd + :quantity,
+                l.status = CASE
+                    WHEN l.status = com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO AND l.expirationDate > :today
+                        THEN com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                    ELSE l.status
+                END
+            WHERE l.id = :lotId
+            """)
+    int restoreQuantity(Long lotId, long quantity, LocalDate today);
+
+    // Separa parte do saldo livre do lote para a cota de escrow de um nó ou para uma reserva
+    @Modifying
+    @Query("""
+            UPDATE Lot l
+            SET l.reservedQtd = l.reservedQtd + :quantity
+            WHERE l.id = :lotId
+                AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+                AND l.currentQtd - l.reservedQtd >= :quantity
+            """)
+    int reserveQuantity(Long lotId, long quantity);
+
+    // Acerto de uma cota ou reserva: o consumo sai do saldo e do reservado; o que foi liberado volta a ser saldo livre
+    @Modifying
+    @Query("""
+            UPDATE Lot l
+            SET l.currentQtd = l.currentQtd - :consumed,
+                l.reservedQtd = l.reservedQtd - :consumed - :released,
+                l.status = CASE
+                    WHEN l.currentQtd - :consumed = 0 AND l.status <> com.enterprise.gestaoestoque.enums.LotStatus.VENCIDO
+                        THEN com.enterprise.gestaoestoque.enums.LotStatus.ESGOTADO
+                    ELSE l.status
+                END
+            WHERE l.id = :lotId
+            """)
+    int settleReservation(Long lotId, long consumed, long released);
 }
@@ -1,12 +1,20 @@
 package com.enterprise.gestaoestoque.repository;
 
 import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.model.dto.product.ProductRowDTO;
 import com.enterprise.gestaoestoque.model.entity.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +26,91 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Optional<Product> findByNameIgnoreCase(String name);
 
+    @EntityGraph("Product.detail")
+    Optional<Product> findDetailById(Long id);
+
     List<Product> findByIsActive(Boolean isActive);
 
+    Page<Product> findByCategory(ProductCategory category, Pageable pageable);
+
+    // Listagem de produtos sem carregar a entidade; os lotes da página vêm de LotRepository.findProductLotRows
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.product.ProductRowDTO(
+                p.id, p.name, p.category, p.measurementUnit, p.isActive, p.totalStock, p.reservedStock)
+            FROM Product p
+            """)
+    Slice<ProductRowDTO> findAllRows(Pageable pageable);
+
+    boolean existsByCategoryAndMeasurementUnitNotIn(ProductCategory category, Collection<MeasurementUnit> measurementUnits);
+
+    @Query("SELECT p.measurementUnit FROM Product p WHERE p.id = :productId")
+    Optional<MeasurementUnit> findMeasurementUnitById(Long productId);
+
+    @Query("SELECT p.id FROM Product p")
+    List<Long> findAllIds();
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.totalStock = COALESCE(p.totalStock, 0) + :delta WHERE p.id = :productId")
+    int addToTotalStock(Long productId, long delta);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.reservedStock = p.reservedStock + :delta WHERE p.id = :productId")
+    int addToReservedStock(Long productId, long delta);
+
+    // Reparo: recalcula o estoque total e o reservado a partir dos lotes ATIVO
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Product p
+            SET p.totalStock = (
+                SELECT COALESCE(SUM(l.currentQtd), 0) FROM Lot l
+                WHERE l.product.id = p.id AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            ),
+            p.reservedStock = (
+                SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r
+                WHERE r.lot.product.id = p.id
+                    AND r.status = com.enterprise.gestaoestoque.enums.ReservationStatus.ATIVA
+                    AND r.lot.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            )
+            WHERE p.id = :productId
+            """)
+    int recalculateTotalStock(Long productId);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Product p
+            SET p.totalStock = (
+                SELECT COALESCE(SUM(l.currentQtd), 0) FROM Lot l
+                WHERE l.product.id = p.id AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            ),
+            p.reservedStock = (
+                SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r
+                WHERE r.lot.product.id = p.id
+                    AND r.status = com.enterprise.gestaoestoque.enums.ReservationStatus.ATIVA
+                    AND r.lot.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            )
+            WHERE p.id IN :productIds
+            """)
+    int recalculateTotalStockIn(Collection<Long> productIds);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE Product p
+            SET p.totalStock = (
+                SELECT COALESCE(SUM(l.currentQtd), 0) FROM Lot l
+                WHERE l.product.id = p.id AND l.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            ),
+            p.reservedStock = (
+                SELECT COALESCE(SUM(r.quantity), 0) FROM StockReservation r
+                WHERE r.lot.product.id = p.id
+                    AND r.status = com.enterprise.gestaoestoque.enums.ReservationStatus.ATIVA
+                    AND r.lot.status = com.enterprise.gestaoestoque.enums.LotStatus.ATIVO
+            )
+            """)
+    int recalculateAllTotalStock();
+
 }
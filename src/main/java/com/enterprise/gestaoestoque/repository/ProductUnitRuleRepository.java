@@ -0,0 +1,16 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.model.entity.ProductUnitRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductUnitRuleRepository extends JpaRepository<ProductUnitRule, Long> {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM ProductUnitRule r WHERE r.category = :category")
+    int deleteByCategory(ProductCategory category);
+}
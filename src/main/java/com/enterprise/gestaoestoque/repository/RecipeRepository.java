@@ -0,0 +1,13 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.model.entity.Recipe;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RecipeRepository extends JpaRepository<Recipe, Long> {
+
+    Optional<Recipe> findByNameIgnoreCase(String name);
+}
@@ -0,0 +1,33 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.model.entity.SchedulerLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface SchedulerLeaseRepository extends JpaRepository<SchedulerLease, String> {
+
+    // Só assume a lease se ela expirou; o próprio dono pode renová-la
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE SchedulerLease s
+            SET s.owner = :owner, s.lockedUntil = :lockedUntil, s.acquiredAt = :now
+            WHERE s.jobName = :jobName AND (s.lockedUntil <= :now OR s.owner = :owner)
+            """)
+    int tryAcquire(String jobName, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    // INSERT explícito: save() faria merge e poderia sobrescrever a lease criada por outro nó
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO scheduler_leases (job_name, owner, locked_until, acquired_at)
+            VALUES (:jobName, :owner, :lockedUntil, :now)
+            """, nativeQuery = true)
+    int insertLease(String jobName, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+}
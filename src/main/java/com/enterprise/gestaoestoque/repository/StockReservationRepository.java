@@ -0,0 +1,29 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationExpirationDTO;
+import com.enterprise.gestaoestoque.model.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // Bloqueia só a linha da reserva; o lote é lido à parte
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.id = :id")
+    Optional<StockReservation> findByIdForUpdate(Long id);
+
+    // Só para carregar a roda de expiração (início e reconciliação); o vencimento em si não consulta a tabela
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.reservation.ReservationExpirationDTO(r.id, r.expiresAt)
+            FROM StockReservation r
+            WHERE r.status = com.enterprise.gestaoestoque.enums.ReservationStatus.ATIVA
+            """)
+    List<ReservationExpirationDTO> findActiveExpirations();
+}
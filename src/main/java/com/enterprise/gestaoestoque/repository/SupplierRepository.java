@@ -1,9 +1,12 @@
 package com.enterprise.gestaoestoque.repository;
 
+import com.enterprise.gestaoestoque.model.dto.supplier.SupplierResponseDTO;
 import com.enterprise.gestaoestoque.model.entity.Supplier;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,5 +17,12 @@ public interface SupplierRepository extends JpaRepository<Supplier, Long> {
     @Override
     Page<Supplier> findAll(Pageable pageable);
 
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.supplier.SupplierResponseDTO(
+                s.id, s.name, s.cnpj, s.contactName, s.email, s.phone, s.isActive)
+            FROM Supplier s
+            """)
+    Slice<SupplierResponseDTO> findAllRows(Pageable pageable);
+
     Optional<Supplier> findByNameIgnoreCaseAndCnpj(String name, String cnpj);
 }
@@ -1,9 +1,13 @@
 package com.enterprise.gestaoestoque.repository;
 
+import com.enterprise.gestaoestoque.model.dto.user.UserResponseDTO;
 import com.enterprise.gestaoestoque.model.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,6 +18,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Override
     Page<User> findAll(Pageable pageable);
 
+    // Sem as autoridades: a associação é EAGER e carregaria também os usuários de cada autoridade
+    @Query("""
+            SELECT new com.enterprise.gestaoestoque.model.dto.user.UserResponseDTO(u.id, u.name, u.email, u.profile, u.isActive)
+            FROM User u
+            """)
+    Slice<UserResponseDTO> findAllRows(Pageable pageable);
+
     Optional<User> findByEmail(String email);
 
+    @EntityGraph("User.authorities")
+    Optional<User> findWithAuthoritiesByEmail(String email);
+
 }
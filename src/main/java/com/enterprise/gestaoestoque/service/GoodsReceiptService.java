@@ -0,0 +1,152 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.receipt.GoodsReceiptRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.receipt.GoodsReceiptResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Recebimento de mercadorias: cria todos os lotes de uma nota em uma transação, com os INSERTs de lotes e
+ * movimentações de ENTRADA em batch, os códigos de lote de um bloco da sequence e um ajuste de estoque total
+ * por produto.
+ */
+@RequiredArgsConstructor
+@Service
+public class GoodsReceiptService {
+
+    private final SupplierRepository supplierRepository;
+    private final ProductRepository productRepository;
+    private final LotRepository lotRepository;
+    private final InventoryMovementRepository inventoryMovementRepository;
+    private final LotService lotService;
+    private final UserService userService;
+    private final LotCodeGenerator lotCodeGenerator;
+    private final LotExpirationService lotExpirationService;
+    private final LotAllocationService lotAllocationService;
+    private final StockEngine stockEngine;
+    private final WarehouseService warehouseService;
+
+    @Transactional
+    public GoodsReceiptResponseDTO createGoodsReceipt(GoodsReceiptRequestDTO receiptDTO) {
+        var items = receiptDTO.items();
+        if (items == null || items.isEmpty()) {
+            throw new BusinessException("O recebimento deve ter ao menos um lote");
+        }
+        var supplier = supplierRepository.findById(receiptDTO.supplierId())
+                .orElseThrow(() -> new ResourceNotFoundException("Fornecedor não encontrado: " + receiptDTO.supplierId()));
+        if (!supplier.getIsActive()) {
+            throw new BusinessException("Fornecedor inativo no sistema, não foi possível receber os lotes");
+        }
+        var warehouse = warehouseService.findActiveWarehouse(receiptDTO.warehouseId());
+
+        var productIds = items.stream().map(GoodsReceiptRequestDTO.ItemDTO::productId).distinct().toList();
+        var products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        var today = LocalDate.now();
+        for (var item : items) {
+            var product = products.get(item.productId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Produto não encontrado: " + item.productId());
+            }
+            if (!product.getIsActive()) {
+                throw new BusinessException("Produto inativo no sistema, não foi possível receber o lote: " + product.getName());
+            }
+            if (item.quantity() == null || item.quantity() <= 0) {
+                throw new BusinessException("Quantidade inválida");
+            }
+            if (item.expirationDate() == null || !item.expirationDate().isAfter(today)) {
+                throw new BusinessException("A data de validade deve ser futura");
+            }
+        }
+
+        var codes = lotCodeGenerator.next(items.size());
+        var lots = new ArrayList<Lot>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            var product = products.get(item.productId());
+            lots.add(Lot.builder()
+                    .initialQtd(item.quantity())
+                    .currentQtd(item.quantity())
+                    .measurementUnit(product.getMeasurementUnit())
+                    .entryDate(today)
+                    .expirationDate(item.expirationDate())
+                    .lotCode(codes.get(i))
+                    .status(LotStatus.ATIVO)
+                    .product(product)
+                    .supplier(supplier)
+                    .warehouse(warehouse)
+                    .build());
+        }
+        var lotsSaved = lotRepository.saveAll(lots);
+
+        var user = userService.getLoggedUser();
+        var receivedAt = LocalDateTime.now();
+        var movements = inventoryMovementRepository.saveAll(lotsSaved.stream()
+                .map(lot -> InventoryMovement.builder()
+                        .movementType(MovementType.ENTRADA)
+                        .quantity(lot.getInitialQtd())
+                        .measurementUnit(lot.getMeasurementUnit())
+                        .dateAndTime(receivedAt)
+                        .reference(receiptDTO.deliveryNote())
+                        .balanceAfter(lot.getCurrentQtd())
+                        .lot(lot)
+                        .warehouse(lot.getWarehouse())
+                        .user(user)
+                        .build())
+                .toList());
+
+        var productDeltas = new LinkedHashMap<Long, Long>();
+        for (var lot : lotsSaved) {
+            var productId = lot.getProduct().getId();
+            if (stockEngine.isEnabled()) {
+                stockEngine.registerLot(lot.getId(), productId, lot.getCurrentQtd(), lot.getExpirationDate(), lot.getStatus());
+            } else {
+                productDeltas.merge(productId, lot.getCurrentQtd(), Long::sum);
+            }
+            lotExpirationService.register(lot.getId(), lot.getExpirationDate());
+            lotAllocationService.adjust(productId, lot.getId(), lot.getExpirationDate(), lot.getCurrentQtd());
+        }
+        // Um único ajuste de estoque total por produto recebido
+        productDeltas.forEach(lotService::applyStockDelta);
+
+        var lotResults = new ArrayList<GoodsReceiptResponseDTO.LotDTO>(lotsSaved.size());
+        for (int i = 0; i < lotsSaved.size(); i++) {
+            var lot = lotsSaved.get(i);
+            lotResults.add(GoodsReceiptResponseDTO.LotDTO.builder()
+                    .id(lot.getId())
+                    .lotCode(lot.getLotCode())
+                    .productId(lot.getProduct().getId())
+                    .quantity(lot.getInitialQtd())
+                    .measurementUnit(lot.getMeasurementUnit())
+                    .expirationDate(lot.getExpirationDate())
+                    .movementId(movements.get(i).getId())
+                    .build());
+        }
+        return GoodsReceiptResponseDTO.builder()
+                .supplierId(supplier.getId())
+                .deliveryNote(receiptDTO.deliveryNote())
+                .receivedAt(receivedAt)
+                .lots(lotResults)
+                .build();
+    }
+}
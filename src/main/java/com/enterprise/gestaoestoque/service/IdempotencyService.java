@@ -0,0 +1,209 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Suporte ao header Idempotency-Key: a primeira requisição com uma chave é executada e a resposta é gravada
+ * na mesma transação; repetições devolvem a resposta original sem chamar o serviço de novo.
+ * Duplicatas simultâneas no mesmo nó esperam a primeira execução; entre nós, a PK da tabela faz o mesmo papel.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Map<String, CachedResponse> cache;
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long IN_FLIGHT_WAIT_SECONDS = 30;
+    private static final Duration CLEANUP_LEASE = Duration.ofMinutes(50);
+
+    private record CachedResponse(String requestHash, String responseBody, LocalDateTime expiresAt) {}
+
+    public record Result<T>(T body, boolean replayed) {}
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              SchedulerLeaseService schedulerLeaseService,
+                              MeterRegistry meterRegistry,
+                              @Value("${idempotency.ttl:24h}") Duration ttl,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.schedulerLeaseService = schedulerLeaseService;
+        this.meterRegistry = meterRegistry;
+        this.ttl = ttl;
+        // LRU limitado: as entradas menos usadas saem primeiro; a tabela continua valendo para o que sair do cache
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    public <T> Result<T> execute(String scope, String idempotencyKey, Object request, Class<T> responseType, Supplier<T> action) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return new Result<>(action.get(), false);
+        }
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new BusinessException("Idempotency-Key deve ter no máximo " + MAX_KEY_LENGTH + " caracteres");
+        }
+
+        var key = scope + ":" + idempotencyKey;
+        var requestHash = hash(request);
+        for (int attempt = 1; ; attempt++) {
+            var stored = findStored(key);
+            if (stored != null) {
+                return replay(stored, requestHash, responseType, scope);
+            }
+
+            var execution = new CompletableFuture<Void>();
+            var running = inFlight.putIfAbsent(key, execution);
+            if (running != null) {
+                await(running);
+                continue;
+            }
+            try {
+                // A execução anterior pode ter terminado entre a consulta e o putIfAbsent
+                var cached = cache.get(key);
+                if (cached != null && cached.expiresAt().isAfter(LocalDateTime.now())) {
+                    return replay(cached, requestHash, responseType, scope);
+                }
+                return new Result<>(executeAndStore(key, requestHash, action), false);
+            } catch (DataIntegrityViolationException e) {
+                // Em geral outro nó gravou a mesma chave; na próxima volta a resposta dele é devolvida
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Conflito ao gravar a Idempotency-Key {}, tentativa {}", key, attempt);
+            } finally {
+                inFlight.remove(key, execution);
+                execution.complete(null);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${idempotency.cleanup-cron:0 0 * * * *}")
+    public void deleteExpiredRecords() {
+        if (!schedulerLeaseService.tryAcquire("idempotency.cleanup", CLEANUP_LEASE)) {
+            return;
+        }
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        meterRegistry.counter("idempotency.records.expired").increment(deleted);
+    }
+
+    // A chave é inserida antes da ação e completada com a resposta na mesma transação do serviço
+    private <T> T executeAndStore(String key, String requestHash, Supplier<T> action) {
+        var now = LocalDateTime.now();
+        var expiresAt = now.plus(ttl);
+        var responseBody = new String[1];
+        var response = transactionTemplate.execute(status -> {
+            idempotencyRecordRepository.deleteExpiredKey(key, now);
+            idempotencyRecordRepository.insertPending(key, requestHash, now, expiresAt);
+
+            var result = action.get();
+            responseBody[0] = toJson(result);
+            idempotencyRecordRepository.complete(key, responseBody[0]);
+            return result;
+        });
+        // Só entra no cache depois do commit
+        cache.put(key, new CachedResponse(requestHash, responseBody[0], expiresAt));
+        return response;
+    }
+
+    private CachedResponse findStored(String key) {
+        var now = LocalDateTime.now();
+        var cached = cache.get(key);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(now)) {
+                return cached;
+            }
+            cache.remove(key);
+        }
+        return idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(key, now)
+                .filter(record -> record.getResponseBody() != null)
+                .map(record -> {
+                    var stored = new CachedResponse(record.getRequestHash(), record.getResponseBody(), record.getExpiresAt());
+                    cache.put(key, stored);
+                    return stored;
+                })
+                .orElse(null);
+    }
+
+    private <T> Result<T> replay(CachedResponse stored, String requestHash, Class<T> responseType, String scope) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new BusinessException("Idempotency-Key já utilizada com outro conteúdo de requisição");
+        }
+        meterRegistry.counter("idempotency.replays", "scope", scope).increment();
+        try {
+            return new Result<>(objectMapper.readValue(stored.responseBody(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Resposta idempotente inválida", e);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> running) {
+        try {
+            running.get(IN_FLIGHT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("Requisição interrompida aguardando a execução original");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new BusinessException("Requisição com a mesma Idempotency-Key ainda em processamento");
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(toJson(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Não foi possível serializar a resposta", e);
+        }
+    }
+}
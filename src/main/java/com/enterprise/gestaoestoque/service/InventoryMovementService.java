@@ -1,24 +1,48 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.configuration.routing.WarehouseContext;
 import com.enterprise.gestaoestoque.enums.LotStatus;
 import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.model.Quantity;
+import com.enterprise.gestaoestoque.model.dto.inventory.FefoMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementHistoryDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
 import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.User;
 import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
 import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
@@ -29,78 +53,553 @@ public class InventoryMovementService {
     private final InventoryMapper inventoryMapper;
     private final LotService lotService;
     private final UserService userService;
+    private final LotAllocationService lotAllocationService;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final StockEngine stockEngine;
+    private final LotEscrowService lotEscrowService;
+    private final PageTotalService pageTotalService;
+    private static final int LOCK_CHUNK_SIZE = 1000;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final String MOVEMENT_TYPE_NOT_ALLOWED =
+            "Movimentações de ENTRADA, de transferência e de estorno são registradas pelo recebimento, pelas" +
+                    " transferências e pela exclusão de uma baixa";
 
-    public Page<InventoryMovementResponseDTO> getAllInventoryMovements(Pageable pageable) {
-        var movements = inventoryMovementRepository.findAll(pageable);
-        return movements.map(inventoryMapper::toInventoryMovementResponseDTO);
+    public Slice<InventoryMovementResponseDTO> getAllInventoryMovements(Long warehouseId, Pageable pageable, PageTotal total) {
+        var movements = warehouseId == null
+                ? pageTotalService.toPage(inventoryMovementRepository.findAllRows(pageable), total,
+                        "inventory_movements", null, inventoryMovementRepository::count)
+                : pageTotalService.toPage(
+                        WarehouseContext.read(warehouseId,
+                                () -> inventoryMovementRepository.findRowsByWarehouseId(warehouseId, pageable)),
+                        total, "inventory_movements", warehouseId,
+                        () -> WarehouseContext.read(warehouseId,
+                                () -> inventoryMovementRepository.countByWarehouseId(warehouseId)));
+        return movements.map(row -> withEngineStatus(inventoryMapper.toInventoryMovementResponseDTO(row), row.lotId()));
+    }
+
+    // Busca size + 1 linhas: a sobra só indica que existe uma próxima página e não é devolvida
+    public InventoryMovementHistoryDTO getInventoryMovementHistory(Long warehouseId, String cursor, int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new BusinessException("O tamanho da página deve estar entre 1 e " + MAX_HISTORY_PAGE_SIZE);
+        }
+        var position = cursor == null || cursor.isBlank() ? null : MovementHistoryCursor.decode(cursor);
+        var limit = Limit.of(size + 1);
+        var rows = warehouseId == null
+                ? findHistoryRows(position, limit)
+                : WarehouseContext.read(warehouseId, () -> findHistoryRowsByWarehouseId(warehouseId, position, limit));
+
+        var hasNext = rows.size() > size;
+        var page = hasNext ? rows.subList(0, size) : rows;
+        var last = page.isEmpty() ? null : page.get(page.size() - 1);
+        var nextCursor = hasNext ? new MovementHistoryCursor(last.dateAndTime(), last.id()).encode() : null;
+        return new InventoryMovementHistoryDTO(page.stream()
+                .map(row -> withEngineStatus(inventoryMapper.toInventoryMovementResponseDTO(row), row.lotId()))
+                .toList(), nextCursor);
     }
 
     public InventoryMovementResponseDTO getInventoryMovementById(Long id) {
-        return inventoryMovementRepository.findById(id).map(inventoryMapper::toInventoryMovementResponseDTO)
+        return inventoryMovementRepository.findDetailById(id).map(this::toResponseDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimento de estoque não encontrado: " + id));
     }
 
     @Transactional
     public InventoryMovementResponseDTO createInventoryMovement(InventoryMovementRequestDTO inventoryMovementDTO) {
+        validateWithdrawalType(inventoryMovementDTO.movementType());
+        if (stockEngine.isEnabled()) {
+            return createInventoryMovementInEngine(inventoryMovementDTO);
+        }
+        var lotId = inventoryMovementDTO.lotId();
+        var lotBefore = lotRepository.findById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException(("Lote não encontrado: " + lotId)));
+        var quantity = Quantity.toStockUnits(inventoryMovementDTO.quantity(), inventoryMovementDTO.measurementUnit(),
+                lotBefore.getMeasurementUnit());
+        var productId = lotBefore.getProduct().getId();
+        var countsInTotalStock = lotBefore.getStatus() == LotStatus.ATIVO;
+
+        // Pela cota de escrow o lote e o estoque total só mudam no acerto da cota
+        var escrowed = lotEscrowService.tryWithdraw(lotBefore, quantity);
+        if (!escrowed) {
+            applyWithdrawalToLot(lotId, quantity);
+        }
+
         var user = userService.getLoggedUser();
-        var lot = lotRepository.findById(inventoryMovementDTO.lotId())
-                .orElseThrow(() -> new ResourceNotFoundException(("Lote não encontrado: " + inventoryMovementDTO.lotId())));
-        var product = lot.getProduct();
+        var lot = lotRepository.findById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException(("Lote não encontrado: " + lotId)));
 
-        var inventoryMovementEntity = inventoryMapper.toInventoryMovement(inventoryMovementDTO, user, lot);
-        inventoryMovementEntity.setMeasurementUnit(lot.getMeasurementUnit());
+        var inventoryMovementEntity = inventoryMapper.toInventoryMovement(inventoryMovementDTO, quantity, user, lot);
         inventoryMovementEntity.setDateAndTime(LocalDateTime.now());
+        // O UPDATE condicional limpou o contexto: o lote relido já traz o saldo depois da baixa, com a linha bloqueada.
+        // Pela cota o lote não é bloqueado e outros nós baixam ao mesmo tempo, então a baixa fica sem saldo no razão
+        if (!escrowed) {
+            inventoryMovementEntity.setBalanceAfter(balanceAfter(lot));
+        }
         var inventoryMovementSaved = inventoryMovementRepository.save(inventoryMovementEntity);
 
-        applyWithdrawalToLot(lot, inventoryMovementDTO.quantity().longValue());
-        lotService.updateProductTotalStock(product);
+        if (!escrowed) {
+            lotService.applyStockDelta(productId, countsInTotalStock ? -quantity : 0);
+            lotAllocationService.adjust(productId, lotId, lotBefore.getExpirationDate(), -quantity);
+        }
 
         return inventoryMapper.toInventoryMovementResponseDTO(inventoryMovementSaved);
     }
 
+    // Distribui a quantidade entre os lotes ATIVO do produto, do que vence primeiro para o último (FEFO)
+    @Transactional
+    public List<InventoryMovementResponseDTO> createFefoMovement(FefoMovementRequestDTO fefoDTO) {
+        validateWithdrawalType(fefoDTO.movementType());
+        var stockUnit = productRepository.findMeasurementUnitById(fefoDTO.productId())
+                .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + fefoDTO.productId()));
+        var quantity = Quantity.toStockUnits(fefoDTO.quantity(), fefoDTO.measurementUnit(), stockUnit);
+
+        var movements = withdrawFefo(Map.of(fefoDTO.productId(), quantity), fefoDTO.movementType(), null);
+        return movements.stream().map(this::toResponseDTO).toList();
+    }
+
+    // Baixa FEFO de vários produtos numa transação (consumo de uma receita, por exemplo): ou todos os produtos têm
+    // saldo e todas as baixas acontecem, ou nenhuma acontece. As movimentações são gravadas em um único batch
+    @Transactional
+    public List<InventoryMovementResponseDTO> createFefoMovements(Map<Long, Long> quantities, MovementType movementType,
+                                                                  String reference) {
+        validateWithdrawalType(movementType);
+        if (quantities.isEmpty() || quantities.values().stream().anyMatch(quantity -> quantity == null || quantity <= 0)) {
+            throw new BusinessException("Quantidade inválida");
+        }
+        var existing = productRepository.findAllById(quantities.keySet()).stream().map(Product::getId).collect(Collectors.toSet());
+        quantities.keySet().stream().filter(productId -> !existing.contains(productId)).findFirst().ifPresent(productId -> {
+            throw new ResourceNotFoundException("Produto não encontrado: " + productId);
+        });
+
+        // Conferência prévia pelo índice de alocação, para recusar o pedido inteiro listando todos os produtos em falta
+        // antes de qualquer baixa; se o índice estiver adiantado, a baixa abaixo falha e desfaz a transação
+        var today = LocalDate.now();
+        var shortages = new ArrayList<String>();
+        quantities.forEach((productId, quantity) -> {
+            long available = lotAllocationService.candidates(productId, today).stream()
+                    .mapToLong(LotAllocationService.LotCandidate::availableQtd).sum();
+            if (available < quantity) {
+                shortages.add("produto " + productId + " (faltam " + (quantity - available) + ")");
+            }
+        });
+        if (!shortages.isEmpty()) {
+            throw new BusinessException("Estoque insuficiente nos lotes ativos: " + String.join(", ", shortages));
+        }
+
+        var movements = withdrawFefo(quantities, movementType, reference);
+        return movements.stream().map(this::toResponseDTO).toList();
+    }
+
+    private List<InventoryMovement> withdrawFefo(Map<Long, Long> quantities, MovementType movementType, String reference) {
+        var today = LocalDate.now();
+        var withdrawals = new LinkedHashMap<Long, Long>();
+        var expirations = new HashMap<Long, LocalDate>();
+        var lotProducts = new HashMap<Long, Long>();
+        quantities.forEach((productId, quantity) -> {
+            long remaining = quantity;
+            boolean withdrawn = false;
+            for (var candidate : lotAllocationService.candidates(productId, today)) {
+                if (remaining == 0) {
+                    break;
+                }
+                long taken = stockEngine.isEnabled()
+                        ? stockEngine.withdrawAvailable(candidate.lotId(), remaining, today)
+                        : withdrawFromCandidate(productId, candidate, remaining, today);
+                if (taken > 0) {
+                    withdrawals.merge(candidate.lotId(), taken, Long::sum);
+                    expirations.put(candidate.lotId(), candidate.expirationDate());
+                    lotProducts.put(candidate.lotId(), productId);
+                    remaining -= taken;
+                    withdrawn = true;
+                }
+            }
+
+            if (remaining > 0) {
+                if (!withdrawn && !productRepository.existsById(productId)) {
+                    throw new ResourceNotFoundException("Produto não encontrado: " + productId);
+                }
+                // A exceção desfaz as baixas já feitas nesta transação
+                throw new BusinessException("Estoque insuficiente para o produto: faltam " + remaining + " nos lotes ativos.");
+            }
+        });
+
+        var user = userService.getLoggedUser();
+        var lots = lotRepository.findAllById(withdrawals.keySet()).stream()
+                .collect(Collectors.toMap(Lot::getId, Function.identity()));
+        var dateAndTime = LocalDateTime.now();
+
+        var movements = withdrawals.entrySet().stream()
+                .map(withdrawal -> InventoryMovement.builder()
+                        .movementType(movementType)
+                        .quantity(withdrawal.getValue())
+                        .measurementUnit(lots.get(withdrawal.getKey()).getMeasurementUnit())
+                        .dateAndTime(dateAndTime)
+                        .reference(reference)
+                        .balanceAfter(balanceAfter(lots.get(withdrawal.getKey())))
+                        .lot(lots.get(withdrawal.getKey()))
+                        .warehouse(lots.get(withdrawal.getKey()).getWarehouse())
+                        .user(user)
+                        .build())
+                .toList();
+        var movementsSaved = inventoryMovementRepository.saveAll(movements);
+
+        // Um único ajuste de estoque total por produto
+        if (!stockEngine.isEnabled()) {
+            quantities.forEach((productId, quantity) -> lotService.applyStockDelta(productId, -quantity));
+        }
+        withdrawals.forEach((lotId, taken) ->
+                lotAllocationService.adjust(lotProducts.get(lotId), lotId, expirations.get(lotId), -taken));
+        return movementsSaved;
+    }
+
+    // Lote de envio: bloqueia os lotes uma única vez, baixa em memória e grava as movimentações em batch.
+    // Itens inválidos não interrompem o envio; cada um recebe seu resultado, na ordem recebida.
+    @Transactional
+    public InventoryMovementBatchResponseDTO createInventoryMovementBatch(InventoryMovementBatchRequestDTO batchDTO) {
+        var items = batchDTO.movements();
+        var user = userService.getLoggedUser();
+        var applied = applyMovements(items, index -> user);
+
+        var results = new ArrayList<InventoryMovementBatchResponseDTO.ItemResultDTO>(items.size());
+        int succeeded = 0;
+        for (int i = 0; i < items.size(); i++) {
+            var item = applied.get(i);
+            var lotId = items.get(i) == null ? null : items.get(i).lotId();
+            if (item.error() != null) {
+                results.add(itemResult(i, lotId, null, item.error()));
+            } else {
+                results.add(itemResult(i, lotId, item.movement().getId(), null));
+                succeeded++;
+            }
+        }
+
+        return InventoryMovementBatchResponseDTO.builder()
+                .processed(items.size())
+                .succeeded(succeeded)
+                .failed(items.size() - succeeded)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Group commit das movimentações enfileiradas para um mesmo produto: uma transação, um UPDATE por lote
+     * e um ajuste do estoque total. O usuário de cada movimentação já vem resolvido na thread de quem pediu.
+     */
+    @Transactional
+    public List<GroupedMovementResult> createInventoryMovementGroup(List<GroupedMovement> group) {
+        var users = new HashMap<Long, User>();
+        group.forEach(movement -> users.computeIfAbsent(movement.userId(), userRepository::getReferenceById));
+        var items = group.stream().map(GroupedMovement::request).toList();
+        var applied = applyMovements(items, index -> users.get(group.get(index).userId()));
+
+        return applied.stream()
+                .map(item -> item.error() != null
+                        ? new GroupedMovementResult(null, new BusinessException(item.error()))
+                        : new GroupedMovementResult(toResponseDTO(item.movement()), null))
+                .toList();
+    }
+
+    public record GroupedMovement(InventoryMovementRequestDTO request, Long userId) {}
+
+    public record GroupedMovementResult(InventoryMovementResponseDTO movement, RuntimeException error) {}
+
+    private record AppliedMovement(InventoryMovement movement, String error) {}
+
+    // A baixa não é apagada: um ESTORNO com a mesma quantidade devolve o saldo ao lote e mantém o razão só de inclusões
     @Transactional
     @PreAuthorize("HasRole('SUPERVISOR')")
     public void deleteMovement(Long movementId) {
         var movement = inventoryMovementRepository.findById(movementId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movimento não encontrado: " + movementId));
 
+        if (!movement.getMovementType().isWithdrawal()) {
+            throw new BusinessException("Movimentações de ENTRADA, de transferência e de estorno não podem ser excluídas");
+        }
+        if (inventoryMovementRepository.existsByReversalOfId(movementId)) {
+            throw new BusinessException("Movimentação já estornada: " + movementId);
+        }
         var lot = movement.getLot();
-        var product = lot.getProduct();
+        var productId = lot.getProduct().getId();
+        var quantity = movement.getQuantity();
+
+        if (stockEngine.isEnabled()) {
+            // O engine só devolve o saldo depois do commit: o razão leva o saldo atual somado ao que será devolvido
+            var balanceBefore = balanceAfter(lot);
+            var balanceAfter = balanceBefore == null ? null : balanceBefore + quantity;
+            inventoryMovementRepository.save(reversal(movement, lot, balanceAfter));
+            stockEngine.restoreAfterCommit(lot.getId(), quantity, restoration -> {
+                if (restoration.countedInTotalStock()) {
+                    lotAllocationService.refresh(productId, lot.getId(), restoration.expirationDate(), restoration.currentQtd());
+                }
+            });
+            return;
+        }
+        var countsInTotalStock = lot.getStatus() == LotStatus.ATIVO
+                || (lot.getStatus() == LotStatus.ESGOTADO && LocalDate.now().isBefore(lot.getExpirationDate()));
+
+        revertWithdrawalFromLot(lot.getId(), quantity);
+        var restoredLot = lotRepository.findById(lot.getId())
+                .orElseThrow(() -> new ResourceNotFoundException(("Lote não encontrado: " + lot.getId())));
+        inventoryMovementRepository.save(reversal(movement, restoredLot, balanceAfter(restoredLot)));
 
-        if (movement.getMovementType() == MovementType.USO_PRODUCAO || movement.getMovementType() == MovementType.PERDA) {
-            revertWithdrawalFromLot(lot, movement.getQuantity().longValue());
+        lotService.applyStockDelta(productId, countsInTotalStock ? quantity : 0);
+        if (countsInTotalStock) {
+            lotAllocationService.adjust(productId, lot.getId(), lot.getExpirationDate(), quantity);
         }
+    }
+
+    private InventoryMovement reversal(InventoryMovement movement, Lot lot, Long balanceAfter) {
+        return InventoryMovement.builder()
+                .movementType(MovementType.ESTORNO)
+                .quantity(movement.getQuantity())
+                .measurementUnit(movement.getMeasurementUnit())
+                .dateAndTime(LocalDateTime.now())
+                .reference(movement.getReference())
+                .balanceAfter(balanceAfter)
+                .reversalOf(movement)
+                .lot(lot)
+                .warehouse(lot.getWarehouse())
+                .user(userService.getLoggedUser())
+                .build();
+    }
 
-        inventoryMovementRepository.delete(movement);
-        lotService.updateProductTotalStock(product);
+    // Com o engine o saldo do lote vem da memória; sem ele, o lote já foi relido depois dos UPDATEs condicionais e
+    // continua bloqueado, e o saldo desconta o que as cotas de escrow já baixaram sem acertar no lote
+    private Long balanceAfter(Lot lot) {
+        if (!stockEngine.isEnabled()) {
+            return lot.getCurrentQtd() - lotEscrowService.unsettledQtd(lot.getId());
+        }
+        var currentQtd = stockEngine.currentQtd(lot.getId());
+        return currentQtd.isPresent() ? currentQtd.getAsLong() : null;
+    }
+
+    private static void validateWithdrawalType(MovementType movementType) {
+        if (movementType != null && !movementType.isWithdrawal()) {
+            throw new BusinessException(MOVEMENT_TYPE_NOT_ALLOWED);
+        }
     }
 
-    private void applyWithdrawalToLot(Lot lot, long quantity) {
+    private void applyWithdrawalToLot(Long lotId, long quantity) {
         if (quantity <= 0) {
             throw new BusinessException("Quantidade inválida");
         }
-        if (quantity > lot.getCurrentQtd()) {
+        if (lotRepository.withdrawQuantity(lotId, quantity) == 0) {
+            if (!lotRepository.existsById(lotId)) {
+                throw new ResourceNotFoundException("Lote não encontrado: " + lotId);
+            }
             throw new BusinessException("Quantidade maior que a disponível no lote.");
         }
+    }
+
+    // Com o engine o saldo não é lido do lote, então os lotes são carregados sem bloqueio
+    private Map<Long, Lot> lockLots(List<InventoryMovementRequestDTO> items) {
+        var lotIds = items.stream()
+                .filter(Objects::nonNull)
+                .map(InventoryMovementRequestDTO::lotId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .toList();
+
+        var lots = new HashMap<Long, Lot>();
+        for (int from = 0; from < lotIds.size(); from += LOCK_CHUNK_SIZE) {
+            var chunk = lotIds.subList(from, Math.min(from + LOCK_CHUNK_SIZE, lotIds.size()));
+            var loaded = stockEngine.isEnabled() ? lotRepository.findAllById(chunk) : lotRepository.findAllByIdForUpdate(chunk);
+            loaded.forEach(lot -> lots.put(lot.getId(), lot));
+        }
+        return lots;
+    }
+
+    // Núcleo do envio em lote e do group commit: bloqueia os lotes em ordem de id, aplica as baixas em memória,
+    // grava as movimentações em batch e ajusta o estoque total uma vez por produto
+    private List<AppliedMovement> applyMovements(List<InventoryMovementRequestDTO> items, IntFunction<User> userOf) {
+        var lots = lockLots(items);
+        var dateAndTime = LocalDateTime.now();
 
-        var newQty = lot.getCurrentQtd() - quantity;
-        lot.setCurrentQtd(newQty);
+        var applied = new ArrayList<AppliedMovement>(items.size());
+        var movements = new ArrayList<InventoryMovement>();
+        var productDeltas = new HashMap<Long, Long>();
+        var lotDeltas = new LinkedHashMap<Lot, Long>();
+        var unsettled = new HashMap<Long, Long>();
 
-        if (newQty == 0 && lot.getStatus() != LotStatus.VENCIDO) {
+        for (int i = 0; i < items.size(); i++) {
+            var item = items.get(i);
+            var lot = item == null ? null : lots.get(item.lotId());
+            var countsInTotalStock = lot != null && lot.getStatus() == LotStatus.ATIVO;
+            var error = validateItem(item, lot);
+            long quantity = 0;
+            Long balanceAfter = null;
+            if (error == null) {
+                try {
+                    quantity = Quantity.toStockUnits(item.quantity(), item.measurementUnit(), lot.getMeasurementUnit());
+                } catch (BusinessException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error == null && stockEngine.isEnabled()) {
+                try {
+                    var withdrawal = stockEngine.withdraw(lot.getId(), quantity);
+                    countsInTotalStock = withdrawal.countedInTotalStock();
+                    balanceAfter = withdrawal.currentQtd();
+                } catch (BusinessException | ResourceNotFoundException e) {
+                    error = e.getMessage();
+                }
+            } else if (error == null) {
+                error = withdrawInMemory(lot, quantity);
+                // Saldo em memória logo depois deste item: vários itens do mesmo lote formam a sequência do razão
+                balanceAfter = lot.getCurrentQtd() - unsettled.computeIfAbsent(lot.getId(), lotEscrowService::unsettledQtd);
+            }
+            if (error != null) {
+                applied.add(new AppliedMovement(null, error));
+                continue;
+            }
+
+            if (countsInTotalStock && !stockEngine.isEnabled()) {
+                productDeltas.merge(lot.getProduct().getId(), -quantity, Long::sum);
+            }
+            if (countsInTotalStock) {
+                lotDeltas.merge(lot, -quantity, Long::sum);
+            }
+            var movement = InventoryMovement.builder()
+                    .movementType(item.movementType())
+                    .quantity(quantity)
+                    .measurementUnit(lot.getMeasurementUnit())
+                    .dateAndTime(dateAndTime)
+                    .balanceAfter(balanceAfter)
+                    .lot(lot)
+                    .warehouse(lot.getWarehouse())
+                    .user(userOf.apply(i))
+                    .build();
+            movements.add(movement);
+            applied.add(new AppliedMovement(movement, null));
+        }
+
+        inventoryMovementRepository.saveAll(movements);
+
+        // Um único ajuste de estoque total por produto afetado
+        productDeltas.forEach(lotService::applyStockDelta);
+        lotDeltas.forEach((lot, delta) ->
+                lotAllocationService.adjust(lot.getProduct().getId(), lot.getId(), lot.getExpirationDate(), delta));
+        return applied;
+    }
+
+    // Retorna a mensagem de erro do item, ou null quando a baixa foi aplicada ao lote (gravado no flush do commit)
+    private static String withdrawInMemory(Lot lot, long quantity) {
+        if (lot.getCurrentQtd() - lot.getReservedQtd() < quantity) {
+            return "Quantidade maior que a disponível no lote.";
+        }
+
+        lot.setCurrentQtd(lot.getCurrentQtd() - quantity);
+        if (lot.getCurrentQtd() == 0 && lot.getStatus() != LotStatus.VENCIDO) {
             lot.setStatus(LotStatus.ESGOTADO);
         }
-        lotRepository.save(lot);
+        return null;
     }
 
-    private void revertWithdrawalFromLot(Lot lot, long quantity) {
-        long newQty = lot.getCurrentQtd() + quantity;
-        lot.setCurrentQtd(newQty);
+    private static String validateItem(InventoryMovementRequestDTO item, Lot lot) {
+        if (item == null || item.lotId() == null || item.movementType() == null || item.quantity() == null) {
+            return "Item inválido: lote, tipo e quantidade são obrigatórios";
+        }
+        if (!item.movementType().isWithdrawal()) {
+            return MOVEMENT_TYPE_NOT_ALLOWED;
+        }
+        if (lot == null) {
+            return "Lote não encontrado: " + item.lotId();
+        }
+        return null;
+    }
 
-        if (lot.getStatus() == LotStatus.ESGOTADO
-                && newQty > 0
-                && LocalDate.now().isBefore(lot.getExpirationDate())) {
-            lot.setStatus(LotStatus.ATIVO);
+    // Baixa pelo engine: o lote é só lido (sem UPDATE) e o estoque total já foi ajustado em memória
+    private InventoryMovementResponseDTO createInventoryMovementInEngine(InventoryMovementRequestDTO inventoryMovementDTO) {
+        var lotId = inventoryMovementDTO.lotId();
+        var lot = lotRepository.findById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException(("Lote não encontrado: " + lotId)));
+        var quantity = Quantity.toStockUnits(inventoryMovementDTO.quantity(), inventoryMovementDTO.measurementUnit(),
+                lot.getMeasurementUnit());
+        var withdrawal = stockEngine.withdraw(lotId, quantity);
+
+        var user = userService.getLoggedUser();
+        var inventoryMovementEntity = inventoryMapper.toInventoryMovement(inventoryMovementDTO, quantity, user, lot);
+        inventoryMovementEntity.setDateAndTime(LocalDateTime.now());
+        inventoryMovementEntity.setBalanceAfter(withdrawal.currentQtd());
+        var inventoryMovementSaved = inventoryMovementRepository.save(inventoryMovementEntity);
+
+        if (withdrawal.countedInTotalStock()) {
+            lotAllocationService.adjust(withdrawal.productId(), lotId, lot.getExpirationDate(), -quantity);
+        }
+        return toResponseDTO(inventoryMovementSaved);
+    }
+
+    // Com o engine a linha do lote no banco pode estar até um ciclo de persistência atrás; o status vem dele
+    private InventoryMovementResponseDTO toResponseDTO(InventoryMovement movement) {
+        return withEngineStatus(inventoryMapper.toInventoryMovementResponseDTO(movement), movement.getLot().getId());
+    }
+
+    private List<InventoryMovementRowDTO> findHistoryRows(MovementHistoryCursor position, Limit limit) {
+        return position == null
+                ? inventoryMovementRepository.findLatestRows(limit)
+                : inventoryMovementRepository.findRowsBefore(position.dateAndTime(), position.id(), limit);
+    }
+
+    private List<InventoryMovementRowDTO> findHistoryRowsByWarehouseId(Long warehouseId, MovementHistoryCursor position,
+                                                                       Limit limit) {
+        return position == null
+                ? inventoryMovementRepository.findLatestRowsByWarehouseId(warehouseId, limit)
+                : inventoryMovementRepository.findRowsByWarehouseIdBefore(warehouseId, position.dateAndTime(),
+                        position.id(), limit);
+    }
+
+    private InventoryMovementResponseDTO withEngineStatus(InventoryMovementResponseDTO response, Long lotId) {
+        var status = stockEngine.isEnabled() ? stockEngine.lotStatus(lotId) : null;
+        if (status == null) {
+            return response;
+        }
+        return InventoryMovementResponseDTO.builder()
+                .id(response.id())
+                .movementType(response.movementType())
+                .quantity(response.quantity())
+                .measurementUnit(response.measurementUnit())
+                .dateAndTime(response.dateAndTime())
+                .reference(response.reference())
+                .balanceAfter(response.balanceAfter())
+                .reversalOfId(response.reversalOfId())
+                .warehouseId(response.warehouseId())
+                .lot(InventoryMovementResponseDTO.LotDTO.builder()
+                        .lotCode(response.lot().lotCode())
+                        .status(status)
+                        .build())
+                .user(response.user())
+                .build();
+    }
+
+    private static InventoryMovementBatchResponseDTO.ItemResultDTO itemResult(int index, Long lotId, Long movementId, String error) {
+        return InventoryMovementBatchResponseDTO.ItemResultDTO.builder()
+                .index(index)
+                .lotId(lotId)
+                .success(error == null)
+                .movementId(movementId)
+                .message(error)
+                .build();
+    }
+
+    // A quantidade do índice é só uma estimativa: se o UPDATE condicional falhar, relê o lote e tenta com o saldo real
+    private long withdrawFromCandidate(Long productId, LotAllocationService.LotCandidate candidate, long remaining, LocalDate today) {
+        long requested = Math.min(remaining, candidate.availableQtd());
+        if (requested > 0 && lotRepository.withdrawActiveQuantity(candidate.lotId(), requested, today) > 0) {
+            return requested;
+        }
+
+        var lot = lotRepository.findById(candidate.lotId()).orElse(null);
+        long available = lot != null && lot.getStatus() == LotStatus.ATIVO ? lot.getCurrentQtd() - lot.getReservedQtd() : 0;
+        lotAllocationService.refresh(productId, candidate.lotId(), candidate.expirationDate(), available);
+
+        requested = Math.min(remaining, available);
+        if (requested > 0 && lotRepository.withdrawActiveQuantity(candidate.lotId(), requested, today) > 0) {
+            return requested;
         }
-        lotRepository.save(lot);
+        return 0;
+    }
+
+    private void revertWithdrawalFromLot(Long lotId, long quantity) {
+        lotRepository.restoreQuantity(lotId, quantity, LocalDate.now());
     }
 }
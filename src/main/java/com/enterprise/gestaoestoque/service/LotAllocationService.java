@@ -0,0 +1,114 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice em memória dos lotes ATIVO de cada produto, ordenados por validade (FEFO).
+ * As quantidades são apenas uma estimativa para escolher os lotes: a baixa em si continua sendo
+ * o UPDATE condicional no banco, e o índice só é atualizado depois do commit.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class LotAllocationService {
+
+    private final LotRepository lotRepository;
+
+    private final Map<Long, ConcurrentSkipListMap<LotKey, Long>> lotsByProduct = new ConcurrentHashMap<>();
+
+    public record LotKey(LocalDate expirationDate, Long lotId) implements Comparable<LotKey> {
+        @Override
+        public int compareTo(LotKey other) {
+            int byDate = expirationDate.compareTo(other.expirationDate);
+            return byDate != 0 ? byDate : lotId.compareTo(other.lotId);
+        }
+    }
+
+    public record LotCandidate(Long lotId, LocalDate expirationDate, long availableQtd) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        var allocations = lotRepository.findActiveAllocations();
+        Map<Long, ConcurrentSkipListMap<LotKey, Long>> rebuilt = new ConcurrentHashMap<>();
+        allocations.forEach(allocation -> rebuilt
+                .computeIfAbsent(allocation.productId(), id -> new ConcurrentSkipListMap<>())
+                .put(new LotKey(allocation.expirationDate(), allocation.id()), allocation.availableQtd()));
+        lotsByProduct.clear();
+        lotsByProduct.putAll(rebuilt);
+        log.info("Índice FEFO carregado com {} lotes de {} produtos", allocations.size(), rebuilt.size());
+    }
+
+    /**
+     * Lotes do produto ainda dentro da validade, do que vence primeiro para o último.
+     */
+    public List<LotCandidate> candidates(Long productId, LocalDate today) {
+        var lots = lotsByProduct.get(productId);
+        if (lots == null) {
+            return List.of();
+        }
+        var candidates = new ArrayList<LotCandidate>();
+        lots.tailMap(new LotKey(today, Long.MIN_VALUE)).forEach((key, quantity) ->
+                candidates.add(new LotCandidate(key.lotId(), key.expirationDate(), quantity)));
+        return candidates;
+    }
+
+    public void adjust(Long productId, Long lotId, LocalDate expirationDate, long delta) {
+        afterCommit(() -> applyDelta(productId, new LotKey(expirationDate, lotId), delta));
+    }
+
+    // Corrige a estimativa de um lote quando o banco mostrou que ela estava desatualizada
+    public void refresh(Long productId, Long lotId, LocalDate expirationDate, long currentQtd) {
+        var key = new LotKey(expirationDate, lotId);
+        if (currentQtd > 0) {
+            lotsByProduct.computeIfAbsent(productId, id -> new ConcurrentSkipListMap<>()).put(key, currentQtd);
+        } else {
+            remove(productId, key);
+        }
+    }
+
+    public void remove(Long productId, Long lotId, LocalDate expirationDate) {
+        afterCommit(() -> remove(productId, new LotKey(expirationDate, lotId)));
+    }
+
+    private void applyDelta(Long productId, LotKey key, long delta) {
+        lotsByProduct.computeIfAbsent(productId, id -> new ConcurrentSkipListMap<>())
+                .compute(key, (k, quantity) -> {
+                    long updated = (quantity == null ? 0 : quantity) + delta;
+                    return updated > 0 ? updated : null;
+                });
+    }
+
+    private void remove(Long productId, LotKey key) {
+        lotsByProduct.computeIfPresent(productId, (id, lots) -> {
+            lots.remove(key);
+            return lots.isEmpty() ? null : lots;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
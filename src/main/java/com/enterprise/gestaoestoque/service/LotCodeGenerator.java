@@ -0,0 +1,56 @@
+package com.enterprise.gestaoestoque.service;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Códigos de lote sem colisão: cada código vem de um número da sequence lots_seq, que avança de 50 em 50
+ * (o allocationSize dos ids). Um nextval reserva para este nó o bloco inteiro (v-49 a v), então um
+ * recebimento com muitos lotes custa uma consulta a cada 50 códigos, e dois nós nunca recebem o mesmo número.
+ * O hífen não faz parte do alfabeto dos códigos aleatórios antigos, então também não há colisão com eles.
+ */
+@Component
+public class LotCodeGenerator {
+
+    private static final String PREFIX = "LT-";
+    private static final int DIGITS = 12;
+    private static final int BLOCK_SIZE = 50;
+
+    private final EntityManager entityManager;
+    private final String nextValueSql;
+    private long next;
+    private long last = -1;
+
+    public LotCodeGenerator(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.nextValueSql = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString("lots_seq");
+    }
+
+    public String next() {
+        return next(1).getFirst();
+    }
+
+    public synchronized List<String> next(int count) {
+        var codes = new ArrayList<String>(count);
+        while (codes.size() < count) {
+            if (next > last) {
+                long value = ((Number) entityManager.createNativeQuery(nextValueSql).getSingleResult()).longValue();
+                // O primeiro valor da sequence é 1: o bloco dele é só o próprio 1
+                next = Math.max(1, value - BLOCK_SIZE + 1);
+                last = value;
+            }
+            codes.add(format(next++));
+        }
+        return codes;
+    }
+
+    static String format(long value) {
+        var digits = Long.toString(value, 36).toUpperCase();
+        return PREFIX + "0".repeat(Math.max(0, DIGITS - digits.length())) + digits;
+    }
+}
@@ -0,0 +1,264 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.repository.LotEscrowRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Escrow de saldo para lotes com muito volume ({@code inventory.escrow.enabled}). Cada nó reserva um pedaço
+ * do saldo do lote numa cota própria (tabela lot_escrows) e passa a atender as baixas desse lote pela cota:
+ * a validação é feita em memória e a gravação vai para a linha do nó, sem disputar a linha do lote com os
+ * outros nós. O consumo é acertado no lote (saldo, reserva e estoque total do produto) pelo {@link #settle()}.
+ * <p>
+ * O lote nunca fica negativo: a reserva só é concedida se {@code currentQtd - reservedQtd} cobrir a cota,
+ * as baixas diretas também respeitam a reserva, e a cota de um nó só é consumida até o que foi concedido.
+ * Cotas paradas por mais de {@code idle-release} (inclusive as de um nó que caiu) são acertadas e devolvidas
+ * por qualquer nó.
+ */
+@Slf4j
+@Service
+public class LotEscrowService {
+
+    private final LotEscrowRepository lotEscrowRepository;
+    private final LotRepository lotRepository;
+    private final LotService lotService;
+    private final LotAllocationService lotAllocationService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+    private final boolean enabled;
+    private final long minLotQtd;
+    private final long chunkSize;
+    private final Duration idleRelease;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    // Saldo de cada cota visto por este nó; a linha em lot_escrows é quem decide
+    private final Map<Long, Quota> quotas = new ConcurrentHashMap<>();
+
+    public LotEscrowService(LotEscrowRepository lotEscrowRepository,
+                            LotRepository lotRepository,
+                            LotService lotService,
+                            LotAllocationService lotAllocationService,
+                            SchedulerLeaseService schedulerLeaseService,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry,
+                            @Value("${inventory.escrow.enabled:false}") boolean enabled,
+                            @Value("${inventory.escrow.min-lot-qtd:1000}") long minLotQtd,
+                            @Value("${inventory.escrow.chunk-size:100}") long chunkSize,
+                            @Value("${inventory.escrow.idle-release:5m}") Duration idleRelease) {
+        this.lotEscrowRepository = lotEscrowRepository;
+        this.lotRepository = lotRepository;
+        this.lotService = lotService;
+        this.lotAllocationService = lotAllocationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.nodeId = schedulerLeaseService.getNodeId();
+        this.enabled = enabled;
+        this.minLotQtd = minLotQtd;
+        this.chunkSize = chunkSize;
+        this.idleRelease = idleRelease;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Tenta baixar {@code quantity} do lote pela cota deste nó, na transação de quem chamou. Retorna false
+     * quando o lote não usa escrow ou a cota não pôde ser obtida; nesse caso vale a baixa direta no lote.
+     */
+    public boolean tryWithdraw(Lot lot, long quantity) {
+        if (!enabled || quantity <= 0 || lot.getStatus() != LotStatus.ATIVO || lot.getInitialQtd() < minLotQtd) {
+            return false;
+        }
+        var quota = quotas.computeIfAbsent(lot.getId(), id -> new Quota());
+        if (!quota.take(quantity)) {
+            // Uma recarga por lote de cada vez neste nó: as outras threads seguem pela baixa direta enquanto isso
+            if (!quota.refilling.compareAndSet(false, true)) {
+                return fallback();
+            }
+            afterCompletion(committed -> quota.refilling.set(false));
+            long chunk = Math.max(chunkSize, quantity);
+            if (!reserve(lot, chunk)) {
+                // Sem saldo livre para uma nova cota: devolve a sobra desta para que a baixa direta possa usá-la
+                settle(lot.getId(), escrowId(lot.getId()), true);
+                return fallback();
+            }
+            // A reserva faz parte da transação de quem chamou: se ela for desfeita, a memória volta a ser lida do banco
+            afterCompletion(committed -> {
+                if (!committed) {
+                    quotas.remove(lot.getId(), quota);
+                }
+            });
+            quota.available.addAndGet(chunk);
+            if (!quota.take(quantity)) {
+                return fallback();
+            }
+        }
+
+        if (lotEscrowRepository.consume(escrowId(lot.getId()), quantity, LocalDateTime.now()) == 0) {
+            // A cota foi devolvida por outro nó (ou acertada); a memória deste nó estava desatualizada
+            quotas.remove(lot.getId(), quota);
+            return fallback();
+        }
+        afterCompletion(committed -> {
+            if (!committed) {
+                quota.available.addAndGet(quantity);
+            }
+        });
+        meterRegistry.counter("lots.escrow.withdrawals", "result", "quota").increment();
+        return true;
+    }
+
+    /**
+     * Quanto das cotas do lote já foi baixado mas ainda não acertado: o saldo físico do lote é o currentQtd
+     * menos este valor. Para quem já tem o lote bloqueado, o que impede um acerto entre as duas leituras.
+     */
+    public long unsettledQtd(Long lotId) {
+        return enabled ? lotEscrowRepository.sumConsumedQtd(lotId) : 0;
+    }
+
+    /**
+     * Saldo físico do lote lido do banco, já descontado o consumo das cotas ainda não acertado. Para quem já tem o
+     * lote bloqueado; as baixas pelas cotas não bloqueiam o lote, então não dão um saldo por movimentação.
+     */
+    public Long physicalQtd(Long lotId) {
+        return enabled ? lotEscrowRepository.findPhysicalQtd(lotId) : lotRepository.findCurrentQtdById(lotId);
+    }
+
+    /**
+     * Acerta no lote o que este nó já consumiu das suas cotas e devolve as cotas paradas (de qualquer nó).
+     */
+    @Scheduled(fixedDelayString = "${inventory.escrow.settle-interval-ms:500}")
+    public void settle() {
+        if (!enabled) {
+            return;
+        }
+        var now = LocalDateTime.now();
+        for (var escrow : lotEscrowRepository.findToRelease(nodeId, now.minus(idleRelease), startedAt)) {
+            settle(escrow.getLotId(), escrow.getId(), true);
+        }
+        for (var escrow : lotEscrowRepository.findToSettle(nodeId)) {
+            settle(escrow.getLotId(), escrow.getId(), false);
+        }
+    }
+
+    // Acerta a cota com o lote e a linha dela bloqueados; com release, devolve ao lote também o que não foi consumido.
+    // Ordem de bloqueio sempre lote, depois cota (a mesma da reserva), para não haver deadlock entre os dois
+    void settle(Long lotId, String id, boolean release) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                var lot = lotRepository.findAllByIdForUpdate(List.of(lotId)).stream().findFirst().orElse(null);
+                lotEscrowRepository.findByIdForUpdate(id).ifPresent(escrow -> {
+                    long consumed = escrow.getConsumedQtd();
+                    long released = release ? escrow.getGrantedQtd() - consumed : 0;
+                    if (!release && consumed == 0) {
+                        return;
+                    }
+                    if (lot != null) {
+                        var countsInTotalStock = lot.getStatus() == LotStatus.ATIVO;
+                        lotRepository.settleReservation(lotId, consumed, released);
+                        lotService.applyStockDelta(lot.getProduct().getId(), countsInTotalStock ? -consumed : 0);
+                        if (countsInTotalStock && released > 0) {
+                            lotAllocationService.adjust(lot.getProduct().getId(), lotId, lot.getExpirationDate(), released);
+                        }
+                    }
+                    if (release || lot == null) {
+                        lotEscrowRepository.delete(escrow);
+                        if (escrow.getNodeId().equals(nodeId)) {
+                            quotas.remove(lotId);
+                        }
+                    } else {
+                        escrow.setGrantedQtd(escrow.getGrantedQtd() - consumed);
+                        escrow.setConsumedQtd(0L);
+                    }
+                    meterRegistry.counter("lots.escrow.settled").increment(consumed);
+                });
+            });
+        } catch (RuntimeException e) {
+            log.warn("Falha ao acertar a cota {} do escrow; nova tentativa no próximo ciclo", id, e);
+        }
+    }
+
+    // Reserva e acerto entram na transação de quem chamou (uma conexão só por movimentação); no agendamento, têm a sua
+    private boolean reserve(Lot lot, long quantity) {
+        var lotId = lot.getId();
+        Boolean reserved = transactionTemplate.execute(status -> {
+            if (lotRepository.reserveQuantity(lotId, quantity) == 0) {
+                return false;
+            }
+            // Só uma recarga por lote em andamento neste nó, então o INSERT não disputa a chave com outra thread
+            var now = LocalDateTime.now();
+            if (lotEscrowRepository.grant(escrowId(lotId), quantity, now) == 0) {
+                lotEscrowRepository.insert(escrowId(lotId), lotId, nodeId, quantity, now);
+            }
+            // O índice FEFO só vê saldo livre: a cota inteira sai dele na concessão e a sobra volta na devolução
+            lotAllocationService.adjust(lot.getProduct().getId(), lotId, lot.getExpirationDate(), -quantity);
+            return true;
+        });
+        if (Boolean.TRUE.equals(reserved)) {
+            meterRegistry.counter("lots.escrow.reserved").increment(quantity);
+            return true;
+        }
+        return false;
+    }
+
+    private boolean fallback() {
+        meterRegistry.counter("lots.escrow.withdrawals", "result", "fallback").increment();
+        return false;
+    }
+
+    private String escrowId(Long lotId) {
+        return lotId + "@" + nodeId;
+    }
+
+    private static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    // Saldo da cota visto por este nó e a marca de recarga em andamento
+    private static final class Quota {
+
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        private boolean take(long quantity) {
+            long current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+    }
+}
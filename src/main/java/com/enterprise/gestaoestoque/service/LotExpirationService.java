@@ -0,0 +1,148 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Índice em memória de lotes por data de validade. Em vez de consultar a tabela de lotes
+ * periodicamente, agenda um único disparo para a virada do dia em que o lote mais próximo vence.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class LotExpirationService {
+
+    private final LotRepository lotRepository;
+    private final ProductRepository productRepository;
+    private final TaskScheduler taskScheduler;
+    private final MeterRegistry meterRegistry;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final StockEngine stockEngine;
+    private final TotalStockWriteBehindService totalStockWriteBehindService;
+    private final PlatformTransactionManager transactionManager;
+    private static final int CHUNK_SIZE = 500;
+    private static final Duration EXPIRATION_LEASE = Duration.ofMinutes(10);
+
+    private final ConcurrentSkipListMap<LocalDate, Set<Long>> index = new ConcurrentSkipListMap<>();
+    private ScheduledFuture<?> nextFiring;
+    private LocalDate nextFiringDate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        var expirations = lotRepository.findPendingExpirations();
+        index.clear();
+        expirations.forEach(expiration -> index
+                .computeIfAbsent(expiration.expirationDate(), date -> ConcurrentHashMap.newKeySet())
+                .add(expiration.id()));
+        log.info("Índice de validade carregado com {} lotes", expirations.size());
+        scheduleNextFiring();
+    }
+
+    public void register(Long lotId, LocalDate expirationDate) {
+        index.computeIfAbsent(expirationDate, date -> ConcurrentHashMap.newKeySet()).add(lotId);
+        scheduleNextFiring();
+    }
+
+    public void unregister(Long lotId, LocalDate expirationDate) {
+        index.computeIfPresent(expirationDate, (date, lots) -> {
+            lots.remove(lotId);
+            return lots.isEmpty() ? null : lots;
+        });
+    }
+
+    public int size() {
+        return index.values().stream().mapToInt(Set::size).sum();
+    }
+
+    // Um lote vence quando a data atual passa da validade, ou seja, na virada para o dia seguinte
+    public void expireDueLots() {
+        try {
+            var today = LocalDate.now();
+            var due = index.headMap(today);
+            // Com várias instâncias só o nó com a lease grava; os demais apenas descartam os lotes vencidos do índice
+            if (schedulerLeaseService.tryAcquire("lots.expiration", EXPIRATION_LEASE)) {
+                expireLots(today, due);
+            }
+            due.clear();
+        } finally {
+            synchronized (this) {
+                nextFiring = null;
+                nextFiringDate = null;
+            }
+        }
+        // Em caso de falha o próximo disparo fica a cargo da reconciliação, evitando laço imediato
+        scheduleNextFiring();
+    }
+
+    private void expireLots(LocalDate today, Map<LocalDate, Set<Long>> due) {
+        var lotIds = new ArrayList<Long>();
+        due.values().forEach(lotIds::addAll);
+
+        if (stockEngine.isEnabled()) {
+            int expired = stockEngine.expireLots(lotIds, today);
+            meterRegistry.counter("lots.expiration.fired.rows").increment(expired);
+            log.info("Vencimento de lotes: {} vencidos no engine de estoque", expired);
+            return;
+        }
+
+        totalStockWriteBehindService.flush();
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        int expired = 0;
+        int products = 0;
+        for (int from = 0; from < lotIds.size(); from += CHUNK_SIZE) {
+            var chunk = lotIds.subList(from, Math.min(from + CHUNK_SIZE, lotIds.size()));
+            // Vencimento e recálculo do bloco na mesma transação: uma falha entre os dois não deixa o total defasado
+            var counts = transactionTemplate.execute(status -> {
+                List<Long> productIds = lotRepository.findProductIdsOfExpiredActiveLots(today, chunk);
+                int chunkExpired = lotRepository.markExpiredLotsById(today, chunk);
+                if (!productIds.isEmpty()) {
+                    productRepository.recalculateTotalStockIn(productIds);
+                }
+                return new int[]{chunkExpired, productIds.size()};
+            });
+            expired += counts[0];
+            products += counts[1];
+        }
+
+        meterRegistry.counter("lots.expiration.fired.rows").increment(expired);
+        meterRegistry.counter("lots.expiration.fired.products").increment(products);
+        log.info("Vencimento de lotes: {} vencidos, {} produtos recalculados", expired, products);
+    }
+
+    private synchronized void scheduleNextFiring() {
+        if (index.isEmpty()) {
+            return;
+        }
+        var earliest = index.firstKey();
+        if (nextFiring != null && !nextFiringDate.isAfter(earliest)) {
+            return;
+        }
+        if (nextFiring != null) {
+            nextFiring.cancel(false);
+        }
+        var fireAt = earliest.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        nextFiringDate = earliest;
+        nextFiring = taskScheduler.schedule(this::expireDueLots, fireAt);
+    }
+}
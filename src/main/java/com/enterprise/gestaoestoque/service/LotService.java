@@ -1,28 +1,37 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.configuration.routing.WarehouseContext;
 import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.LotMapper;
 import com.enterprise.gestaoestoque.model.dto.lot.LotRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.lot.LotResponseDTO;
 import com.enterprise.gestaoestoque.model.entity.Lot;
-import com.enterprise.gestaoestoque.model.entity.Product;
 import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
 import com.enterprise.gestaoestoque.repository.LotRepository;
 import com.enterprise.gestaoestoque.repository.ProductRepository;
 import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class LotService {
@@ -32,15 +41,31 @@ public class LotService {
     private final ProductRepository productRepository;
     private final InventoryMovementRepository inventoryMovementRepository;
     private final LotMapper lotMapper;
-    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-
-    public Page<LotResponseDTO> getAllLots(Pageable pageable) {
-        var lots = lotRepository.findAll(pageable);
+    private final LotExpirationService lotExpirationService;
+    private final SchedulerLeaseService schedulerLeaseService;
+    private final LotAllocationService lotAllocationService;
+    private final MeterRegistry meterRegistry;
+    private final StockEngine stockEngine;
+    private final TotalStockWriteBehindService totalStockWriteBehindService;
+    private final LotCodeGenerator lotCodeGenerator;
+    private final WarehouseService warehouseService;
+    private final PageTotalService pageTotalService;
+    private final PlatformTransactionManager transactionManager;
+    private static final int SWEEP_CHUNK_SIZE = 500;
+    private static final Duration RECONCILIATION_LEASE = Duration.ofMinutes(50);
+
+    public Slice<LotResponseDTO> getAllLots(Long warehouseId, Pageable pageable, PageTotal total) {
+        var lots = warehouseId == null
+                ? pageTotalService.toPage(lotRepository.findAllRows(pageable), total, "lots", null, lotRepository::count)
+                : pageTotalService.toPage(
+                        WarehouseContext.read(warehouseId, () -> lotRepository.findRowsByWarehouseId(warehouseId, pageable)),
+                        total, "lots", warehouseId,
+                        () -> WarehouseContext.read(warehouseId, () -> lotRepository.countByWarehouseId(warehouseId)));
         return lots.map(lotMapper::toLotResponseDTO);
     }
 
     public LotResponseDTO getLotById(Long id) {
-        return lotRepository.findById(id)
+        return lotRepository.findDetailById(id)
                 .map(lotMapper::toLotResponseDTO)
                 .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + id));
     }
@@ -53,15 +78,24 @@ public class LotService {
                 .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + lotDTO.productId()));
 
         validadeIfProductAndSupplierAreActive(product.getIsActive(), supplier.getIsActive());
+        var warehouse = warehouseService.findActiveWarehouse(lotDTO.warehouseId());
 
         var lotEntity = lotMapper.toLot(lotDTO, product, supplier);
-        lotEntity.setLotCode(generateLotCode());
+        lotEntity.setWarehouse(warehouse);
+        lotEntity.setLotCode(lotCodeGenerator.next());
         lotEntity.setMeasurementUnit(product.getMeasurementUnit());
         lotEntity.setEntryDate(LocalDate.now());
         lotEntity.setStatus(LotStatus.ATIVO);
 
         var lotSaved = lotRepository.save(lotEntity);
-        updateProductTotalStock(lotSaved.getProduct());
+        if (stockEngine.isEnabled()) {
+            stockEngine.registerLot(lotSaved.getId(), product.getId(), lotSaved.getCurrentQtd(),
+                    lotSaved.getExpirationDate(), lotSaved.getStatus());
+        } else {
+            applyStockDelta(product.getId(), lotSaved.getCurrentQtd());
+        }
+        lotExpirationService.register(lotSaved.getId(), lotSaved.getExpirationDate());
+        lotAllocationService.adjust(product.getId(), lotSaved.getId(), lotSaved.getExpirationDate(), lotSaved.getCurrentQtd());
         return lotMapper.toLotResponseDTO(lotSaved);
     }
 
@@ -70,58 +104,87 @@ public class LotService {
     public void deleteLot(Long id) {
         var lot = lotRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + id));
-        validateLotDelete(lot.getStatus());
+        validateLotDelete(lot);
 
+        // Lotes ESGOTADO ou VENCIDO não compõem o estoque total, então a exclusão não altera o produto
         lotRepository.delete(lot);
-        updateProductTotalStock(lot.getProduct());
+        if (stockEngine.isEnabled()) {
+            stockEngine.removeLotAfterCommit(lot.getId());
+        }
+        lotExpirationService.unregister(lot.getId(), lot.getExpirationDate());
+        lotAllocationService.remove(lot.getProduct().getId(), lot.getId(), lot.getExpirationDate());
     }
 
     @Transactional
-    public void updateProductTotalStock(Product product) {
-        long total = lotRepository.findByProductAndStatus(product, LotStatus.ATIVO)
-                .stream()
-                .mapToLong(Lot::getCurrentQtd)
-                .sum();
-
-        product.setTotalStock(total);
-        productRepository.save(product);
+    public void applyStockDelta(Long productId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (totalStockWriteBehindService.isEnabled()) {
+            totalStockWriteBehindService.add(productId, delta);
+        } else {
+            productRepository.addToTotalStock(productId, delta);
+        }
     }
 
-    @Transactional
-    @Scheduled(cron = "0 */2 * * * *") // A cada 2 minutos
+    // Reconciliação: o vencimento é disparado pelo LotExpirationService, esta varredura só cobre o que escapou do índice
+    @Scheduled(cron = "${lots.expiration.reconciliation-cron:0 30 * * * *}")
     public void updateLotStatuses() {
-        var lots = lotRepository.findByStatus(LotStatus.ATIVO);
-        for (Lot lot : lots) {
-            boolean statusChanged = false;
-
-            if (LocalDate.now().isAfter(lot.getExpirationDate()) && lot.getStatus() != LotStatus.VENCIDO) {
-                lot.setStatus(LotStatus.VENCIDO);
-                statusChanged = true;
-            } else if (lot.getCurrentQtd() == 0 && lot.getStatus() != LotStatus.ESGOTADO) {
-                lot.setStatus(LotStatus.ESGOTADO);
-                statusChanged = true;
-            }
-
-            if (statusChanged) {
-                lotRepository.save(lot);
-                updateProductTotalStock(lot.getProduct());
-            }
+        if (schedulerLeaseService.tryAcquire("lots.reconciliation", RECONCILIATION_LEASE)) {
+            sweepLotStatuses();
         }
+        // Todo nó recarrega os próprios índices, que assim passam a conter lotes criados em outras instâncias
+        lotExpirationService.rebuildIndex();
+        lotAllocationService.rebuildIndex();
     }
 
-    private static String generateLotCode() {
-        var sb = new StringBuilder(15);
-        var random = ThreadLocalRandom.current();
-        for (int i = 0; i < 15; i++) {
-            sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    private void sweepLotStatuses() {
+        var sample = Timer.start(meterRegistry);
+        var today = LocalDate.now();
+
+        if (stockEngine.isEnabled()) {
+            // Com o engine os lotes vencem em memória e chegam às tabelas pela persistência dele; zerados já ficam ESGOTADO
+            int expired = stockEngine.expireDueLots(today);
+            sample.stop(meterRegistry.timer("lots.sweep.duration"));
+            meterRegistry.counter("lots.sweep.rows", "status", LotStatus.VENCIDO.name()).increment(expired);
+            return;
+        }
+
+        totalStockWriteBehindService.flush();
+        var productIds = lotRepository.findProductIdsWithExpiredActiveLots(today);
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        int expired = 0;
+        for (int from = 0; from < productIds.size(); from += SWEEP_CHUNK_SIZE) {
+            var chunk = productIds.subList(from, Math.min(from + SWEEP_CHUNK_SIZE, productIds.size()));
+            // Só expira lotes dos produtos do bloco, que têm o estoque total recalculado na mesma transação
+            expired += transactionTemplate.execute(status -> {
+                int chunkExpired = lotRepository.markExpiredLots(today, chunk);
+                productRepository.recalculateTotalStockIn(chunk);
+                return chunkExpired;
+            });
+        }
+
+        // Lotes zerados já não somam no estoque total, então não há produto a recalcular
+        int depleted = lotRepository.markDepletedLots();
+
+        long elapsed = sample.stop(meterRegistry.timer("lots.sweep.duration"));
+        meterRegistry.counter("lots.sweep.rows", "status", LotStatus.VENCIDO.name()).increment(expired);
+        meterRegistry.counter("lots.sweep.rows", "status", LotStatus.ESGOTADO.name()).increment(depleted);
+        meterRegistry.counter("lots.sweep.products.recalculated").increment(productIds.size());
+
+        if (expired > 0 || depleted > 0) {
+            log.info("Varredura de lotes: {} vencidos, {} esgotados, {} produtos recalculados em {} ms",
+                    expired, depleted, productIds.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
         }
-        return sb.toString();
     }
 
-    private void validateLotDelete(LotStatus status) {
-        if (status.equals(LotStatus.ATIVO)) {
+    private void validateLotDelete(Lot lot) {
+        if (lot.getStatus().equals(LotStatus.ATIVO)) {
             throw new BusinessException("Só é possível excluir lotes com status ESGOTADO ou VENCIDO");
         }
+        if (lot.getReservedQtd() > 0) {
+            throw new BusinessException("Lote com saldo reservado, libere as reservas antes de excluir");
+        }
     }
 
     private void validadeIfProductAndSupplierAreActive(boolean productIsActive, boolean supplierIsActive) {
@@ -0,0 +1,37 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição no histórico de movimentações: a data e hora e o id da última linha entregue. Vai ao cliente como um token
+ * Base64 opaco, e a próxima página começa na primeira movimentação estritamente anterior a ela na ordem
+ * (dateAndTime DESC, id DESC).
+ */
+record MovementHistoryCursor(LocalDateTime dateAndTime, Long id) {
+
+    private static final String SEPARATOR = "|";
+
+    String encode() {
+        var raw = dateAndTime + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static MovementHistoryCursor decode(String token) {
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            var separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new BusinessException("Cursor inválido: " + token);
+            }
+            return new MovementHistoryCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("Cursor inválido: " + token);
+        }
+    }
+}
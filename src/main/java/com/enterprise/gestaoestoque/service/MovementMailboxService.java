@@ -0,0 +1,139 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Modo opcional de escrita única por produto: as movimentações de um produto entram numa fila e uma única
+ * virtual thread drena essa fila, gravando o que acumulou como um group commit. Em produtos muito
+ * disputados isso troca a espera pelo lock do lote e do produto por uma transação compartilhada.
+ * Desligado, as movimentações seguem o caminho síncrono de {@link InventoryMovementService}.
+ */
+@Slf4j
+@Service
+public class MovementMailboxService {
+
+    private final InventoryMovementService inventoryMovementService;
+    private final UserService userService;
+    private final LotRepository lotRepository;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxGroupSize;
+    private final Map<Long, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private record PendingMovement(InventoryMovementService.GroupedMovement movement,
+                                   CompletableFuture<InventoryMovementResponseDTO> result) {}
+
+    public MovementMailboxService(InventoryMovementService inventoryMovementService,
+                                  UserService userService,
+                                  LotRepository lotRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${inventory.movements.mailbox.enabled:false}") boolean enabled,
+                                  @Value("${inventory.movements.mailbox.max-group-size:200}") int maxGroupSize) {
+        this.inventoryMovementService = inventoryMovementService;
+        this.userService = userService;
+        this.lotRepository = lotRepository;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    public InventoryMovementResponseDTO createInventoryMovement(InventoryMovementRequestDTO movementDTO) {
+        // Quem já está numa transação (ex.: Idempotency-Key) segue síncrono: esperar a fila segurando uma
+        // conexão pode esgotar o pool, e a movimentação precisa fazer parte da transação de quem chamou
+        if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return inventoryMovementService.createInventoryMovement(movementDTO);
+        }
+
+        // O usuário depende do SecurityContext, então é resolvido aqui e não na thread da fila
+        var userId = userService.getLoggedUser().getId();
+        var productId = lotRepository.findProductIdById(movementDTO.lotId())
+                .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + movementDTO.lotId()));
+
+        var pending = new PendingMovement(new InventoryMovementService.GroupedMovement(movementDTO, userId),
+                new CompletableFuture<>());
+        mailboxes.computeIfAbsent(productId, Mailbox::new).offer(pending);
+        try {
+            return pending.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private final class Mailbox {
+
+        private final Long productId;
+        private final Queue<PendingMovement> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Mailbox(Long productId) {
+            this.productId = productId;
+        }
+
+        private void offer(PendingMovement pending) {
+            queue.add(pending);
+            if (draining.compareAndSet(false, true)) {
+                Thread.ofVirtual().name("movement-mailbox-" + productId).start(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                var group = new ArrayList<PendingMovement>();
+                PendingMovement pending;
+                while (group.size() < maxGroupSize && (pending = queue.poll()) != null) {
+                    group.add(pending);
+                }
+                if (!group.isEmpty()) {
+                    commit(group);
+                    continue;
+                }
+                // Libera a fila; se algo chegou entre o poll e a liberação, esta thread retoma a drenagem
+                draining.set(false);
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+
+        private void commit(List<PendingMovement> group) {
+            meterRegistry.summary("movements.mailbox.group.size").record(group.size());
+            try {
+                var results = inventoryMovementService.createInventoryMovementGroup(
+                        group.stream().map(PendingMovement::movement).toList());
+                for (int i = 0; i < group.size(); i++) {
+                    var result = results.get(i);
+                    if (result.error() != null) {
+                        group.get(i).result().completeExceptionally(result.error());
+                    } else {
+                        group.get(i).result().complete(result.movement());
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                // Falha da transação inteira: todos do grupo recebem o mesmo erro
+                log.warn("Falha no group commit do produto {} ({} movimentações)", productId, group.size(), e);
+                group.forEach(pending -> pending.result().completeExceptionally(e));
+            }
+        }
+    }
+}
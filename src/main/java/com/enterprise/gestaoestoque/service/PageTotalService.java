@@ -0,0 +1,112 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.PageTotal;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Total das listagens paginadas conforme o {@link PageTotal} pedido. As consultas das listagens devolvem um Slice
+ * (tamanho + 1 linhas, sem COUNT); daqui sai a página com o total exato, com o estimado ou o próprio Slice.
+ * As estimativas ficam em memória por tabela (e por depósito, nas listagens filtradas) e são recalculadas a cada
+ * pagination.approximate-total.refresh-interval-ms: no PostgreSQL, as listagens sem filtro usam o reltuples das
+ * estatísticas do planner, que não depende do tamanho da tabela; nos demais casos, um COUNT fora das requisições.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class PageTotalService {
+
+    private final EntityManager entityManager;
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+    private volatile Boolean plannerStatistics;
+
+    public <T> Slice<T> toPage(Slice<T> slice, PageTotal total, String table, Long warehouseId, LongSupplier count) {
+        return switch (total) {
+            case NONE -> slice;
+            case EXACT -> PageableExecutionUtils.getPage(slice.getContent(), slice.getPageable(), count);
+            case APPROXIMATE -> new PageImpl<>(slice.getContent(), slice.getPageable(),
+                    approximateTotal(slice, estimate(table, warehouseId, count)));
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${pagination.approximate-total.refresh-interval-ms:60000}",
+            initialDelayString = "${pagination.approximate-total.refresh-interval-ms:60000}")
+    public void refresh() {
+        estimates.forEach((key, estimate) -> {
+            try {
+                estimate.value = load(estimate);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao atualizar o total estimado de {}", key, e);
+            }
+        });
+    }
+
+    // A estimativa não pode contradizer a página: nem menos linhas do que as já mostradas, nem mais se esta é a última
+    private static long approximateTotal(Slice<?> slice, long estimate) {
+        var shown = slice.getPageable().isPaged()
+                ? slice.getPageable().getOffset() + slice.getNumberOfElements() : slice.getNumberOfElements();
+        return slice.hasNext() ? Math.max(estimate, shown + 1) : shown;
+    }
+
+    // A primeira requisição de uma listagem calcula a estimativa; as seguintes leem a da memória
+    private long estimate(String table, Long warehouseId, LongSupplier count) {
+        var key = warehouseId == null ? table : table + ":" + warehouseId;
+        var estimate = estimates.get(key);
+        if (estimate == null) {
+            var created = new Estimate(warehouseId == null ? table : null, count);
+            created.value = load(created);
+            estimate = estimates.putIfAbsent(key, created);
+            if (estimate == null) {
+                estimate = created;
+            }
+        }
+        return estimate.value;
+    }
+
+    private long load(Estimate estimate) {
+        if (estimate.table != null && usesPlannerStatistics()) {
+            var rows = entityManager
+                    .createNativeQuery("SELECT c.reltuples FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace" +
+                            " WHERE c.relname = :table AND n.nspname = current_schema()", Double.class)
+                    .setParameter("table", estimate.table)
+                    .getResultList();
+            // -1: tabela ainda não analisada pelo autovacuum/ANALYZE
+            if (!rows.isEmpty() && (Double) rows.getFirst() >= 0) {
+                return ((Double) rows.getFirst()).longValue();
+            }
+        }
+        return estimate.count.getAsLong();
+    }
+
+    private boolean usesPlannerStatistics() {
+        if (plannerStatistics == null) {
+            plannerStatistics = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+        }
+        return plannerStatistics;
+    }
+
+    // table é nulo nas listagens filtradas, que só podem ser estimadas pelo COUNT
+    private static final class Estimate {
+        private final String table;
+        private final LongSupplier count;
+        private volatile long value;
+
+        private Estimate(String table, LongSupplier count) {
+            this.table = table;
+            this.count = count;
+        }
+    }
+}
@@ -1,43 +1,62 @@
 package com.enterprise.gestaoestoque.service;
 
-import com.enterprise.gestaoestoque.enums.MeasurementUnit;
-import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.ProductMapper;
+import com.enterprise.gestaoestoque.model.dto.product.ProductLotRowDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.product.ProductRowDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductUpdateDTO;
 import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.LotRepository;
 import com.enterprise.gestaoestoque.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
 @RequiredArgsConstructor
 @Service
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final LotRepository lotRepository;
     private final ProductMapper productMapper;
-
-    public Page<ProductResponseDTO> getAllProducts(Pageable pageable) {
-        var products = productRepository.findAll(pageable);
-        return products.map(productMapper::toProductResponseDTO);
+    private final TotalStockWriteBehindService totalStockWriteBehindService;
+    private final ProductUnitRuleService productUnitRuleService;
+    private final PageTotalService pageTotalService;
+
+    // Dois SELECTs por página (produtos e os lotes deles) em vez de um SELECT de lotes por produto; o COUNT só no
+    // total EXACT
+    public Slice<ProductResponseDTO> getAllProducts(Pageable pageable, PageTotal total) {
+        var products = pageTotalService.toPage(productRepository.findAllRows(pageable), total, "products", null,
+                productRepository::count);
+        var productIds = products.map(ProductRowDTO::id).getContent();
+        var lots = productIds.isEmpty() ? Map.<Long, List<ProductLotRowDTO>>of()
+                : lotRepository.findProductLotRows(productIds).stream()
+                        .collect(Collectors.groupingBy(ProductLotRowDTO::productId));
+        return products.map(row ->
+                withPendingStock(productMapper.toProductResponseDTO(row, lots.getOrDefault(row.id(), List.of()))));
     }
 
     public ProductResponseDTO getProductById(Long id) {
-        return productRepository.findById(id).map(productMapper::toProductResponseDTO)
+        return productRepository.findDetailById(id).map(productMapper::toProductResponseDTO).map(this::withPendingStock)
                 .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + id));
     }
 
     @Transactional
     public ProductResponseDTO createProduct(ProductRequestDTO productDTO) {
         validateUniqueProduct(productDTO.name());
-        validateProductMeasurementUnit(productDTO.category(), productDTO.measurementUnit());
+        productUnitRuleService.validate(productDTO.category(), productDTO.measurementUnit());
         var productEntity = productMapper.toProduct(productDTO);
 
         productEntity.setIsActive(true);
@@ -51,7 +70,9 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + id));
 
         validateIfProductIsActiveBeforeUpdate(product);
-        validateProductMeasurementUnit(product.getCategory(), product.getMeasurementUnit());
+        // Valida a combinação que o produto terá depois da atualização; campos nulos no DTO mantêm o valor atual
+        productUnitRuleService.validate(Objects.requireNonNullElse(updateDTO.category(), product.getCategory()),
+                Objects.requireNonNullElse(updateDTO.measurementUnit(), product.getMeasurementUnit()));
         productMapper.updateFromDTO(updateDTO, product);
 
         var productSaved = productRepository.save(product);
@@ -67,6 +88,42 @@ public class ProductService {
         productRepository.delete(product);
     }
 
+    @Transactional
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ProductResponseDTO recalculateTotalStock(Long id) {
+        totalStockWriteBehindService.flush();
+        if (productRepository.recalculateTotalStock(id) == 0) {
+            throw new ResourceNotFoundException("Produto não encontrado: " + id);
+        }
+        return getProductById(id);
+    }
+
+    @Transactional
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public int recalculateAllTotalStock() {
+        totalStockWriteBehindService.flush();
+        return productRepository.recalculateAllTotalStock();
+    }
+
+    // Com o write-behind ligado, o estoque total da linha ainda não tem os ajustes pendentes no acumulador
+    private ProductResponseDTO withPendingStock(ProductResponseDTO response) {
+        long pending = totalStockWriteBehindService.isEnabled() ? totalStockWriteBehindService.pending(response.id()) : 0;
+        if (pending == 0) {
+            return response;
+        }
+        return ProductResponseDTO.builder()
+                .id(response.id())
+                .name(response.name())
+                .category(response.category())
+                .measurementUnit(response.measurementUnit())
+                .isActive(response.isActive())
+                .totalStock((response.totalStock() == null ? 0 : response.totalStock()) + pending)
+                .reservedStock(response.reservedStock())
+                .availableStock(ProductMapper.availableStock(response.totalStock(), response.reservedStock()) + pending)
+                .lots(response.lots())
+                .build();
+    }
+
     private void validateUniqueProduct(String name) {
         var product = productRepository.findByNameIgnoreCase(name);
         if (product.isPresent()) {
@@ -85,67 +142,4 @@ public class ProductService {
             throw new BusinessException("Não é possível atualizar as informações de um produto que não está ativo");
         }
     }
-
-    protected void validateProductMeasurementUnit(ProductCategory category, MeasurementUnit measurementUnit) {
-        boolean hortifruti = category.equals(ProductCategory.HORTIFRUTI);
-        boolean kg = measurementUnit.equals(MeasurementUnit.KG);
-        boolean g = measurementUnit.equals(MeasurementUnit.G);
-        boolean un = measurementUnit.equals(MeasurementUnit.UN);
-
-        if (hortifruti && !(kg || g || un)) {
-            throw new BusinessException("Produtos da categoria HORTIFRUTI devem possuir uma das seguintes " +
-                    "unidades de medida: KG, G ou UN");
-        }
-
-        boolean padaria = category.equals(ProductCategory.PADARIA);
-        boolean duzia = measurementUnit.equals(MeasurementUnit.DUZIA);
-        boolean ml = measurementUnit.equals(MeasurementUnit.ML);
-        boolean caixa = measurementUnit.equals(MeasurementUnit.CAIXA);
-
-        if (padaria && !(kg || g || un || duzia || caixa || ml)) {
-            throw new BusinessException("Produtos da categoria PADARIA devem possuir uma das seguintes " +
-                    "unidades de medida: KG, G, UN, DUZIA, CAIXA ou ML");
-        }
-
-        boolean friosLaticinios =  category.equals(ProductCategory.FRIOS_E_LATICINIOS);
-        boolean l = measurementUnit.equals(MeasurementUnit.L);
-
-        if (friosLaticinios && !(kg || g || un || l || ml || caixa || duzia)) {
-            throw new BusinessException("Produtos da categoria FRIOS E LATICÍNIOS devem possuir uma das seguintes " +
-                    "unidades de medida: KG, G, UN, DUZIA, CAIXA, L ou ML");
-        }
-
-        boolean carnesAves = category.equals(ProductCategory.CARNES_E_AVES);
-
-        if (carnesAves && !(kg || g)) {
-            throw new BusinessException("Produtos da categoria CARNES E AVES devem possuir uma das seguintes " +
-                    "unidades de medida: KG ou G");
-        }
-
-        boolean bebidas = category.equals(ProductCategory.BEBIDAS);
-        boolean fardo = measurementUnit.equals(MeasurementUnit.FARDO);
-        boolean garrafa = measurementUnit.equals(MeasurementUnit.GARRAFA);
-        boolean lata = measurementUnit.equals(MeasurementUnit.LATA);
-
-        if (bebidas && !(un || garrafa || fardo || lata)) {
-            throw new BusinessException("Produtos da categoria BEBIDAS devem possuir uma das seguintes " +
-                    "unidades de medida: UN, GARRAFA, LATA ou FARDO");
-        }
-
-        boolean naoPereciveis = category.equals(ProductCategory.NAO_PERECIVEIS);
-
-        if (naoPereciveis && !(kg || g || un || lata || caixa)) {
-            throw new BusinessException("Produtos da categoria NÃO PERECÍVEIS devem possuir uma das seguintes " +
-                    "unidades de medida: KG, G, UN, LATA ou CAIXA");
-        }
-
-        boolean congelados = category.equals(ProductCategory.CONGELADOS);
-
-        if (congelados && !(kg || g || l || un || caixa)) {
-            throw new BusinessException("Produtos da categoria CONGELADOS devem possuir uma das seguintes " +
-                    "unidades de medida: KG, G, L, UN ou CAIXA");
-        }
-
-    }
-
 }
@@ -0,0 +1,172 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.model.dto.product.UnitRuleDTO;
+import com.enterprise.gestaoestoque.model.dto.product.UnitRuleRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.ProductUnitRule;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.ProductUnitRuleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.enterprise.gestaoestoque.enums.MeasurementUnit.*;
+
+/**
+ * Regras de unidade de medida por categoria de produto. As regras ficam na tabela product_unit_rules (semeada com
+ * {@link #DEFAULT_RULES} para as categorias sem linhas) e são compiladas em uma máscara de bits por categoria, de modo
+ * que a validação de um produto é um acesso a array e um AND. Alterações feitas por um administrador valem neste nó
+ * após o commit; os demais nós recarregam a tabela a cada products.unit-rules.refresh-interval-ms.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class ProductUnitRuleService {
+
+    static final Map<ProductCategory, Set<MeasurementUnit>> DEFAULT_RULES = defaultRules();
+
+    private final ProductUnitRuleRepository productUnitRuleRepository;
+    private final ProductRepository productRepository;
+
+    private volatile CompiledRules rules = CompiledRules.compile(DEFAULT_RULES);
+
+    public void validate(ProductCategory category, MeasurementUnit measurementUnit) {
+        var current = rules;
+        if ((current.masks[category.ordinal()] & (1 << measurementUnit.ordinal())) == 0) {
+            throw new BusinessException(current.messages[category.ordinal()]);
+        }
+    }
+
+    public List<UnitRuleDTO> getAllRules() {
+        return rules.units.entrySet().stream()
+                .map(entry -> new UnitRuleDTO(entry.getKey(), Collections.unmodifiableSet(entry.getValue())))
+                .toList();
+    }
+
+    public UnitRuleDTO getRule(ProductCategory category) {
+        return new UnitRuleDTO(category, Collections.unmodifiableSet(rules.units.get(category)));
+    }
+
+    // Não é permitido retirar da regra uma unidade que algum produto da categoria ainda usa
+    @Transactional
+    @PreAuthorize("hasRole('ADMIN')")
+    public UnitRuleDTO updateRule(ProductCategory category, UnitRuleRequestDTO ruleDTO) {
+        var units = EnumSet.copyOf(ruleDTO.measurementUnits());
+        if (productRepository.existsByCategoryAndMeasurementUnitNotIn(category, units)) {
+            throw new BusinessException("Existem produtos da categoria " + category.getLabel() +
+                    " com unidades de medida fora da nova regra: " + describe(units));
+        }
+
+        productUnitRuleRepository.deleteByCategory(category);
+        productUnitRuleRepository.saveAll(units.stream()
+                .map(unit -> ProductUnitRule.builder().category(category).measurementUnit(unit).build())
+                .toList());
+
+        afterCommit(this::reload);
+        return new UnitRuleDTO(category, Collections.unmodifiableSet(units));
+    }
+
+    // Grava as regras padrão das categorias que ainda não estão na tabela e compila o que estiver gravado
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedAndLoad() {
+        var stored = productUnitRuleRepository.findAll().stream()
+                .map(ProductUnitRule::getCategory)
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(ProductCategory.class)));
+        var missing = DEFAULT_RULES.entrySet().stream()
+                .filter(entry -> !stored.contains(entry.getKey()))
+                .flatMap(entry -> entry.getValue().stream()
+                        .map(unit -> ProductUnitRule.builder().category(entry.getKey()).measurementUnit(unit).build()))
+                .toList();
+        if (!missing.isEmpty()) {
+            productUnitRuleRepository.saveAll(missing);
+            log.info("Regras de unidade de medida padrão gravadas: {} linhas", missing.size());
+        }
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${products.unit-rules.refresh-interval-ms:30000}",
+            initialDelayString = "${products.unit-rules.refresh-interval-ms:30000}")
+    public void reload() {
+        var loaded = new EnumMap<ProductCategory, Set<MeasurementUnit>>(ProductCategory.class);
+        for (var rule : productUnitRuleRepository.findAll()) {
+            loaded.computeIfAbsent(rule.getCategory(), category -> EnumSet.noneOf(MeasurementUnit.class))
+                    .add(rule.getMeasurementUnit());
+        }
+        var merged = new EnumMap<>(DEFAULT_RULES);
+        merged.putAll(loaded);
+        rules = CompiledRules.compile(merged);
+    }
+
+    private static String describe(Set<MeasurementUnit> units) {
+        var names = units.stream().map(Enum::name).toList();
+        if (names.size() == 1) {
+            return names.get(0);
+        }
+        return String.join(", ", names.subList(0, names.size() - 1)) + " ou " + names.get(names.size() - 1);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Map<ProductCategory, Set<MeasurementUnit>> defaultRules() {
+        var defaults = new EnumMap<ProductCategory, Set<MeasurementUnit>>(ProductCategory.class);
+        defaults.put(ProductCategory.HORTIFRUTI, EnumSet.of(KG, G, UN));
+        defaults.put(ProductCategory.PADARIA, EnumSet.of(KG, G, UN, DUZIA, CAIXA, ML));
+        defaults.put(ProductCategory.FRIOS_E_LATICINIOS, EnumSet.of(KG, G, UN, DUZIA, CAIXA, L, ML));
+        defaults.put(ProductCategory.CARNES_E_AVES, EnumSet.of(KG, G));
+        defaults.put(ProductCategory.BEBIDAS, EnumSet.of(UN, GARRAFA, LATA, FARDO));
+        defaults.put(ProductCategory.NAO_PERECIVEIS, EnumSet.of(KG, G, UN, LATA, CAIXA));
+        defaults.put(ProductCategory.CONGELADOS, EnumSet.of(KG, G, L, UN, CAIXA));
+        return Collections.unmodifiableMap(defaults);
+    }
+
+    // Máscara de unidades permitidas e mensagem de erro já montada, indexadas pelo ordinal da categoria
+    private record CompiledRules(int[] masks, String[] messages, EnumMap<ProductCategory, EnumSet<MeasurementUnit>> units) {
+
+        private static CompiledRules compile(Map<ProductCategory, Set<MeasurementUnit>> source) {
+            var categories = ProductCategory.values();
+            var masks = new int[categories.length];
+            var messages = new String[categories.length];
+            var units = new EnumMap<ProductCategory, EnumSet<MeasurementUnit>>(ProductCategory.class);
+            for (var category : categories) {
+                var allowed = source.get(category);
+                var set = allowed == null || allowed.isEmpty()
+                        ? EnumSet.allOf(MeasurementUnit.class) : EnumSet.copyOf(allowed);
+                for (var unit : set) {
+                    masks[category.ordinal()] |= 1 << unit.ordinal();
+                }
+                messages[category.ordinal()] = "Produtos da categoria " + category.getLabel() +
+                        " devem possuir uma das seguintes unidades de medida: " + describe(set);
+                units.put(category, set);
+            }
+            return new CompiledRules(masks, messages, units);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.mapper.RecipeMapper;
+import com.enterprise.gestaoestoque.model.dto.recipe.ProductionRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.ProductionResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Recipe;
+import com.enterprise.gestaoestoque.model.entity.RecipeItem;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.RecipeRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Receitas (fichas técnicas): cada receita lista os produtos consumidos por unidade produzida. Uma produção de N
+ * unidades vira uma baixa FEFO de USO_PRODUCAO de todos os componentes em uma única transação.
+ */
+@RequiredArgsConstructor
+@Service
+public class RecipeService {
+
+    private final RecipeRepository recipeRepository;
+    private final ProductRepository productRepository;
+    private final InventoryMovementService inventoryMovementService;
+    private final RecipeMapper recipeMapper;
+
+    @Transactional(readOnly = true)
+    public Page<RecipeResponseDTO> getAllRecipes(Pageable pageable) {
+        return recipeRepository.findAll(pageable).map(recipeMapper::toRecipeResponseDTO);
+    }
+
+    @Transactional(readOnly = true)
+    public RecipeResponseDTO getRecipeById(Long id) {
+        return recipeMapper.toRecipeResponseDTO(findRecipe(id));
+    }
+
+    @Transactional
+    public RecipeResponseDTO createRecipe(RecipeRequestDTO recipeDTO) {
+        if (recipeRepository.findByNameIgnoreCase(recipeDTO.name()).isPresent()) {
+            throw new BusinessException("Receita já cadastrada no sistema: " + recipeDTO.name());
+        }
+        var productIds = recipeDTO.items().stream().map(RecipeRequestDTO.ItemDTO::productId).toList();
+        if (productIds.stream().distinct().count() != productIds.size()) {
+            throw new BusinessException("Um produto só pode aparecer uma vez na receita");
+        }
+        var products = productRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        var recipe = Recipe.builder().name(recipeDTO.name()).build();
+        for (var item : recipeDTO.items()) {
+            var product = products.get(item.productId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Produto não encontrado: " + item.productId());
+            }
+            if (!product.getIsActive()) {
+                throw new BusinessException("Produto inativo no sistema, não pode ser componente da receita: " + product.getName());
+            }
+            // Ainda não há conversão entre unidades: o componente é informado na unidade em que o produto é estocado
+            if (item.measurementUnit() != product.getMeasurementUnit()) {
+                throw new BusinessException("A unidade de medida do componente deve ser a mesma do produto: " + product.getName()
+                        + " (" + product.getMeasurementUnit() + ")");
+            }
+            recipe.getItems().add(RecipeItem.builder()
+                    .recipe(recipe)
+                    .product(product)
+                    .quantity(item.quantity())
+                    .measurementUnit(item.measurementUnit())
+                    .build());
+        }
+
+        var recipeSaved = recipeRepository.save(recipe);
+        return recipeMapper.toRecipeResponseDTO(recipeSaved);
+    }
+
+    // Baixa de todos os componentes para N unidades: se faltar saldo de qualquer um, nada é baixado
+    @Transactional
+    public ProductionResponseDTO produce(Long recipeId, ProductionRequestDTO productionDTO) {
+        var recipe = findRecipe(recipeId);
+        if (productionDTO.quantity() == null || productionDTO.quantity() <= 0) {
+            throw new BusinessException("Quantidade inválida");
+        }
+
+        var quantities = new LinkedHashMap<Long, Long>();
+        for (var item : recipe.getItems()) {
+            if (!item.getProduct().getIsActive()) {
+                throw new BusinessException("Produto inativo no sistema, não foi possível produzir a receita: "
+                        + item.getProduct().getName());
+            }
+            try {
+                quantities.merge(item.getProduct().getId(), Math.multiplyExact(item.getQuantity(), productionDTO.quantity()),
+                        Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new BusinessException("Quantidade inválida");
+            }
+        }
+
+        var movements = inventoryMovementService.createFefoMovements(quantities, MovementType.USO_PRODUCAO,
+                productionDTO.reference());
+        return ProductionResponseDTO.builder()
+                .recipeId(recipe.getId())
+                .quantity(productionDTO.quantity())
+                .reference(productionDTO.reference())
+                .movements(movements)
+                .build();
+    }
+
+    private Recipe findRecipe(Long id) {
+        return recipeRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Receita não encontrada: " + id));
+    }
+}
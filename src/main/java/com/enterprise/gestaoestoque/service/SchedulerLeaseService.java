@@ -0,0 +1,78 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.repository.SchedulerLeaseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Garante que cada job agendado rode em um único nó por ciclo quando há várias instâncias.
+ * A lease fica na tabela scheduler_leases e só é assumida por outro nó depois de expirar,
+ * o que também cobre a falha do nó que estava executando.
+ */
+@Slf4j
+@Service
+public class SchedulerLeaseService {
+
+    private final SchedulerLeaseRepository schedulerLeaseRepository;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId;
+
+    public SchedulerLeaseService(SchedulerLeaseRepository schedulerLeaseRepository,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${scheduler.node-id:}") String nodeId) {
+        this.schedulerLeaseRepository = schedulerLeaseRepository;
+        this.meterRegistry = meterRegistry;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Tenta assumir a lease do job por {@code lockFor}. A lease não é liberada ao fim da execução:
+     * ela deve durar quase um ciclo inteiro, para que outro nó não repita o mesmo disparo.
+     */
+    public boolean tryAcquire(String jobName, Duration lockFor) {
+        var now = LocalDateTime.now();
+        var lockedUntil = now.plus(lockFor);
+
+        boolean acquired = schedulerLeaseRepository.tryAcquire(jobName, nodeId, now, lockedUntil) > 0;
+        if (!acquired && !schedulerLeaseRepository.existsById(jobName)) {
+            acquired = insertLease(jobName, now, lockedUntil);
+        }
+
+        meterRegistry.counter(acquired ? "scheduler.lease.acquired" : "scheduler.lease.skipped",
+                "job", jobName, "node", nodeId).increment();
+        if (acquired) {
+            log.debug("Nó {} executando o job {}", nodeId, jobName);
+        }
+        return acquired;
+    }
+
+    private boolean insertLease(String jobName, LocalDateTime now, LocalDateTime lockedUntil) {
+        try {
+            return schedulerLeaseRepository.insertLease(jobName, nodeId, now, lockedUntil) > 0;
+        } catch (DataIntegrityViolationException e) {
+            // Outro nó criou a lease ao mesmo tempo
+            return false;
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + ManagementFactory.getRuntimeMXBean().getPid();
+        } catch (UnknownHostException e) {
+            return "node:" + ManagementFactory.getRuntimeMXBean().getPid();
+        }
+    }
+}
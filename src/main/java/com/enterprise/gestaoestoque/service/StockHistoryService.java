@@ -0,0 +1,136 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotBalanceDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotQuantityDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotSnapshotDTO;
+import com.enterprise.gestaoestoque.model.dto.product.StockAsOfDTO;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Estoque físico (saldo dos lotes, qualquer status) em uma data e hora passada, lido do razão de movimentações:
+ * cada movimentação guarda o saldo do lote depois dela, então o saldo de um lote em T é o da última movimentação
+ * até T. Lotes sem movimentação até T usam o saldo anterior à primeira movimentação depois de T; lotes sem
+ * nenhuma movimentação com saldo usam o saldo atual, se já tinham entrado em T.
+ * <p>
+ * As baixas pelas cotas de escrow não bloqueiam o lote e ficam sem saldo no razão: entram pela data e hora, somadas
+ * ao saldo da movimentação vizinha que tem saldo.
+ */
+@RequiredArgsConstructor
+@Service
+public class StockHistoryService {
+
+    private static final List<MovementType> WITHDRAWALS = Arrays.stream(MovementType.values())
+            .filter(MovementType::isWithdrawal).toList();
+
+    private final ProductRepository productRepository;
+    private final LotRepository lotRepository;
+    private final InventoryMovementRepository inventoryMovementRepository;
+
+    @Transactional(readOnly = true)
+    public StockAsOfDTO getProductStockAsOf(Long productId, LocalDateTime at) {
+        validateDate(at);
+        var product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + productId));
+        return toStockAsOfDTO(product, at, stockAsOf(List.of(productId), at));
+    }
+
+    @Transactional(readOnly = true)
+    public Page<StockAsOfDTO> getCategoryStockAsOf(ProductCategory category, LocalDateTime at, Pageable pageable) {
+        validateDate(at);
+        var products = productRepository.findByCategory(category, pageable);
+        var stock = stockAsOf(products.map(Product::getId).getContent(), at);
+        return new PageImpl<>(products.map(product -> toStockAsOfDTO(product, at, stock)).getContent(),
+                pageable, products.getTotalElements());
+    }
+
+    private Map<Long, Long> stockAsOf(List<Long> productIds, LocalDateTime at) {
+        var stock = new HashMap<Long, Long>();
+        if (productIds.isEmpty()) {
+            return stock;
+        }
+        var lots = lotRepository.findSnapshotsByProductIds(productIds);
+        var lastBalances = byLot(inventoryMovementRepository.findLastBalancesUpTo(productIds, at),
+                (a, b) -> a.movementId() > b.movementId() ? a : b);
+        var withdrawnUpTo = sumByLot(inventoryMovementRepository.sumUnbalancedSinceLastBalance(productIds, WITHDRAWALS, at));
+
+        var withoutBalance = lots.stream().map(LotSnapshotDTO::lotId).filter(lotId -> !lastBalances.containsKey(lotId)).toList();
+        var firstBalances = withoutBalance.isEmpty() ? Map.<Long, LotBalanceDTO>of()
+                : byLot(inventoryMovementRepository.findFirstBalancesAfter(withoutBalance, at),
+                (a, b) -> a.movementId() < b.movementId() ? a : b);
+        var withdrawnAfter = withoutBalance.isEmpty() ? Map.<Long, Long>of()
+                : sumByLot(inventoryMovementRepository.sumUnbalancedAfter(withoutBalance, WITHDRAWALS, at));
+
+        for (var lot : lots) {
+            var lotId = lot.lotId();
+            stock.merge(lot.productId(), balanceAt(lot, at, lastBalances.get(lotId), firstBalances.get(lotId),
+                    withdrawnUpTo.getOrDefault(lotId, 0L), withdrawnAfter.getOrDefault(lotId, 0L)), Long::sum);
+        }
+        return stock;
+    }
+
+    // withdrawnUpTo: baixas sem saldo entre a última movimentação com saldo e T; withdrawnAfter: as de depois de T,
+    // até a primeira com saldo (ou até agora)
+    private static long balanceAt(LotSnapshotDTO lot, LocalDateTime at, LotBalanceDTO last, LotBalanceDTO first,
+                                  long withdrawnUpTo, long withdrawnAfter) {
+        if (last != null) {
+            return last.balanceAfter() - withdrawnUpTo;
+        }
+        if (lot.entryDate() != null && lot.entryDate().isAfter(at.toLocalDate())) {
+            return 0;
+        }
+        if (first != null) {
+            // Desfaz a primeira movimentação depois de T: ENTRADA e transferência recebida de um lote novo dão zero
+            long quantity = first.quantity();
+            return first.balanceAfter() + (first.movementType().isInbound() ? -quantity : quantity) + withdrawnAfter;
+        }
+        return lot.currentQtd() + withdrawnAfter;
+    }
+
+    private static Map<Long, Long> sumByLot(List<LotQuantityDTO> quantities) {
+        return quantities.stream().collect(Collectors.toMap(LotQuantityDTO::lotId, LotQuantityDTO::quantity));
+    }
+
+    private static Map<Long, LotBalanceDTO> byLot(List<LotBalanceDTO> balances, BinaryOperator<LotBalanceDTO> tieBreaker) {
+        var byLot = new HashMap<Long, LotBalanceDTO>();
+        balances.forEach(balance -> byLot.merge(balance.lotId(), balance, tieBreaker));
+        return byLot;
+    }
+
+    private static StockAsOfDTO toStockAsOfDTO(Product product, LocalDateTime at, Map<Long, Long> stock) {
+        return StockAsOfDTO.builder()
+                .productId(product.getId())
+                .productName(product.getName())
+                .category(product.getCategory())
+                .measurementUnit(product.getMeasurementUnit())
+                .at(at)
+                .quantity(stock.getOrDefault(product.getId(), 0L))
+                .build();
+    }
+
+    private static void validateDate(LocalDateTime at) {
+        if (at.isAfter(LocalDateTime.now())) {
+            throw new BusinessException("A data da consulta não pode ser futura");
+        }
+    }
+}
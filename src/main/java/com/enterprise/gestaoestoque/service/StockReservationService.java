@@ -0,0 +1,397 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ReservationStatus;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.mapper.ReservationMapper;
+import com.enterprise.gestaoestoque.model.Quantity;
+import com.enterprise.gestaoestoque.model.dto.reservation.FefoReservationRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.StockReservation;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.StockReservationRepository;
+import com.enterprise.gestaoestoque.service.engine.HierarchicalTimingWheel;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reservas de estoque: seguram quantidade de um lote (reservedQtd) para um pedido até a confirmação, que gera a
+ * movimentação, a liberação ou o vencimento do prazo. O vencimento é disparado por uma roda de tempo hierárquica
+ * em memória, sem varrer a tabela; a roda é carregada no início e recarregada pela reconciliação, que também
+ * traz as reservas criadas por outros nós.
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private final StockReservationRepository stockReservationRepository;
+    private final LotRepository lotRepository;
+    private final ProductRepository productRepository;
+    private final InventoryMovementRepository inventoryMovementRepository;
+    private final LotService lotService;
+    private final UserService userService;
+    private final LotAllocationService lotAllocationService;
+    private final LotEscrowService lotEscrowService;
+    private final StockEngine stockEngine;
+    private final ReservationMapper reservationMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final HierarchicalTimingWheel wheel;
+
+    public StockReservationService(StockReservationRepository stockReservationRepository,
+                                   LotRepository lotRepository,
+                                   ProductRepository productRepository,
+                                   InventoryMovementRepository inventoryMovementRepository,
+                                   LotService lotService,
+                                   UserService userService,
+                                   LotAllocationService lotAllocationService,
+                                   LotEscrowService lotEscrowService,
+                                   StockEngine stockEngine,
+                                   ReservationMapper reservationMapper,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${inventory.reservations.default-ttl:30m}") Duration defaultTtl,
+                                   @Value("${inventory.reservations.max-ttl:7d}") Duration maxTtl,
+                                   @Value("${inventory.reservations.tick-ms:1000}") long tickMillis) {
+        this.stockReservationRepository = stockReservationRepository;
+        this.lotRepository = lotRepository;
+        this.productRepository = productRepository;
+        this.inventoryMovementRepository = inventoryMovementRepository;
+        this.lotService = lotService;
+        this.userService = userService;
+        this.lotAllocationService = lotAllocationService;
+        this.lotEscrowService = lotEscrowService;
+        this.stockEngine = stockEngine;
+        this.reservationMapper = reservationMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.wheel = new HierarchicalTimingWheel(tickMillis, System.currentTimeMillis());
+    }
+
+    public ReservationResponseDTO getReservationById(Long id) {
+        return stockReservationRepository.findById(id).map(reservationMapper::toReservationResponseDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva não encontrada: " + id));
+    }
+
+    @Transactional
+    public ReservationResponseDTO reserveLot(ReservationRequestDTO reservationDTO) {
+        validateEngineDisabled();
+        validateWithdrawalType(reservationDTO.movementType());
+        var lotId = reservationDTO.lotId();
+        var stockUnit = lotRepository.findMeasurementUnitById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + lotId));
+        var quantity = Quantity.toStockUnits(reservationDTO.quantity(), reservationDTO.measurementUnit(), stockUnit);
+        var expiresAt = expiresAt(reservationDTO.ttlMinutes());
+
+        if (lotRepository.reserveQuantity(lotId, quantity) == 0) {
+            var lot = lotRepository.findById(lotId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + lotId));
+            if (lot.getStatus() != LotStatus.ATIVO) {
+                throw new BusinessException("Só é possível reservar lotes com status ATIVO");
+            }
+            throw new BusinessException("Quantidade maior que a disponível no lote.");
+        }
+        var lot = lotRepository.findById(lotId)
+                .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + lotId));
+        var reservation = hold(lot, quantity, reservationDTO.movementType(), reservationDTO.reference(), expiresAt);
+        return reservationMapper.toReservationResponseDTO(reservation);
+    }
+
+    // Distribui a reserva entre os lotes ATIVO do produto, do que vence primeiro para o último (FEFO)
+    @Transactional
+    public List<ReservationResponseDTO> reserveFefo(FefoReservationRequestDTO reservationDTO) {
+        validateEngineDisabled();
+        validateWithdrawalType(reservationDTO.movementType());
+        var productId = reservationDTO.productId();
+        var stockUnit = productRepository.findMeasurementUnitById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado: " + productId));
+        var quantity = Quantity.toStockUnits(reservationDTO.quantity(), reservationDTO.measurementUnit(), stockUnit);
+        var expiresAt = expiresAt(reservationDTO.ttlMinutes());
+
+        var today = LocalDate.now();
+        var reservations = new ArrayList<StockReservation>();
+        long remaining = quantity;
+        for (var candidate : lotAllocationService.candidates(productId, today)) {
+            if (remaining == 0) {
+                break;
+            }
+            long held = holdFromCandidate(productId, candidate, remaining);
+            if (held > 0) {
+                var lot = lotRepository.findById(candidate.lotId())
+                        .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + candidate.lotId()));
+                reservations.add(hold(lot, held, reservationDTO.movementType(), reservationDTO.reference(), expiresAt));
+                remaining -= held;
+            }
+        }
+
+        if (remaining > 0) {
+            if (reservations.isEmpty() && !productRepository.existsById(productId)) {
+                throw new ResourceNotFoundException("Produto não encontrado: " + productId);
+            }
+            // A exceção desfaz as reservas já feitas nesta transação
+            throw new BusinessException("Estoque insuficiente para o produto: faltam " + remaining + " nos lotes ativos.");
+        }
+        return reservations.stream().map(reservationMapper::toReservationResponseDTO).toList();
+    }
+
+    /**
+     * Confirma a reserva: a quantidade segura sai do saldo do lote como uma movimentação do tipo reservado.
+     */
+    @Transactional
+    public ReservationResponseDTO commitReservation(Long id) {
+        var reservation = lockActive(id);
+        if (!reservation.getExpiresAt().isAfter(LocalDateTime.now())) {
+            throw new BusinessException("Reserva expirada: " + id);
+        }
+        var lot = reservation.getLot();
+        var productId = lot.getProduct().getId();
+        var quantity = reservation.getQuantity();
+
+        // O lote veio com a reserva, antes do bloqueio: status e validade são relidos do banco com a linha bloqueada
+        lotRepository.findAllByIdForUpdate(List.of(lot.getId()));
+        var state = lotRepository.findStockStateById(lot.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + lot.getId()));
+        if (state.status() == LotStatus.VENCIDO || state.expirationDate().isBefore(LocalDate.now())) {
+            throw new BusinessException("Lote da reserva está vencido; a reserva deve ser liberada: " + id);
+        }
+        var countsInTotalStock = state.status() == LotStatus.ATIVO;
+
+        lotRepository.settleReservation(lot.getId(), quantity, 0);
+        lotService.applyStockDelta(productId, countsInTotalStock ? -quantity : 0);
+        if (countsInTotalStock) {
+            productRepository.addToReservedStock(productId, -quantity);
+        }
+
+        var movement = inventoryMovementRepository.save(InventoryMovement.builder()
+                .movementType(reservation.getMovementType())
+                .quantity(quantity)
+                .measurementUnit(lot.getMeasurementUnit())
+                .dateAndTime(LocalDateTime.now())
+                .reference(reservation.getReference())
+                // O lote da reserva pode estar desatualizado no contexto; o saldo vem do banco, depois do acerto
+                .balanceAfter(lotEscrowService.physicalQtd(lot.getId()))
+                .lot(lot)
+                .warehouse(lot.getWarehouse())
+                .user(userService.getLoggedUser())
+                .build());
+        reservation.setStatus(ReservationStatus.CONFIRMADA);
+        reservation.setMovement(movement);
+        unscheduleAfterCommit(id);
+        meterRegistry.counter("reservations.closed", "status", ReservationStatus.CONFIRMADA.name()).increment();
+        return reservationMapper.toReservationResponseDTO(reservation);
+    }
+
+    @Transactional
+    public ReservationResponseDTO releaseReservation(Long id) {
+        var reservation = lockActive(id);
+        close(reservation, ReservationStatus.LIBERADA);
+        unscheduleAfterCommit(id);
+        return reservationMapper.toReservationResponseDTO(reservation);
+    }
+
+    /**
+     * Avança a roda e expira as reservas cujo prazo passou, cada uma na sua transação. A linha é relida com
+     * bloqueio: se a reserva já foi confirmada ou liberada (aqui ou em outro nó), não há o que fazer.
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservations.tick-ms:1000}")
+    public void expireDueReservations() {
+        List<Long> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        int expired = 0;
+        for (var id : due) {
+            try {
+                Boolean closed = transactionTemplate.execute(status -> stockReservationRepository.findByIdForUpdate(id)
+                        .filter(reservation -> reservation.getStatus() == ReservationStatus.ATIVA)
+                        .map(reservation -> {
+                            if (reservation.getExpiresAt().isAfter(LocalDateTime.now())) {
+                                // Prazo alterado depois do agendamento; volta para a roda com o prazo atual
+                                schedule(id, reservation.getExpiresAt());
+                                return false;
+                            }
+                            close(reservation, ReservationStatus.EXPIRADA);
+                            return true;
+                        })
+                        .orElse(false));
+                if (Boolean.TRUE.equals(closed)) {
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Falha ao expirar a reserva {}; nova tentativa na reconciliação", id, e);
+            }
+        }
+        if (expired > 0) {
+            log.info("Reservas expiradas: {}", expired);
+        }
+    }
+
+    // Carrega na roda as reservas ATIVA que ela ainda não tem
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${inventory.reservations.reconciliation-cron:0 */10 * * * *}")
+    public void loadActiveReservations() {
+        var expirations = stockReservationRepository.findActiveExpirations();
+        int added = 0;
+        synchronized (wheel) {
+            for (var expiration : expirations) {
+                if (!wheel.contains(expiration.id())) {
+                    wheel.schedule(expiration.id(), toMillis(expiration.expiresAt()));
+                    added++;
+                }
+            }
+        }
+        log.info("Roda de expiração de reservas: {} ativas, {} adicionadas", expirations.size(), added);
+    }
+
+    public int scheduledCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private StockReservation hold(Lot lot, long quantity, MovementType movementType, String reference, LocalDateTime expiresAt) {
+        var productId = lot.getProduct().getId();
+        var reservation = stockReservationRepository.save(StockReservation.builder()
+                .lot(lot)
+                .quantity(quantity)
+                .movementType(movementType)
+                .status(ReservationStatus.ATIVA)
+                .reference(reference)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(expiresAt)
+                .user(userService.getLoggedUser())
+                .build());
+        productRepository.addToReservedStock(productId, quantity);
+        lotAllocationService.adjust(productId, lot.getId(), lot.getExpirationDate(), -quantity);
+        scheduleAfterCommit(reservation.getId(), expiresAt);
+        meterRegistry.counter("reservations.created").increment();
+        return reservation;
+    }
+
+    // Liberação e vencimento: a quantidade volta a ser saldo livre do lote
+    private void close(StockReservation reservation, ReservationStatus status) {
+        var lot = reservation.getLot();
+        var productId = lot.getProduct().getId();
+        var quantity = reservation.getQuantity();
+
+        lotRepository.settleReservation(lot.getId(), 0, quantity);
+        if (lot.getStatus() == LotStatus.ATIVO) {
+            productRepository.addToReservedStock(productId, -quantity);
+            lotAllocationService.adjust(productId, lot.getId(), lot.getExpirationDate(), quantity);
+        }
+        reservation.setStatus(status);
+        meterRegistry.counter("reservations.closed", "status", status.name()).increment();
+    }
+
+    private StockReservation lockActive(Long id) {
+        var reservation = stockReservationRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva não encontrada: " + id));
+        if (reservation.getStatus() != ReservationStatus.ATIVA) {
+            throw new BusinessException("Reserva não está ativa: " + reservation.getStatus());
+        }
+        return reservation;
+    }
+
+    // A quantidade do índice é só uma estimativa: se a reserva condicional falhar, relê o lote e tenta com o saldo real
+    private long holdFromCandidate(Long productId, LotAllocationService.LotCandidate candidate, long remaining) {
+        long requested = Math.min(remaining, candidate.availableQtd());
+        if (requested > 0 && lotRepository.reserveQuantity(candidate.lotId(), requested) > 0) {
+            return requested;
+        }
+
+        var lot = lotRepository.findById(candidate.lotId()).orElse(null);
+        long available = lot != null && lot.getStatus() == LotStatus.ATIVO ? lot.getCurrentQtd() - lot.getReservedQtd() : 0;
+        lotAllocationService.refresh(productId, candidate.lotId(), candidate.expirationDate(), available);
+
+        requested = Math.min(remaining, available);
+        if (requested > 0 && lotRepository.reserveQuantity(candidate.lotId(), requested) > 0) {
+            return requested;
+        }
+        return 0;
+    }
+
+    private void validateEngineDisabled() {
+        // O engine mantém o saldo em memória e não conhece o reservedQtd dos lotes
+        if (stockEngine.isEnabled()) {
+            throw new BusinessException("Reservas indisponíveis com o engine de estoque em memória ligado");
+        }
+    }
+
+    private static void validateWithdrawalType(MovementType movementType) {
+        if (movementType != null && !movementType.isWithdrawal()) {
+            throw new BusinessException("Reservas só podem ser de movimentações de saída");
+        }
+    }
+
+    private LocalDateTime expiresAt(Long ttlMinutes) {
+        var ttl = ttlMinutes == null ? defaultTtl : Duration.ofMinutes(ttlMinutes);
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(maxTtl) > 0) {
+            throw new BusinessException("Prazo da reserva deve estar entre 1 minuto e " + maxTtl.toMinutes() + " minutos");
+        }
+        return LocalDateTime.now().plus(ttl);
+    }
+
+    private void schedule(Long id, LocalDateTime expiresAt) {
+        synchronized (wheel) {
+            wheel.schedule(id, toMillis(expiresAt));
+        }
+    }
+
+    private void scheduleAfterCommit(Long id, LocalDateTime expiresAt) {
+        afterCommit(() -> schedule(id, expiresAt));
+    }
+
+    private void unscheduleAfterCommit(Long id) {
+        afterCommit(() -> {
+            synchronized (wheel) {
+                wheel.cancel(id);
+            }
+        });
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.SupplierMapper;
@@ -8,8 +9,8 @@ import com.enterprise.gestaoestoque.model.dto.supplier.SupplierResponseDTO;
 import com.enterprise.gestaoestoque.model.dto.supplier.SupplierUpdateDTO;
 import com.enterprise.gestaoestoque.repository.SupplierRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,10 +21,11 @@ public class SupplierService {
 
     private final SupplierRepository supplierRepository;
     private final SupplierMapper supplierMapper;
+    private final PageTotalService pageTotalService;
 
-    public Page<SupplierResponseDTO> getAllSuppliers(Pageable pageable) {
-        var suppliers = supplierRepository.findAll(pageable);
-        return suppliers.map(supplierMapper::toSupplierResponseDTO);
+    public Slice<SupplierResponseDTO> getAllSuppliers(Pageable pageable, PageTotal total) {
+        return pageTotalService.toPage(supplierRepository.findAllRows(pageable), total, "suppliers", null,
+                supplierRepository::count);
     }
 
     public SupplierResponseDTO getSupplierById(Long id) {
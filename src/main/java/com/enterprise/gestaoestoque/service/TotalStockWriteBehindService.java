@@ -0,0 +1,121 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind do estoque total dos produtos ({@code inventory.total-stock.write-behind.enabled}). Em vez
+ * de cada movimentação fazer o seu UPDATE na linha do produto, o ajuste é somado num LongAdder por produto
+ * depois do commit, e o {@link #flush()} grava de tempos em tempos um único UPDATE por produto com a soma.
+ * <p>
+ * As leituras somam o que ainda está pendente ({@link #pending(Long)}). Numa queda, os ajustes ainda não
+ * gravados se perdem; o recálculo do estoque total a partir dos lotes corrige o produto.
+ */
+@Slf4j
+@Service
+public class TotalStockWriteBehindService {
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    private final Map<Long, LongAdder> deltas = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public TotalStockWriteBehindService(ProductRepository productRepository,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${inventory.total-stock.write-behind.enabled:false}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // O ajuste só entra no acumulador depois do commit: um rollback nunca chega ao produto
+    public void add(Long productId, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accumulate(productId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accumulate(productId, delta);
+            }
+        });
+    }
+
+    public long pending(Long productId) {
+        var adder = deltas.get(productId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Grava os ajustes acumulados, um UPDATE por produto, numa única transação. Se a gravação falhar os
+     * ajustes voltam para o acumulador e entram no próximo flush. Quem recalcula o estoque total a partir dos lotes
+     * chama este método antes: os lotes já refletem os ajustes pendentes, que de outra forma seriam somados de novo.
+     */
+    @Scheduled(fixedDelayString = "${inventory.total-stock.write-behind.flush-interval-ms:50}")
+    public void flush() {
+        if (!enabled || deltas.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            var drained = new HashMap<Long, Long>();
+            // As entradas ficam no mapa: removê-las perderia um add concorrente feito no adder já removido
+            deltas.forEach((productId, adder) -> {
+                long delta = adder.sumThenReset();
+                if (delta != 0) {
+                    drained.put(productId, delta);
+                }
+            });
+            if (drained.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> drained.forEach(productRepository::addToTotalStock));
+                meterRegistry.counter("products.total-stock.write-behind.updates").increment(drained.size());
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gravar o estoque total de {} produtos; os ajustes voltam para o próximo flush", drained.size(), e);
+                drained.forEach(this::accumulate);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    private void accumulate(Long productId, long delta) {
+        deltas.computeIfAbsent(productId, id -> new LongAdder()).add(delta);
+    }
+}
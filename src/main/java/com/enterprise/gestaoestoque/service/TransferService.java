@@ -0,0 +1,176 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Transferência entre depósitos: baixa o lote de origem e credita o lote ATIVO equivalente do depósito de destino
+ * (mesmo produto, fornecedor e validade), criando-o se ainda não existir, numa única transação. Os dois lotes
+ * são bloqueados juntos, em ordem crescente de id, então transferências concorrentes em sentidos opostos
+ * esperam uma pela outra em vez de entrar em deadlock. O lote criado no destino leva a marca transferTarget,
+ * coberta por uma restrição única: transferências concorrentes não criam dois lotes equivalentes no mesmo depósito.
+ */
+@RequiredArgsConstructor
+@Service
+public class TransferService {
+
+    private final LotRepository lotRepository;
+    private final InventoryMovementRepository inventoryMovementRepository;
+    private final UserService userService;
+    private final WarehouseService warehouseService;
+    private final LotCodeGenerator lotCodeGenerator;
+    private final LotExpirationService lotExpirationService;
+    private final LotAllocationService lotAllocationService;
+    private final LotEscrowService lotEscrowService;
+    private final StockEngine stockEngine;
+
+    @Transactional
+    public TransferResponseDTO createTransfer(TransferRequestDTO transferDTO) {
+        // O engine mantém o saldo em memória e não conhece o depósito dos lotes
+        if (stockEngine.isEnabled()) {
+            throw new BusinessException("Transferências indisponíveis com o engine de estoque em memória ligado");
+        }
+        var quantity = transferDTO.quantity() == null ? 0 : transferDTO.quantity();
+        if (quantity <= 0) {
+            throw new BusinessException("Quantidade inválida");
+        }
+        var destination = warehouseService.findActiveWarehouse(transferDTO.destinationWarehouseId());
+        if (destination == null) {
+            throw new BusinessException("Informe o depósito de destino");
+        }
+        var sourceId = transferDTO.sourceLotId();
+        var targetId = findTargetId(sourceId, destination.getId());
+        // Origem e destino são lidos já bloqueados: uma leitura anterior deixaria no contexto de persistência um
+        // saldo que o SELECT FOR UPDATE não atualiza
+        var locked = lotRepository.findAllByIdForUpdate(targetId == null ? List.of(sourceId) : List.of(sourceId, targetId));
+        var source = locked.stream().filter(lot -> lot.getId().equals(sourceId)).findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("Lote não encontrado: " + sourceId));
+        var target = locked.stream().filter(lot -> lot.getId().equals(targetId)).findFirst().orElse(null);
+        if (source.getWarehouse() != null && Objects.equals(source.getWarehouse().getId(), destination.getId())) {
+            throw new BusinessException("O lote já está no depósito de destino");
+        }
+
+        var today = LocalDate.now();
+        if (source.getStatus() != LotStatus.ATIVO || source.getExpirationDate().isBefore(today)) {
+            throw new BusinessException("Só é possível transferir saldo de lotes ATIVO dentro da validade");
+        }
+        if (source.getCurrentQtd() - source.getReservedQtd() < quantity) {
+            throw new BusinessException("Quantidade maior que a disponível no lote.");
+        }
+
+        // O destino foi escolhido antes do bloqueio. Com a origem bloqueada, nenhuma outra transferência dela cria lote
+        // no destino, então a busca é refeita; um lote criado nesse meio tempo é mais novo e tem id maior que os já
+        // bloqueados, o que mantém a ordem crescente de bloqueio
+        var currentTargetId = findTargetId(sourceId, destination.getId());
+        if (currentTargetId != null && !currentTargetId.equals(targetId)) {
+            target = lotRepository.findAllByIdForUpdate(List.of(currentTargetId)).stream().findFirst().orElse(null);
+        }
+        // Status e validade conferidos com o destino bloqueado: lote vencido ou esgotado não volta a ATIVO
+        if (target != null && (target.getStatus() != LotStatus.ATIVO || target.getExpirationDate().isBefore(today))) {
+            target = null;
+        }
+
+        // Os lotes estão bloqueados e gerenciados: as alterações vão para o banco no flush do commit
+        source.setCurrentQtd(source.getCurrentQtd() - quantity);
+        if (source.getCurrentQtd() == 0) {
+            source.setStatus(LotStatus.ESGOTADO);
+        }
+        if (target == null) {
+            lotRepository.releaseTransferTarget(source.getProduct().getId(), destination.getId(),
+                    source.getSupplier().getId(), source.getExpirationDate());
+            target = lotRepository.save(newLot(source, destination, quantity));
+            lotExpirationService.register(target.getId(), target.getExpirationDate());
+        } else {
+            target.setCurrentQtd(target.getCurrentQtd() + quantity);
+        }
+
+        // Origem e destino são lotes ATIVO do mesmo produto: os deltas de estoque total (-q e +q) se anulam,
+        // então o produto não é atualizado nem recalculado
+        var productId = source.getProduct().getId();
+        lotAllocationService.adjust(productId, source.getId(), source.getExpirationDate(), -quantity);
+        lotAllocationService.adjust(productId, target.getId(), target.getExpirationDate(), quantity);
+
+        var user = userService.getLoggedUser();
+        var dateAndTime = LocalDateTime.now();
+        var movements = inventoryMovementRepository.saveAll(List.of(
+                movement(MovementType.TRANSFERENCIA_SAIDA, source, quantity, dateAndTime, transferDTO.reference(), user),
+                movement(MovementType.TRANSFERENCIA_ENTRADA, target, quantity, dateAndTime, transferDTO.reference(), user)));
+
+        return TransferResponseDTO.builder()
+                .quantity(quantity)
+                .measurementUnit(source.getMeasurementUnit())
+                .dateAndTime(dateAndTime)
+                .reference(transferDTO.reference())
+                .source(toLotDTO(source, movements.get(0)))
+                .destination(toLotDTO(target, movements.get(1)))
+                .build();
+    }
+
+    private Long findTargetId(Long sourceId, Long warehouseId) {
+        return lotRepository.findTransferTargetIds(sourceId, warehouseId).stream().findFirst().orElse(null);
+    }
+
+    private Lot newLot(Lot source, Warehouse destination, long quantity) {
+        return Lot.builder()
+                .initialQtd(quantity)
+                .currentQtd(quantity)
+                .measurementUnit(source.getMeasurementUnit())
+                // Mantém a data de entrada da origem: o lote transferido não é uma nova compra
+                .entryDate(source.getEntryDate())
+                .expirationDate(source.getExpirationDate())
+                .lotCode(lotCodeGenerator.next())
+                .status(LotStatus.ATIVO)
+                .transferTarget(true)
+                .product(source.getProduct())
+                .supplier(source.getSupplier())
+                .warehouse(destination)
+                .build();
+    }
+
+    private InventoryMovement movement(MovementType movementType, Lot lot, long quantity, LocalDateTime dateAndTime,
+                                       String reference, User user) {
+        return InventoryMovement.builder()
+                .movementType(movementType)
+                .quantity(quantity)
+                .measurementUnit(lot.getMeasurementUnit())
+                .dateAndTime(dateAndTime)
+                .reference(reference)
+                // Origem e destino estão bloqueados e já alterados: o saldo é o do lote depois da transferência,
+                // descontado o que as cotas de escrow já baixaram sem acertar no lote
+                .balanceAfter(lot.getCurrentQtd() - lotEscrowService.unsettledQtd(lot.getId()))
+                .lot(lot)
+                .warehouse(lot.getWarehouse())
+                .user(user)
+                .build();
+    }
+
+    private static TransferResponseDTO.LotDTO toLotDTO(Lot lot, InventoryMovement movement) {
+        return TransferResponseDTO.LotDTO.builder()
+                .id(lot.getId())
+                .lotCode(lot.getLotCode())
+                .warehouseId(lot.getWarehouse() == null ? null : lot.getWarehouse().getId())
+                .currentQtd(lot.getCurrentQtd())
+                .status(lot.getStatus())
+                .movementId(movement.getId())
+                .build();
+    }
+}
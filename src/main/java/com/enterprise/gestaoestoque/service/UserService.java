@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.UserMapper;
@@ -10,8 +11,8 @@ import com.enterprise.gestaoestoque.model.entity.User;
 import com.enterprise.gestaoestoque.repository.AuthorityRepository;
 import com.enterprise.gestaoestoque.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -31,11 +32,11 @@ public class UserService {
     private final UserMapper userMapper;
     private final AuthorityRepository authorityRepository;
     private  final PasswordEncoder passwordEncoder;
+    private final PageTotalService pageTotalService;
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
-    public Page<UserResponseDTO> getAllUsers(Pageable pageable) {
-        var users = userRepository.findAll(pageable);
-        return users.map(userMapper::toUserResponseDTO);
+    public Slice<UserResponseDTO> getAllUsers(Pageable pageable, PageTotal total) {
+        return pageTotalService.toPage(userRepository.findAllRows(pageable), total, "users", null, userRepository::count);
     }
 
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
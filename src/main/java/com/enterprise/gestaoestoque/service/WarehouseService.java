@@ -0,0 +1,71 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.configuration.routing.WarehouseContext;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseStockDTO;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@RequiredArgsConstructor
+@Service
+public class WarehouseService {
+
+    private final WarehouseRepository warehouseRepository;
+    private final WarehouseMapper warehouseMapper;
+    private final LotRepository lotRepository;
+
+    public Page<WarehouseResponseDTO> getAllWarehouses(Pageable pageable) {
+        var warehouses = warehouseRepository.findAll(pageable);
+        return warehouses.map(warehouseMapper::toWarehouseResponseDTO);
+    }
+
+    public WarehouseResponseDTO getWarehouseById(Long id) {
+        return warehouseRepository.findById(id).map(warehouseMapper::toWarehouseResponseDTO)
+                .orElseThrow(() -> new ResourceNotFoundException("Depósito não encontrado: " + id));
+    }
+
+    public Page<WarehouseStockDTO> getWarehouseStock(Long id, Pageable pageable) {
+        if (!warehouseRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Depósito não encontrado: " + id);
+        }
+        // A consulta agrupa por produto e já define a ordem; só a paginação do cliente é aplicada
+        var page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return WarehouseContext.read(id, () -> lotRepository.findWarehouseStock(id, page));
+    }
+
+    @Transactional
+    public WarehouseResponseDTO createWarehouse(WarehouseRequestDTO warehouseDTO) {
+        if (warehouseRepository.findByNameIgnoreCase(warehouseDTO.name()).isPresent()) {
+            throw new BusinessException("Depósito já cadastrado no sistema: " + warehouseDTO.name());
+        }
+        var warehouseEntity = warehouseMapper.toWarehouse(warehouseDTO);
+        warehouseEntity.setIsActive(true);
+
+        var warehouseSaved = warehouseRepository.save(warehouseEntity);
+        return warehouseMapper.toWarehouseResponseDTO(warehouseSaved);
+    }
+
+    // Depósito de destino de lotes novos (criação, recebimento ou transferência); null mantém o lote sem depósito
+    public Warehouse findActiveWarehouse(Long id) {
+        if (id == null) {
+            return null;
+        }
+        var warehouse = warehouseRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Depósito não encontrado: " + id));
+        if (!warehouse.getIsActive()) {
+            throw new BusinessException("Depósito inativo no sistema: " + warehouse.getName());
+        }
+        return warehouse;
+    }
+}
@@ -0,0 +1,148 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Roda de tempo hierárquica para prazos por id. O nível 0 tem {@code SLOTS} posições de um tick; cada nível
+ * acima cobre {@code SLOTS} vezes o anterior, e os níveis são criados conforme os prazos pedem. Agendar e
+ * cancelar custam O(1); ao avançar, só as posições do tick atual são visitadas e, na virada de um nível, as
+ * entradas da posição correspondente descem para os níveis de baixo.
+ * <p>
+ * Cancelar só remove o id do mapa de prazos: a entrada fica na posição e é descartada quando for visitada.
+ * Não é thread-safe por si: quem usa sincroniza o acesso.
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+
+    private record Timer(long id, long tick) {}
+
+    private final long tickMillis;
+    private final List<List<Timer>[]> levels = new ArrayList<>();
+    private final Map<Long, Long> deadlines = new HashMap<>();
+    private final List<Timer> overdue = new ArrayList<>();
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis deve ser positivo");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Agenda (ou reagenda) o id para {@code deadlineMillis}. O disparo acontece no primeiro avanço em que o
+     * relógio passar do prazo, arredondado para cima até o tick seguinte.
+     */
+    public void schedule(long id, long deadlineMillis) {
+        long tick = Math.ceilDiv(deadlineMillis, tickMillis);
+        deadlines.put(id, tick);
+        var timer = new Timer(id, tick);
+        if (tick <= currentTick) {
+            // A posição do tick atual já foi visitada: dispara no próximo avanço
+            overdue.add(timer);
+        } else {
+            place(timer);
+        }
+    }
+
+    public boolean cancel(long id) {
+        return deadlines.remove(id) != null;
+    }
+
+    public boolean contains(long id) {
+        return deadlines.containsKey(id);
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Avança o relógio até {@code nowMillis} e devolve os ids cujo prazo passou, na ordem dos prazos.
+     */
+    public List<Long> advance(long nowMillis) {
+        var expired = new ArrayList<Long>();
+        overdue.forEach(timer -> fire(timer, expired));
+        overdue.clear();
+
+        long target = nowMillis / tickMillis;
+        if (deadlines.isEmpty()) {
+            currentTick = Math.max(currentTick, target);
+            return expired;
+        }
+        while (currentTick < target) {
+            currentTick++;
+            // Da maior para a menor: o que desce de um nível pode cair na posição do tick atual no nível 0
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (level * BITS)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            var slot = slot(0, currentTick);
+            if (slot != null) {
+                var timers = new ArrayList<>(slot);
+                slot.clear();
+                timers.forEach(timer -> fire(timer, expired));
+            }
+            if (deadlines.isEmpty()) {
+                currentTick = target;
+            }
+        }
+        return expired;
+    }
+
+    private void fire(Timer timer, List<Long> expired) {
+        // Entradas canceladas ou reagendadas ficam para trás com um prazo que não é mais o do mapa
+        Long tick = deadlines.get(timer.id());
+        if (tick != null && tick == timer.tick()) {
+            deadlines.remove(timer.id());
+            expired.add(timer.id());
+        }
+    }
+
+    private void cascade(int level) {
+        var slot = slot(level, currentTick);
+        if (slot == null || slot.isEmpty()) {
+            return;
+        }
+        var timers = new ArrayList<>(slot);
+        slot.clear();
+        timers.forEach(this::place);
+    }
+
+    // Menor nível em que o prazo está a menos de uma volta do tick atual (no nível 0, a posição do próprio tick)
+    private void place(Timer timer) {
+        int level = 0;
+        while ((timer.tick() >>> (level * BITS)) - (currentTick >>> (level * BITS)) >= SLOTS) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            levels.add(newLevel());
+        }
+        var slots = levels.get(level);
+        int index = (int) ((timer.tick() >>> (level * BITS)) & MASK);
+        if (slots[index] == null) {
+            slots[index] = new ArrayList<>();
+        }
+        slots[index].add(timer);
+    }
+
+    private List<Timer> slot(int level, long tick) {
+        if (level >= levels.size()) {
+            return null;
+        }
+        return levels.get(level)[(int) ((tick >>> (level * BITS)) & MASK)];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Timer>[] newLevel() {
+        return new List[SLOTS];
+    }
+}
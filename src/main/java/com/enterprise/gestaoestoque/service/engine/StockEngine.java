@@ -0,0 +1,549 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Engine de estoque em memória, opcional ({@code stock.engine.enabled}). Com ele ligado, o saldo dos lotes
+ * e o estoque total dos produtos passam a ser mantidos aqui, em arrays de primitivos: a baixa é validada e
+ * aplicada em memória, registrada no WAL local e só depois gravada nas tabelas, em lote, pelo
+ * {@link #persistDirty()}. Na subida o estado vem do snapshot mais os segmentos do WAL (ou do banco, na
+ * primeira vez). Como o estado é local, o engine pressupõe um único nó gravando o estoque.
+ * <p>
+ * Baixas são desfeitas se a transação de quem chamou sofrer rollback; devoluções só são aplicadas depois do
+ * commit. Assim, numa queda entre o WAL e o commit, o engine pode mostrar menos estoque que o histórico de
+ * movimentações, nunca mais.
+ */
+@Slf4j
+@Service
+public class StockEngine {
+
+    private final LotRepository lotRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path directory;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock persistLock = new ReentrantLock();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private final BitSet dirtyLots = new BitSet();
+    private final BitSet dirtyProducts = new BitSet();
+    private StockTables tables;
+    private StockWriteAheadLog wal;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int PERSIST_CHUNK_SIZE = 500;
+
+    // currentQtd: saldo do lote logo depois da baixa
+    public record Withdrawal(Long productId, LotStatus status, boolean countedInTotalStock, long currentQtd) {}
+
+    public record Restoration(Long productId, LocalDate expirationDate, long currentQtd, boolean countedInTotalStock) {}
+
+    private record LotState(long currentQtd, LotStatus status) {}
+
+    public StockEngine(LotRepository lotRepository,
+                       ProductRepository productRepository,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${stock.engine.enabled:false}") boolean enabled,
+                       @Value("${stock.engine.data-dir:./data/stock-engine}") String directory,
+                       @Value("${stock.engine.fsync:true}") boolean fsync) {
+        this.lotRepository = lotRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.fsync = fsync;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do engine de estoque: " + directory, e);
+        }
+
+        tables = new StockTables(1024, 256);
+        boolean fromSnapshot = StockSnapshot.read(directory.resolve(SNAPSHOT_FILE), tables);
+        if (!fromSnapshot) {
+            loadFromDatabase();
+        }
+        wal = new StockWriteAheadLog(directory);
+        int replayed = wal.recover(tables);
+
+        // As tabelas podem estar atrás do que o engine já confirmou: tudo é regravado na primeira persistência
+        dirtyProducts.set(0, tables.productCount);
+        if (fromSnapshot || replayed > 0) {
+            dirtyLots.set(0, tables.lotHighWater);
+        }
+        checkpoint();
+        log.info("Engine de estoque iniciado com {} lotes e {} produtos ({}, {} registros do WAL reaplicados)",
+                tables.lotCount, tables.productCount, fromSnapshot ? "snapshot" : "banco", replayed);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (wal == null) {
+            return;
+        }
+        try {
+            persistDirty();
+            checkpoint();
+        } finally {
+            wal.close();
+        }
+    }
+
+    public Withdrawal withdraw(Long lotId, long quantity) {
+        if (quantity <= 0) {
+            throw new BusinessException("Quantidade inválida");
+        }
+        Withdrawal withdrawal;
+        LotStatus previous;
+        long position;
+        lock.lock();
+        try {
+            int slot = requireLot(lotId);
+            long available = tables.lotQuantities[slot];
+            if (available < quantity) {
+                throw new BusinessException("Quantidade maior que a disponível no lote.");
+            }
+            previous = tables.status(slot);
+            var status = available == quantity && previous != LotStatus.VENCIDO ? LotStatus.ESGOTADO : previous;
+            withdrawal = new Withdrawal(productId(slot), status, previous == LotStatus.ATIVO, available - quantity);
+            position = setLot(slot, available - quantity, status, withdrawal.countedInTotalStock() ? -quantity : 0);
+        } finally {
+            lock.unlock();
+        }
+        onRollback(() -> revertWithdrawal(lotId, quantity, previous, withdrawal.countedInTotalStock()));
+        durable(position);
+        return withdrawal;
+    }
+
+    /**
+     * Baixa FEFO: retira até {@code maxQuantity} de um lote ATIVO dentro da validade e devolve quanto retirou.
+     */
+    public long withdrawAvailable(Long lotId, long maxQuantity, LocalDate today) {
+        long taken;
+        long position;
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            if (slot == LongIntHashMap.MISSING || tables.status(slot) != LotStatus.ATIVO
+                    || tables.lotExpirations[slot] < today.toEpochDay()) {
+                return 0;
+            }
+            long available = tables.lotQuantities[slot];
+            taken = Math.min(maxQuantity, available);
+            if (taken <= 0) {
+                return 0;
+            }
+            var status = available == taken ? LotStatus.ESGOTADO : LotStatus.ATIVO;
+            position = setLot(slot, available - taken, status, -taken);
+        } finally {
+            lock.unlock();
+        }
+        onRollback(() -> revertWithdrawal(lotId, taken, LotStatus.ATIVO, true));
+        durable(position);
+        return taken;
+    }
+
+    // Devolução de uma movimentação excluída: aplicada só depois do commit, quando já não pode ser desfeita
+    public void restoreAfterCommit(Long lotId, long quantity, Consumer<Restoration> onRestored) {
+        afterCommit(() -> {
+            var restoration = restore(lotId, quantity, LocalDate.now());
+            if (restoration != null) {
+                onRestored.accept(restoration);
+            }
+        });
+    }
+
+    public void registerLot(Long lotId, Long productId, long quantity, LocalDate expirationDate, LotStatus status) {
+        long position;
+        lock.lock();
+        try {
+            int slot = tables.putLot(lotId, productId, quantity, (int) expirationDate.toEpochDay(), status);
+            position = setLot(slot, quantity, status, status == LotStatus.ATIVO ? quantity : 0);
+        } finally {
+            lock.unlock();
+        }
+        onRollback(() -> removeLot(lotId));
+        durable(position);
+    }
+
+    public void removeLotAfterCommit(Long lotId) {
+        afterCommit(() -> removeLot(lotId));
+    }
+
+    /**
+     * Vence os lotes ATIVO informados cuja validade já passou; devolve quantos venceram.
+     */
+    public int expireLots(Collection<Long> lotIds, LocalDate today) {
+        int expired = 0;
+        long position;
+        lock.lock();
+        try {
+            for (var lotId : lotIds) {
+                int slot = tables.lotSlot(lotId);
+                if (slot != LongIntHashMap.MISSING && expire(slot, today)) {
+                    expired++;
+                }
+            }
+            position = wal.flush();
+        } finally {
+            lock.unlock();
+        }
+        durable(position);
+        return expired;
+    }
+
+    public int expireDueLots(LocalDate today) {
+        int expired = 0;
+        long position;
+        lock.lock();
+        try {
+            for (int slot = 0; slot < tables.lotHighWater; slot++) {
+                if (tables.lotIds[slot] != 0 && expire(slot, today)) {
+                    expired++;
+                }
+            }
+            position = wal.flush();
+        } finally {
+            lock.unlock();
+        }
+        durable(position);
+        return expired;
+    }
+
+    public OptionalLong totalStock(Long productId) {
+        lock.lock();
+        try {
+            int slot = tables.productSlot(productId);
+            return slot == LongIntHashMap.MISSING ? OptionalLong.empty() : OptionalLong.of(tables.productTotals[slot]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public OptionalLong currentQtd(Long lotId) {
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            return slot == LongIntHashMap.MISSING ? OptionalLong.empty() : OptionalLong.of(tables.lotQuantities[slot]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null quando o lote não está no engine
+    public LotStatus lotStatus(Long lotId) {
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            return slot == LongIntHashMap.MISSING ? null : tables.status(slot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grava nas tabelas o valor atual dos lotes e produtos alterados desde a última rodada: uma linha por
+     * lote ou produto, por mais baixas que ele tenha recebido no intervalo.
+     */
+    @Scheduled(fixedDelayString = "${stock.engine.persist-interval-ms:200}")
+    public void persistDirty() {
+        if (!enabled || tables == null) {
+            return;
+        }
+        persistLock.lock();
+        try {
+            var lots = new HashMap<Long, LotState>();
+            var products = new HashMap<Long, Long>();
+            lock.lock();
+            try {
+                dirtyLots.stream().filter(slot -> tables.lotIds[slot] != 0).forEach(slot ->
+                        lots.put(tables.lotIds[slot], new LotState(tables.lotQuantities[slot], tables.status(slot))));
+                dirtyProducts.stream().forEach(slot -> products.put(tables.productIds[slot], tables.productTotals[slot]));
+                dirtyLots.clear();
+                dirtyProducts.clear();
+            } finally {
+                lock.unlock();
+            }
+            if (lots.isEmpty() && products.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    writeLots(lots);
+                    writeProducts(products);
+                });
+                meterRegistry.counter("stock.engine.persisted.rows", "table", "lots").increment(lots.size());
+                meterRegistry.counter("stock.engine.persisted.rows", "table", "products").increment(products.size());
+            } catch (RuntimeException e) {
+                // Volta a marcar o que não foi gravado; a próxima rodada tenta de novo com os valores mais recentes
+                log.warn("Falha ao persistir o engine de estoque ({} lotes, {} produtos)", lots.size(), products.size(), e);
+                markDirty(lots.keySet(), products.keySet());
+            }
+        } finally {
+            persistLock.unlock();
+        }
+    }
+
+    /**
+     * Grava um snapshot e descarta os segmentos do WAL que ele cobre. O estado é copiado com o lock e
+     * gravado fora dele; o WAL passa para um segmento novo no mesmo instante da cópia.
+     */
+    @Scheduled(fixedDelayString = "${stock.engine.snapshot-interval-ms:60000}")
+    public void checkpoint() {
+        if (!enabled || tables == null) {
+            return;
+        }
+        checkpointLock.lock();
+        try {
+            StockTables copy;
+            List<Path> obsolete;
+            lock.lock();
+            try {
+                copy = tables.copy();
+                obsolete = wal.rotate();
+            } finally {
+                lock.unlock();
+            }
+            StockSnapshot.write(directory.resolve(SNAPSHOT_FILE), copy);
+            for (var segment : obsolete) {
+                Files.deleteIfExists(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao descartar segmentos do WAL", e);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void loadFromDatabase() {
+        productRepository.findAllIds().forEach(productId -> tables.setProductTotal(productId, 0));
+        for (var lot : lotRepository.findStockState()) {
+            int slot = tables.putLot(lot.id(), lot.productId(), lot.currentQtd(),
+                    (int) lot.expirationDate().toEpochDay(), lot.status());
+            if (lot.status() == LotStatus.ATIVO) {
+                tables.productTotals[tables.lotProductSlots[slot]] += lot.currentQtd();
+            }
+        }
+    }
+
+    private Restoration restore(Long lotId, long quantity, LocalDate today) {
+        Restoration restoration;
+        long position;
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            if (slot == LongIntHashMap.MISSING) {
+                return null;
+            }
+            var expirationDate = LocalDate.ofEpochDay(tables.lotExpirations[slot]);
+            var status = tables.status(slot) == LotStatus.ESGOTADO && expirationDate.isAfter(today)
+                    ? LotStatus.ATIVO : tables.status(slot);
+            boolean counted = status == LotStatus.ATIVO;
+            long currentQtd = tables.lotQuantities[slot] + quantity;
+            position = setLot(slot, currentQtd, status, counted ? quantity : 0);
+            restoration = new Restoration(productId(slot), expirationDate, currentQtd, counted);
+        } finally {
+            lock.unlock();
+        }
+        durable(position);
+        return restoration;
+    }
+
+    private void revertWithdrawal(Long lotId, long quantity, LotStatus previous, boolean counted) {
+        long position;
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            if (slot == LongIntHashMap.MISSING) {
+                return;
+            }
+            var status = tables.status(slot) == LotStatus.ESGOTADO ? previous : tables.status(slot);
+            // Se o lote venceu no meio tempo, o vencimento já tirou o saldo dele do total do produto
+            long delta = counted && status == LotStatus.ATIVO ? quantity : 0;
+            position = setLot(slot, tables.lotQuantities[slot] + quantity, status, delta);
+        } finally {
+            lock.unlock();
+        }
+        durable(position);
+    }
+
+    private void removeLot(Long lotId) {
+        long position;
+        lock.lock();
+        try {
+            int slot = tables.lotSlot(lotId);
+            if (slot == LongIntHashMap.MISSING) {
+                return;
+            }
+            if (tables.status(slot) == LotStatus.ATIVO) {
+                addToProduct(tables.lotProductSlots[slot], -tables.lotQuantities[slot]);
+            }
+            dirtyLots.clear(slot);
+            tables.removeLot(slot);
+            wal.lotRemoved(lotId);
+            position = wal.flush();
+        } finally {
+            lock.unlock();
+        }
+        durable(position);
+    }
+
+    // Chamado com o lock; o registro vai para o buffer do WAL e é enviado no flush de quem chamou
+    private boolean expire(int slot, LocalDate today) {
+        if (tables.status(slot) != LotStatus.ATIVO || tables.lotExpirations[slot] >= today.toEpochDay()) {
+            return false;
+        }
+        addToProduct(tables.lotProductSlots[slot], -tables.lotQuantities[slot]);
+        tables.lotStatuses[slot] = (byte) LotStatus.VENCIDO.ordinal();
+        logLot(slot);
+        return true;
+    }
+
+    // Chamado com o lock: aplica o novo estado do lote e o ajuste do produto, registra no WAL e marca para persistir
+    private long setLot(int slot, long currentQtd, LotStatus status, long totalDelta) {
+        tables.lotQuantities[slot] = currentQtd;
+        tables.lotStatuses[slot] = (byte) status.ordinal();
+        if (totalDelta != 0) {
+            addToProduct(tables.lotProductSlots[slot], totalDelta);
+        }
+        logLot(slot);
+        return wal.flush();
+    }
+
+    private void addToProduct(int productSlot, long delta) {
+        tables.productTotals[productSlot] += delta;
+        wal.product(tables.productIds[productSlot], tables.productTotals[productSlot]);
+        dirtyProducts.set(productSlot);
+    }
+
+    private void logLot(int slot) {
+        wal.lot(tables.lotIds[slot], productId(slot), tables.lotQuantities[slot], tables.lotExpirations[slot], tables.status(slot));
+        dirtyLots.set(slot);
+    }
+
+    private int requireLot(Long lotId) {
+        int slot = tables.lotSlot(lotId);
+        if (slot == LongIntHashMap.MISSING) {
+            throw new ResourceNotFoundException("Lote não encontrado: " + lotId);
+        }
+        return slot;
+    }
+
+    private Long productId(int lotSlot) {
+        return tables.productIds[tables.lotProductSlots[lotSlot]];
+    }
+
+    private void durable(long position) {
+        if (fsync) {
+            wal.sync(position);
+        }
+    }
+
+    private void markDirty(Collection<Long> lotIds, Collection<Long> productIds) {
+        lock.lock();
+        try {
+            lotIds.forEach(lotId -> {
+                int slot = tables.lotSlot(lotId);
+                if (slot != LongIntHashMap.MISSING) {
+                    dirtyLots.set(slot);
+                }
+            });
+            productIds.forEach(productId -> dirtyProducts.set(tables.productSlot(productId)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeLots(Map<Long, LotState> lots) {
+        var ids = new ArrayList<>(lots.keySet());
+        for (int from = 0; from < ids.size(); from += PERSIST_CHUNK_SIZE) {
+            lotRepository.findAllById(ids.subList(from, Math.min(from + PERSIST_CHUNK_SIZE, ids.size()))).forEach(lot -> {
+                var state = lots.get(lot.getId());
+                lot.setCurrentQtd(state.currentQtd());
+                lot.setStatus(state.status());
+            });
+        }
+    }
+
+    private void writeProducts(Map<Long, Long> products) {
+        var ids = new ArrayList<>(products.keySet());
+        for (int from = 0; from < ids.size(); from += PERSIST_CHUNK_SIZE) {
+            productRepository.findAllById(ids.subList(from, Math.min(from + PERSIST_CHUNK_SIZE, ids.size())))
+                    .forEach(product -> product.setTotalStock(products.get(product.getId())));
+        }
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot do engine num arquivo mapeado em memória. Layout: cabeçalho (magic, quantidade de produtos e
+ * de lotes), produtos (id, total), lotes (id, produto, saldo, validade em epoch day, status) e CRC32 no fim.
+ * A gravação vai para um arquivo temporário que só substitui o snapshot anterior depois de forçado em disco.
+ */
+final class StockSnapshot {
+
+    private static final int MAGIC = 0x53544B31;
+    private static final int HEADER_SIZE = 12;
+    private static final int PRODUCT_SIZE = 16;
+    private static final int LOT_SIZE = 29;
+
+    private StockSnapshot() {
+    }
+
+    static void write(Path file, StockTables tables) {
+        int lots = tables.lotCount;
+        long size = HEADER_SIZE + (long) tables.productCount * PRODUCT_SIZE + (long) lots * LOT_SIZE + 4;
+        var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.putInt(MAGIC).putInt(tables.productCount).putInt(lots);
+            for (int slot = 0; slot < tables.productCount; slot++) {
+                map.putLong(tables.productIds[slot]).putLong(tables.productTotals[slot]);
+            }
+            for (int slot = 0; slot < tables.lotHighWater; slot++) {
+                if (tables.lotIds[slot] != 0) {
+                    map.putLong(tables.lotIds[slot])
+                            .putLong(tables.productIds[tables.lotProductSlots[slot]])
+                            .putLong(tables.lotQuantities[slot])
+                            .putInt(tables.lotExpirations[slot])
+                            .put(tables.lotStatuses[slot]);
+                }
+            }
+            map.putInt(checksum(map, size - 4));
+            map.force();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o snapshot do estoque", e);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao publicar o snapshot do estoque", e);
+        }
+    }
+
+    // Retorna false quando não há snapshot; um snapshot corrompido é erro, para não subir com estoque errado
+    static boolean read(Path file, StockTables tables) {
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE + 4 || map.getInt(0) != MAGIC || map.getInt((int) size - 4) != checksum(map, size - 4)) {
+                throw new IllegalStateException("Snapshot do estoque inválido: " + file);
+            }
+            map.position(4);
+            int products = map.getInt();
+            int lots = map.getInt();
+            for (int i = 0; i < products; i++) {
+                tables.setProductTotal(map.getLong(), map.getLong());
+            }
+            for (int i = 0; i < lots; i++) {
+                tables.putLot(map.getLong(), map.getLong(), map.getLong(), map.getInt(), StockTables.STATUSES[map.get()]);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o snapshot do estoque", e);
+        }
+    }
+
+    private static int checksum(MappedByteBuffer map, long length) {
+        var crc = new CRC32();
+        crc.update(map.duplicate().position(0).limit((int) length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,133 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+
+import java.util.Arrays;
+
+/**
+ * Estado do engine em arrays paralelos: uma posição por lote e uma por produto. Cada lote guarda a
+ * posição do seu produto, então uma baixa atualiza o saldo do lote e o total do produto sem busca extra.
+ * Não é thread-safe: só é acessado com o lock do {@link StockEngine}.
+ */
+class StockTables {
+
+    static final LotStatus[] STATUSES = LotStatus.values();
+
+    long[] lotIds;
+    int[] lotProductSlots;
+    long[] lotQuantities;
+    int[] lotExpirations;
+    byte[] lotStatuses;
+    int lotHighWater;
+    int lotCount;
+
+    long[] productIds;
+    long[] productTotals;
+    int productCount;
+
+    private int[] freeLotSlots = new int[16];
+    private int freeLotCount;
+    private final LongIntHashMap lotSlots;
+    private final LongIntHashMap productSlots;
+
+    StockTables(int expectedLots, int expectedProducts) {
+        int lotCapacity = Math.max(16, expectedLots);
+        int productCapacity = Math.max(16, expectedProducts);
+        lotIds = new long[lotCapacity];
+        lotProductSlots = new int[lotCapacity];
+        lotQuantities = new long[lotCapacity];
+        lotExpirations = new int[lotCapacity];
+        lotStatuses = new byte[lotCapacity];
+        productIds = new long[productCapacity];
+        productTotals = new long[productCapacity];
+        lotSlots = new LongIntHashMap(lotCapacity);
+        productSlots = new LongIntHashMap(productCapacity);
+    }
+
+    int lotSlot(long lotId) {
+        return lotSlots.get(lotId);
+    }
+
+    int productSlot(long productId) {
+        return productSlots.get(productId);
+    }
+
+    LotStatus status(int lotSlot) {
+        return STATUSES[lotStatuses[lotSlot]];
+    }
+
+    int productSlotOrCreate(long productId) {
+        int slot = productSlots.get(productId);
+        if (slot != LongIntHashMap.MISSING) {
+            return slot;
+        }
+        if (productCount == productIds.length) {
+            productIds = Arrays.copyOf(productIds, productCount * 2);
+            productTotals = Arrays.copyOf(productTotals, productCount * 2);
+        }
+        slot = productCount++;
+        productIds[slot] = productId;
+        productTotals[slot] = 0;
+        productSlots.put(productId, slot);
+        return slot;
+    }
+
+    // Grava o lote (novo ou existente) com valores absolutos; não mexe no total do produto
+    int putLot(long lotId, long productId, long quantity, int expirationEpochDay, LotStatus status) {
+        int slot = lotSlots.get(lotId);
+        if (slot == LongIntHashMap.MISSING) {
+            slot = freeLotCount > 0 ? freeLotSlots[--freeLotCount] : nextLotSlot();
+            lotSlots.put(lotId, slot);
+            lotCount++;
+        }
+        lotIds[slot] = lotId;
+        lotProductSlots[slot] = productSlotOrCreate(productId);
+        lotQuantities[slot] = quantity;
+        lotExpirations[slot] = expirationEpochDay;
+        lotStatuses[slot] = (byte) status.ordinal();
+        return slot;
+    }
+
+    void removeLot(int slot) {
+        lotSlots.remove(lotIds[slot]);
+        lotCount--;
+        lotIds[slot] = 0;
+        lotQuantities[slot] = 0;
+        if (freeLotCount == freeLotSlots.length) {
+            freeLotSlots = Arrays.copyOf(freeLotSlots, freeLotCount * 2);
+        }
+        freeLotSlots[freeLotCount++] = slot;
+    }
+
+    void setProductTotal(long productId, long total) {
+        productTotals[productSlotOrCreate(productId)] = total;
+    }
+
+    // Cópia só dos arrays, para o snapshot: feita com o lock (cópia de memória) e gravada em disco fora dele
+    StockTables copy() {
+        var copy = new StockTables(0, 0);
+        copy.lotIds = Arrays.copyOf(lotIds, lotHighWater);
+        copy.lotProductSlots = Arrays.copyOf(lotProductSlots, lotHighWater);
+        copy.lotQuantities = Arrays.copyOf(lotQuantities, lotHighWater);
+        copy.lotExpirations = Arrays.copyOf(lotExpirations, lotHighWater);
+        copy.lotStatuses = Arrays.copyOf(lotStatuses, lotHighWater);
+        copy.lotHighWater = lotHighWater;
+        copy.lotCount = lotCount;
+        copy.productIds = Arrays.copyOf(productIds, productCount);
+        copy.productTotals = Arrays.copyOf(productTotals, productCount);
+        copy.productCount = productCount;
+        return copy;
+    }
+
+    private int nextLotSlot() {
+        if (lotHighWater == lotIds.length) {
+            int capacity = lotIds.length * 2;
+            lotIds = Arrays.copyOf(lotIds, capacity);
+            lotProductSlots = Arrays.copyOf(lotProductSlots, capacity);
+            lotQuantities = Arrays.copyOf(lotQuantities, capacity);
+            lotExpirations = Arrays.copyOf(lotExpirations, capacity);
+            lotStatuses = Arrays.copyOf(lotStatuses, capacity);
+        }
+        return lotHighWater++;
+    }
+}
@@ -0,0 +1,232 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log do engine em segmentos wal-N.log, gravados com FileChannel. Cada registro traz o valor
+ * absoluto de um lote ou produto depois da alteração, então reaplicar um registro repetido não muda nada
+ * e a recuperação é "snapshot + todos os segmentos, em ordem".
+ * <p>
+ * O append acontece com o lock do engine (a ordem no arquivo é a ordem em que as baixas foram aplicadas);
+ * o fsync fica fora dele e é compartilhado: quem chega enquanto outro força o disco aproveita a mesma chamada.
+ */
+@Slf4j
+class StockWriteAheadLog implements Closeable {
+
+    static final int RECORD_SIZE = 34;
+    private static final byte LOT = 1;
+    private static final byte LOT_REMOVED = 2;
+    private static final byte PRODUCT = 3;
+    private static final Pattern SEGMENT = Pattern.compile("wal-(\\d+)\\.log");
+
+    record Entry(byte type, long id, long productId, long quantity, int expirationEpochDay, LotStatus status) {
+
+        void applyTo(StockTables tables) {
+            switch (type) {
+                case LOT -> tables.putLot(id, productId, quantity, expirationEpochDay, status);
+                case LOT_REMOVED -> {
+                    int slot = tables.lotSlot(id);
+                    if (slot != LongIntHashMap.MISSING) {
+                        tables.removeLot(slot);
+                    }
+                }
+                case PRODUCT -> tables.setProductTotal(id, quantity);
+                default -> throw new IllegalStateException("Tipo de registro desconhecido no WAL: " + type);
+            }
+        }
+    }
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 128);
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private long segment;
+    // Posições lógicas: só crescem, inclusive entre segmentos
+    private volatile long written;
+    private volatile long forced;
+
+    StockWriteAheadLog(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reaplica todos os segmentos existentes e abre um novo para as próximas gravações.
+     * Um registro incompleto ou com CRC inválido no fim de um segmento (queda no meio da escrita) é descartado.
+     */
+    int recover(StockTables tables) {
+        int replayed = 0;
+        for (var path : segments()) {
+            replayed += replay(path, entry -> entry.applyTo(tables));
+            segment = Math.max(segment, segmentNumber(path));
+        }
+        openSegment(segment + 1);
+        return replayed;
+    }
+
+    void lot(long lotId, long productId, long quantity, int expirationEpochDay, LotStatus status) {
+        put(LOT, lotId, productId, quantity, expirationEpochDay, (byte) status.ordinal());
+    }
+
+    void lotRemoved(long lotId) {
+        put(LOT_REMOVED, lotId, 0, 0, 0, (byte) 0);
+    }
+
+    void product(long productId, long total) {
+        put(PRODUCT, productId, 0, total, 0, (byte) 0);
+    }
+
+    /**
+     * Envia ao arquivo o que está no buffer e devolve a posição lógica alcançada. Chamado com o lock do engine.
+     */
+    long flush() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o WAL do estoque", e);
+        } finally {
+            buffer.clear();
+        }
+        return written;
+    }
+
+    // Garante em disco tudo até a posição informada; chamado sem o lock do engine
+    void sync(long position) {
+        if (forced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (forced >= position) {
+                return;
+            }
+            long target = written;
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao sincronizar o WAL do estoque", e);
+            }
+            forced = Math.max(forced, target);
+        }
+    }
+
+    /**
+     * Fecha o segmento atual e abre o próximo. Chamado com o lock do engine, junto com a cópia do estado
+     * para o snapshot; devolve os segmentos que podem ser apagados depois que o snapshot estiver em disco.
+     */
+    List<Path> rotate() {
+        var previous = segments();
+        synchronized (syncLock) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao fechar o segmento do WAL", e);
+            }
+            forced = written;
+            openSegment(segment + 1);
+        }
+        return previous;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            if (channel != null && channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        }
+    }
+
+    private void put(byte type, long id, long productId, long quantity, int expirationEpochDay, byte status) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            flush();
+        }
+        int start = buffer.position();
+        buffer.put(type).putLong(id).putLong(productId).putLong(quantity).putInt(expirationEpochDay).put(status);
+        crc.reset();
+        crc.update(buffer.duplicate().position(start).limit(start + RECORD_SIZE - 4));
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private int replay(Path path, Consumer<Entry> consumer) {
+        int count = 0;
+        try (var file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var record = ByteBuffer.allocate(RECORD_SIZE);
+            long valid = 0;
+            while (readFully(file, record.clear())) {
+                record.flip();
+                crc.reset();
+                crc.update(record.array(), 0, RECORD_SIZE - 4);
+                if (record.getInt(RECORD_SIZE - 4) != (int) crc.getValue()) {
+                    break;
+                }
+                consumer.accept(new Entry(record.get(), record.getLong(), record.getLong(), record.getLong(),
+                        record.getInt(), StockTables.STATUSES[record.get()]));
+                valid += RECORD_SIZE;
+                count++;
+            }
+            if (valid < file.size()) {
+                log.warn("WAL {}: descartando {} bytes incompletos no fim do segmento", path.getFileName(), file.size() - valid);
+                file.truncate(valid);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o WAL do estoque: " + path, e);
+        }
+        return count;
+    }
+
+    private static boolean readFully(FileChannel file, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void openSegment(long number) {
+        try {
+            segment = number;
+            channel = FileChannel.open(directory.resolve("wal-" + number + ".log"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o segmento do WAL", e);
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            var segments = new ArrayList<>(files.filter(path -> SEGMENT.matcher(path.getFileName().toString()).matches()).toList());
+            segments.sort(Comparator.comparingLong(StockWriteAheadLog::segmentNumber));
+            return segments;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao listar os segmentos do WAL", e);
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        var matcher = SEGMENT.matcher(path.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+}
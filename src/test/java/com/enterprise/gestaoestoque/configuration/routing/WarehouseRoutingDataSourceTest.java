@@ -0,0 +1,85 @@
+package com.enterprise.gestaoestoque.configuration.routing;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Três bancos H2 em memória fazem o papel do datasource principal e de duas partições; cada um guarda um
+ * marcador diferente, então a leitura mostra de qual banco veio a conexão.
+ */
+public class WarehouseRoutingDataSourceTest {
+
+    private static DataSource primary;
+    private static DataSource north;
+    private static DataSource south;
+
+    @BeforeAll
+    static void setup() throws SQLException {
+        primary = standIn("principal");
+        north = standIn("norte");
+        south = standIn("sul");
+    }
+
+    @Test
+    void getConnection_WhenWarehouseIsAssigned_ShouldUseItsPartition() throws SQLException {
+        var routing = new WarehouseRoutingDataSource(primary, Map.of("norte", north, "sul", south), Map.of(1L, "norte", 2L, "sul"));
+
+        assertThat(WarehouseContext.read(1L, () -> marker(routing))).isEqualTo("norte");
+        assertThat(WarehouseContext.read(2L, () -> marker(routing))).isEqualTo("sul");
+    }
+
+    @Test
+    void getConnection_WhenWarehouseIsMissingOrUnassigned_ShouldUsePrimary() throws SQLException {
+        var routing = new WarehouseRoutingDataSource(primary, Map.of("norte", north), Map.of(1L, "norte"));
+
+        assertThat(marker(routing)).isEqualTo("principal");
+        assertThat(WarehouseContext.read(9L, () -> marker(routing))).isEqualTo("principal");
+    }
+
+    @Test
+    void read_WhenNested_ShouldRestoreTheOuterWarehouse() {
+        var routing = new WarehouseRoutingDataSource(primary, Map.of("norte", north, "sul", south), Map.of(1L, "norte", 2L, "sul"));
+
+        var markers = WarehouseContext.read(1L, () -> {
+            var inner = WarehouseContext.read(2L, () -> marker(routing));
+            return inner + "," + marker(routing);
+        });
+
+        assertThat(markers).isEqualTo("sul,norte");
+        assertThat(WarehouseContext.currentWarehouseId()).isNull();
+    }
+
+    @Test
+    void constructor_WhenAssignmentPointsToUnknownPartition_ShouldFail() {
+        assertThrows(IllegalStateException.class,
+                () -> new WarehouseRoutingDataSource(primary, Map.of("norte", north), Map.of(1L, "leste")));
+    }
+
+    private static DataSource standIn(String name) throws SQLException {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE partition_marker (name VARCHAR(20))");
+            statement.execute("INSERT INTO partition_marker VALUES ('" + name + "')");
+        }
+        return dataSource;
+    }
+
+    private static String marker(DataSource dataSource) {
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement();
+             var result = statement.executeQuery("SELECT name FROM partition_marker")) {
+            result.next();
+            return result.getString(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
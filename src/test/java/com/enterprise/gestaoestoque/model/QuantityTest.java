@@ -0,0 +1,61 @@
+package com.enterprise.gestaoestoque.model;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class QuantityTest {
+
+    @Test
+    void toStockUnits_WhenUnitsShareADimension_ShouldConvertExactly() {
+        assertThat(Quantity.toStockUnits(new BigDecimal("0.5"), MeasurementUnit.KG, MeasurementUnit.G)).isEqualTo(500L);
+        assertThat(Quantity.toStockUnits(new BigDecimal("3000"), MeasurementUnit.G, MeasurementUnit.KG)).isEqualTo(3L);
+        assertThat(Quantity.toStockUnits(new BigDecimal("0.001"), MeasurementUnit.L, MeasurementUnit.ML)).isEqualTo(1L);
+    }
+
+    @Test
+    void toStockUnits_WhenResultIsFractional_ShouldRejectInsteadOfTruncating() {
+        assertThrows(BusinessException.class, () -> Quantity.toStockUnits(new BigDecimal("0.5"), MeasurementUnit.KG, MeasurementUnit.KG));
+        assertThrows(BusinessException.class, () -> Quantity.toStockUnits(new BigDecimal("2500"), MeasurementUnit.ML, MeasurementUnit.L));
+    }
+
+    @Test
+    void toStockUnits_WhenUnitIsMissing_ShouldUseTheStockUnit() {
+        assertThat(Quantity.toStockUnits(new BigDecimal("12.000"), null, MeasurementUnit.CAIXA)).isEqualTo(12L);
+    }
+
+    @Test
+    void to_WhenDimensionsDiffer_ShouldThrowException() {
+        assertThrows(BusinessException.class, () -> Quantity.of(BigDecimal.ONE, MeasurementUnit.KG).to(MeasurementUnit.L));
+        assertThrows(BusinessException.class, () -> Quantity.of(BigDecimal.ONE, MeasurementUnit.UN).to(MeasurementUnit.CAIXA));
+    }
+
+    @Test
+    void of_WhenValueHasMoreThanThreeDecimalsOrIsNotPositive_ShouldThrowException() {
+        assertThrows(BusinessException.class, () -> Quantity.of(new BigDecimal("0.0005"), MeasurementUnit.KG));
+        assertThrows(BusinessException.class, () -> Quantity.of(BigDecimal.ZERO, MeasurementUnit.KG));
+        assertThrows(BusinessException.class, () -> Quantity.of(null, MeasurementUnit.KG));
+        assertThat(Quantity.of(new BigDecimal("0.1"), MeasurementUnit.KG).milli()).isEqualTo(100L);
+    }
+
+    @Test
+    void of_WhenValueHasDigitsADoubleWouldDrop_ShouldRejectInsteadOfRounding() {
+        // Como double este valor seria 0.1 e passaria; como BigDecimal a quarta casa aparece e é recusada
+        assertThrows(BusinessException.class, () -> Quantity.of(new BigDecimal("0.1000000000000000055"), MeasurementUnit.KG));
+        assertThat(Quantity.of(new BigDecimal("2.500000"), MeasurementUnit.KG).milli()).isEqualTo(2_500L);
+    }
+
+    @Test
+    void of_WhenValueDoesNotFitInMilli_ShouldRejectAsOutOfRange() {
+        var exception = assertThrows(BusinessException.class, () -> Quantity.of(new BigDecimal("1e20"), MeasurementUnit.KG));
+        assertThat(exception.getMessage()).isEqualTo("Quantidade acima do máximo permitido");
+
+        var decimals = assertThrows(BusinessException.class, () -> Quantity.of(new BigDecimal("1.0005"), MeasurementUnit.KG));
+        assertThat(decimals.getMessage()).isEqualTo("A quantidade aceita no máximo 3 casas decimais");
+    }
+}
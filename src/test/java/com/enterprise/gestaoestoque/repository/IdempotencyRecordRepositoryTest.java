@@ -0,0 +1,120 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.service.IdempotencyService;
+import com.enterprise.gestaoestoque.service.SchedulerLeaseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class IdempotencyRecordRepositoryTest {
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    record Request(Long lotId, int quantity) {}
+
+    record Response(Long id) {}
+
+    @BeforeEach
+    void setup() {
+        idempotencyRecordRepository.deleteAllInBatch();
+        schedulerLeaseRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void execute_WhenTwoNodesReceiveTheSameKey_ShouldRunActionOnce() throws Exception {
+        var nodeA = node("node-a");
+        var nodeB = node("node-b");
+        var calls = new AtomicInteger();
+        var insideAction = new CountDownLatch(1);
+        var request = new Request(1L, 5);
+
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            var first = executor.submit(() -> nodeA.execute("lots", "abc", request, Response.class, () -> {
+                insideAction.countDown();
+                sleep(200);
+                return new Response((long) calls.incrementAndGet());
+            }));
+            assertThat(insideAction.await(5, TimeUnit.SECONDS)).isTrue();
+            var second = executor.submit(() -> nodeB.execute("lots", "abc", request, Response.class,
+                    () -> new Response((long) calls.incrementAndGet())));
+
+            assertThat(first.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+            var replay = second.get(5, TimeUnit.SECONDS);
+            assertThat(replay.replayed()).isTrue();
+            assertThat(replay.body()).isEqualTo(new Response(1L));
+        }
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void execute_WhenActionFails_ShouldRollBackKeySoRetryRunsAgain() {
+        var node = node("node-a");
+        var request = new Request(1L, 5);
+
+        try {
+            node.execute("lots", "abc", request, Response.class, () -> {
+                throw new IllegalStateException("falha");
+            });
+        } catch (IllegalStateException expected) {
+            // a chave não pode ficar gravada sem resposta
+        }
+
+        assertThat(idempotencyRecordRepository.count()).isZero();
+        var retry = node.execute("lots", "abc", request, Response.class, () -> new Response(2L));
+        assertThat(retry.replayed()).isFalse();
+        assertThat(idempotencyRecordRepository.findById("lots:abc").orElseThrow().getResponseBody()).isEqualTo("{\"id\":2}");
+    }
+
+    @Test
+    void deleteExpiredRecords_WhenRecordsExpired_ShouldDeleteThem() {
+        var node = new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), transactionManager,
+                new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-a"), meterRegistry,
+                Duration.ofMillis(1), 100);
+        node.execute("lots", "abc", new Request(1L, 5), Response.class, () -> new Response(1L));
+        sleep(10);
+
+        node.deleteExpiredRecords();
+
+        assertThat(idempotencyRecordRepository.count()).isZero();
+    }
+
+    private IdempotencyService node(String nodeId) {
+        return new IdempotencyService(idempotencyRecordRepository, new ObjectMapper(), transactionManager,
+                new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, nodeId), meterRegistry,
+                Duration.ofHours(24), 100);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
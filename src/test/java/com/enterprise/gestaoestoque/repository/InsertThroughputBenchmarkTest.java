@@ -0,0 +1,109 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mede a vazão de INSERT de lotes e movimentações. Não roda no build padrão:
+ * {@code mvn test -Dtest=InsertThroughputBenchmarkTest -Dbenchmark=true}.
+ * Para medir em PostgreSQL, sobrescreva spring.datasource.* e use {@code -Dspring.test.database.replace=none}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class InsertThroughputBenchmarkTest {
+
+    private static final int LOTS = 5_000;
+    private static final int MOVEMENTS = 50_000;
+    private static final int ROWS_PER_TRANSACTION = 1_000;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void insertThroughput() {
+        var tx = new TransactionTemplate(transactionManager);
+        var user = tx.execute(status -> userRepository.save(User.builder()
+                .name("Benchmark").email("benchmark@teste.com").password("senha")
+                .profile(UserProfile.FUNCIONARIO).isActive(true).build()));
+        var product = tx.execute(status -> productRepository.save(Product.builder()
+                .name("Produto benchmark").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                .minQuantity(1L).totalStock(0L).isActive(true).build()));
+        var supplier = tx.execute(status -> supplierRepository.save(Supplier.builder()
+                .name("Fornecedor benchmark").cnpj("00.000.000/0001-00").contactName("Contato")
+                .email("fornecedor@teste.com").phone("(47) 90000-0000").isActive(true).build()));
+
+        long lotsStart = System.nanoTime();
+        for (int from = 0; from < LOTS; from += ROWS_PER_TRANSACTION) {
+            int offset = from;
+            tx.executeWithoutResult(status -> lotRepository.saveAll(IntStream.range(offset, offset + ROWS_PER_TRANSACTION)
+                    .mapToObj(i -> Lot.builder()
+                            .product(productRepository.getReferenceById(product.getId()))
+                            .supplier(supplierRepository.getReferenceById(supplier.getId()))
+                            .initialQtd(1_000L).currentQtd(1_000L).measurementUnit(MeasurementUnit.KG)
+                            .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                            .lotCode("BENCH%011d".formatted(i)).status(LotStatus.ATIVO)
+                            .build())
+                    .toList()));
+        }
+        long lotsNanos = System.nanoTime() - lotsStart;
+
+        var lotId = lotRepository.findAll().getFirst().getId();
+        var dateAndTime = LocalDateTime.now();
+        long movementsStart = System.nanoTime();
+        for (int from = 0; from < MOVEMENTS; from += ROWS_PER_TRANSACTION) {
+            tx.executeWithoutResult(status -> inventoryMovementRepository.saveAll(IntStream.range(0, ROWS_PER_TRANSACTION)
+                    .mapToObj(i -> InventoryMovement.builder()
+                            .movementType(MovementType.USO_PRODUCAO).quantity(1L).measurementUnit(MeasurementUnit.KG)
+                            .dateAndTime(dateAndTime)
+                            .lot(lotRepository.getReferenceById(lotId))
+                            .user(userRepository.getReferenceById(user.getId()))
+                            .build())
+                    .toList()));
+        }
+        long movementsNanos = System.nanoTime() - movementsStart;
+
+        System.out.printf("lots: %d linhas em %d ms (%.0f linhas/s)%n",
+                LOTS, lotsNanos / 1_000_000, LOTS / (lotsNanos / 1e9));
+        System.out.printf("inventory_movements: %d linhas em %d ms (%.0f linhas/s)%n",
+                MOVEMENTS, movementsNanos / 1_000_000, MOVEMENTS / (movementsNanos / 1e9));
+        assertThat(inventoryMovementRepository.count()).isEqualTo(MOVEMENTS);
+    }
+}
@@ -0,0 +1,176 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryMovementRepositoryTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Lot lot;
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            inventoryMovementRepository.deleteAllInBatch();
+            lotRepository.deleteAllInBatch();
+            productRepository.deleteAllInBatch();
+            supplierRepository.deleteAllInBatch();
+            userRepository.deleteAllInBatch();
+
+            user = userRepository.save(User.builder()
+                    .name("Operador")
+                    .email("operador@teste.com")
+                    .password("senha")
+                    .profile(UserProfile.FUNCIONARIO)
+                    .isActive(true)
+                    .build());
+
+            var product = productRepository.save(Product.builder()
+                    .name("Açúcar refinado")
+                    .category(ProductCategory.NAO_PERECIVEIS)
+                    .measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(10L)
+                    .totalStock(1000L)
+                    .isActive(true)
+                    .build());
+
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Usina Central")
+                    .cnpj("98.765.432/0001-10")
+                    .contactName("Fornecedor")
+                    .email("usina@teste.com")
+                    .phone("(47) 98888-4444")
+                    .isActive(true)
+                    .build());
+
+            lot = lotRepository.save(Lot.builder()
+                    .product(product)
+                    .supplier(supplier)
+                    .initialQtd(1000L)
+                    .currentQtd(1000L)
+                    .measurementUnit(MeasurementUnit.KG)
+                    .entryDate(LocalDate.now())
+                    .expirationDate(LocalDate.now().plusDays(30))
+                    .lotCode("BATCHINSERT0001")
+                    .status(LotStatus.ATIVO)
+                    .build());
+        });
+    }
+
+    @Test
+    void saveAll_WhenMovementsSpanSeveralBatches_ShouldBatchInsertsAndAssignIds() {
+        var dateAndTime = LocalDateTime.now();
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        var movements = new TransactionTemplate(transactionManager).execute(status -> {
+            var lotReference = lotRepository.getReferenceById(lot.getId());
+            var userReference = userRepository.getReferenceById(user.getId());
+            return inventoryMovementRepository.saveAll(IntStream.rangeClosed(1, 1200)
+                    .mapToObj(i -> InventoryMovement.builder()
+                            .movementType(i % 2 == 0 ? MovementType.PERDA : MovementType.USO_PRODUCAO)
+                            .quantity(i)
+                            .measurementUnit(MeasurementUnit.KG)
+                            .dateAndTime(dateAndTime)
+                            .lot(lotReference)
+                            .user(userReference)
+                            .build())
+                    .toList());
+        });
+
+        // Com IDENTITY seriam 1200 statements; com sequence pooled são ~24 batches de INSERT e ~24 chamadas à sequence
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(100);
+        assertThat(inventoryMovementRepository.count()).isEqualTo(1200);
+        assertThat(movements).allSatisfy(movement -> assertThat(movement.getId()).isNotNull());
+        var last = inventoryMovementRepository.findById(movements.get(1199).getId()).orElseThrow();
+        assertThat(last)
+                .extracting(InventoryMovement::getQuantity, InventoryMovement::getMovementType)
+                .containsExactly(1200L, MovementType.PERDA);
+    }
+
+    @Test
+    void findLastBalancesUpTo_WhenLotHasSeveralMovements_ShouldReturnTheBalanceOfTheLastOneUpToTheDate() {
+        var start = LocalDateTime.now().minusDays(3);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            var lotReference = lotRepository.getReferenceById(lot.getId());
+            var userReference = userRepository.getReferenceById(user.getId());
+            inventoryMovementRepository.saveAll(List.of(
+                    ledgerEntry(MovementType.USO_PRODUCAO, 100L, 900L, start, lotReference, userReference),
+                    ledgerEntry(MovementType.PERDA, 50L, 850L, start.plusDays(1), lotReference, userReference),
+                    ledgerEntry(MovementType.USO_PRODUCAO, 200L, 650L, start.plusDays(2), lotReference, userReference)));
+        });
+        var productIds = List.of(lot.getProduct().getId());
+
+        assertThat(inventoryMovementRepository.findLastBalancesUpTo(productIds, start.plusDays(1).plusHours(1)))
+                .singleElement()
+                .satisfies(balance -> assertThat(balance.balanceAfter()).isEqualTo(850L));
+        assertThat(inventoryMovementRepository.findLastBalancesUpTo(productIds, start.minusHours(1))).isEmpty();
+        assertThat(inventoryMovementRepository.findFirstBalancesAfter(List.of(lot.getId()), start.minusHours(1)))
+                .singleElement()
+                .satisfies(balance -> assertThat(balance.balanceAfter()).isEqualTo(900L));
+    }
+
+    private static InventoryMovement ledgerEntry(MovementType movementType, long quantity, long balanceAfter,
+                                                 LocalDateTime dateAndTime, Lot lot, User user) {
+        return InventoryMovement.builder()
+                .movementType(movementType)
+                .quantity(quantity)
+                .measurementUnit(MeasurementUnit.KG)
+                .dateAndTime(dateAndTime)
+                .balanceAfter(balanceAfter)
+                .lot(lot)
+                .user(user)
+                .build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LotRepositoryConcurrencyTest {
+
+    private static final int WRITERS = 400;
+    private static final long INITIAL_QTD = 1000L;
+    private static final long WITHDRAWAL = 3L;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Lot lot;
+
+    @BeforeEach
+    void setup() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> createLot());
+    }
+
+    private void createLot() {
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+
+        var product = productRepository.save(Product.builder()
+                .name("Farinha de trigo")
+                .category(ProductCategory.NAO_PERECIVEIS)
+                .measurementUnit(MeasurementUnit.KG)
+                .minQuantity(10L)
+                .totalStock(INITIAL_QTD)
+                .isActive(true)
+                .build());
+
+        var supplier = supplierRepository.save(Supplier.builder()
+                .name("Moinho Central")
+                .cnpj("12.345.678/0001-90")
+                .contactName("Fornecedor")
+                .email("moinho@teste.com")
+                .phone("(47) 99999-5555")
+                .isActive(true)
+                .build());
+
+        lot = lotRepository.save(Lot.builder()
+                .product(product)
+                .supplier(supplier)
+                .initialQtd(INITIAL_QTD)
+                .currentQtd(INITIAL_QTD)
+                .measurementUnit(MeasurementUnit.KG)
+                .entryDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusDays(30))
+                .lotCode("CONCURRENCY0001")
+                .status(LotStatus.ATIVO)
+                .build());
+    }
+
+    @Test
+    void withdrawQuantity_WhenHundredsOfWritersHitSameLot_ShouldNotLoseDecrementsOrGoNegative() throws Exception {
+        var executor = Executors.newFixedThreadPool(64);
+        var startGate = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < WRITERS; i++) {
+            results.add(executor.submit(() -> {
+                startGate.await();
+                return lotRepository.withdrawQuantity(lot.getId(), WITHDRAWAL);
+            }));
+        }
+        startGate.countDown();
+
+        int succeeded = 0;
+        for (var result : results) {
+            succeeded += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        var reloaded = lotRepository.findById(lot.getId()).orElseThrow();
+        long expectedSucceeded = INITIAL_QTD / WITHDRAWAL;
+
+        assertThat(succeeded).isEqualTo(expectedSucceeded);
+        assertThat(reloaded.getCurrentQtd())
+                .isEqualTo(INITIAL_QTD - succeeded * WITHDRAWAL)
+                .isNotNegative();
+    }
+
+    @Test
+    void withdrawQuantity_WhenLotIsDepleted_ShouldMarkLotAsEsgotado() {
+        assertThat(lotRepository.withdrawQuantity(lot.getId(), INITIAL_QTD)).isEqualTo(1);
+        assertThat(lotRepository.withdrawQuantity(lot.getId(), 1L)).isZero();
+
+        var reloaded = lotRepository.findById(lot.getId()).orElseThrow();
+        assertThat(reloaded)
+                .extracting(Lot::getCurrentQtd, Lot::getStatus)
+                .containsExactly(0L, LotStatus.ESGOTADO);
+    }
+}
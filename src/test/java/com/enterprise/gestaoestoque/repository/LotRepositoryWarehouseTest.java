@@ -0,0 +1,97 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseStockDTO;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+public class LotRepositoryWarehouseTest {
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    private Warehouse main;
+    private Warehouse annex;
+    private Product flour;
+    private Product sugar;
+    private Supplier supplier;
+
+    @BeforeEach
+    void setup() {
+        main = warehouseRepository.save(Warehouse.builder().name("Principal").isActive(true).build());
+        annex = warehouseRepository.save(Warehouse.builder().name("Anexo").isActive(true).build());
+        supplier = supplierRepository.save(Supplier.builder()
+                .name("Fornecedor depósitos").cnpj("00.000.000/0001-03").contactName("Contato")
+                .email("depositos@teste.com").phone("(47) 90000-0003").isActive(true).build());
+        flour = productRepository.save(product("Farinha"));
+        sugar = productRepository.save(product("Açúcar"));
+    }
+
+    @Test
+    void findWarehouseStock_WhenWarehouseHasSeveralLots_ShouldSumActiveLotsPerProduct() {
+        lot(main, flour, 100L, 20L, LotStatus.ATIVO);
+        lot(main, flour, 50L, 0L, LotStatus.ATIVO);
+        lot(main, flour, 70L, 0L, LotStatus.VENCIDO);
+        lot(main, sugar, 30L, 0L, LotStatus.ATIVO);
+        lot(annex, flour, 500L, 0L, LotStatus.ATIVO);
+
+        var stock = lotRepository.findWarehouseStock(main.getId(), PageRequest.of(0, 10));
+
+        assertThat(stock.getTotalElements()).isEqualTo(2);
+        assertThat(stock.getContent()).containsExactly(
+                new WarehouseStockDTO(flour.getId(), "Farinha", 150L, 130L),
+                new WarehouseStockDTO(sugar.getId(), "Açúcar", 30L, 30L));
+    }
+
+    @Test
+    void findByWarehouseId_WhenLotsAreSpreadAcrossWarehouses_ShouldReturnOnlyTheWarehouseLots() {
+        var first = lot(annex, flour, 10L, 0L, LotStatus.ATIVO);
+        lot(main, flour, 20L, 0L, LotStatus.ATIVO);
+        var second = lot(annex, sugar, 30L, 0L, LotStatus.ESGOTADO);
+
+        var lots = lotRepository.findByWarehouseId(annex.getId(), PageRequest.of(0, 10, Sort.by("id")));
+
+        assertThat(lots.getContent()).extracting(Lot::getId).containsExactly(first.getId(), second.getId());
+    }
+
+    private Product product(String name) {
+        return Product.builder()
+                .name(name).category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                .minQuantity(1L).totalStock(0L).isActive(true).build();
+    }
+
+    private Lot lot(Warehouse warehouse, Product product, long currentQtd, long reservedQtd, LotStatus status) {
+        return lotRepository.save(Lot.builder()
+                .product(product).supplier(supplier).warehouse(warehouse)
+                .initialQtd(currentQtd).currentQtd(currentQtd).reservedQtd(reservedQtd)
+                .measurementUnit(MeasurementUnit.KG)
+                .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                .lotCode("DEP-" + warehouse.getName() + "-" + product.getName() + "-" + currentQtd + "-" + status)
+                .status(status)
+                .build());
+    }
+}
@@ -0,0 +1,91 @@
+package com.enterprise.gestaoestoque.repository;
+
+import com.enterprise.gestaoestoque.service.SchedulerLeaseService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SchedulerLeaseRepositoryTest {
+
+    private static final int NODES = 8;
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setup() {
+        schedulerLeaseRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void tryAcquire_WhenNodesCompeteForTheSameTick_ShouldElectExactlyOneNode() throws Exception {
+        var nodes = new ArrayList<SchedulerLeaseService>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-" + i));
+        }
+
+        var start = new CountDownLatch(1);
+        var results = new ArrayList<Future<Boolean>>();
+        try (var executor = Executors.newFixedThreadPool(NODES)) {
+            for (var node : nodes) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return node.tryAcquire("lots.reconciliation", Duration.ofMinutes(50));
+                }));
+            }
+            start.countDown();
+
+            List<Boolean> acquired = new ArrayList<>();
+            for (var result : results) {
+                acquired.add(result.get());
+            }
+            assertThat(acquired).containsOnlyOnce(true);
+        }
+
+        var lease = schedulerLeaseRepository.findById("lots.reconciliation").orElseThrow();
+        assertThat(meterRegistry.counter("scheduler.lease.acquired", "job", "lots.reconciliation", "node", lease.getOwner()).count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void tryAcquire_WhenLeaderStopsRenewing_ShouldFailOverAfterExpiration() throws Exception {
+        var leader = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-a");
+        var follower = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-b");
+
+        assertThat(leader.tryAcquire("lots.expiration", Duration.ofMillis(200))).isTrue();
+        assertThat(follower.tryAcquire("lots.expiration", Duration.ofMillis(200))).isFalse();
+
+        Thread.sleep(300);
+
+        assertThat(follower.tryAcquire("lots.expiration", Duration.ofMinutes(10))).isTrue();
+        assertThat(leader.tryAcquire("lots.expiration", Duration.ofMinutes(10))).isFalse();
+        assertThat(schedulerLeaseRepository.findById("lots.expiration").orElseThrow().getOwner()).isEqualTo("node-b");
+    }
+
+    @Test
+    void tryAcquire_WhenJobsAreDifferent_ShouldLeaseIndependently() {
+        var node = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-a");
+        var other = new SchedulerLeaseService(schedulerLeaseRepository, meterRegistry, "node-b");
+
+        assertThat(node.tryAcquire("lots.expiration", Duration.ofMinutes(10))).isTrue();
+        assertThat(other.tryAcquire("lots.reconciliation", Duration.ofMinutes(10))).isTrue();
+    }
+}
@@ -0,0 +1,158 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.receipt.GoodsReceiptRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GoodsReceiptServiceTest {
+
+    @Mock
+    private SupplierRepository supplierRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Mock
+    private LotService lotService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LotCodeGenerator lotCodeGenerator;
+
+    @Mock
+    private LotExpirationService lotExpirationService;
+
+    @Mock
+    private LotAllocationService lotAllocationService;
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private WarehouseService warehouseService;
+
+    @InjectMocks
+    private GoodsReceiptService goodsReceiptService;
+
+    private Supplier supplier;
+    private Product flour;
+    private Product sugar;
+    private final LocalDate expiration = LocalDate.now().plusDays(60);
+
+    @BeforeEach
+    void setup() {
+        supplier = Supplier.builder().id(1L).name("Moinho").isActive(true).build();
+        flour = Product.builder().id(10L).name("Farinha").measurementUnit(MeasurementUnit.KG).isActive(true).build();
+        sugar = Product.builder().id(20L).name("Açúcar").measurementUnit(MeasurementUnit.KG).isActive(true).build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createGoodsReceipt_WhenNoteHasSeveralLots_ShouldCreateThemWithOneStockUpdatePerProduct() {
+        when(supplierRepository.findById(1L)).thenReturn(Optional.of(supplier));
+        when(productRepository.findAllById(List.of(10L, 20L))).thenReturn(List.of(flour, sugar));
+        when(lotCodeGenerator.next(3)).thenReturn(List.of("LT-000000000001", "LT-000000000002", "LT-000000000003"));
+        var ids = new AtomicLong();
+        when(lotRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+            List<Lot> lots = invocation.getArgument(0);
+            lots.forEach(lot -> lot.setId(ids.incrementAndGet()));
+            return lots;
+        });
+        when(inventoryMovementRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = goodsReceiptService.createGoodsReceipt(receipt(
+                item(10L, 100L), item(20L, 40L), item(10L, 50L)));
+
+        assertThat(result.deliveryNote()).isEqualTo("NF-1234");
+        assertThat(result.lots()).extracting(lot -> lot.lotCode())
+                .containsExactly("LT-000000000001", "LT-000000000002", "LT-000000000003");
+        verify(lotService).applyStockDelta(10L, 150L);
+        verify(lotService).applyStockDelta(20L, 40L);
+        verify(lotExpirationService, times(3)).register(anyLong(), any());
+
+        ArgumentCaptor<List<InventoryMovement>> movements = ArgumentCaptor.captor();
+        verify(inventoryMovementRepository).saveAll(movements.capture());
+        assertThat(movements.getValue()).hasSize(3)
+                .allMatch(movement -> movement.getMovementType() == MovementType.ENTRADA
+                        && "NF-1234".equals(movement.getReference())
+                        && movement.getLot().getStatus() == LotStatus.ATIVO);
+    }
+
+    @Test
+    void createGoodsReceipt_WhenProductDoesNotExist_ShouldThrowExceptionBeforeCreatingLots() {
+        when(supplierRepository.findById(1L)).thenReturn(Optional.of(supplier));
+        when(productRepository.findAllById(List.of(10L, 99L))).thenReturn(List.of(flour));
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> goodsReceiptService.createGoodsReceipt(receipt(item(10L, 100L), item(99L, 10L))));
+        verify(lotRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void createGoodsReceipt_WhenSupplierIsInactive_ShouldThrowException() {
+        supplier.setIsActive(false);
+        when(supplierRepository.findById(1L)).thenReturn(Optional.of(supplier));
+
+        assertThrows(BusinessException.class, () -> goodsReceiptService.createGoodsReceipt(receipt(item(10L, 100L))));
+        verify(lotRepository, never()).saveAll(anyIterable());
+    }
+
+    private GoodsReceiptRequestDTO receipt(GoodsReceiptRequestDTO.ItemDTO... items) {
+        return GoodsReceiptRequestDTO.builder()
+                .supplierId(1L)
+                .deliveryNote("NF-1234")
+                .items(List.of(items))
+                .build();
+    }
+
+    private GoodsReceiptRequestDTO.ItemDTO item(Long productId, Long quantity) {
+        return GoodsReceiptRequestDTO.ItemDTO.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .expirationDate(expiration)
+                .build();
+    }
+}
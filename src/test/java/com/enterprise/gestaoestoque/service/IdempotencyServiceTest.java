@@ -0,0 +1,182 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.model.entity.IdempotencyRecord;
+import com.enterprise.gestaoestoque.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private IdempotencyService idempotencyService;
+
+    record Request(Long lotId, int quantity) {}
+
+    record Response(Long id, String status) {}
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository, objectMapper, transactionManager,
+                schedulerLeaseService, meterRegistry, Duration.ofHours(24), 100);
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(anyString(), any())).thenReturn(Optional.empty());
+    }
+
+    @Test
+    void execute_WhenKeyIsNew_ShouldRunActionAndStoreResponse() {
+        var calls = new AtomicInteger();
+
+        var result = idempotencyService.execute("lots", "abc", new Request(1L, 5), Response.class,
+                () -> new Response((long) calls.incrementAndGet(), "OK"));
+
+        assertThat(result.replayed()).isFalse();
+        assertThat(result.body()).isEqualTo(new Response(1L, "OK"));
+        verify(idempotencyRecordRepository).insertPending(eq("lots:abc"), anyString(), any(), any());
+        verify(idempotencyRecordRepository).complete("lots:abc", "{\"id\":1,\"status\":\"OK\"}");
+    }
+
+    @Test
+    void execute_WhenKeyWasAlreadyUsed_ShouldReplayWithoutRunningAction() {
+        var calls = new AtomicInteger();
+        var request = new Request(1L, 5);
+        idempotencyService.execute("lots", "abc", request, Response.class,
+                () -> new Response((long) calls.incrementAndGet(), "OK"));
+
+        var replay = idempotencyService.execute("lots", "abc", request, Response.class,
+                () -> new Response((long) calls.incrementAndGet(), "OK"));
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(replay.replayed()).isTrue();
+        assertThat(replay.body()).isEqualTo(new Response(1L, "OK"));
+        assertThat(meterRegistry.counter("idempotency.replays", "scope", "lots").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void execute_WhenKeyIsReusedWithDifferentPayload_ShouldThrowBusinessException() {
+        idempotencyService.execute("lots", "abc", new Request(1L, 5), Response.class, () -> new Response(1L, "OK"));
+
+        assertThrows(BusinessException.class, () -> idempotencyService.execute("lots", "abc", new Request(1L, 6),
+                Response.class, () -> new Response(2L, "OK")));
+    }
+
+    @Test
+    void execute_WhenResponseIsOnlyInDatabase_ShouldReplayStoredResponse() throws Exception {
+        var request = new Request(1L, 5);
+        idempotencyService.execute("other", "seed", request, Response.class, () -> new Response(0L, "SEED"));
+        var hashCaptor = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRecordRepository).insertPending(eq("other:seed"), hashCaptor.capture(), any(), any());
+
+        var stored = IdempotencyRecord.builder()
+                .idempotencyKey("lots:abc")
+                .requestHash(hashCaptor.getValue())
+                .responseBody(objectMapper.writeValueAsString(new Response(7L, "OK")))
+                .expiresAt(LocalDateTime.now().plusHours(1))
+                .build();
+        when(idempotencyRecordRepository.findByIdempotencyKeyAndExpiresAtAfter(eq("lots:abc"), any())).thenReturn(Optional.of(stored));
+
+        var result = idempotencyService.execute("lots", "abc", request, Response.class, () -> new Response(8L, "OK"));
+
+        assertThat(result.replayed()).isTrue();
+        assertThat(result.body()).isEqualTo(new Response(7L, "OK"));
+        verify(idempotencyRecordRepository, never()).insertPending(eq("lots:abc"), anyString(), any(), any());
+    }
+
+    @Test
+    void execute_WhenDuplicatesArriveConcurrently_ShouldRunActionOnce() throws Exception {
+        var calls = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var request = new Request(1L, 5);
+
+        try (var executor = Executors.newFixedThreadPool(4)) {
+            var first = executor.submit(() -> idempotencyService.execute("lots", "abc", request, Response.class, () -> {
+                started.countDown();
+                await(release);
+                return new Response((long) calls.incrementAndGet(), "OK");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+            var duplicates = new ArrayList<Future<IdempotencyService.Result<Response>>>();
+            for (int i = 0; i < 3; i++) {
+                duplicates.add(executor.submit(() -> idempotencyService.execute("lots", "abc", request, Response.class,
+                        () -> new Response((long) calls.incrementAndGet(), "OK"))));
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).replayed()).isFalse();
+            for (var duplicate : duplicates) {
+                var result = duplicate.get(5, TimeUnit.SECONDS);
+                assertThat(result.replayed()).isTrue();
+                assertThat(result.body()).isEqualTo(new Response(1L, "OK"));
+            }
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        verify(idempotencyRecordRepository, times(1)).insertPending(eq("lots:abc"), anyString(), any(), any());
+    }
+
+    @Test
+    void execute_WhenKeyIsBlank_ShouldRunActionWithoutStoring() {
+        var result = idempotencyService.execute("lots", " ", new Request(1L, 5), Response.class, () -> new Response(1L, "OK"));
+
+        assertThat(result.replayed()).isFalse();
+        verify(idempotencyRecordRepository, never()).insertPending(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void deleteExpiredRecords_WhenLeaseIsHeldElsewhere_ShouldNotDelete() {
+        when(schedulerLeaseService.tryAcquire(eq("idempotency.cleanup"), any())).thenReturn(false);
+
+        idempotencyService.deleteExpiredRecords();
+
+        verify(idempotencyRecordRepository, never()).deleteExpired(any());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
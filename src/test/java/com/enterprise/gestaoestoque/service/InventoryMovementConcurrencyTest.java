@@ -0,0 +1,160 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Baixas concorrentes num mesmo lote pelo serviço: além do UPDATE condicional, cada baixa grava a movimentação e
+ * ajusta o estoque total do produto. Nenhuma baixa se perde, o saldo não fica negativo e cada movimentação leva um
+ * saldo diferente, na sequência em que as baixas aconteceram.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryMovementService.class, LotService.class, PageTotalService.class, InventoryMapper.class, LotMapper.class,
+        SimpleMeterRegistry.class, LotExpirationService.class, SchedulerLeaseService.class, LotAllocationService.class,
+        ThreadPoolTaskScheduler.class, StockEngine.class, TotalStockWriteBehindService.class, LotCodeGenerator.class,
+        WarehouseService.class, WarehouseMapper.class, LotEscrowService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class InventoryMovementConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int WRITERS = 120;
+    private static final long LOT_QTD = 1_000;
+    private static final long WITHDRAWAL = 10;
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void cleanup() {
+        inventoryMovementRepository.deleteAllInBatch();
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void createInventoryMovement_WhenHundredsOfWritersHitSameLot_ShouldNotLoseWithdrawalsOrGoNegative() throws Exception {
+        var lot = setup();
+        var rejected = new ConcurrentLinkedQueue<Throwable>();
+        var start = new CountDownLatch(1);
+
+        try (var executor = Executors.newFixedThreadPool(THREADS)) {
+            var workers = new ArrayList<Future<?>>();
+            for (int i = 0; i < WRITERS; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        inventoryMovementService.createInventoryMovement(new InventoryMovementRequestDTO(lot.getId(),
+                                MovementType.USO_PRODUCAO, BigDecimal.valueOf(WITHDRAWAL), MeasurementUnit.KG));
+                    } catch (RuntimeException e) {
+                        rejected.add(e);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+
+        long succeeded = LOT_QTD / WITHDRAWAL;
+        assertThat(rejected).hasSize((int) (WRITERS - succeeded)).allMatch(BusinessException.class::isInstance);
+
+        var reloaded = lotRepository.findById(lot.getId()).orElseThrow();
+        assertThat(reloaded).extracting(Lot::getCurrentQtd, Lot::getStatus).containsExactly(0L, LotStatus.ESGOTADO);
+        assertThat(productRepository.findById(lot.getProduct().getId()).orElseThrow().getTotalStock()).isZero();
+
+        List<Long> balances = inventoryMovementRepository.findAll().stream().map(InventoryMovement::getBalanceAfter).toList();
+        assertThat(balances).hasSize((int) succeeded)
+                .containsExactlyInAnyOrderElementsOf(LongStream.range(0, succeeded)
+                        .mapToObj(i -> i * WITHDRAWAL).toList());
+    }
+
+    private Lot setup() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var user = userRepository.save(User.builder().name("Concorrência").email("concorrencia@teste.com").password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).build());
+            // Referência gerenciada na transação de cada baixa, como o usuário carregado pelo UserService
+            when(userService.getLoggedUser()).thenAnswer(invocation -> userRepository.getReferenceById(user.getId()));
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor concorrência").cnpj("00.000.000/0001-04").contactName("Contato")
+                    .email("concorrencia@fornecedor.com").phone("(47) 90000-0004").isActive(true).build());
+            var product = productRepository.save(Product.builder()
+                    .name("Produto concorrência").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(LOT_QTD).isActive(true).build());
+            return lotRepository.save(Lot.builder()
+                    .product(product).supplier(supplier)
+                    .initialQtd(LOT_QTD).currentQtd(LOT_QTD).measurementUnit(MeasurementUnit.KG)
+                    .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                    .lotCode("CONCURRENCY-SVC").status(LotStatus.ATIVO)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.ProductMapper;
+import com.enterprise.gestaoestoque.mapper.SupplierMapper;
+import com.enterprise.gestaoestoque.mapper.UserMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Histórico de movimentações por keyset: as páginas percorrem todas as linhas na ordem (dateAndTime DESC, id DESC),
+ * sem repetir nem pular movimentações com a mesma data e hora, e cada página é um único SELECT, sem COUNT.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({ProductService.class, ProductMapper.class, ProductUnitRuleService.class, SupplierService.class,
+        SupplierMapper.class, InventoryMovementService.class, LotService.class, PageTotalService.class, UserService.class, InventoryMapper.class,
+        LotMapper.class, UserMapper.class, SimpleMeterRegistry.class, LotExpirationService.class,
+        SchedulerLeaseService.class, LotAllocationService.class, ThreadPoolTaskScheduler.class, StockEngine.class,
+        TotalStockWriteBehindService.class, LotCodeGenerator.class, WarehouseService.class, WarehouseMapper.class,
+        LotEscrowService.class})
+public class InventoryMovementHistoryTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 10, 8, 0);
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    private Warehouse main;
+    private final List<Long> expectedIds = new ArrayList<>();
+    private final List<Long> expectedMainIds = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        main = Warehouse.builder().name("Principal").isActive(true).build();
+        entityManager.persist(main);
+        var secondary = Warehouse.builder().name("Filial").isActive(true).build();
+        entityManager.persist(secondary);
+        var user = User.builder()
+                .name("Usuário").email("usuario@teste.com").password("senha")
+                .profile(UserProfile.FUNCIONARIO).isActive(true).authorities(new ArrayList<>()).build();
+        entityManager.persist(user);
+        var supplier = Supplier.builder()
+                .name("Fornecedor").cnpj("00.000.000/0001-00").contactName("Contato")
+                .email("fornecedor@teste.com").phone("(47) 90000-0000").isActive(true).build();
+        entityManager.persist(supplier);
+        var product = Product.builder()
+                .name("Produto").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                .minQuantity(1L).totalStock(70L).isActive(true).build();
+        entityManager.persist(product);
+        var lot = Lot.builder()
+                .product(product).supplier(supplier).warehouse(main)
+                .initialQtd(70L).currentQtd(70L).measurementUnit(MeasurementUnit.KG)
+                .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                .lotCode("LOT-1").status(LotStatus.ATIVO).build();
+        entityManager.persist(lot);
+
+        // Pares de movimentações na mesma data e hora, alternando o depósito
+        var movements = new ArrayList<InventoryMovement>();
+        for (int i = 0; i < 7; i++) {
+            var movement = InventoryMovement.builder()
+                    .lot(lot).user(user).warehouse(i % 3 == 0 ? secondary : main).movementType(MovementType.ENTRADA)
+                    .quantity(10L).measurementUnit(MeasurementUnit.KG).balanceAfter(10L * (i + 1))
+                    .dateAndTime(BASE.plusMinutes(i / 2)).build();
+            entityManager.persist(movement);
+            movements.add(movement);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        movements.sort((a, b) -> a.getDateAndTime().equals(b.getDateAndTime())
+                ? b.getId().compareTo(a.getId()) : b.getDateAndTime().compareTo(a.getDateAndTime()));
+        movements.forEach(movement -> expectedIds.add(movement.getId()));
+        movements.stream().filter(movement -> movement.getWarehouse() == main)
+                .forEach(movement -> expectedMainIds.add(movement.getId()));
+    }
+
+    @Test
+    void getInventoryMovementHistory_WhenWalkingAllPages_ShouldReturnEveryMovementOnceWithOneStatementPerPage() {
+        var statistics = statistics();
+        var ids = new ArrayList<Long>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            statistics.clear();
+            var page = inventoryMovementService.getInventoryMovementHistory(null, cursor, 2);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            page.content().stream().map(InventoryMovementResponseDTO::id).forEach(ids::add);
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(ids).containsExactlyElementsOf(expectedIds);
+        assertThat(pages).isEqualTo(4);
+    }
+
+    @Test
+    void getInventoryMovementHistory_WhenWarehouseInformed_ShouldWalkOnlyItsMovements() {
+        var ids = new ArrayList<Long>();
+        String cursor = null;
+        do {
+            var page = inventoryMovementService.getInventoryMovementHistory(main.getId(), cursor, 3);
+            page.content().stream().map(InventoryMovementResponseDTO::id).forEach(ids::add);
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(ids).containsExactlyElementsOf(expectedMainIds);
+    }
+
+    @Test
+    void getInventoryMovementHistory_WhenLastPageIsFull_ShouldNotReturnCursor() {
+        var page = inventoryMovementService.getInventoryMovementHistory(null, null, expectedIds.size());
+
+        assertThat(page.content()).hasSize(expectedIds.size());
+        assertThat(page.nextCursor()).isNull();
+    }
+
+    @Test
+    void getInventoryMovementHistory_WhenCursorIsInvalid_ShouldThrowException() {
+        assertThatThrownBy(() -> inventoryMovementService.getInventoryMovementHistory(null, "nao-e-um-cursor", 2))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Cursor inválido");
+    }
+
+    @Test
+    void getInventoryMovementHistory_WhenSizeOutOfRange_ShouldThrowException() {
+        assertThatThrownBy(() -> inventoryMovementService.getInventoryMovementHistory(null, null, 0))
+                .isInstanceOf(BusinessException.class);
+        assertThatThrownBy(() -> inventoryMovementService.getInventoryMovementHistory(null, null, 101))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
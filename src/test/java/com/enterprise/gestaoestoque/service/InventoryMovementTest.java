@@ -1,28 +1,50 @@
 package com.enterprise.gestaoestoque.service;
 
 import com.enterprise.gestaoestoque.enums.*;
+import com.enterprise.gestaoestoque.enums.PageTotal;
+import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.FefoMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchResponseDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRowDTO;
 import com.enterprise.gestaoestoque.model.entity.*;
 import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
 import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +66,24 @@ public class InventoryMovementTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private LotAllocationService lotAllocationService;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private LotEscrowService lotEscrowService;
+
+    @Spy
+    private PageTotalService pageTotalService = new PageTotalService(null);
+
     @InjectMocks
     private InventoryMovementService inventoryMovementService;
 
@@ -83,13 +123,13 @@ public class InventoryMovementTest {
                 .user(user)
                 .lot(lot)
                 .movementType(MovementType.USO_PRODUCAO)
-                .quantity(50.0)
+                .quantity(50L)
                 .build();
 
         inventoryMovementRequestDTO = InventoryMovementRequestDTO.builder()
                 .lotId(lot.getId())
                 .movementType(MovementType.USO_PRODUCAO)
-                .quantity(50.0)
+                .quantity(BigDecimal.valueOf(50))
                 .build();
 
         inventoryMovementResponseDTO = InventoryMovementResponseDTO.builder()
@@ -104,20 +144,23 @@ public class InventoryMovementTest {
                         .status(LotStatus.ATIVO)
                         .build())
                 .movementType(MovementType.USO_PRODUCAO)
-                .quantity(50.0)
+                .quantity(50L)
                 .build();
     }
 
     @Test
     void getAllInventoryMovements_WhenCalled_ShouldReturnAllInventoryMovements() {
         var pageable = PageRequest.of(1, 10);
-        var movementList = List.of(inventoryMovement);
-        var movementPage = new PageImpl<>(movementList, pageable, movementList.size());
+        var row = new InventoryMovementRowDTO(inventoryMovement.getId(), inventoryMovement.getMovementType(),
+                inventoryMovement.getQuantity(), inventoryMovement.getMeasurementUnit(), inventoryMovement.getDateAndTime(),
+                null, null, null, null, lot.getId(), lot.getLotCode(), lot.getStatus(), 2L, "Funcionário",
+                UserProfile.FUNCIONARIO);
+        var movementPage = new PageImpl<>(List.of(row), pageable, 1);
 
-        when(inventoryMovementRepository.findAll(pageable)).thenReturn(movementPage);
-        when(inventoryMapper.toInventoryMovementResponseDTO(inventoryMovement)).thenReturn(inventoryMovementResponseDTO);
+        when(inventoryMovementRepository.findAllRows(pageable)).thenReturn(movementPage);
+        when(inventoryMapper.toInventoryMovementResponseDTO(row)).thenReturn(inventoryMovementResponseDTO);
 
-        var result = inventoryMovementService.getAllInventoryMovements(pageable);
+        var result = inventoryMovementService.getAllInventoryMovements(null, pageable, PageTotal.EXACT);
 
         assertThat(result)
                 .isNotNull()
@@ -126,7 +169,7 @@ public class InventoryMovementTest {
 
     @Test
     void getInventoryMovementById_WhenCalled_ShouldReturnInventoryMovement() {
-        when(inventoryMovementRepository.findById(inventoryMovement.getId())).thenReturn(Optional.of(inventoryMovement));
+        when(inventoryMovementRepository.findDetailById(inventoryMovement.getId())).thenReturn(Optional.of(inventoryMovement));
         when(inventoryMapper.toInventoryMovementResponseDTO(inventoryMovement)).thenReturn(inventoryMovementResponseDTO);
 
         var result = inventoryMovementService.getInventoryMovementById(inventoryMovement.getId());
@@ -134,50 +177,336 @@ public class InventoryMovementTest {
         assertThat(result)
                 .isNotNull()
                 .extracting(InventoryMovementResponseDTO::movementType, InventoryMovementResponseDTO::quantity)
-                .containsExactly(MovementType.USO_PRODUCAO, 50.0);
+                .containsExactly(MovementType.USO_PRODUCAO, 50L);
     }
 
     @Test
     void getInventoryMovementById_WhenIdDoesNotExist_ShouldThrowException() {
-        when(inventoryMovementRepository.findById(inventoryMovement.getId())).thenReturn(Optional.empty());
+        when(inventoryMovementRepository.findDetailById(inventoryMovement.getId())).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> inventoryMovementService.getInventoryMovementById(inventoryMovement.getId()));
     }
 
     @Test
     void createInventoryMovement_WhenCalled_ShouldCreateAndSaveSuccessfully() {
         when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.withdrawQuantity(lot.getId(), 50L)).thenReturn(1);
         when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
-        when(inventoryMapper.toInventoryMovement(inventoryMovementRequestDTO, user, lot)).thenReturn(inventoryMovement);
+        when(inventoryMapper.toInventoryMovement(inventoryMovementRequestDTO, 50L, user, lot)).thenReturn(inventoryMovement);
         when(inventoryMovementRepository.save(inventoryMovement)).thenReturn(inventoryMovement);
         when(inventoryMapper.toInventoryMovementResponseDTO(inventoryMovement)).thenReturn(inventoryMovementResponseDTO);
 
         var result = inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO);
 
-        assertThat(lot.getCurrentQtd()).isEqualTo(50L);
         assertThat(result).isEqualTo(inventoryMovementResponseDTO);
+        verify(lotRepository).withdrawQuantity(lot.getId(), 50L);
+        verify(inventoryMovementRepository).save(inventoryMovement);
+        verify(lotService).applyStockDelta(product.getId(), -50L);
+        verify(lotAllocationService).adjust(product.getId(), lot.getId(), lot.getExpirationDate(), -50L);
+    }
+
+    @Test
+    void createInventoryMovement_WhenTypeIsEntrada_ShouldThrowException() {
+        var entrada = InventoryMovementRequestDTO.builder()
+                .lotId(lot.getId())
+                .movementType(MovementType.ENTRADA)
+                .quantity(BigDecimal.TEN)
+                .build();
+
+        assertThrows(BusinessException.class, () -> inventoryMovementService.createInventoryMovement(entrada));
+        verify(lotRepository, never()).withdrawQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void createInventoryMovement_WhenUnitDiffersFromLot_ShouldWithdrawTheConvertedQuantity() {
+        var grams = new InventoryMovementRequestDTO(lot.getId(), MovementType.USO_PRODUCAO, BigDecimal.valueOf(2000), MeasurementUnit.G);
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.withdrawQuantity(lot.getId(), 2L)).thenReturn(1);
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(inventoryMapper.toInventoryMovement(grams, 2L, user, lot)).thenReturn(inventoryMovement);
+        when(inventoryMovementRepository.save(inventoryMovement)).thenReturn(inventoryMovement);
+
+        inventoryMovementService.createInventoryMovement(grams);
+
+        verify(lotService).applyStockDelta(product.getId(), -2L);
+    }
+
+    @Test
+    void createInventoryMovement_WhenQuantityIsAFractionOfTheLotUnit_ShouldThrowException() {
+        var halfKilo = new InventoryMovementRequestDTO(lot.getId(), MovementType.USO_PRODUCAO, new BigDecimal("0.5"), MeasurementUnit.KG);
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+
+        assertThrows(BusinessException.class, () -> inventoryMovementService.createInventoryMovement(halfKilo));
+        verify(lotRepository, never()).withdrawQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void createInventoryMovement_WhenLotIsExpired_ShouldNotChangeProductTotalStock() {
+        lot.setStatus(LotStatus.VENCIDO);
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.withdrawQuantity(lot.getId(), 50L)).thenReturn(1);
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(inventoryMapper.toInventoryMovement(inventoryMovementRequestDTO, 50L, user, lot)).thenReturn(inventoryMovement);
+        when(inventoryMovementRepository.save(inventoryMovement)).thenReturn(inventoryMovement);
+
+        inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO);
+
+        verify(lotService).applyStockDelta(product.getId(), 0L);
+    }
+
+    @Test
+    void createInventoryMovement_WhenLotQuotaCoversIt_ShouldNotTouchLotOrProductRows() {
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(lotEscrowService.tryWithdraw(lot, 50L)).thenReturn(true);
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(inventoryMapper.toInventoryMovement(inventoryMovementRequestDTO, 50L, user, lot)).thenReturn(inventoryMovement);
+        when(inventoryMovementRepository.save(inventoryMovement)).thenReturn(inventoryMovement);
+
+        inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO);
+
+        verify(inventoryMovementRepository).save(inventoryMovement);
+        verify(lotRepository, never()).withdrawQuantity(anyLong(), anyLong());
+        verify(lotService, never()).applyStockDelta(anyLong(), anyLong());
+        verify(lotAllocationService, never()).adjust(anyLong(), anyLong(), any(), anyLong());
+        // Sem o lote bloqueado o saldo lido incluiria baixas de outros nós: a movimentação fica sem saldo
+        assertThat(inventoryMovement.getBalanceAfter()).isNull();
+        verify(lotEscrowService, never()).physicalQtd(anyLong());
+    }
+
+    @Test
+    void createInventoryMovement_WhenStockEngineIsEnabled_ShouldWithdrawInEngineWithoutUpdatingTables() {
+        when(stockEngine.isEnabled()).thenReturn(true);
+        when(stockEngine.withdraw(lot.getId(), 50L))
+                .thenReturn(new StockEngine.Withdrawal(product.getId(), LotStatus.ATIVO, true, 50L));
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(inventoryMapper.toInventoryMovement(inventoryMovementRequestDTO, 50L, user, lot)).thenReturn(inventoryMovement);
+        when(inventoryMovementRepository.save(inventoryMovement)).thenReturn(inventoryMovement);
+        when(inventoryMapper.toInventoryMovementResponseDTO(inventoryMovement)).thenReturn(inventoryMovementResponseDTO);
+
+        inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO);
+
         verify(inventoryMovementRepository).save(inventoryMovement);
-        verify(lotService).updateProductTotalStock(lot.getProduct());
+        verify(lotRepository, never()).withdrawQuantity(anyLong(), anyLong());
+        verify(lotService, never()).applyStockDelta(anyLong(), anyLong());
+        verify(lotAllocationService).adjust(product.getId(), lot.getId(), lot.getExpirationDate(), -50L);
+    }
+
+    @Test
+    void createInventoryMovement_WhenQuantityExceedsLotStock_ShouldThrowException() {
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(lotRepository.withdrawQuantity(lot.getId(), 50L)).thenReturn(0);
+        when(lotRepository.existsById(lot.getId())).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO));
+        verify(inventoryMovementRepository, never()).save(any());
+    }
+
+    @Test
+    void createInventoryMovement_WhenLotDoesNotExist_ShouldThrowException() {
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> inventoryMovementService.createInventoryMovement(inventoryMovementRequestDTO));
+    }
+
+    @Test
+    void createFefoMovement_WhenQuantitySpansLots_ShouldDrawFromEarliestExpirationFirst() {
+        var laterLot = Lot.builder()
+                .id(2L)
+                .product(product)
+                .currentQtd(100L)
+                .expirationDate(LocalDate.now().plusDays(30))
+                .measurementUnit(MeasurementUnit.KG)
+                .status(LotStatus.ATIVO)
+                .build();
+        var fefoDTO = new FefoMovementRequestDTO(product.getId(), MovementType.USO_PRODUCAO, BigDecimal.valueOf(130), MeasurementUnit.KG);
+        var today = LocalDate.now();
+        when(productRepository.findMeasurementUnitById(product.getId())).thenReturn(Optional.of(MeasurementUnit.KG));
+
+        when(lotAllocationService.candidates(product.getId(), today)).thenReturn(List.of(
+                new LotAllocationService.LotCandidate(lot.getId(), lot.getExpirationDate(), 100L),
+                new LotAllocationService.LotCandidate(laterLot.getId(), laterLot.getExpirationDate(), 100L)));
+        when(lotRepository.withdrawActiveQuantity(lot.getId(), 100L, today)).thenReturn(1);
+        when(lotRepository.withdrawActiveQuantity(laterLot.getId(), 30L, today)).thenReturn(1);
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.findAllById(any())).thenReturn(List.of(lot, laterLot));
+        when(inventoryMovementRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        inventoryMovementService.createFefoMovement(fefoDTO);
+
+        ArgumentCaptor<List<InventoryMovement>> captor = ArgumentCaptor.captor();
+        verify(inventoryMovementRepository).saveAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(movement -> movement.getLot().getId(), InventoryMovement::getQuantity)
+                .containsExactly(tuple(1L, 100L), tuple(2L, 30L));
+        verify(lotService).applyStockDelta(product.getId(), -130L);
+        verify(lotAllocationService).adjust(product.getId(), laterLot.getId(), laterLot.getExpirationDate(), -30L);
+    }
 
+    @Test
+    void createFefoMovement_WhenIndexQuantityIsStale_ShouldRetryWithCurrentQuantity() {
+        var fefoDTO = new FefoMovementRequestDTO(product.getId(), MovementType.PERDA, BigDecimal.valueOf(80), MeasurementUnit.KG);
+        var today = LocalDate.now();
+        when(productRepository.findMeasurementUnitById(product.getId())).thenReturn(Optional.of(MeasurementUnit.KG));
+        lot.setCurrentQtd(40L);
+
+        when(lotAllocationService.candidates(product.getId(), today)).thenReturn(List.of(
+                new LotAllocationService.LotCandidate(lot.getId(), lot.getExpirationDate(), 100L)));
+        when(lotRepository.withdrawActiveQuantity(lot.getId(), 80L, today)).thenReturn(0);
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(lotRepository.withdrawActiveQuantity(lot.getId(), 40L, today)).thenReturn(1);
+
+        assertThrows(BusinessException.class, () -> inventoryMovementService.createFefoMovement(fefoDTO));
+        verify(lotAllocationService).refresh(product.getId(), lot.getId(), lot.getExpirationDate(), 40L);
+        verify(inventoryMovementRepository, never()).saveAll(any());
+        verify(lotService, never()).applyStockDelta(any(), anyLong());
     }
 
     @Test
-    void deleteInventoryMovement_WhenCalled_ShouldDeleteSuccessfully() {
+    void createFefoMovement_WhenProductDoesNotExist_ShouldThrowException() {
+        var fefoDTO = new FefoMovementRequestDTO(99L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(10), MeasurementUnit.KG);
+        when(productRepository.findMeasurementUnitById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> inventoryMovementService.createFefoMovement(fefoDTO));
+    }
+
+    @Test
+    void createFefoMovements_WhenOneProductIsShort_ShouldWithdrawNothing() {
+        var other = Product.builder().id(2L).name("Açúcar").measurementUnit(MeasurementUnit.KG).isActive(true).build();
+        var today = LocalDate.now();
+        when(productRepository.findAllById(any())).thenReturn(List.of(product, other));
+        when(lotAllocationService.candidates(product.getId(), today)).thenReturn(List.of(
+                new LotAllocationService.LotCandidate(lot.getId(), lot.getExpirationDate(), 100L)));
+        when(lotAllocationService.candidates(other.getId(), today)).thenReturn(List.of(
+                new LotAllocationService.LotCandidate(2L, today.plusDays(5), 5L)));
+
+        var quantities = new LinkedHashMap<Long, Long>();
+        quantities.put(product.getId(), 50L);
+        quantities.put(other.getId(), 8L);
+        var exception = assertThrows(BusinessException.class,
+                () -> inventoryMovementService.createFefoMovements(quantities, MovementType.USO_PRODUCAO, "OP-1"));
+
+        assertThat(exception.getMessage()).contains("produto 2 (faltam 3)");
+        verify(lotRepository, never()).withdrawActiveQuantity(anyLong(), anyLong(), any());
+        verify(inventoryMovementRepository, never()).saveAll(any());
+        verify(lotService, never()).applyStockDelta(any(), anyLong());
+    }
+
+    @Test
+    void createInventoryMovementBatch_WhenItemsAreMixed_ShouldReturnResultsInOrderAndAdjustEachProductOnce() {
+        var otherLot = Lot.builder()
+                .id(2L)
+                .product(product)
+                .currentQtd(10L)
+                .expirationDate(LocalDate.now().plusDays(10))
+                .measurementUnit(MeasurementUnit.KG)
+                .status(LotStatus.ATIVO)
+                .build();
+        var batchDTO = new InventoryMovementBatchRequestDTO(List.of(
+                new InventoryMovementRequestDTO(2L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(4), MeasurementUnit.KG),
+                new InventoryMovementRequestDTO(1L, MovementType.PERDA, BigDecimal.valueOf(30), MeasurementUnit.KG),
+                new InventoryMovementRequestDTO(2L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(7), MeasurementUnit.KG),
+                new InventoryMovementRequestDTO(99L, MovementType.PERDA, BigDecimal.valueOf(1), MeasurementUnit.KG),
+                new InventoryMovementRequestDTO(2L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(6), MeasurementUnit.KG)));
+
+        when(userService.getLoggedUser()).thenReturn(user);
+        when(lotRepository.findAllByIdForUpdate(List.of(1L, 2L, 99L))).thenReturn(List.of(lot, otherLot));
+        doAnswer(invocation -> {
+            List<InventoryMovement> movements = invocation.getArgument(0);
+            for (int i = 0; i < movements.size(); i++) {
+                movements.get(i).setId(100L + i);
+            }
+            return movements;
+        }).when(inventoryMovementRepository).saveAll(anyList());
+
+        var result = inventoryMovementService.createInventoryMovementBatch(batchDTO);
+
+        assertThat(result.results())
+                .extracting(InventoryMovementBatchResponseDTO.ItemResultDTO::index,
+                        InventoryMovementBatchResponseDTO.ItemResultDTO::success,
+                        InventoryMovementBatchResponseDTO.ItemResultDTO::movementId)
+                .containsExactly(
+                        tuple(0, true, 100L),
+                        tuple(1, true, 101L),
+                        tuple(2, false, null),
+                        tuple(3, false, null),
+                        tuple(4, true, 102L));
+        assertThat(result.failed()).isEqualTo(2);
+        assertThat(otherLot)
+                .extracting(Lot::getCurrentQtd, Lot::getStatus)
+                .containsExactly(0L, LotStatus.ESGOTADO);
+        verify(lotService).applyStockDelta(product.getId(), -40L);
+        verify(lotService, times(1)).applyStockDelta(any(), anyLong());
+    }
+
+    @Test
+    void createInventoryMovementGroup_WhenOneItemExceedsStock_ShouldFailOnlyThatItemAndKeepEachUser() {
+        var otherUser = User.builder().id(8L).build();
+        var group = List.of(
+                new InventoryMovementService.GroupedMovement(
+                        new InventoryMovementRequestDTO(1L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(60), MeasurementUnit.KG), 7L),
+                new InventoryMovementService.GroupedMovement(
+                        new InventoryMovementRequestDTO(1L, MovementType.USO_PRODUCAO, BigDecimal.valueOf(60), MeasurementUnit.KG), 8L),
+                new InventoryMovementService.GroupedMovement(
+                        new InventoryMovementRequestDTO(1L, MovementType.PERDA, BigDecimal.valueOf(40), MeasurementUnit.KG), 8L));
+
+        when(userRepository.getReferenceById(7L)).thenReturn(User.builder().id(7L).build());
+        when(userRepository.getReferenceById(8L)).thenReturn(otherUser);
+        when(lotRepository.findAllByIdForUpdate(List.of(1L))).thenReturn(List.of(lot));
+        when(inventoryMapper.toInventoryMovementResponseDTO(any(InventoryMovement.class))).thenReturn(inventoryMovementResponseDTO);
+
+        var results = inventoryMovementService.createInventoryMovementGroup(group);
+
+        assertThat(results).extracting(result -> result.error() == null).containsExactly(true, false, true);
+        assertThat(results.get(1).error()).isInstanceOf(BusinessException.class);
+        ArgumentCaptor<List<InventoryMovement>> captor = ArgumentCaptor.captor();
+        verify(inventoryMovementRepository).saveAll(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(movement -> movement.getUser().getId(), InventoryMovement::getQuantity, InventoryMovement::getBalanceAfter)
+                .containsExactly(tuple(7L, 60L, 40L), tuple(8L, 40L, 0L));
+        assertThat(lot).extracting(Lot::getCurrentQtd, Lot::getStatus).containsExactly(0L, LotStatus.ESGOTADO);
+        verify(lotService).applyStockDelta(product.getId(), -100L);
+    }
+
+    @Test
+    void deleteInventoryMovement_WhenMovementIsUsoProducaoOrPerda_ShouldRevertThroughAReversal() {
+        lot.setCurrentQtd(50L);
         when(inventoryMovementRepository.findById(inventoryMovement.getId())).thenReturn(Optional.of(inventoryMovement));
+        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
         inventoryMovementService.deleteMovement(inventoryMovement.getId());
 
-        verify(inventoryMovementRepository).findById(inventoryMovement.getId());
-        verify(inventoryMovementRepository).delete(inventoryMovement);
+        verify(inventoryMovementRepository, never()).delete(any());
+        verify(lotRepository).restoreQuantity(eq(lot.getId()), eq(50L), any(LocalDate.class));
+        verify(lotService).applyStockDelta(product.getId(), 50L);
+        var captor = ArgumentCaptor.forClass(InventoryMovement.class);
+        verify(inventoryMovementRepository).save(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(InventoryMovement::getMovementType, InventoryMovement::getQuantity, InventoryMovement::getReversalOf)
+                .containsExactly(MovementType.ESTORNO, 50L, inventoryMovement);
     }
 
     @Test
-    void deleteInventoryMovement_WhenMovementIsUsoProducaoOrPerda_ShouldRevertAndDelete() {
-        lot.setCurrentQtd(50L);
+    void deleteInventoryMovement_WhenStockEngineIsEnabled_ShouldRecordTheBalanceTheReversalRestores() {
+        when(stockEngine.isEnabled()).thenReturn(true);
+        when(stockEngine.currentQtd(lot.getId())).thenReturn(OptionalLong.of(30L));
         when(inventoryMovementRepository.findById(inventoryMovement.getId())).thenReturn(Optional.of(inventoryMovement));
+
         inventoryMovementService.deleteMovement(inventoryMovement.getId());
 
-        verify(inventoryMovementRepository).delete(inventoryMovement);
-        verify(lotService).updateProductTotalStock(lot.getProduct());
-        assertThat(lot.getCurrentQtd()).isEqualTo(100L);
+        verify(stockEngine).restoreAfterCommit(eq(lot.getId()), eq(50L), any());
+        var captor = ArgumentCaptor.forClass(InventoryMovement.class);
+        verify(inventoryMovementRepository).save(captor.capture());
+        assertThat(captor.getValue())
+                .extracting(InventoryMovement::getMovementType, InventoryMovement::getBalanceAfter)
+                .containsExactly(MovementType.ESTORNO, 80L);
+    }
+
+    @Test
+    void deleteInventoryMovement_WhenAlreadyReversed_ShouldThrowException() {
+        when(inventoryMovementRepository.findById(inventoryMovement.getId())).thenReturn(Optional.of(inventoryMovement));
+        when(inventoryMovementRepository.existsByReversalOfId(inventoryMovement.getId())).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> inventoryMovementService.deleteMovement(inventoryMovement.getId()));
+        verify(lotRepository, never()).restoreQuantity(anyLong(), anyLong(), any());
     }
 
     @Test
@@ -0,0 +1,224 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.PageTotal;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.ProductMapper;
+import com.enterprise.gestaoestoque.mapper.SupplierMapper;
+import com.enterprise.gestaoestoque.mapper.UserMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.entity.Authority;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * As listagens paginadas são servidas por consultas de projeção: o número de statements por página é fixo e não
+ * depende de quantos lotes, fornecedores, usuários ou autoridades aparecem nela. A página é menor que o total para
+ * que o COUNT também seja executado no total EXACT; no NONE e no APPROXIMATE a requisição não executa COUNT (o
+ * APPROXIMATE só na primeira vez, para formar a estimativa).
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+@Import({ProductService.class, ProductMapper.class, ProductUnitRuleService.class, SupplierService.class,
+        SupplierMapper.class, InventoryMovementService.class, LotService.class, PageTotalService.class, UserService.class, InventoryMapper.class,
+        LotMapper.class, UserMapper.class, SimpleMeterRegistry.class, LotExpirationService.class,
+        SchedulerLeaseService.class, LotAllocationService.class, ThreadPoolTaskScheduler.class, StockEngine.class,
+        TotalStockWriteBehindService.class, LotCodeGenerator.class, WarehouseService.class, WarehouseMapper.class,
+        LotEscrowService.class})
+public class ListStatementCountTest {
+
+    private static final int ROWS = 4;
+    private static final PageRequest PAGE = PageRequest.of(0, ROWS - 1, Sort.by("id"));
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private LotService lotService;
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private SupplierService supplierService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setup() {
+        var authorities = new ArrayList<Authority>();
+        for (var name : new String[]{"ROLE_FUNCIONARIO", "ROLE_SUPERVISOR"}) {
+            var authority = new Authority();
+            authority.setName(name);
+            entityManager.persist(authority);
+            authorities.add(authority);
+        }
+        var warehouse = Warehouse.builder().name("Principal").isActive(true).build();
+        entityManager.persist(warehouse);
+
+        for (int i = 0; i < ROWS; i++) {
+            var user = User.builder()
+                    .name("Usuário " + i).email("usuario" + i + "@teste.com").password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).authorities(new ArrayList<>(authorities)).build();
+            entityManager.persist(user);
+            var supplier = Supplier.builder()
+                    .name("Fornecedor " + i).cnpj("00.000.000/0001-0" + i).contactName("Contato")
+                    .email("fornecedor" + i + "@teste.com").phone("(47) 90000-000" + i).isActive(true).build();
+            entityManager.persist(supplier);
+            var product = Product.builder()
+                    .name("Produto " + i).category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(20L).isActive(true).build();
+            entityManager.persist(product);
+            for (int j = 0; j < 2; j++) {
+                var lot = Lot.builder()
+                        .product(product).supplier(supplier).warehouse(warehouse)
+                        .initialQtd(10L).currentQtd(10L).measurementUnit(MeasurementUnit.KG)
+                        .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                        .lotCode("LOT-" + i + "-" + j).status(LotStatus.ATIVO).build();
+                entityManager.persist(lot);
+                entityManager.persist(InventoryMovement.builder()
+                        .lot(lot).user(user).warehouse(warehouse).movementType(MovementType.ENTRADA)
+                        .quantity(10L).measurementUnit(MeasurementUnit.KG).balanceAfter(10L)
+                        .dateAndTime(LocalDateTime.now()).build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAllProducts_ShouldRunPageLotsAndCountStatements() {
+        var page = productService.getAllProducts(PAGE, PageTotal.EXACT);
+
+        assertThat(page.getContent()).hasSize(ROWS - 1).allSatisfy(product -> assertThat(product.lots()).hasSize(2));
+        assertThat(page).isInstanceOfSatisfying(Page.class, exact -> assertThat(exact.getTotalElements()).isEqualTo(ROWS));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void getAllLots_ShouldRunPageAndCountStatements() {
+        var page = lotService.getAllLots(null, PAGE, PageTotal.EXACT);
+
+        assertThat(page.getContent()).hasSize(ROWS - 1)
+                .allSatisfy(lot -> assertThat(lot.supplier().name()).startsWith("Fornecedor"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllInventoryMovements_ShouldRunPageAndCountStatements() {
+        var page = inventoryMovementService.getAllInventoryMovements(null, PAGE, PageTotal.EXACT);
+
+        assertThat(page.getContent()).hasSize(ROWS - 1)
+                .allSatisfy(movement -> assertThat(movement.user().name()).startsWith("Usuário"));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllSuppliers_ShouldRunPageAndCountStatements() {
+        var page = supplierService.getAllSuppliers(PAGE, PageTotal.EXACT);
+
+        assertThat(page.getContent()).hasSize(ROWS - 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllUsers_ShouldRunPageAndCountStatementsWithoutLoadingAuthorities() {
+        var page = userService.getAllUsers(PAGE, PageTotal.EXACT);
+
+        assertThat(page.getContent()).hasSize(ROWS - 1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllProducts_WhenTotalIsNone_ShouldSkipCountStatement() {
+        var page = productService.getAllProducts(PAGE, PageTotal.NONE);
+
+        assertThat(page).isNotInstanceOf(Page.class);
+        assertThat(page.getContent()).hasSize(ROWS - 1);
+        assertThat(page.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getAllSuppliers_WhenTotalIsNoneOnLastPage_ShouldReportNoNextPage() {
+        var page = supplierService.getAllSuppliers(PageRequest.of(1, ROWS - 1, Sort.by("id")), PageTotal.NONE);
+
+        assertThat(page.getContent()).hasSize(1);
+        assertThat(page.hasNext()).isFalse();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getAllLots_WhenTotalIsApproximate_ShouldCountOnlyOnFirstRequest() {
+        var first = lotService.getAllLots(null, PAGE, PageTotal.APPROXIMATE);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        var second = lotService.getAllLots(null, PAGE, PageTotal.APPROXIMATE);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(List.of(first, second)).allSatisfy(page -> assertThat(page)
+                .isInstanceOfSatisfying(Page.class, approximate -> assertThat(approximate.getTotalElements())
+                        .isEqualTo(ROWS * 2L)));
+    }
+
+    @Test
+    void getAllInventoryMovements_WhenTotalIsApproximateAndWarehouseInformed_ShouldEstimateItsMovements() {
+        var warehouseId = entityManager.createQuery("SELECT w.id FROM Warehouse w", Long.class).getSingleResult();
+        statistics.clear();
+
+        var page = inventoryMovementService.getAllInventoryMovements(warehouseId, PAGE, PageTotal.APPROXIMATE);
+
+        assertThat(page).isInstanceOfSatisfying(Page.class,
+                approximate -> assertThat(approximate.getTotalElements()).isEqualTo(ROWS * 2L));
+    }
+}
@@ -0,0 +1,80 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.model.dto.lot.LotAllocationDTO;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LotAllocationServiceTest {
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @InjectMocks
+    private LotAllocationService lotAllocationService;
+
+    private final LocalDate today = LocalDate.now();
+
+    @Test
+    void candidates_WhenIndexIsBuilt_ShouldReturnLotsByExpirationThenId() {
+        when(lotRepository.findActiveAllocations()).thenReturn(List.of(
+                new LotAllocationDTO(3L, 1L, today.plusDays(10), 30L),
+                new LotAllocationDTO(2L, 1L, today.plusDays(2), 20L),
+                new LotAllocationDTO(1L, 1L, today.plusDays(10), 10L),
+                new LotAllocationDTO(4L, 2L, today.plusDays(1), 40L)));
+
+        lotAllocationService.rebuildIndex();
+
+        assertThat(lotAllocationService.candidates(1L, today))
+                .extracting(LotAllocationService.LotCandidate::lotId)
+                .containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void candidates_WhenLotIsExpired_ShouldSkipIt() {
+        when(lotRepository.findActiveAllocations()).thenReturn(List.of(
+                new LotAllocationDTO(1L, 1L, today.minusDays(1), 10L),
+                new LotAllocationDTO(2L, 1L, today, 20L)));
+
+        lotAllocationService.rebuildIndex();
+
+        assertThat(lotAllocationService.candidates(1L, today))
+                .extracting(LotAllocationService.LotCandidate::lotId)
+                .containsExactly(2L);
+    }
+
+    @Test
+    void adjust_WhenLotIsDepleted_ShouldRemoveItFromIndex() {
+        lotAllocationService.adjust(1L, 1L, today.plusDays(5), 50L);
+        lotAllocationService.adjust(1L, 1L, today.plusDays(5), -50L);
+
+        assertThat(lotAllocationService.candidates(1L, today)).isEmpty();
+    }
+
+    @Test
+    void adjust_WhenInsideTransaction_ShouldOnlyApplyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            lotAllocationService.adjust(1L, 1L, today.plusDays(5), 50L);
+            assertThat(lotAllocationService.candidates(1L, today)).isEmpty();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.afterCommit());
+            assertThat(lotAllocationService.candidates(1L, today))
+                    .extracting(LotAllocationService.LotCandidate::availableQtd)
+                    .containsExactly(50L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
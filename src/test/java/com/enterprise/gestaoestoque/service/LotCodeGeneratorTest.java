@@ -0,0 +1,33 @@
+package com.enterprise.gestaoestoque.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.HashSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(LotCodeGenerator.class)
+public class LotCodeGeneratorTest {
+
+    @Autowired
+    private LotCodeGenerator lotCodeGenerator;
+
+    @Test
+    void next_WhenManyCodesAreRequested_ShouldReturnDistinctCodesFromSequenceBlocks() {
+        var codes = lotCodeGenerator.next(120);
+        codes.add(lotCodeGenerator.next());
+
+        assertThat(new HashSet<>(codes)).hasSize(121);
+        assertThat(codes).allMatch(code -> code.matches("LT-[0-9A-Z]{12}"));
+    }
+
+    @Test
+    void format_WhenValueIsSmall_ShouldPadToFifteenCharacters() {
+        assertThat(LotCodeGenerator.format(1)).isEqualTo("LT-000000000001");
+        assertThat(LotCodeGenerator.format(36)).isEqualTo("LT-000000000010");
+    }
+}
@@ -0,0 +1,231 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.repository.LotEscrowRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SchedulerLeaseRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Vários nós locais (instâncias do serviço com node ids diferentes, sobre o mesmo banco) disputando um único
+ * lote, misturando baixas pela cota de escrow e baixas diretas, com acertos rodando em paralelo.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({LotService.class, PageTotalService.class, LotMapper.class, LotExpirationService.class, SchedulerLeaseService.class,
+        LotAllocationService.class, SimpleMeterRegistry.class, ThreadPoolTaskScheduler.class, StockEngine.class,
+        TotalStockWriteBehindService.class, LotCodeGenerator.class, WarehouseService.class, WarehouseMapper.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class LotEscrowStressTest {
+
+    private static final int NODES = 4;
+    private static final int THREADS_PER_NODE = 3;
+    private static final int ATTEMPTS_PER_THREAD = 80;
+    private static final long LOT_QTD = 1_500;
+
+    @Autowired
+    private LotService lotService;
+
+    @Autowired
+    private LotAllocationService lotAllocationService;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private LotEscrowRepository lotEscrowRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private SchedulerLeaseRepository schedulerLeaseRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        lotEscrowRepository.deleteAllInBatch();
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void withdrawals_WhenSeveralNodesHitTheSameLot_ShouldNeverTakeMoreThanTheLotHas() throws Exception {
+        var lotId = createLot();
+        var registry = new SimpleMeterRegistry();
+        var nodes = new ArrayList<LotEscrowService>();
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(node("node-" + i, registry, Duration.ofHours(1)));
+        }
+
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        var withdrawn = new AtomicLong();
+        var violations = new ConcurrentLinkedQueue<String>();
+        var running = new AtomicBoolean(true);
+        var start = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var workers = new ArrayList<Future<?>>();
+            for (var node : nodes) {
+                for (int t = 0; t < THREADS_PER_NODE; t++) {
+                    workers.add(executor.submit(() -> {
+                        start.await();
+                        for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                            long quantity = ThreadLocalRandom.current().nextLong(1, 6);
+                            try {
+                                Boolean done = transactionTemplate.execute(status -> {
+                                    var lot = lotRepository.findById(lotId).orElseThrow();
+                                    if (node.tryWithdraw(lot, quantity)) {
+                                        return true;
+                                    }
+                                    // Baixa direta, como no InventoryMovementService
+                                    var countsInTotalStock = lot.getStatus() == LotStatus.ATIVO;
+                                    if (lotRepository.withdrawQuantity(lotId, quantity) == 0) {
+                                        return false;
+                                    }
+                                    lotService.applyStockDelta(lot.getProduct().getId(), countsInTotalStock ? -quantity : 0);
+                                    return true;
+                                });
+                                if (Boolean.TRUE.equals(done)) {
+                                    withdrawn.addAndGet(quantity);
+                                }
+                            } catch (RuntimeException e) {
+                                // Timeout de lock no H2: a transação foi desfeita e a baixa não conta
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                // Acerto contínuo de cada nó, concorrendo com as baixas
+                executor.submit(() -> {
+                    while (running.get()) {
+                        node.settle();
+                        Thread.sleep(5);
+                    }
+                    return null;
+                });
+            }
+            executor.submit(() -> {
+                while (running.get()) {
+                    var lot = lotRepository.findById(lotId).orElseThrow();
+                    if (lot.getCurrentQtd() < 0 || lot.getCurrentQtd() - lot.getReservedQtd() < 0) {
+                        violations.add("saldo " + lot.getCurrentQtd() + ", reservado " + lot.getReservedQtd());
+                    }
+                    Thread.sleep(2);
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (var worker : workers) {
+                worker.get();
+            }
+            running.set(false);
+        }
+
+        // Um nó novo, com idle-release zero, acerta e devolve as cotas de todos (como faria após a queda de um nó)
+        node("node-recovery", registry, Duration.ZERO).settle();
+
+        var lot = lotRepository.findById(lotId).orElseThrow();
+        assertThat(violations).isEmpty();
+        assertThat(lot.getCurrentQtd()).isEqualTo(LOT_QTD - withdrawn.get()).isNotNegative();
+        assertThat(lot.getReservedQtd()).isZero();
+        assertThat(lotEscrowRepository.count()).isZero();
+        assertThat(productRepository.findById(lot.getProduct().getId()).orElseThrow().getTotalStock())
+                .isEqualTo(lot.getCurrentQtd());
+        assertThat(registry.counter("lots.escrow.withdrawals", "result", "quota").count()).isPositive();
+    }
+
+    @Test
+    void withdrawals_WhenServedByTheQuota_ShouldKeepTheAllocationIndexAtTheFreeBalance() {
+        var lotId = createLot();
+        var lot = lotRepository.findById(lotId).orElseThrow();
+        var productId = lot.getProduct().getId();
+        lotAllocationService.refresh(productId, lotId, lot.getExpirationDate(), LOT_QTD);
+        var node = node("node-index", new SimpleMeterRegistry(), Duration.ZERO);
+
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < 3; i++) {
+            Boolean escrowed = transactionTemplate.execute(status ->
+                    node.tryWithdraw(lotRepository.findById(lotId).orElseThrow(), 10));
+            assertThat(escrowed).isTrue();
+            assertThat(indexedQtd(productId)).isEqualTo(freeQtd(lotId));
+        }
+
+        node.settle();
+
+        assertThat(lotRepository.findById(lotId).orElseThrow().getCurrentQtd()).isEqualTo(LOT_QTD - 30);
+        assertThat(indexedQtd(productId)).isEqualTo(freeQtd(lotId)).isEqualTo(LOT_QTD - 30);
+    }
+
+    private long indexedQtd(Long productId) {
+        return lotAllocationService.candidates(productId, LocalDate.now()).stream()
+                .mapToLong(LotAllocationService.LotCandidate::availableQtd).sum();
+    }
+
+    private long freeQtd(Long lotId) {
+        var lot = lotRepository.findById(lotId).orElseThrow();
+        return lot.getCurrentQtd() - lot.getReservedQtd();
+    }
+
+    private LotEscrowService node(String nodeId, SimpleMeterRegistry registry, Duration idleRelease) {
+        var leases = new SchedulerLeaseService(schedulerLeaseRepository, registry, nodeId);
+        return new LotEscrowService(lotEscrowRepository, lotRepository, lotService, lotAllocationService, leases,
+                transactionManager, registry, true, 1_000, 50, idleRelease);
+    }
+
+    private Long createLot() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor escrow").cnpj("00.000.000/0001-01").contactName("Contato")
+                    .email("escrow@teste.com").phone("(47) 90000-0001").isActive(true).build());
+            var product = productRepository.save(Product.builder()
+                    .name("Produto escrow").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(LOT_QTD).isActive(true).build());
+            return lotRepository.save(Lot.builder()
+                    .product(product).supplier(supplier)
+                    .initialQtd(LOT_QTD).currentQtd(LOT_QTD).measurementUnit(MeasurementUnit.KG)
+                    .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                    .lotCode("ESCROW00001").status(LotStatus.ATIVO)
+                    .build()).getId();
+        });
+    }
+}
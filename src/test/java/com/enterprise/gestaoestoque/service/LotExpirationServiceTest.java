@@ -0,0 +1,151 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.model.dto.lot.LotExpirationDTO;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LotExpirationServiceTest {
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private TotalStockWriteBehindService totalStockWriteBehindService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private LotExpirationService lotExpirationService;
+
+    @Test
+    void rebuildIndex_WhenLotsExist_ShouldScheduleFiringAfterEarliestExpiration() {
+        var earliest = LocalDate.now().plusDays(2);
+        when(lotRepository.findPendingExpirations()).thenReturn(List.of(
+                new LotExpirationDTO(1L, earliest.plusDays(10)),
+                new LotExpirationDTO(2L, earliest)));
+        doReturn(mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+
+        lotExpirationService.rebuildIndex();
+
+        assertThat(lotExpirationService.size()).isEqualTo(2);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOfDay(earliest.plusDays(1))));
+    }
+
+    @Test
+    void register_WhenLotExpiresBeforeScheduledFiring_ShouldReschedule() {
+        var later = LocalDate.now().plusDays(30);
+        var sooner = LocalDate.now().plusDays(3);
+        ScheduledFuture<?> firstFiring = mock(ScheduledFuture.class);
+        doReturn(firstFiring, mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+
+        lotExpirationService.register(1L, later);
+        lotExpirationService.register(2L, later.plusDays(1));
+        lotExpirationService.register(3L, sooner);
+
+        verify(firstFiring).cancel(false);
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOfDay(sooner.plusDays(1))));
+    }
+
+    @Test
+    void unregister_WhenLotIsDeleted_ShouldRemoveFromIndex() {
+        var date = LocalDate.now().plusDays(5);
+        doReturn(mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        lotExpirationService.register(1L, date);
+
+        lotExpirationService.unregister(1L, date);
+
+        assertThat(lotExpirationService.size()).isZero();
+    }
+
+    @Test
+    void expireDueLots_WhenLotsAreDue_ShouldExpireOnlyDueLotsAndRecalculateProducts() {
+        var today = LocalDate.now();
+        when(lotRepository.findPendingExpirations()).thenReturn(List.of(
+                new LotExpirationDTO(1L, today.minusDays(1)),
+                new LotExpirationDTO(2L, today.plusDays(7))));
+        doReturn(mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        lotExpirationService.rebuildIndex();
+        when(lotRepository.findProductIdsOfExpiredActiveLots(today, List.of(1L))).thenReturn(List.of(10L));
+        when(lotRepository.markExpiredLotsById(today, List.of(1L))).thenReturn(1);
+        when(schedulerLeaseService.tryAcquire(eq("lots.expiration"), any())).thenReturn(true);
+
+        lotExpirationService.expireDueLots();
+
+        verify(lotRepository).markExpiredLotsById(today, List.of(1L));
+        verify(productRepository).recalculateTotalStockIn(List.of(10L));
+        assertThat(lotExpirationService.size()).isEqualTo(1);
+        assertThat(meterRegistry.counter("lots.expiration.fired.rows").count()).isEqualTo(1.0);
+        verify(taskScheduler).schedule(any(Runnable.class), eq(startOfDay(today.plusDays(8))));
+    }
+
+    @Test
+    void expireDueLots_WhenAnotherNodeHoldsTheLease_ShouldOnlyDropDueLotsFromIndex() {
+        var today = LocalDate.now();
+        when(lotRepository.findPendingExpirations()).thenReturn(List.of(new LotExpirationDTO(1L, today.minusDays(1))));
+        doReturn(mock(ScheduledFuture.class)).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        lotExpirationService.rebuildIndex();
+        when(schedulerLeaseService.tryAcquire(eq("lots.expiration"), any())).thenReturn(false);
+
+        lotExpirationService.expireDueLots();
+
+        verify(lotRepository, never()).markExpiredLotsById(any(), any());
+        assertThat(lotExpirationService.size()).isZero();
+    }
+
+    @Test
+    void expireDueLots_WhenNothingIsDue_ShouldNotTouchDatabase() {
+        lotExpirationService.expireDueLots();
+
+        verify(lotRepository, never()).markExpiredLotsById(any(), any());
+        verify(productRepository, never()).recalculateTotalStockIn(any());
+    }
+
+    private static Instant startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -1,13 +1,16 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.configuration.routing.WarehouseContext;
 import com.enterprise.gestaoestoque.enums.LotStatus;
 import com.enterprise.gestaoestoque.enums.MeasurementUnit;
 import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.LotMapper;
 import com.enterprise.gestaoestoque.model.dto.lot.LotRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.lot.LotResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.lot.LotRowDTO;
 import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
 import com.enterprise.gestaoestoque.model.entity.Lot;
 import com.enterprise.gestaoestoque.model.entity.Product;
@@ -16,23 +19,37 @@ import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
 import com.enterprise.gestaoestoque.repository.LotRepository;
 import com.enterprise.gestaoestoque.repository.ProductRepository;
 import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.lang.reflect.InvocationTargetException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,6 +70,36 @@ public class LotServiceTest {
     @Mock
     private LotMapper lotMapper;
 
+    @Mock
+    private LotExpirationService lotExpirationService;
+
+    @Mock
+    private SchedulerLeaseService schedulerLeaseService;
+
+    @Mock
+    private LotAllocationService lotAllocationService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private TotalStockWriteBehindService totalStockWriteBehindService;
+
+    @Mock
+    private LotCodeGenerator lotCodeGenerator;
+
+    @Mock
+    private WarehouseService warehouseService;
+
+    @Spy
+    private PageTotalService pageTotalService = new PageTotalService(null);
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private LotService lotService;
 
@@ -114,25 +161,49 @@ public class LotServiceTest {
                 .build();
     }
 
+    private LotRowDTO lotRow() {
+        return new LotRowDTO(lot.getId(), lot.getLotCode(), lot.getInitialQtd(), lot.getCurrentQtd(), lot.getReservedQtd(),
+                lot.getMeasurementUnit(), lot.getEntryDate(), lot.getExpirationDate(), lot.getStatus(),
+                null, null, null, null, null, 3L, "Depósito");
+    }
+
     @Test
     void getAllLots_WhenCalled_ShouldReturnAllLots() {
         var pageable = PageRequest.of(1, 10);
-        var lotsList = List.of(lot);
-        var lotPage = new PageImpl<>(lotsList, pageable, lotsList.size());
+        var row = lotRow();
+        var lotPage = new PageImpl<>(List.of(row), pageable, 1);
 
-        when(lotRepository.findAll(pageable)).thenReturn(lotPage);
-        when(lotMapper.toLotResponseDTO(lot)).thenReturn(lotResponseDTO);
+        when(lotRepository.findAllRows(pageable)).thenReturn(lotPage);
+        when(lotMapper.toLotResponseDTO(row)).thenReturn(lotResponseDTO);
 
-        var result = lotService.getAllLots(pageable);
+        var result = lotService.getAllLots(null, pageable, PageTotal.EXACT);
 
         assertThat(result)
                 .isNotNull()
                 .hasSize(1);
     }
 
+    @Test
+    void getAllLots_WhenWarehouseIsInformed_ShouldQueryOnlyItsLotsRoutedToIt() {
+        var pageable = PageRequest.of(1, 10);
+        var row = lotRow();
+        var lotPage = new PageImpl<>(List.of(row), pageable, 1);
+        when(lotRepository.findRowsByWarehouseId(3L, pageable)).thenAnswer(invocation -> {
+            assertThat(WarehouseContext.currentWarehouseId()).isEqualTo(3L);
+            return lotPage;
+        });
+        when(lotMapper.toLotResponseDTO(row)).thenReturn(lotResponseDTO);
+
+        var result = lotService.getAllLots(3L, pageable, PageTotal.EXACT);
+
+        assertThat(result).hasSize(1);
+        assertThat(WarehouseContext.currentWarehouseId()).isNull();
+        verify(lotRepository, never()).findAllRows(pageable);
+    }
+
     @Test
     void getLotById_WhenCalled_ShouldReturnLotObject() {
-        when(lotRepository.findById(lot.getId())).thenReturn(Optional.of(lot));
+        when(lotRepository.findDetailById(lot.getId())).thenReturn(Optional.of(lot));
         when(lotMapper.toLotResponseDTO(lot)).thenReturn(lotResponseDTO);
 
         var result = lotService.getLotById(lot.getId());
@@ -145,7 +216,7 @@ public class LotServiceTest {
 
     @Test
     void getLotById_WhenIdDoesNotExist_ShouldThrowException() {
-        when(lotRepository.findById(lot.getId())).thenReturn(Optional.empty());
+        when(lotRepository.findDetailById(lot.getId())).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> lotService.getLotById(lot.getId()));
     }
 
@@ -163,6 +234,19 @@ public class LotServiceTest {
                 .isNotNull()
                 .extracting(LotResponseDTO::measurementUnit, LotResponseDTO::initialQtd)
                 .containsExactly(MeasurementUnit.KG, 50L);
+        verify(productRepository).addToTotalStock(product.getId(), 50L);
+        verify(lotExpirationService).register(lot.getId(), lot.getExpirationDate());
+        verify(lotAllocationService).adjust(product.getId(), lot.getId(), lot.getExpirationDate(), 50L);
+    }
+
+    @Test
+    void applyStockDelta_WhenWriteBehindIsEnabled_ShouldAccumulateInsteadOfUpdatingProduct() {
+        when(totalStockWriteBehindService.isEnabled()).thenReturn(true);
+
+        lotService.applyStockDelta(product.getId(), -20L);
+
+        verify(totalStockWriteBehindService).add(product.getId(), -20L);
+        verify(productRepository, never()).addToTotalStock(any(), anyLong());
     }
 
     @Test
@@ -176,25 +260,72 @@ public class LotServiceTest {
     }
 
     @Test
-    void updateLotStatuses_WhenLotIsExpired_ShouldUpdateStatusToVencido() {
-        lot.setExpirationDate(LocalDate.now().minusDays(1));
-        when(lotRepository.findByStatus(LotStatus.ATIVO)).thenReturn(List.of(lot));
+    void updateLotStatuses_WhenLotsAreExpired_ShouldExpireAndRecalculateAffectedProducts() {
+        when(schedulerLeaseService.tryAcquire(eq("lots.reconciliation"), any())).thenReturn(true);
+        var today = LocalDate.now();
+        when(lotRepository.findProductIdsWithExpiredActiveLots(today)).thenReturn(List.of(product.getId()));
+        when(lotRepository.markExpiredLots(today, List.of(product.getId()))).thenReturn(2);
+
+        lotService.updateLotStatuses();
+
+        verify(lotRepository).markExpiredLots(today, List.of(product.getId()));
+        verify(productRepository).recalculateTotalStockIn(List.of(product.getId()));
+        verify(lotRepository).markDepletedLots();
+        verify(lotExpirationService).rebuildIndex();
+        assertThat(meterRegistry.counter("lots.sweep.rows", "status", "VENCIDO").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void updateLotStatuses_WhenManyProductsAreAffected_ShouldRecalculateInChunks() {
+        when(schedulerLeaseService.tryAcquire(eq("lots.reconciliation"), any())).thenReturn(true);
+        var today = LocalDate.now();
+        var productIds = LongStream.rangeClosed(1, 1200).boxed().toList();
+        when(lotRepository.findProductIdsWithExpiredActiveLots(today)).thenReturn(productIds);
+
+        lotService.updateLotStatuses();
+
+        verify(productRepository).recalculateTotalStockIn(productIds.subList(0, 500));
+        verify(productRepository).recalculateTotalStockIn(productIds.subList(500, 1000));
+        verify(productRepository).recalculateTotalStockIn(productIds.subList(1000, 1200));
+        verify(lotRepository, times(3)).markExpiredLots(eq(today), anyCollection());
+    }
+
+    @Test
+    void updateLotStatuses_WhenRecalculationFails_ShouldRollBackTheChunkExpiration() {
+        when(schedulerLeaseService.tryAcquire(eq("lots.reconciliation"), any())).thenReturn(true);
+        var today = LocalDate.now();
+        when(lotRepository.findProductIdsWithExpiredActiveLots(today)).thenReturn(List.of(product.getId()));
+        when(lotRepository.markExpiredLots(today, List.of(product.getId()))).thenReturn(2);
+        doThrow(new IllegalStateException("falha no recálculo"))
+                .when(productRepository).recalculateTotalStockIn(List.of(product.getId()));
+
+        assertThrows(IllegalStateException.class, () -> lotService.updateLotStatuses());
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+    }
+
+    @Test
+    void updateLotStatuses_WhenOnlyDepletedLotsExist_ShouldNotRecalculateProducts() {
+        when(schedulerLeaseService.tryAcquire(eq("lots.reconciliation"), any())).thenReturn(true);
+        when(lotRepository.findProductIdsWithExpiredActiveLots(LocalDate.now())).thenReturn(List.of());
+        when(lotRepository.markDepletedLots()).thenReturn(3);
+
         lotService.updateLotStatuses();
 
-        assertThat(lot)
-                .extracting(Lot::getStatus, Lot::getInitialQtd)
-                .containsExactly(LotStatus.VENCIDO, 50L);
+        verify(lotRepository, never()).markExpiredLots(any(), anyCollection());
+        verifyNoInteractions(productRepository);
+        assertThat(meterRegistry.counter("lots.sweep.rows", "status", "ESGOTADO").count()).isEqualTo(3.0);
     }
 
     @Test
-    void updateLotStatuses_WhenLotIsDepleted_ShouldUpdateStatusToEsgotado() {
-        lot.setCurrentQtd(0L);
-        when(lotRepository.findByStatus(LotStatus.ATIVO)).thenReturn(List.of(lot));
+    void updateLotStatuses_WhenAnotherNodeHoldsTheLease_ShouldOnlyRebuildIndex() {
+        when(schedulerLeaseService.tryAcquire(eq("lots.reconciliation"), any())).thenReturn(false);
+
         lotService.updateLotStatuses();
 
-        assertThat(lot)
-                .extracting(Lot::getStatus, Lot::getCurrentQtd)
-                .containsExactly(LotStatus.ESGOTADO, 0L);
+        verifyNoInteractions(lotRepository, productRepository);
+        verify(lotExpirationService).rebuildIndex();
     }
 
     @Test
@@ -203,11 +334,11 @@ public class LotServiceTest {
 
         var compra = new InventoryMovement();
         compra.setMovementType(MovementType.PERDA);
-        compra.setQuantity(5.0);
+        compra.setQuantity(5L);
 
         var uso = new InventoryMovement();
         uso.setMovementType(MovementType.USO_PRODUCAO);
-        uso.setQuantity(10.0);
+        uso.setQuantity(10L);
 
         when(productRepository.findByIsActive(true)).thenReturn(List.of(product));
         when(lotRepository.findByProductAndStatus(product, LotStatus.ATIVO))
@@ -231,6 +362,8 @@ public class LotServiceTest {
 
         verify(lotRepository).findById(lot.getId());
         verify(lotRepository).delete(lot);
+        verifyNoInteractions(productRepository);
+        verify(lotExpirationService).unregister(lot.getId(), lot.getExpirationDate());
     }
 
     @Test
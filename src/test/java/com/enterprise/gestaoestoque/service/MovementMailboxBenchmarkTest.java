@@ -0,0 +1,183 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.UserMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compara o caminho síncrono com as filas por produto sob carga concentrada (90% das movimentações
+ * num único produto). Não roda no build padrão:
+ * {@code mvn test -Dtest=MovementMailboxBenchmarkTest -Dbenchmark=true}.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryMovementService.class, LotService.class, PageTotalService.class, UserService.class, InventoryMapper.class, LotMapper.class,
+        UserMapper.class, SimpleMeterRegistry.class, LotExpirationService.class, SchedulerLeaseService.class,
+        LotAllocationService.class, ThreadPoolTaskScheduler.class, StockEngine.class,
+        TotalStockWriteBehindService.class, LotCodeGenerator.class, WarehouseService.class, WarehouseMapper.class, LotEscrowService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class MovementMailboxBenchmarkTest {
+
+    private static final int PRODUCTS = 20;
+    private static final int THREADS = 32;
+    private static final int MOVEMENTS = 4_000;
+    private static final double HOT_SHARE = 0.9;
+    private static final String EMAIL = "benchmark@teste.com";
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    void skewedLoad() throws Exception {
+        var lotIds = setup();
+        var registry = new SimpleMeterRegistry();
+        var mailbox = new MovementMailboxService(inventoryMovementService, userService, lotRepository, registry, true, 200);
+
+        // Aquecimento e medição de cada modo, na mesma massa de dados
+        run(lotIds, inventoryMovementService::createInventoryMovement, MOVEMENTS / 4);
+        run(lotIds, mailbox::createInventoryMovement, MOVEMENTS / 4);
+        var sync = run(lotIds, inventoryMovementService::createInventoryMovement, MOVEMENTS);
+        var grouped = run(lotIds, mailbox::createInventoryMovement, MOVEMENTS);
+
+        print("síncrono", sync);
+        print("fila por produto", grouped);
+        System.out.printf("tamanho médio do grupo: %.1f%n", registry.summary("movements.mailbox.group.size").mean());
+
+        long expectedMovements = (MOVEMENTS / 4 + MOVEMENTS) * 2L;
+        assertThat(inventoryMovementRepository.count()).isEqualTo(expectedMovements);
+        var lots = lotRepository.findAllById(Arrays.asList(lotIds));
+        long withdrawn = lots.stream().mapToLong(lot -> lot.getInitialQtd() - lot.getCurrentQtd()).sum();
+        assertThat(withdrawn).isEqualTo(expectedMovements);
+        lots.forEach(lot -> assertThat(productRepository.findById(lot.getProduct().getId()).orElseThrow().getTotalStock())
+                .isEqualTo(lot.getCurrentQtd()));
+    }
+
+    private Long[] setup() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            userRepository.save(User.builder().name("Benchmark").email(EMAIL).password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).build());
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor benchmark").cnpj("00.000.000/0001-00").contactName("Contato")
+                    .email("fornecedor@teste.com").phone("(47) 90000-0000").isActive(true).build());
+            var lotIds = new Long[PRODUCTS];
+            for (int i = 0; i < PRODUCTS; i++) {
+                var product = productRepository.save(Product.builder()
+                        .name("Produto " + i).category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                        .minQuantity(1L).totalStock(1_000_000L).isActive(true).build());
+                lotIds[i] = lotRepository.save(Lot.builder()
+                        .product(product).supplier(supplier)
+                        .initialQtd(1_000_000L).currentQtd(1_000_000L).measurementUnit(MeasurementUnit.KG)
+                        .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                        .lotCode("MAILBOX%05d".formatted(i)).status(LotStatus.ATIVO)
+                        .build()).getId();
+            }
+            return lotIds;
+        });
+    }
+
+    private long[] run(Long[] lotIds, Function<InventoryMovementRequestDTO, InventoryMovementResponseDTO> create,
+                       int movements) throws Exception {
+        var principal = org.springframework.security.core.userdetails.User.withUsername(EMAIL)
+                .password("senha").authorities("FUNCIONARIO").build();
+        var latencies = new long[movements];
+        long start = System.nanoTime();
+        try (var executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    SecurityContextHolder.getContext().setAuthentication(
+                            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+                    var random = ThreadLocalRandom.current();
+                    for (int i = thread; i < movements; i += THREADS) {
+                        var lotId = random.nextDouble() < HOT_SHARE ? lotIds[0] : lotIds[1 + random.nextInt(PRODUCTS - 1)];
+                        long begin = System.nanoTime();
+                        create.apply(new InventoryMovementRequestDTO(lotId, MovementType.USO_PRODUCAO, BigDecimal.ONE, MeasurementUnit.KG));
+                        latencies[i] = System.nanoTime() - begin;
+                    }
+                    SecurityContextHolder.clearContext();
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new long[]{elapsed, latencies[movements / 2], latencies[(int) (movements * 0.99)]};
+    }
+
+    private static void print(String mode, long[] result) {
+        System.out.printf("%s: %d movimentações em %d ms (%.0f/s), p50 %.2f ms, p99 %.2f ms%n",
+                mode, MOVEMENTS, result[0] / 1_000_000, MOVEMENTS / (result[0] / 1e9), result[1] / 1e6, result[2] / 1e6);
+    }
+}
@@ -0,0 +1,150 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementResponseDTO;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MovementMailboxServiceTest {
+
+    @Mock
+    private InventoryMovementService inventoryMovementService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LotRepository lotRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void createInventoryMovement_WhenMailboxIsDisabled_ShouldUseSynchronousPath() {
+        var mailbox = mailbox(false);
+        var request = request(1L, 10);
+        when(inventoryMovementService.createInventoryMovement(request)).thenReturn(response(1L, 10L));
+
+        var result = mailbox.createInventoryMovement(request);
+
+        assertThat(result.id()).isEqualTo(1L);
+        verify(inventoryMovementService, never()).createInventoryMovementGroup(anyList());
+    }
+
+    @Test
+    void createInventoryMovement_WhenCallsQueueUpForSameProduct_ShouldGroupCommitAndAnswerEachCaller() throws Exception {
+        var mailbox = mailbox(true);
+        when(userService.getLoggedUser()).thenReturn(User.builder().id(7L).build());
+        when(lotRepository.findProductIdById(any())).thenReturn(Optional.of(100L));
+
+        var firstGroupStarted = new CountDownLatch(1);
+        var releaseFirstGroup = new CountDownLatch(1);
+        var groupSizes = new CopyOnWriteArrayList<Integer>();
+        when(inventoryMovementService.createInventoryMovementGroup(anyList())).thenAnswer(invocation -> {
+            List<InventoryMovementService.GroupedMovement> group = invocation.getArgument(0);
+            groupSizes.add(group.size());
+            if (groupSizes.size() == 1) {
+                firstGroupStarted.countDown();
+                releaseFirstGroup.await(5, TimeUnit.SECONDS);
+            }
+            return group.stream()
+                    .map(movement -> movement.request().quantity().compareTo(BigDecimal.valueOf(50)) > 0
+                            ? new InventoryMovementService.GroupedMovementResult(null,
+                                    new BusinessException("Quantidade maior que a disponível no lote."))
+                            : new InventoryMovementService.GroupedMovementResult(
+                                    response(movement.request().lotId(), movement.request().quantity().longValue()), null))
+                    .toList();
+        });
+
+        try (var executor = Executors.newFixedThreadPool(6)) {
+            var first = executor.submit(() -> mailbox.createInventoryMovement(request(1L, 1)));
+            assertThat(firstGroupStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            var queued = new ArrayList<Future<InventoryMovementResponseDTO>>();
+            for (int i = 2; i <= 5; i++) {
+                long lotId = i;
+                queued.add(executor.submit(() -> mailbox.createInventoryMovement(request(lotId, lotId == 5 ? 99 : lotId))));
+            }
+            // As quatro chamadas consultam o produto logo antes de entrar na fila
+            while (mockingDetails(lotRepository).getInvocations().size() < 5) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+            releaseFirstGroup.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS).id()).isEqualTo(1L);
+            for (int i = 0; i < 3; i++) {
+                assertThat(queued.get(i).get(5, TimeUnit.SECONDS).id()).isEqualTo(i + 2L);
+            }
+            var failed = assertThrows(Exception.class, () -> queued.get(3).get(5, TimeUnit.SECONDS));
+            assertThat(failed.getCause()).isInstanceOf(BusinessException.class);
+        }
+
+        assertThat(groupSizes).containsExactly(1, 4);
+    }
+
+    @Test
+    void createInventoryMovement_WhenGroupTransactionFails_ShouldFailEveryCaller() {
+        var mailbox = mailbox(true);
+        when(userService.getLoggedUser()).thenReturn(User.builder().id(7L).build());
+        when(lotRepository.findProductIdById(1L)).thenReturn(Optional.of(100L));
+        when(inventoryMovementService.createInventoryMovementGroup(anyList())).thenThrow(new IllegalStateException("banco indisponível"));
+
+        assertThrows(IllegalStateException.class, () -> mailbox.createInventoryMovement(request(1L, 1)));
+    }
+
+    @Test
+    void createInventoryMovement_WhenLotDoesNotExist_ShouldThrowResourceNotFoundException() {
+        var mailbox = mailbox(true);
+        when(userService.getLoggedUser()).thenReturn(User.builder().id(7L).build());
+        when(lotRepository.findProductIdById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> mailbox.createInventoryMovement(request(99L, 1)));
+        verify(inventoryMovementService, never()).createInventoryMovementGroup(anyList());
+    }
+
+    private MovementMailboxService mailbox(boolean enabled) {
+        return new MovementMailboxService(inventoryMovementService, userService, lotRepository, meterRegistry, enabled, 200);
+    }
+
+    private static InventoryMovementRequestDTO request(Long lotId, long quantity) {
+        return new InventoryMovementRequestDTO(lotId, MovementType.USO_PRODUCAO, BigDecimal.valueOf(quantity),
+                MeasurementUnit.KG);
+    }
+
+    private static InventoryMovementResponseDTO response(Long lotId, Long quantity) {
+        return InventoryMovementResponseDTO.builder()
+                .id(lotId)
+                .quantity(quantity)
+                .measurementUnit(MeasurementUnit.KG)
+                .build();
+    }
+}
@@ -1,29 +1,40 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.enums.LotStatus;
 import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.enums.ProductCategory;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.ProductMapper;
+import com.enterprise.gestaoestoque.model.dto.product.ProductLotRowDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductRequestDTO;
 import com.enterprise.gestaoestoque.model.dto.product.ProductResponseDTO;
+import com.enterprise.gestaoestoque.model.dto.product.ProductRowDTO;
+import com.enterprise.gestaoestoque.model.dto.product.ProductUpdateDTO;
 import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.LotRepository;
 import com.enterprise.gestaoestoque.repository.ProductRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,9 +44,21 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private LotRepository lotRepository;
+
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private TotalStockWriteBehindService totalStockWriteBehindService;
+
+    @Mock
+    private ProductUnitRuleService productUnitRuleService;
+
+    @Spy
+    private PageTotalService pageTotalService = new PageTotalService(null);
+
     @InjectMocks
     private ProductService productService;
 
@@ -73,22 +96,26 @@ public class ProductServiceTest {
     @Test
     void getAllProducts_WhenCalled_ShouldReturnPageOfProducts() {
         var pageble = PageRequest.of(1, 10);
-        List<Product> listProducts = List.of(product);
-        Page<Product> pageProduct = new PageImpl<>(listProducts, pageble, listProducts.size());
+        var row = new ProductRowDTO(product.getId(), product.getName(), product.getCategory(),
+                product.getMeasurementUnit(), true, 0L, 0L);
+        var lotRow = new ProductLotRowDTO(product.getId(), "LOT-1", LotStatus.ATIVO, LocalDate.now().plusDays(10));
+        Page<ProductRowDTO> pageProduct = new PageImpl<>(List.of(row), pageble, 1);
 
-        when(productRepository.findAll(pageble)).thenReturn(pageProduct);
-        when(productMapper.toProductResponseDTO(product)).thenReturn(productResponseDTO);
+        when(productRepository.findAllRows(pageble)).thenReturn(pageProduct);
+        when(lotRepository.findProductLotRows(List.of(product.getId()))).thenReturn(List.of(lotRow));
+        when(productMapper.toProductResponseDTO(row, List.of(lotRow))).thenReturn(productResponseDTO);
 
-        var products = productService.getAllProducts(pageble);
+        var products = productService.getAllProducts(pageble, PageTotal.EXACT);
 
         assertThat(products)
                 .isNotNull()
                 .hasSize(1);
+        verify(productRepository, never()).findAll(pageble);
     }
 
     @Test
     void getProductById_WhenCalled_ShouldReturnProduct() {
-        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
+        when(productRepository.findDetailById(product.getId())).thenReturn(Optional.of(product));
         when(productMapper.toProductResponseDTO(product)).thenReturn(productResponseDTO);
 
         var result = productService.getProductById(product.getId());
@@ -101,7 +128,7 @@ public class ProductServiceTest {
 
     @Test
     void getProductById_WhenIdDoesNotExist_ShouldThrowException() {
-        when(productRepository.findById(product.getId())).thenReturn(Optional.empty());
+        when(productRepository.findDetailById(product.getId())).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> productService.getProductById(product.getId()));
     }
 
@@ -135,10 +162,38 @@ public class ProductServiceTest {
                 .category(ProductCategory.PADARIA)
                 .measurementUnit(MeasurementUnit.L)
                 .build();
+        doThrow(new BusinessException("Unidade de medida não permitida"))
+                .when(productUnitRuleService).validate(ProductCategory.PADARIA, MeasurementUnit.L);
 
         assertThrows(BusinessException.class, () -> productService.createProduct(invalidDTO));
     }
 
+    @Test
+    void updateProduct_WhenNewMeasurementUnitDoesntMatchProductCategory_ShouldThrowException() {
+        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
+        var invalidDTO = ProductUpdateDTO.builder()
+                .category(ProductCategory.PADARIA)
+                .measurementUnit(MeasurementUnit.L)
+                .build();
+        doThrow(new BusinessException("Unidade de medida não permitida"))
+                .when(productUnitRuleService).validate(ProductCategory.PADARIA, MeasurementUnit.L);
+
+        assertThrows(BusinessException.class, () -> productService.updateProduct(product.getId(), invalidDTO));
+        verify(productMapper, never()).updateFromDTO(any(), any());
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void updateProduct_WhenOnlyMeasurementUnitIsSent_ShouldValidateItAgainstTheCurrentCategory() {
+        when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
+        var updateDTO = ProductUpdateDTO.builder().measurementUnit(MeasurementUnit.L).build();
+        doThrow(new BusinessException("Unidade de medida não permitida"))
+                .when(productUnitRuleService).validate(product.getCategory(), MeasurementUnit.L);
+
+        assertThrows(BusinessException.class, () -> productService.updateProduct(product.getId(), updateDTO));
+        verify(productRepository, never()).save(any());
+    }
+
     @Test
     void deleteProduct_WhenCalled_ShouldDeleteProductAndSave() {
         when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
@@ -159,4 +214,22 @@ public class ProductServiceTest {
         when(productRepository.findById(product.getId())).thenReturn(Optional.of(product));
         assertThrows(BusinessException.class, () -> productService.deleteProduct(product.getId()));
     }
+
+    @Test
+    void recalculateTotalStock_WhenCalled_ShouldRecalculateAndReturnProduct() {
+        when(productRepository.recalculateTotalStock(product.getId())).thenReturn(1);
+        when(productRepository.findDetailById(product.getId())).thenReturn(Optional.of(product));
+        when(productMapper.toProductResponseDTO(product)).thenReturn(productResponseDTO);
+
+        var result = productService.recalculateTotalStock(product.getId());
+
+        assertThat(result).isEqualTo(productResponseDTO);
+        verify(productRepository).recalculateTotalStock(product.getId());
+    }
+
+    @Test
+    void recalculateTotalStock_WhenIdDoesNotExist_ShouldThrowException() {
+        when(productRepository.recalculateTotalStock(product.getId())).thenReturn(0);
+        assertThrows(ResourceNotFoundException.class, () -> productService.recalculateTotalStock(product.getId()));
+    }
 }
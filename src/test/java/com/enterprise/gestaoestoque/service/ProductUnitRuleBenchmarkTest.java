@@ -0,0 +1,68 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mede o custo da validação de unidade de medida por categoria: o caminho aceito sobre todas as combinações permitidas
+ * e o rejeitado, dominado pela criação da exceção. Não roda no build padrão:
+ * {@code mvn test -Dtest=ProductUnitRuleBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ProductUnitRuleBenchmarkTest {
+
+    private static final int ACCEPTED_ROUNDS = 2_000_000;
+    private static final int REJECTED_ROUNDS = 5_000;
+
+    private final ProductUnitRuleService productUnitRuleService = new ProductUnitRuleService(null, null);
+
+    @Test
+    void validateThroughput() {
+        var allowed = pairs(true);
+        var rejected = pairs(false);
+
+        run(allowed, ACCEPTED_ROUNDS / 10);
+        long start = System.nanoTime();
+        run(allowed, ACCEPTED_ROUNDS);
+        long acceptedNanos = System.nanoTime() - start;
+
+        run(rejected, REJECTED_ROUNDS / 10);
+        start = System.nanoTime();
+        long failures = run(rejected, REJECTED_ROUNDS);
+        long rejectedNanos = System.nanoTime() - start;
+
+        System.out.printf("validate aceito: %.2f ns/verificação; rejeitado: %.2f ns/verificação%n",
+                (double) acceptedNanos / ((long) ACCEPTED_ROUNDS * allowed.length),
+                (double) rejectedNanos / ((long) REJECTED_ROUNDS * rejected.length));
+        assertThat(failures).isEqualTo((long) REJECTED_ROUNDS * rejected.length);
+    }
+
+    private static Object[][] pairs(boolean allowed) {
+        return Arrays.stream(ProductCategory.values())
+                .flatMap(category -> Arrays.stream(MeasurementUnit.values())
+                        .filter(unit -> ProductUnitRuleService.DEFAULT_RULES.get(category).contains(unit) == allowed)
+                        .map(unit -> new Object[]{category, unit}))
+                .toArray(Object[][]::new);
+    }
+
+    private long run(Object[][] pairs, int rounds) {
+        long failures = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (var pair : pairs) {
+                try {
+                    productUnitRuleService.validate((ProductCategory) pair[0], (MeasurementUnit) pair[1]);
+                } catch (BusinessException e) {
+                    failures++;
+                }
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,121 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.model.dto.product.UnitRuleRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.ProductUnitRule;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.ProductUnitRuleRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductUnitRuleServiceTest {
+
+    @Mock
+    private ProductUnitRuleRepository productUnitRuleRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @InjectMocks
+    private ProductUnitRuleService productUnitRuleService;
+
+    @Test
+    void validate_WithDefaultRules_ShouldMatchEveryCategoryUnitPair() {
+        for (var category : ProductCategory.values()) {
+            for (var unit : MeasurementUnit.values()) {
+                boolean allowed = ProductUnitRuleService.DEFAULT_RULES.get(category).contains(unit);
+                if (allowed) {
+                    assertThatCode(() -> productUnitRuleService.validate(category, unit)).doesNotThrowAnyException();
+                } else {
+                    assertThrows(BusinessException.class, () -> productUnitRuleService.validate(category, unit));
+                }
+            }
+        }
+    }
+
+    @Test
+    void validate_WhenUnitIsNotAllowed_ShouldListAllowedUnits() {
+        var exception = assertThrows(BusinessException.class,
+                () -> productUnitRuleService.validate(ProductCategory.CARNES_E_AVES, MeasurementUnit.UN));
+        assertThat(exception.getMessage())
+                .isEqualTo("Produtos da categoria CARNES E AVES devem possuir uma das seguintes unidades de medida: G ou KG");
+    }
+
+    @Test
+    void reload_WhenTableChanged_ShouldApplyStoredRulesAndKeepDefaultsForMissingCategories() {
+        when(productUnitRuleRepository.findAll()).thenReturn(List.of(
+                ProductUnitRule.builder().category(ProductCategory.CARNES_E_AVES).measurementUnit(MeasurementUnit.UN).build()));
+
+        productUnitRuleService.reload();
+
+        assertThatCode(() -> productUnitRuleService.validate(ProductCategory.CARNES_E_AVES, MeasurementUnit.UN))
+                .doesNotThrowAnyException();
+        assertThrows(BusinessException.class,
+                () -> productUnitRuleService.validate(ProductCategory.CARNES_E_AVES, MeasurementUnit.KG));
+        assertThat(productUnitRuleService.getRule(ProductCategory.BEBIDAS).measurementUnits())
+                .isEqualTo(ProductUnitRuleService.DEFAULT_RULES.get(ProductCategory.BEBIDAS));
+    }
+
+    @Test
+    void seedAndLoad_WhenCategoryHasNoRows_ShouldSaveOnlyItsDefaults() {
+        when(productUnitRuleRepository.findAll()).thenReturn(EnumSet.allOf(ProductCategory.class).stream()
+                .filter(category -> category != ProductCategory.CONGELADOS)
+                .map(category -> ProductUnitRule.builder().category(category).measurementUnit(MeasurementUnit.UN).build())
+                .toList());
+
+        productUnitRuleService.seedAndLoad();
+
+        verify(productUnitRuleRepository).saveAll(ArgumentMatchers.<List<ProductUnitRule>>argThat(rules ->
+                rules.size() == ProductUnitRuleService.DEFAULT_RULES.get(ProductCategory.CONGELADOS).size()
+                        && rules.stream().allMatch(rule -> rule.getCategory() == ProductCategory.CONGELADOS)));
+    }
+
+    @Test
+    void updateRule_WhenProductsUseRemovedUnit_ShouldThrowException() {
+        var units = EnumSet.of(MeasurementUnit.KG);
+        when(productRepository.existsByCategoryAndMeasurementUnitNotIn(ProductCategory.CARNES_E_AVES, units)).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> productUnitRuleService.updateRule(ProductCategory.CARNES_E_AVES,
+                new UnitRuleRequestDTO(Set.of(MeasurementUnit.KG))));
+        verify(productUnitRuleRepository, never()).deleteByCategory(any());
+        verify(productUnitRuleRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void updateRule_WhenValid_ShouldReplaceRowsAndRecompile() {
+        var units = EnumSet.of(MeasurementUnit.KG, MeasurementUnit.UN);
+        when(productRepository.existsByCategoryAndMeasurementUnitNotIn(ProductCategory.CARNES_E_AVES, units)).thenReturn(false);
+        when(productUnitRuleRepository.findAll()).thenReturn(List.of(
+                ProductUnitRule.builder().category(ProductCategory.CARNES_E_AVES).measurementUnit(MeasurementUnit.KG).build(),
+                ProductUnitRule.builder().category(ProductCategory.CARNES_E_AVES).measurementUnit(MeasurementUnit.UN).build()));
+
+        var result = productUnitRuleService.updateRule(ProductCategory.CARNES_E_AVES, new UnitRuleRequestDTO(units));
+
+        assertThat(result.measurementUnits()).containsExactly(MeasurementUnit.KG, MeasurementUnit.UN);
+        verify(productUnitRuleRepository).deleteByCategory(ProductCategory.CARNES_E_AVES);
+        assertThatCode(() -> productUnitRuleService.validate(ProductCategory.CARNES_E_AVES, MeasurementUnit.UN))
+                .doesNotThrowAnyException();
+        assertThrows(BusinessException.class,
+                () -> productUnitRuleService.validate(ProductCategory.CARNES_E_AVES, MeasurementUnit.G));
+    }
+}
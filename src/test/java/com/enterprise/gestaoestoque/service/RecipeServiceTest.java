@@ -0,0 +1,122 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.mapper.RecipeMapper;
+import com.enterprise.gestaoestoque.model.dto.recipe.ProductionRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.recipe.RecipeRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Recipe;
+import com.enterprise.gestaoestoque.model.entity.RecipeItem;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.RecipeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecipeServiceTest {
+
+    @Mock
+    private RecipeRepository recipeRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private InventoryMovementService inventoryMovementService;
+
+    @Spy
+    private RecipeMapper recipeMapper;
+
+    @InjectMocks
+    private RecipeService recipeService;
+
+    private Product flour;
+    private Product sugar;
+    private Recipe recipe;
+
+    @BeforeEach
+    void setup() {
+        flour = Product.builder().id(1L).name("Farinha").category(ProductCategory.NAO_PERECIVEIS)
+                .measurementUnit(MeasurementUnit.KG).isActive(true).build();
+        sugar = Product.builder().id(2L).name("Açúcar").category(ProductCategory.NAO_PERECIVEIS)
+                .measurementUnit(MeasurementUnit.KG).isActive(true).build();
+
+        recipe = Recipe.builder().id(7L).name("Bolo").build();
+        recipe.getItems().add(RecipeItem.builder().recipe(recipe).product(flour).quantity(3L)
+                .measurementUnit(MeasurementUnit.KG).build());
+        recipe.getItems().add(RecipeItem.builder().recipe(recipe).product(sugar).quantity(2L)
+                .measurementUnit(MeasurementUnit.KG).build());
+    }
+
+    @Test
+    void produce_WhenRecipeExists_ShouldWithdrawEveryComponentInOneCall() {
+        when(recipeRepository.findById(7L)).thenReturn(Optional.of(recipe));
+        when(inventoryMovementService.createFefoMovements(anyMap(), any(), any())).thenReturn(List.of());
+
+        var result = recipeService.produce(7L, new ProductionRequestDTO(5L, "OP-42"));
+
+        verify(inventoryMovementService).createFefoMovements(Map.of(1L, 15L, 2L, 10L), MovementType.USO_PRODUCAO, "OP-42");
+        assertThat(result.recipeId()).isEqualTo(7L);
+        assertThat(result.quantity()).isEqualTo(5L);
+    }
+
+    @Test
+    void produce_WhenRecipeDoesNotExist_ShouldThrowException() {
+        when(recipeRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> recipeService.produce(99L, new ProductionRequestDTO(1L, null)));
+        verify(inventoryMovementService, never()).createFefoMovements(anyMap(), any(), any());
+    }
+
+    @Test
+    void createRecipe_WhenUnitDiffersFromProduct_ShouldThrowException() {
+        var recipeDTO = RecipeRequestDTO.builder()
+                .name("Calda")
+                .items(List.of(RecipeRequestDTO.ItemDTO.builder()
+                        .productId(2L).quantity(500L).measurementUnit(MeasurementUnit.G).build()))
+                .build();
+        when(recipeRepository.findByNameIgnoreCase("Calda")).thenReturn(Optional.empty());
+        when(productRepository.findAllById(any())).thenReturn(List.of(sugar));
+
+        assertThrows(BusinessException.class, () -> recipeService.createRecipe(recipeDTO));
+        verify(recipeRepository, never()).save(any());
+    }
+
+    @Test
+    void createRecipe_WhenComponentsAreValid_ShouldSaveRecipe() {
+        var recipeDTO = RecipeRequestDTO.builder()
+                .name("Bolo simples")
+                .items(List.of(
+                        RecipeRequestDTO.ItemDTO.builder().productId(1L).quantity(3L).measurementUnit(MeasurementUnit.KG).build(),
+                        RecipeRequestDTO.ItemDTO.builder().productId(2L).quantity(2L).measurementUnit(MeasurementUnit.KG).build()))
+                .build();
+        when(recipeRepository.findByNameIgnoreCase("Bolo simples")).thenReturn(Optional.empty());
+        when(productRepository.findAllById(any())).thenReturn(List.of(flour, sugar));
+        when(recipeRepository.save(any(Recipe.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = recipeService.createRecipe(recipeDTO);
+
+        assertThat(result.items()).extracting(item -> item.productId()).containsExactly(1L, 2L);
+    }
+}
@@ -0,0 +1,173 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementBatchRequestDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotEscrowRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Razão com o escrow ligado: baixas pela cota, baixas diretas e acertos intercalados. As baixas pela cota ficam sem
+ * saldo; as diretas levam o saldo físico do lote (currentQtd menos o consumo das cotas ainda não acertado), e o
+ * estoque em uma data soma as duas.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "inventory.escrow.enabled=true",
+        "inventory.escrow.min-lot-qtd=100",
+        "inventory.escrow.chunk-size=50"})
+@Import({InventoryMovementService.class, StockHistoryService.class, LotService.class, PageTotalService.class,
+        InventoryMapper.class, LotMapper.class, SimpleMeterRegistry.class, LotExpirationService.class,
+        SchedulerLeaseService.class, LotAllocationService.class, ThreadPoolTaskScheduler.class, StockEngine.class,
+        TotalStockWriteBehindService.class, LotCodeGenerator.class, WarehouseService.class, WarehouseMapper.class,
+        LotEscrowService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class StockHistoryEscrowTest {
+
+    private static final long LOT_QTD = 500;
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private StockHistoryService stockHistoryService;
+
+    @Autowired
+    private LotEscrowService lotEscrowService;
+
+    @Autowired
+    private SimpleMeterRegistry meterRegistry;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotEscrowRepository lotEscrowRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void cleanup() {
+        inventoryMovementRepository.deleteAllInBatch();
+        lotEscrowRepository.deleteAllInBatch();
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void getProductStockAsOf_WhenEscrowAndDirectWithdrawalsInterleave_ShouldMatchThePhysicalBalance() {
+        var lot = createLot();
+
+        withdraw(lot, 10);
+        var afterFirst = LocalDateTime.now();
+        withdraw(lot, 20);
+        // Envio em lote: baixa direta no lote, com as cotas ainda sem acerto
+        inventoryMovementService.createInventoryMovementBatch(InventoryMovementBatchRequestDTO.builder()
+                .movements(List.of(request(lot, 5))).build());
+        lotEscrowService.settle();
+        var afterSettle = LocalDateTime.now();
+        withdraw(lot, 15);
+
+        var movements = inventoryMovementRepository.findAll().stream()
+                .sorted(Comparator.comparing(InventoryMovement::getId))
+                .toList();
+        assertThat(movements).extracting(InventoryMovement::getBalanceAfter).containsExactly(null, null, 465L, null);
+        assertThat(lotEscrowService.physicalQtd(lot.getId())).isEqualTo(450L);
+        assertThat(meterRegistry.counter("lots.escrow.withdrawals", "result", "quota").count()).isEqualTo(3.0);
+
+        var productId = lot.getProduct().getId();
+        assertThat(stockHistoryService.getProductStockAsOf(productId, afterFirst).quantity()).isEqualTo(490L);
+        assertThat(stockHistoryService.getProductStockAsOf(productId, afterSettle).quantity()).isEqualTo(465L);
+        assertThat(stockHistoryService.getProductStockAsOf(productId, LocalDateTime.now()).quantity()).isEqualTo(450L);
+    }
+
+    private void withdraw(Lot lot, long quantity) {
+        inventoryMovementService.createInventoryMovement(request(lot, quantity));
+    }
+
+    private static InventoryMovementRequestDTO request(Lot lot, long quantity) {
+        return InventoryMovementRequestDTO.builder()
+                .lotId(lot.getId())
+                .movementType(MovementType.USO_PRODUCAO)
+                .quantity(BigDecimal.valueOf(quantity))
+                .measurementUnit(MeasurementUnit.KG)
+                .build();
+    }
+
+    private Lot createLot() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var user = userRepository.save(User.builder().name("Escrow").email("escrow@teste.com").password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).build());
+            // Referência gerenciada na transação de cada movimentação, como o usuário carregado pelo UserService
+            when(userService.getLoggedUser()).thenAnswer(invocation -> userRepository.getReferenceById(user.getId()));
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor escrow").cnpj("00.000.000/0001-03").contactName("Contato")
+                    .email("escrow@fornecedor.com").phone("(47) 90000-0003").isActive(true).build());
+            var product = productRepository.save(Product.builder()
+                    .name("Produto escrow").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(LOT_QTD).isActive(true).build());
+            return lotRepository.save(Lot.builder()
+                    .product(product).supplier(supplier)
+                    .initialQtd(LOT_QTD).currentQtd(LOT_QTD).measurementUnit(MeasurementUnit.KG)
+                    .entryDate(LocalDate.now().minusDays(1)).expirationDate(LocalDate.now().plusDays(30))
+                    .lotCode("ESCROW-LEDGER").status(LotStatus.ATIVO)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotBalanceDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotQuantityDTO;
+import com.enterprise.gestaoestoque.model.dto.inventory.LotSnapshotDTO;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockHistoryServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @InjectMocks
+    private StockHistoryService stockHistoryService;
+
+    private Product product;
+    private LocalDateTime at;
+
+    @BeforeEach
+    void setup() {
+        product = Product.builder()
+                .id(1L)
+                .name("Farinha")
+                .category(ProductCategory.NAO_PERECIVEIS)
+                .measurementUnit(MeasurementUnit.KG)
+                .build();
+        at = LocalDateTime.now().minusDays(2);
+    }
+
+    @Test
+    void getProductStockAsOf_WhenLotsHaveLedgerEntries_ShouldSumTheBalanceOfEachLotAtTheDate() {
+        var oldDate = at.toLocalDate().minusDays(10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(lotRepository.findSnapshotsByProductIds(List.of(1L))).thenReturn(List.of(
+                new LotSnapshotDTO(10L, 1L, 5L, oldDate),
+                new LotSnapshotDTO(11L, 1L, 70L, oldDate),
+                new LotSnapshotDTO(12L, 1L, 30L, at.toLocalDate().plusDays(1))));
+        // Lote 10: duas movimentações na mesma hora, vale a de maior id
+        when(inventoryMovementRepository.findLastBalancesUpTo(List.of(1L), at)).thenReturn(List.of(
+                new LotBalanceDTO(10L, 100L, MovementType.USO_PRODUCAO, 10L, 40L),
+                new LotBalanceDTO(10L, 101L, MovementType.PERDA, 5L, 35L)));
+        // Lote 11 só se moveu depois da data: desfaz a primeira baixa seguinte
+        when(inventoryMovementRepository.findFirstBalancesAfter(any(), any())).thenReturn(List.of(
+                new LotBalanceDTO(11L, 200L, MovementType.USO_PRODUCAO, 30L, 70L)));
+
+        var result = stockHistoryService.getProductStockAsOf(1L, at);
+
+        // 35 (lote 10) + 100 (lote 11) + 0 (lote 12 entrou depois da data)
+        assertThat(result.quantity()).isEqualTo(135L);
+    }
+
+    @Test
+    void getProductStockAsOf_WhenFirstMovementAfterTheDateOpenedTheLot_ShouldCountZero() {
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(lotRepository.findSnapshotsByProductIds(List.of(1L)))
+                .thenReturn(List.of(new LotSnapshotDTO(20L, 1L, 80L, LocalDate.now().minusDays(30))));
+        when(inventoryMovementRepository.findLastBalancesUpTo(List.of(1L), at)).thenReturn(List.of());
+        when(inventoryMovementRepository.findFirstBalancesAfter(List.of(20L), at)).thenReturn(List.of(
+                new LotBalanceDTO(20L, 300L, MovementType.TRANSFERENCIA_ENTRADA, 80L, 80L)));
+
+        assertThat(stockHistoryService.getProductStockAsOf(1L, at).quantity()).isZero();
+    }
+
+    @Test
+    void getProductStockAsOf_WhenEscrowWithdrawalsHaveNoBalance_ShouldCountThemByDate() {
+        var oldDate = at.toLocalDate().minusDays(10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(lotRepository.findSnapshotsByProductIds(List.of(1L))).thenReturn(List.of(
+                new LotSnapshotDTO(10L, 1L, 5L, oldDate),
+                new LotSnapshotDTO(11L, 1L, 70L, oldDate),
+                new LotSnapshotDTO(12L, 1L, 40L, oldDate)));
+        when(inventoryMovementRepository.findLastBalancesUpTo(List.of(1L), at)).thenReturn(List.of(
+                new LotBalanceDTO(10L, 100L, MovementType.USO_PRODUCAO, 10L, 40L)));
+        // Lote 10: 15 baixados pela cota depois da última movimentação com saldo, antes da data
+        when(inventoryMovementRepository.sumUnbalancedSinceLastBalance(any(), any(), any()))
+                .thenReturn(List.of(new LotQuantityDTO(10L, 15L)));
+        when(inventoryMovementRepository.findFirstBalancesAfter(any(), any())).thenReturn(List.of(
+                new LotBalanceDTO(11L, 200L, MovementType.USO_PRODUCAO, 30L, 70L)));
+        // Depois da data: 20 pela cota no lote 11 antes da baixa com saldo; 25 no lote 12, que só teve baixas pela cota
+        when(inventoryMovementRepository.sumUnbalancedAfter(any(), any(), any())).thenReturn(List.of(
+                new LotQuantityDTO(11L, 20L),
+                new LotQuantityDTO(12L, 25L)));
+
+        var result = stockHistoryService.getProductStockAsOf(1L, at);
+
+        // 25 (lote 10) + 120 (lote 11) + 65 (lote 12)
+        assertThat(result.quantity()).isEqualTo(210L);
+    }
+
+    @Test
+    void getProductStockAsOf_WhenProductDoesNotExist_ShouldThrowException() {
+        when(productRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> stockHistoryService.getProductStockAsOf(99L, at));
+    }
+
+    @Test
+    void getProductStockAsOf_WhenDateIsInTheFuture_ShouldThrowException() {
+        assertThrows(BusinessException.class,
+                () -> stockHistoryService.getProductStockAsOf(1L, LocalDateTime.now().plusDays(1)));
+    }
+}
@@ -0,0 +1,246 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.*;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.mapper.ReservationMapper;
+import com.enterprise.gestaoestoque.model.dto.lot.LotStockDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationExpirationDTO;
+import com.enterprise.gestaoestoque.model.dto.reservation.ReservationRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.*;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.StockReservationRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockReservationServiceTest {
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Mock
+    private LotService lotService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private LotAllocationService lotAllocationService;
+
+    @Mock
+    private LotEscrowService lotEscrowService;
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StockReservationService stockReservationService;
+    private Lot lot;
+    private StockReservation reservation;
+
+    @BeforeEach
+    void setup() {
+        stockReservationService = new StockReservationService(stockReservationRepository, lotRepository, productRepository,
+                inventoryMovementRepository, lotService, userService, lotAllocationService, lotEscrowService, stockEngine,
+                new ReservationMapper(), transactionManager, new SimpleMeterRegistry(),
+                Duration.ofMinutes(30), Duration.ofDays(7), 1);
+
+        var product = Product.builder().id(1L).name("Farinha").totalStock(100L).build();
+        lot = Lot.builder()
+                .id(10L)
+                .product(product)
+                .initialQtd(100L)
+                .currentQtd(100L)
+                .reservedQtd(20L)
+                .measurementUnit(MeasurementUnit.KG)
+                .expirationDate(LocalDate.now().plusDays(10))
+                .lotCode("RESERVA0001")
+                .status(LotStatus.ATIVO)
+                .build();
+        reservation = StockReservation.builder()
+                .id(5L)
+                .lot(lot)
+                .quantity(20L)
+                .movementType(MovementType.USO_PRODUCAO)
+                .status(ReservationStatus.ATIVA)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                .build();
+    }
+
+    @Test
+    void reserveLot_WhenLotHasFreeBalance_ShouldHoldItAndScheduleExpiration() {
+        when(lotRepository.findMeasurementUnitById(10L)).thenReturn(Optional.of(MeasurementUnit.KG));
+        when(lotRepository.reserveQuantity(10L, 20L)).thenReturn(1);
+        when(lotRepository.findById(10L)).thenReturn(Optional.of(lot));
+        when(stockReservationRepository.save(any(StockReservation.class))).thenAnswer(invocation -> {
+            StockReservation saved = invocation.getArgument(0);
+            saved.setId(5L);
+            return saved;
+        });
+
+        var result = stockReservationService.reserveLot(request(20));
+
+        assertThat(result.status()).isEqualTo(ReservationStatus.ATIVA);
+        assertThat(result.quantity()).isEqualTo(20L);
+        verify(productRepository).addToReservedStock(1L, 20L);
+        verify(lotAllocationService).adjust(1L, 10L, lot.getExpirationDate(), -20L);
+        assertThat(stockReservationService.scheduledCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reserveLot_WhenFreeBalanceIsNotEnough_ShouldThrowException() {
+        when(lotRepository.findMeasurementUnitById(10L)).thenReturn(Optional.of(MeasurementUnit.KG));
+        when(lotRepository.reserveQuantity(10L, 500L)).thenReturn(0);
+        when(lotRepository.findById(10L)).thenReturn(Optional.of(lot));
+
+        assertThrows(BusinessException.class, () -> stockReservationService.reserveLot(request(500)));
+        verify(stockReservationRepository, never()).save(any());
+        verify(productRepository, never()).addToReservedStock(anyLong(), anyLong());
+    }
+
+    @Test
+    void reserveLot_WhenStockEngineIsEnabled_ShouldThrowException() {
+        when(stockEngine.isEnabled()).thenReturn(true);
+
+        assertThrows(BusinessException.class, () -> stockReservationService.reserveLot(request(20)));
+        verify(lotRepository, never()).reserveQuantity(anyLong(), anyLong());
+    }
+
+    @Test
+    void commitReservation_WhenActive_ShouldWithdrawTheHeldQuantityAsAMovement() {
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(reservation));
+        when(lotRepository.findStockStateById(10L)).thenReturn(Optional.of(stockState(LotStatus.ATIVO, lot.getExpirationDate())));
+        when(inventoryMovementRepository.save(any(InventoryMovement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = stockReservationService.commitReservation(5L);
+
+        assertThat(result.status()).isEqualTo(ReservationStatus.CONFIRMADA);
+        verify(lotRepository).settleReservation(10L, 20L, 0);
+        verify(lotService).applyStockDelta(1L, -20L);
+        verify(productRepository).addToReservedStock(1L, -20L);
+        var movement = ArgumentCaptor.forClass(InventoryMovement.class);
+        verify(inventoryMovementRepository).save(movement.capture());
+        assertThat(movement.getValue().getQuantity()).isEqualTo(20L);
+        assertThat(movement.getValue().getMovementType()).isEqualTo(MovementType.USO_PRODUCAO);
+    }
+
+    @Test
+    void commitReservation_WhenLotExpiredAfterTheReservation_ShouldThrowException() {
+        when(lotRepository.findMeasurementUnitById(10L)).thenReturn(Optional.of(MeasurementUnit.KG));
+        when(lotRepository.reserveQuantity(10L, 20L)).thenReturn(1);
+        when(lotRepository.findById(10L)).thenReturn(Optional.of(lot));
+        when(stockReservationRepository.save(any(StockReservation.class))).thenAnswer(invocation -> {
+            StockReservation saved = invocation.getArgument(0);
+            saved.setId(5L);
+            return saved;
+        });
+        stockReservationService.reserveLot(request(20));
+        var saved = ArgumentCaptor.forClass(StockReservation.class);
+        verify(stockReservationRepository).save(saved.capture());
+
+        // A varredura vence o lote no banco; a entidade carregada com a reserva continua ATIVO
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(saved.getValue()));
+        when(lotRepository.findStockStateById(10L)).thenReturn(Optional.of(stockState(LotStatus.VENCIDO, LocalDate.now().minusDays(1))));
+
+        assertThrows(BusinessException.class, () -> stockReservationService.commitReservation(5L));
+        verify(lotRepository).findAllByIdForUpdate(List.of(10L));
+        verify(lotRepository, never()).settleReservation(anyLong(), anyLong(), anyLong());
+        verify(lotService, never()).applyStockDelta(anyLong(), anyLong());
+        verify(inventoryMovementRepository, never()).save(any());
+    }
+
+    @Test
+    void commitReservation_WhenLotIsPastExpirationButNotSweptYet_ShouldThrowException() {
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(reservation));
+        when(lotRepository.findStockStateById(10L)).thenReturn(Optional.of(stockState(LotStatus.ATIVO, LocalDate.now().minusDays(1))));
+
+        assertThrows(BusinessException.class, () -> stockReservationService.commitReservation(5L));
+        verify(lotRepository, never()).settleReservation(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void commitReservation_WhenAlreadyReleased_ShouldThrowException() {
+        reservation.setStatus(ReservationStatus.LIBERADA);
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(reservation));
+
+        assertThrows(BusinessException.class, () -> stockReservationService.commitReservation(5L));
+        verify(lotRepository, never()).settleReservation(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void releaseReservation_WhenActive_ShouldReturnTheQuantityToTheLot() {
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(reservation));
+
+        var result = stockReservationService.releaseReservation(5L);
+
+        assertThat(result.status()).isEqualTo(ReservationStatus.LIBERADA);
+        verify(lotRepository).settleReservation(10L, 0, 20L);
+        verify(productRepository).addToReservedStock(1L, -20L);
+        verify(lotAllocationService).adjust(1L, 10L, lot.getExpirationDate(), 20L);
+        verify(lotService, never()).applyStockDelta(anyLong(), anyLong());
+    }
+
+    @Test
+    void expireDueReservations_WhenDeadlinePassed_ShouldExpireThroughTheWheel() {
+        reservation.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        when(stockReservationRepository.findActiveExpirations())
+                .thenReturn(List.of(new ReservationExpirationDTO(5L, reservation.getExpiresAt())));
+        when(stockReservationRepository.findByIdForUpdate(5L)).thenReturn(Optional.of(reservation));
+
+        stockReservationService.loadActiveReservations();
+        stockReservationService.expireDueReservations();
+
+        assertThat(reservation.getStatus()).isEqualTo(ReservationStatus.EXPIRADA);
+        verify(lotRepository).settleReservation(10L, 0, 20L);
+        assertThat(stockReservationService.scheduledCount()).isZero();
+    }
+
+    private LotStockDTO stockState(LotStatus status, LocalDate expirationDate) {
+        return new LotStockDTO(lot.getId(), lot.getProduct().getId(), lot.getCurrentQtd(), status, expirationDate);
+    }
+
+    private static ReservationRequestDTO request(long quantity) {
+        return ReservationRequestDTO.builder()
+                .lotId(10L)
+                .movementType(MovementType.USO_PRODUCAO)
+                .quantity(BigDecimal.valueOf(quantity))
+                .measurementUnit(MeasurementUnit.KG)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
 import com.enterprise.gestaoestoque.mapper.SupplierMapper;
@@ -12,6 +13,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -33,6 +35,9 @@ public class SupplierServiceTest {
     @Mock
     private SupplierMapper supplierMapper;
 
+    @Spy
+    private PageTotalService pageTotalService = new PageTotalService(null);
+
     @InjectMocks
     private SupplierService supplierService;
 
@@ -75,12 +80,10 @@ public class SupplierServiceTest {
     @Test
     void getAllSuppliers_WhenCalled_ShouldReturnPageOfSuppliers() {
         var pageable = PageRequest.of(1, 10);
-        var supplierList = List.of(supplier);
-        var suppliersPage = new PageImpl<>(supplierList, pageable, supplierList.size());
+        var suppliersPage = new PageImpl<>(List.of(supplierResponseDTO), pageable, 1);
 
-        when(supplierRepository.findAll(pageable)).thenReturn(suppliersPage);
-        when(supplierMapper.toSupplierResponseDTO(supplier)).thenReturn(supplierResponseDTO);
-        var result = supplierService.getAllSuppliers(pageable);
+        when(supplierRepository.findAllRows(pageable)).thenReturn(suppliersPage);
+        var result = supplierService.getAllSuppliers(pageable, PageTotal.EXACT);
 
         assertThat(result)
                 .isNotNull()
@@ -0,0 +1,109 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TotalStockWriteBehindServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void flush_WhenSeveralDeltasTouchTheSameProduct_ShouldIssueOneUpdatePerProduct() {
+        var service = service(true);
+        service.add(1L, -10);
+        service.add(1L, -5);
+        service.add(2L, 30);
+
+        service.flush();
+
+        verify(productRepository).addToTotalStock(1L, -15);
+        verify(productRepository).addToTotalStock(2L, 30);
+        assertThat(service.pending(1L)).isZero();
+        assertThat(meterRegistry.counter("products.total-stock.write-behind.updates").count()).isEqualTo(2);
+    }
+
+    @Test
+    void add_WhenTransactionIsActive_ShouldOnlyAccumulateAfterCommit() {
+        var service = service(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.add(1L, -10);
+        assertThat(service.pending(1L)).isZero();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(service.pending(1L)).isEqualTo(-10);
+    }
+
+    @Test
+    void add_WhenTransactionRollsBack_ShouldNeverReachTheProduct() {
+        var service = service(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.add(1L, -10);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        service.flush();
+
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void flush_WhenUpdateFails_ShouldKeepDeltasForTheNextFlush() {
+        var service = service(true);
+        service.add(1L, -10);
+        when(productRepository.addToTotalStock(1L, -10)).thenThrow(new QueryTimeoutException("timeout")).thenReturn(1);
+
+        service.flush();
+        assertThat(service.pending(1L)).isEqualTo(-10);
+
+        service.flush();
+        verify(productRepository, times(2)).addToTotalStock(1L, -10);
+        assertThat(service.pending(1L)).isZero();
+    }
+
+    @Test
+    void flush_WhenDisabled_ShouldDoNothing() {
+        var service = service(false);
+        service.add(1L, -10);
+
+        service.flush();
+
+        verify(productRepository, never()).addToTotalStock(anyLong(), anyLong());
+    }
+
+    private TotalStockWriteBehindService service(boolean enabled) {
+        return new TotalStockWriteBehindService(productRepository, transactionManager, meterRegistry, enabled);
+    }
+}
@@ -0,0 +1,202 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.repository.WarehouseRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Transferências em sentidos opostos entre os mesmos dois lotes, em paralelo: com o bloqueio em ordem de id
+ * nenhuma delas pode falhar por deadlock ou timeout de lock, e o saldo somado dos dois lotes não muda.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({TransferService.class, LotService.class, PageTotalService.class, LotMapper.class, WarehouseService.class, WarehouseMapper.class,
+        LotExpirationService.class, SchedulerLeaseService.class, LotAllocationService.class, SimpleMeterRegistry.class,
+        ThreadPoolTaskScheduler.class, StockEngine.class, TotalStockWriteBehindService.class, LotCodeGenerator.class,
+        LotEscrowService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class TransferConcurrencyTest {
+
+    private static final int THREADS_PER_DIRECTION = 4;
+    private static final int TRANSFERS_PER_THREAD = 15;
+    private static final long LOT_QTD = 1_000;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void cleanup() {
+        inventoryMovementRepository.deleteAllInBatch();
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+        warehouseRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void createTransfer_WhenOppositeTransfersRunConcurrently_ShouldNeitherDeadlockNorLoseBalance() throws Exception {
+        var lots = setup();
+        var first = lots.get(0);
+        var second = lots.get(1);
+        var failures = new ConcurrentLinkedQueue<Throwable>();
+        var start = new CountDownLatch(1);
+
+        try (var executor = Executors.newFixedThreadPool(THREADS_PER_DIRECTION * 2)) {
+            var workers = new ArrayList<Future<?>>();
+            for (int t = 0; t < THREADS_PER_DIRECTION * 2; t++) {
+                var from = t % 2 == 0 ? first : second;
+                var to = t % 2 == 0 ? second : first;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        try {
+                            transferService.createTransfer(new TransferRequestDTO(from.getId(), to.getWarehouse().getId(), 1L, null));
+                        } catch (RuntimeException e) {
+                            failures.add(e);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+
+        assertThat(failures).isEmpty();
+        var firstAfter = lotRepository.findById(first.getId()).orElseThrow();
+        var secondAfter = lotRepository.findById(second.getId()).orElseThrow();
+        assertThat(firstAfter.getCurrentQtd() + secondAfter.getCurrentQtd()).isEqualTo(2 * LOT_QTD);
+        // Os dois sentidos fizeram o mesmo número de transferências de uma unidade
+        assertThat(firstAfter.getCurrentQtd()).isEqualTo(LOT_QTD);
+        assertThat(lotRepository.count()).isEqualTo(2);
+        assertThat(inventoryMovementRepository.count()).isEqualTo(2L * THREADS_PER_DIRECTION * 2 * TRANSFERS_PER_THREAD);
+        assertThat(productRepository.findById(first.getProduct().getId()).orElseThrow().getTotalStock()).isEqualTo(2 * LOT_QTD);
+    }
+
+    @Test
+    void createTransfer_WhenConcurrentTransfersHitAnEmptyWarehouse_ShouldCreateASingleDestinationLot() throws Exception {
+        var source = setup().get(0);
+        var empty = warehouseRepository.save(Warehouse.builder().name("Vazio").isActive(true).build());
+        var failures = new ConcurrentLinkedQueue<Throwable>();
+        var start = new CountDownLatch(1);
+
+        try (var executor = Executors.newFixedThreadPool(THREADS_PER_DIRECTION * 2)) {
+            var workers = new ArrayList<Future<?>>();
+            for (int t = 0; t < THREADS_PER_DIRECTION * 2; t++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        transferService.createTransfer(new TransferRequestDTO(source.getId(), empty.getId(), 1L, null));
+                    } catch (RuntimeException e) {
+                        failures.add(e);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+
+        assertThat(failures).isEmpty();
+        var destinationLots = lotRepository.findByWarehouseId(empty.getId(), Pageable.unpaged()).getContent();
+        assertThat(destinationLots).singleElement()
+                .satisfies(lot -> assertThat(lot.getCurrentQtd()).isEqualTo(THREADS_PER_DIRECTION * 2L));
+        assertThat(lotRepository.findById(source.getId()).orElseThrow().getCurrentQtd())
+                .isEqualTo(LOT_QTD - THREADS_PER_DIRECTION * 2L);
+    }
+
+    private List<Lot> setup() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var user = userRepository.save(User.builder().name("Transferência").email("transfer@teste.com").password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).build());
+            // Referência gerenciada na transação de cada transferência, como o usuário carregado pelo UserService
+            when(userService.getLoggedUser()).thenAnswer(invocation -> userRepository.getReferenceById(user.getId()));
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor transferência").cnpj("00.000.000/0001-02").contactName("Contato")
+                    .email("transfer@fornecedor.com").phone("(47) 90000-0002").isActive(true).build());
+            var product = productRepository.save(Product.builder()
+                    .name("Produto transferência").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(2 * LOT_QTD).isActive(true).build());
+            var expiration = LocalDate.now().plusDays(30);
+            var lots = new ArrayList<Lot>();
+            for (var name : List.of("Principal", "Anexo")) {
+                var warehouse = warehouseRepository.save(Warehouse.builder().name(name).isActive(true).build());
+                lots.add(lotRepository.save(Lot.builder()
+                        .product(product).supplier(supplier).warehouse(warehouse)
+                        .initialQtd(LOT_QTD).currentQtd(LOT_QTD).measurementUnit(MeasurementUnit.KG)
+                        .entryDate(LocalDate.now()).expirationDate(expiration)
+                        .lotCode("TRANSF-" + name).status(LotStatus.ATIVO)
+                        .build()));
+            }
+            return lots;
+        });
+    }
+}
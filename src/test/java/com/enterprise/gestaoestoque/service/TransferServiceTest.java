@@ -0,0 +1,221 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.model.dto.transfer.TransferRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.InventoryMovement;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TransferServiceTest {
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private WarehouseService warehouseService;
+
+    @Mock
+    private LotCodeGenerator lotCodeGenerator;
+
+    @Mock
+    private LotExpirationService lotExpirationService;
+
+    @Mock
+    private LotAllocationService lotAllocationService;
+
+    @Mock
+    private LotEscrowService lotEscrowService;
+
+    @Mock
+    private StockEngine stockEngine;
+
+    @InjectMocks
+    private TransferService transferService;
+
+    private Warehouse main;
+    private Warehouse annex;
+    private Lot source;
+    private Lot target;
+    private final LocalDate expiration = LocalDate.now().plusDays(20);
+
+    @BeforeEach
+    void setup() {
+        main = Warehouse.builder().id(1L).name("Principal").isActive(true).build();
+        annex = Warehouse.builder().id(2L).name("Anexo").isActive(true).build();
+        var product = Product.builder().id(10L).name("Farinha").totalStock(150L).build();
+        var supplier = Supplier.builder().id(20L).name("Moinho").isActive(true).build();
+        source = lot(7L, main, product, supplier, 100L);
+        target = lot(3L, annex, product, supplier, 50L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void createTransfer_WhenDestinationHasMatchingLot_ShouldMoveBalanceBetweenBothLockedLots() {
+        when(warehouseService.findActiveWarehouse(2L)).thenReturn(annex);
+        when(lotRepository.findTransferTargetIds(7L, 2L)).thenReturn(List.of(3L));
+        when(lotRepository.findAllByIdForUpdate(List.of(7L, 3L))).thenReturn(List.of(target, source));
+        when(inventoryMovementRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = transferService.createTransfer(request(30L));
+
+        assertThat(source.getCurrentQtd()).isEqualTo(70L);
+        assertThat(target.getCurrentQtd()).isEqualTo(80L);
+        assertThat(result.destination().id()).isEqualTo(3L);
+        verify(lotRepository, never()).save(any());
+        verify(lotAllocationService).adjust(10L, 7L, expiration, -30L);
+        verify(lotAllocationService).adjust(10L, 3L, expiration, 30L);
+
+        ArgumentCaptor<List<InventoryMovement>> movements = ArgumentCaptor.captor();
+        verify(inventoryMovementRepository).saveAll(movements.capture());
+        assertThat(movements.getValue()).extracting(InventoryMovement::getMovementType)
+                .containsExactly(MovementType.TRANSFERENCIA_SAIDA, MovementType.TRANSFERENCIA_ENTRADA);
+    }
+
+    @Test
+    void createTransfer_WhenDestinationHasNoMatchingLot_ShouldCreateItKeepingCodeUniqueAndDates() {
+        when(warehouseService.findActiveWarehouse(2L)).thenReturn(annex);
+        when(lotRepository.findTransferTargetIds(7L, 2L)).thenReturn(List.of());
+        when(lotRepository.findAllByIdForUpdate(List.of(7L))).thenReturn(List.of(source));
+        when(lotCodeGenerator.next()).thenReturn("LT-00000000000A");
+        when(lotRepository.save(any(Lot.class))).thenAnswer(invocation -> {
+            Lot saved = invocation.getArgument(0);
+            saved.setId(11L);
+            return saved;
+        });
+        when(inventoryMovementRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = transferService.createTransfer(request(100L));
+
+        assertThat(source.getCurrentQtd()).isZero();
+        assertThat(source.getStatus()).isEqualTo(LotStatus.ESGOTADO);
+        assertThat(result.destination().lotCode()).isEqualTo("LT-00000000000A");
+        assertThat(result.destination().warehouseId()).isEqualTo(2L);
+        assertThat(result.destination().currentQtd()).isEqualTo(100L);
+        verify(lotExpirationService).register(11L, expiration);
+    }
+
+    @Test
+    void createTransfer_WhenDestinationLotIsDepletedUnderTheLock_ShouldCreateANewLotInsteadOfRevivingIt() {
+        target.setCurrentQtd(0L);
+        target.setStatus(LotStatus.ESGOTADO);
+        when(warehouseService.findActiveWarehouse(2L)).thenReturn(annex);
+        when(lotRepository.findTransferTargetIds(7L, 2L)).thenReturn(List.of(3L)).thenReturn(List.of());
+        when(lotRepository.findAllByIdForUpdate(List.of(7L, 3L))).thenReturn(List.of(target, source));
+        when(lotCodeGenerator.next()).thenReturn("LT-00000000000B");
+        when(lotRepository.save(any(Lot.class))).thenAnswer(invocation -> {
+            Lot saved = invocation.getArgument(0);
+            saved.setId(12L);
+            return saved;
+        });
+        when(inventoryMovementRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = transferService.createTransfer(request(30L));
+
+        assertThat(target.getStatus()).isEqualTo(LotStatus.ESGOTADO);
+        assertThat(target.getCurrentQtd()).isZero();
+        assertThat(result.destination().id()).isEqualTo(12L);
+        verify(lotRepository).releaseTransferTarget(10L, 2L, 20L, expiration);
+        var created = ArgumentCaptor.forClass(Lot.class);
+        verify(lotRepository).save(created.capture());
+        assertThat(created.getValue().getTransferTarget()).isTrue();
+    }
+
+    @Test
+    void createTransfer_WhenAnotherTransferCreatedTheDestinationLot_ShouldLockAndCreditIt() {
+        var created = lot(12L, annex, target.getProduct(), target.getSupplier(), 40L);
+        when(warehouseService.findActiveWarehouse(2L)).thenReturn(annex);
+        when(lotRepository.findTransferTargetIds(7L, 2L)).thenReturn(List.of()).thenReturn(List.of(12L));
+        when(lotRepository.findAllByIdForUpdate(List.of(7L))).thenReturn(List.of(source));
+        when(lotRepository.findAllByIdForUpdate(List.of(12L))).thenReturn(List.of(created));
+        when(inventoryMovementRepository.saveAll(anyIterable())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var result = transferService.createTransfer(request(30L));
+
+        assertThat(created.getCurrentQtd()).isEqualTo(70L);
+        assertThat(result.destination().id()).isEqualTo(12L);
+        verify(lotRepository, never()).save(any());
+    }
+
+    @Test
+    void createTransfer_WhenFreeBalanceIsNotEnough_ShouldThrowExceptionWithoutChangingLots() {
+        source.setReservedQtd(80L);
+        when(warehouseService.findActiveWarehouse(2L)).thenReturn(annex);
+        when(lotRepository.findTransferTargetIds(7L, 2L)).thenReturn(List.of(3L));
+        when(lotRepository.findAllByIdForUpdate(List.of(7L, 3L))).thenReturn(List.of(target, source));
+
+        assertThrows(BusinessException.class, () -> transferService.createTransfer(request(30L)));
+        assertThat(source.getCurrentQtd()).isEqualTo(100L);
+        assertThat(target.getCurrentQtd()).isEqualTo(50L);
+        verify(inventoryMovementRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void createTransfer_WhenLotIsAlreadyInDestination_ShouldThrowException() {
+        when(warehouseService.findActiveWarehouse(1L)).thenReturn(main);
+        when(lotRepository.findTransferTargetIds(7L, 1L)).thenReturn(List.of());
+        when(lotRepository.findAllByIdForUpdate(List.of(7L))).thenReturn(List.of(source));
+
+        var sameWarehouse = TransferRequestDTO.builder().sourceLotId(7L).destinationWarehouseId(1L).quantity(10L).build();
+
+        assertThrows(BusinessException.class, () -> transferService.createTransfer(sameWarehouse));
+        assertThat(source.getCurrentQtd()).isEqualTo(100L);
+        verify(inventoryMovementRepository, never()).saveAll(anyIterable());
+    }
+
+    private TransferRequestDTO request(long quantity) {
+        return TransferRequestDTO.builder()
+                .sourceLotId(7L)
+                .destinationWarehouseId(2L)
+                .quantity(quantity)
+                .build();
+    }
+
+    private Lot lot(Long id, Warehouse warehouse, Product product, Supplier supplier, long quantity) {
+        return Lot.builder()
+                .id(id)
+                .initialQtd(quantity)
+                .currentQtd(quantity)
+                .measurementUnit(MeasurementUnit.KG)
+                .entryDate(LocalDate.now().minusDays(5))
+                .expirationDate(expiration)
+                .lotCode("TRANSF" + id)
+                .status(LotStatus.ATIVO)
+                .product(product)
+                .supplier(supplier)
+                .warehouse(warehouse)
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.enterprise.gestaoestoque.service;
 
+import com.enterprise.gestaoestoque.enums.PageTotal;
 import com.enterprise.gestaoestoque.enums.UserProfile;
 import com.enterprise.gestaoestoque.exception.BusinessException;
 import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -45,6 +47,9 @@ public class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Spy
+    private PageTotalService pageTotalService = new PageTotalService(null);
+
     @InjectMocks
     private UserService userService;
 
@@ -88,13 +93,11 @@ public class UserServiceTest {
     @Test
     void getAllUsers_WhenCalled_ShouldReturnPageOfUsers() {
         var pageable = PageRequest.of(1, 10);
-        List<User> userList = List.of(user);
-        Page<User> userPage = new PageImpl<>(userList, pageable, userList.size());
+        Page<UserResponseDTO> userPage = new PageImpl<>(List.of(userResponseDTO), pageable, 1);
 
-        when(userRepository.findAll(pageable)).thenReturn(userPage);
-        when(userMapper.toUserResponseDTO(user)).thenReturn(userResponseDTO);
+        when(userRepository.findAllRows(pageable)).thenReturn(userPage);
 
-        var users = userService.getAllUsers(pageable);
+        var users = userService.getAllUsers(pageable, PageTotal.EXACT);
 
         assertThat(users)
                 .isNotEmpty()
@@ -0,0 +1,84 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.warehouse.WarehouseRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.Warehouse;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.WarehouseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class WarehouseServiceTest {
+
+    @Mock
+    private WarehouseRepository warehouseRepository;
+
+    @Spy
+    private WarehouseMapper warehouseMapper;
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @InjectMocks
+    private WarehouseService warehouseService;
+
+    @Test
+    void createWarehouse_WhenNameIsNew_ShouldCreateActiveWarehouse() {
+        when(warehouseRepository.findByNameIgnoreCase("Anexo")).thenReturn(Optional.empty());
+        when(warehouseRepository.save(any(Warehouse.class))).thenAnswer(invocation -> {
+            Warehouse saved = invocation.getArgument(0);
+            saved.setId(2L);
+            return saved;
+        });
+
+        var result = warehouseService.createWarehouse(new WarehouseRequestDTO("Anexo"));
+
+        assertThat(result.id()).isEqualTo(2L);
+        assertThat(result.isActive()).isTrue();
+    }
+
+    @Test
+    void createWarehouse_WhenNameAlreadyExists_ShouldThrowException() {
+        when(warehouseRepository.findByNameIgnoreCase("Anexo"))
+                .thenReturn(Optional.of(Warehouse.builder().id(2L).name("Anexo").isActive(true).build()));
+
+        assertThrows(BusinessException.class, () -> warehouseService.createWarehouse(new WarehouseRequestDTO("Anexo")));
+        verify(warehouseRepository, never()).save(any());
+    }
+
+    @Test
+    void findActiveWarehouse_WhenInactiveOrMissing_ShouldThrowException() {
+        when(warehouseRepository.findById(2L))
+                .thenReturn(Optional.of(Warehouse.builder().id(2L).name("Anexo").isActive(false).build()));
+        when(warehouseRepository.findById(3L)).thenReturn(Optional.empty());
+
+        assertThrows(BusinessException.class, () -> warehouseService.findActiveWarehouse(2L));
+        assertThrows(ResourceNotFoundException.class, () -> warehouseService.findActiveWarehouse(3L));
+        assertThat(warehouseService.findActiveWarehouse(null)).isNull();
+    }
+
+    @Test
+    void getWarehouseStock_WhenWarehouseDoesNotExist_ShouldThrowException() {
+        when(warehouseRepository.existsById(3L)).thenReturn(false);
+
+        assertThrows(ResourceNotFoundException.class, () -> warehouseService.getWarehouseStock(3L, PageRequest.of(0, 10)));
+        verify(lotRepository, never()).findWarehouseStock(any(), any());
+    }
+}
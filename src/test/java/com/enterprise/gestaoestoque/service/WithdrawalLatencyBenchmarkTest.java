@@ -0,0 +1,166 @@
+package com.enterprise.gestaoestoque.service;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.enums.MeasurementUnit;
+import com.enterprise.gestaoestoque.enums.MovementType;
+import com.enterprise.gestaoestoque.enums.ProductCategory;
+import com.enterprise.gestaoestoque.enums.UserProfile;
+import com.enterprise.gestaoestoque.mapper.InventoryMapper;
+import com.enterprise.gestaoestoque.mapper.LotMapper;
+import com.enterprise.gestaoestoque.mapper.WarehouseMapper;
+import com.enterprise.gestaoestoque.model.dto.inventory.InventoryMovementRequestDTO;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.model.entity.Supplier;
+import com.enterprise.gestaoestoque.model.entity.User;
+import com.enterprise.gestaoestoque.repository.InventoryMovementRepository;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import com.enterprise.gestaoestoque.repository.SupplierRepository;
+import com.enterprise.gestaoestoque.repository.UserRepository;
+import com.enterprise.gestaoestoque.service.engine.StockEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Latência das baixas disputando um único lote pelo serviço (UPDATE condicional, movimentação e estoque total).
+ * O p50 e o p99 vão para o log do teste; com {@code -Dbenchmark.withdrawal.max-p99-ms=N} o p99 também é
+ * verificado. Não roda no build padrão: {@code mvn test -Dtest=WithdrawalLatencyBenchmarkTest -Dbenchmark=true}.
+ */
+@Slf4j
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({InventoryMovementService.class, LotService.class, PageTotalService.class, InventoryMapper.class, LotMapper.class,
+        SimpleMeterRegistry.class, LotExpirationService.class, SchedulerLeaseService.class, LotAllocationService.class,
+        ThreadPoolTaskScheduler.class, StockEngine.class, TotalStockWriteBehindService.class, LotCodeGenerator.class,
+        WarehouseService.class, WarehouseMapper.class, LotEscrowService.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class WithdrawalLatencyBenchmarkTest {
+
+    private static final int THREADS = 64;
+    private static final int WRITERS = 2_000;
+    private static final long LOT_QTD = 1_000_000;
+
+    @Autowired
+    private InventoryMovementService inventoryMovementService;
+
+    @Autowired
+    private InventoryMovementRepository inventoryMovementRepository;
+
+    @Autowired
+    private LotRepository lotRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private UserService userService;
+
+    @AfterEach
+    void cleanup() {
+        inventoryMovementRepository.deleteAllInBatch();
+        lotRepository.deleteAllInBatch();
+        productRepository.deleteAllInBatch();
+        supplierRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void contendedWithdrawalLatency() throws Exception {
+        var lot = setup();
+
+        // Aquecimento e medição na mesma massa de dados
+        run(lot, WRITERS / 4);
+        var latencies = run(lot, WRITERS);
+
+        long p50 = latencies[WRITERS / 2];
+        long p99 = latencies[(int) Math.ceil(WRITERS * 0.99) - 1];
+        log.info("Baixas concorrentes num lote: {} baixas em {} threads, p50 {} ms, p99 {} ms",
+                WRITERS, THREADS, "%.2f".formatted(p50 / 1e6), "%.2f".formatted(p99 / 1e6));
+
+        long withdrawn = WRITERS / 4 + WRITERS;
+        assertThat(lotRepository.findById(lot.getId()).orElseThrow().getCurrentQtd()).isEqualTo(LOT_QTD - withdrawn);
+        assertThat(inventoryMovementRepository.count()).isEqualTo(withdrawn);
+        var maxP99Ms = Long.getLong("benchmark.withdrawal.max-p99-ms");
+        if (maxP99Ms != null) {
+            assertThat(p99 / 1_000_000).isLessThanOrEqualTo(maxP99Ms);
+        }
+    }
+
+    private long[] run(Lot lot, int writers) throws Exception {
+        var latencies = new long[writers];
+        var start = new CountDownLatch(1);
+        try (var executor = Executors.newFixedThreadPool(THREADS)) {
+            var workers = new ArrayList<Future<?>>();
+            for (int i = 0; i < writers; i++) {
+                int index = i;
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    long begin = System.nanoTime();
+                    inventoryMovementService.createInventoryMovement(new InventoryMovementRequestDTO(lot.getId(),
+                            MovementType.USO_PRODUCAO, BigDecimal.ONE, MeasurementUnit.KG));
+                    latencies[index] = System.nanoTime() - begin;
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private Lot setup() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            var user = userRepository.save(User.builder().name("Benchmark").email("latencia@teste.com").password("senha")
+                    .profile(UserProfile.FUNCIONARIO).isActive(true).build());
+            when(userService.getLoggedUser()).thenAnswer(invocation -> userRepository.getReferenceById(user.getId()));
+            var supplier = supplierRepository.save(Supplier.builder()
+                    .name("Fornecedor benchmark").cnpj("00.000.000/0001-00").contactName("Contato")
+                    .email("fornecedor@teste.com").phone("(47) 90000-0000").isActive(true).build());
+            var product = productRepository.save(Product.builder()
+                    .name("Produto benchmark").category(ProductCategory.NAO_PERECIVEIS).measurementUnit(MeasurementUnit.KG)
+                    .minQuantity(1L).totalStock(LOT_QTD).isActive(true).build());
+            return lotRepository.save(Lot.builder()
+                    .product(product).supplier(supplier)
+                    .initialQtd(LOT_QTD).currentQtd(LOT_QTD).measurementUnit(MeasurementUnit.KG)
+                    .entryDate(LocalDate.now()).expirationDate(LocalDate.now().plusDays(30))
+                    .lotCode("LATENCY-BENCH").status(LotStatus.ATIVO)
+                    .build());
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1_000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void advance_WhenDeadlinePasses_ShouldFireOnlyThen() {
+        var wheel = new HierarchicalTimingWheel(TICK, START);
+        wheel.schedule(1L, START + 5_500);
+
+        assertThat(wheel.advance(START + 5_000)).isEmpty();
+        assertThat(wheel.advance(START + 6_000)).containsExactly(1L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_WhenCancelled_ShouldNotFire() {
+        var wheel = new HierarchicalTimingWheel(TICK, START);
+        wheel.schedule(1L, START + 3_000);
+        wheel.schedule(2L, START + 3_000);
+
+        assertThat(wheel.cancel(1L)).isTrue();
+
+        assertThat(wheel.advance(START + 10_000)).containsExactly(2L);
+    }
+
+    @Test
+    void advance_WhenRescheduled_ShouldFireAtTheLatestDeadlineOnly() {
+        var wheel = new HierarchicalTimingWheel(TICK, START);
+        wheel.schedule(1L, START + 2_000);
+        wheel.schedule(1L, START + 200_000);
+
+        assertThat(wheel.advance(START + 100_000)).isEmpty();
+        assertThat(wheel.advance(START + 200_000)).containsExactly(1L);
+    }
+
+    @Test
+    void schedule_WhenDeadlineAlreadyPassed_ShouldFireOnNextAdvance() {
+        var wheel = new HierarchicalTimingWheel(TICK, START);
+        wheel.advance(START + 10_000);
+
+        wheel.schedule(1L, START + 1_000);
+
+        assertThat(wheel.advance(START + 10_000)).containsExactly(1L);
+    }
+
+    @Test
+    void advance_WhenDeadlinesSpanSeveralLevels_ShouldFireEachOnceAndNeverEarly() {
+        var wheel = new HierarchicalTimingWheel(TICK, START);
+        var random = new Random(42);
+        var deadlines = new HashMap<Long, Long>();
+        for (long id = 0; id < 5_000; id++) {
+            // Até 5 dias: com 64 posições por nível e tick de 1s, ocupa os níveis 0 a 3
+            long deadline = START + (long) (random.nextDouble() * 5 * 86_400_000L);
+            deadlines.put(id, deadline);
+            wheel.schedule(id, deadline);
+        }
+
+        var fired = new HashMap<Long, Long>();
+        long step = 37_000;
+        for (long now = START; now <= START + 5 * 86_400_000L + step; now += step) {
+            for (var id : wheel.advance(now)) {
+                assertThat(fired.put(id, now)).isNull();
+            }
+        }
+
+        assertThat(fired).hasSameSizeAs(deadlines);
+        fired.forEach((id, firedAt) -> {
+            long due = Math.ceilDiv(deadlines.get(id), TICK) * TICK;
+            assertThat(firedAt).isGreaterThanOrEqualTo(due).isLessThan(due + step);
+        });
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,260 @@
+package com.enterprise.gestaoestoque.service.engine;
+
+import com.enterprise.gestaoestoque.enums.LotStatus;
+import com.enterprise.gestaoestoque.exception.BusinessException;
+import com.enterprise.gestaoestoque.exception.ResourceNotFoundException;
+import com.enterprise.gestaoestoque.model.dto.lot.LotStockDTO;
+import com.enterprise.gestaoestoque.model.entity.Lot;
+import com.enterprise.gestaoestoque.model.entity.Product;
+import com.enterprise.gestaoestoque.repository.LotRepository;
+import com.enterprise.gestaoestoque.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StockEngineTest {
+
+    @Mock
+    private LotRepository lotRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    private final List<StockEngine> engines = new ArrayList<>();
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (var engine : engines) {
+            engine.stop();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void start_WhenThereIsNoSnapshot_ShouldLoadActiveLotsIntoProductTotals() {
+        var engine = startEngine();
+
+        assertThat(engine.totalStock(100L)).hasValue(80);
+        assertThat(engine.currentQtd(3L)).hasValue(20);
+        assertThat(engine.lotStatus(3L)).isEqualTo(LotStatus.VENCIDO);
+    }
+
+    @Test
+    void withdraw_WhenLotIsEmptied_ShouldMarkItEsgotadoAndReduceProductTotal() {
+        var engine = startEngine();
+
+        var withdrawal = engine.withdraw(2L, 30);
+
+        assertThat(withdrawal.status()).isEqualTo(LotStatus.ESGOTADO);
+        assertThat(withdrawal.countedInTotalStock()).isTrue();
+        assertThat(engine.currentQtd(2L)).hasValue(0);
+        assertThat(engine.totalStock(100L)).hasValue(50);
+    }
+
+    @Test
+    void withdraw_WhenLotIsExpired_ShouldNotChangeProductTotal() {
+        var engine = startEngine();
+
+        var withdrawal = engine.withdraw(3L, 20);
+
+        assertThat(withdrawal.status()).isEqualTo(LotStatus.VENCIDO);
+        assertThat(withdrawal.countedInTotalStock()).isFalse();
+        assertThat(engine.totalStock(100L)).hasValue(80);
+    }
+
+    @Test
+    void withdraw_WhenQuantityIsGreaterThanAvailable_ShouldThrowAndKeepBalance() {
+        var engine = startEngine();
+
+        var exception = assertThrows(BusinessException.class, () -> engine.withdraw(1L, 51));
+
+        assertThat(exception.getMessage()).isEqualTo("Quantidade maior que a disponível no lote.");
+        assertThat(engine.currentQtd(1L)).hasValue(50);
+        assertThat(engine.totalStock(100L)).hasValue(80);
+    }
+
+    @Test
+    void withdraw_WhenLotDoesNotExist_ShouldThrowResourceNotFound() {
+        var engine = startEngine();
+
+        assertThrows(ResourceNotFoundException.class, () -> engine.withdraw(99L, 1));
+    }
+
+    @Test
+    void withdraw_WhenTransactionRollsBack_ShouldRestoreLotAndProduct() {
+        var engine = startEngine();
+        TransactionSynchronizationManager.initSynchronization();
+
+        engine.withdraw(2L, 30);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(engine.currentQtd(2L)).hasValue(30);
+        assertThat(engine.lotStatus(2L)).isEqualTo(LotStatus.ATIVO);
+        assertThat(engine.totalStock(100L)).hasValue(80);
+    }
+
+    @Test
+    void withdrawAvailable_ShouldTakeAtMostTheLotBalanceAndSkipExpiredLots() {
+        var engine = startEngine();
+
+        assertThat(engine.withdrawAvailable(1L, 70, TODAY)).isEqualTo(50);
+        assertThat(engine.withdrawAvailable(3L, 10, TODAY)).isZero();
+        assertThat(engine.totalStock(100L)).hasValue(30);
+    }
+
+    @Test
+    void restoreAfterCommit_WhenLotIsEsgotadoAndNotExpired_ShouldReactivateIt() {
+        var engine = startEngine();
+        engine.withdraw(2L, 30);
+
+        var restorations = new ArrayList<StockEngine.Restoration>();
+        engine.restoreAfterCommit(2L, 10, restorations::add);
+
+        assertThat(engine.lotStatus(2L)).isEqualTo(LotStatus.ATIVO);
+        assertThat(engine.totalStock(100L)).hasValue(60);
+        assertThat(restorations).singleElement().satisfies(restoration -> {
+            assertThat(restoration.currentQtd()).isEqualTo(10);
+            assertThat(restoration.countedInTotalStock()).isTrue();
+        });
+    }
+
+    @Test
+    void expireDueLots_ShouldMoveExpiredActiveLotsOutOfProductTotal() {
+        var engine = startEngine();
+        engine.registerLot(4L, 100L, 15, TODAY.minusDays(1), LotStatus.ATIVO);
+        assertThat(engine.totalStock(100L)).hasValue(95);
+
+        int expired = engine.expireDueLots(TODAY);
+
+        assertThat(expired).isEqualTo(1);
+        assertThat(engine.lotStatus(4L)).isEqualTo(LotStatus.VENCIDO);
+        assertThat(engine.totalStock(100L)).hasValue(80);
+    }
+
+    @Test
+    void start_AfterCrash_ShouldRecoverFromSnapshotAndWriteAheadLog() {
+        var engine = startEngine();
+        engine.withdraw(1L, 5);
+        engine.checkpoint();
+        engine.withdraw(1L, 10);
+        engine.registerLot(4L, 200L, 7, TODAY.plusDays(10), LotStatus.ATIVO);
+
+        // Nova instância no mesmo diretório, sem passar pelo stop() da anterior
+        var recovered = startEngine();
+
+        assertThat(recovered.currentQtd(1L)).hasValue(35);
+        assertThat(recovered.totalStock(100L)).hasValue(65);
+        assertThat(recovered.totalStock(200L)).hasValue(7);
+    }
+
+    @Test
+    void start_WhenLastRecordIsTorn_ShouldDiscardItAndKeepPreviousRecords() throws IOException {
+        var engine = startEngine();
+        engine.withdraw(1L, 5);
+        Files.write(latestSegment(), new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+
+        var recovered = startEngine();
+
+        assertThat(recovered.currentQtd(1L)).hasValue(45);
+        assertThat(recovered.totalStock(100L)).hasValue(75);
+    }
+
+    @Test
+    void persistDirty_ShouldWriteCurrentValuesOfChangedLotsAndProducts() {
+        var engine = startEngine();
+        var lot = Lot.builder().id(2L).currentQtd(30L).status(LotStatus.ATIVO).build();
+        var product = Product.builder().id(100L).totalStock(80L).build();
+        when(lotRepository.findAllById(anyIterable())).thenReturn(List.of(lot));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product));
+
+        engine.withdraw(2L, 30);
+        engine.persistDirty();
+
+        assertThat(lot.getCurrentQtd()).isZero();
+        assertThat(lot.getStatus()).isEqualTo(LotStatus.ESGOTADO);
+        assertThat(product.getTotalStock()).isEqualTo(50L);
+    }
+
+    @Test
+    void longIntHashMap_WhenKeysAreRemoved_ShouldKeepRemainingKeysReachable() {
+        var map = new LongIntHashMap(16);
+        var expected = new HashMap<Long, Integer>();
+        var random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                map.put(key, i);
+                expected.put(key, i);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 2_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, LongIntHashMap.MISSING));
+        }
+    }
+
+    private StockEngine startEngine() {
+        lenient().when(productRepository.findAllIds()).thenReturn(List.of(100L));
+        lenient().when(lotRepository.findStockState()).thenReturn(List.of(
+                new LotStockDTO(1L, 100L, 50L, LotStatus.ATIVO, TODAY.plusDays(30)),
+                new LotStockDTO(2L, 100L, 30L, LotStatus.ATIVO, TODAY.plusDays(60)),
+                new LotStockDTO(3L, 100L, 20L, LotStatus.VENCIDO, TODAY.minusDays(5))));
+        var engine = new StockEngine(lotRepository, productRepository, transactionManager, new SimpleMeterRegistry(),
+                true, directory.toString(), true);
+        engine.start();
+        engines.add(engine);
+        return engine;
+    }
+
+    private Path latestSegment() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .max((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .orElseThrow();
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        var name = path.getFileName().toString();
+        return Long.parseLong(name.substring(4, name.length() - 4));
+    }
+}